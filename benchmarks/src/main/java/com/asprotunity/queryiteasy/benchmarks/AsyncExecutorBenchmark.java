@@ -0,0 +1,98 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import com.asprotunity.queryiteasy.datastore.AsyncExecutors;
+import com.asprotunity.queryiteasy.datastore.DataStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindInteger;
+import static com.asprotunity.queryiteasy.connection.ResultSetReaders.asInteger;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Measures the throughput of {@code DataStore.executeWithResultAsync} with each kind of executor, running
+ * 64 transactions at once on a pool of 4 connections. Each transaction runs a query and then waits
+ * {@code latencyMillis}, to simulate the network round trips that block real JDBC calls.
+ * The {@code virtual_threads} executor needs Java 21 or later; on earlier versions its trials fail in the set up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncExecutorBenchmark {
+
+    private static final int TASKS = 64;
+
+    @Param({"common_pool", "bounded_pool", "virtual_threads"})
+    public String executor;
+
+    @Param({"0", "1"})
+    public int latencyMillis;
+
+    private HSQLInMemoryDatabase database;
+    private ExecutorService executorService;
+    private DataStore dataStore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new HSQLInMemoryDatabase("async_executor_benchmark", 16);
+        database.dataStore().execute(connection -> {
+            connection.update("CREATE TABLE item (id INTEGER PRIMARY KEY)");
+            connection.update("INSERT INTO item (id) VALUES (1)");
+        });
+        switch (executor) {
+            case "common_pool":
+                dataStore = database.dataStore().withAsyncExecutor(ForkJoinPool.commonPool());
+                break;
+            case "bounded_pool":
+                dataStore = database.dataStore();
+                break;
+            case "virtual_threads":
+                executorService = AsyncExecutors.virtualThreadPerTask();
+                dataStore = database.dataStore().withAsyncExecutor(executorService);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown executor: " + executor);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+        database.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public int concurrent_transactions() {
+        CompletableFuture<?>[] results = range(0, TASKS)
+                .mapToObj(task -> dataStore.executeWithResultAsync(connection -> {
+                    int id = connection.select(rs -> asInteger(rs, 1), "SELECT id FROM item WHERE id = ?",
+                                               bindInteger(1))
+                            .findFirst().orElse(0);
+                    sleep(latencyMillis);
+                    return id;
+                }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(results).join();
+        return results.length;
+    }
+
+    private static void sleep(int millis) {
+        if (millis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(millis);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
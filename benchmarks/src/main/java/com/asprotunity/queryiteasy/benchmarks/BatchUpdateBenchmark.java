@@ -0,0 +1,63 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import com.asprotunity.queryiteasy.connection.Batch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.asprotunity.queryiteasy.connection.Batch.batch;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindInteger;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindString;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Measures {@code Connection.update(sql, List<Batch>)} with batches of different sizes. The batches are built once,
+ * so only binding and execution are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchUpdateBenchmark {
+
+    private static final int TABLE_SIZE = 1000;
+    private static final String UPDATE = "UPDATE item SET description = ?, quantity = ? WHERE id = ?";
+
+    @Param({"1", "10", "100", "1000"})
+    public int batchSize;
+
+    @Param({"0", "16"})
+    public int statementCacheSize;
+
+    private HSQLInMemoryDatabase database;
+    private List<Batch> batches;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new HSQLInMemoryDatabase("batch_update_benchmark", statementCacheSize);
+        database.dataStore().execute(connection -> {
+            connection.update("CREATE TABLE item (id INTEGER PRIMARY KEY, description VARCHAR(100), quantity INTEGER)");
+            connection.update("INSERT INTO item (id, description, quantity) VALUES (?, ?, ?)",
+                              range(0, TABLE_SIZE)
+                                      .mapToObj(id -> batch(bindInteger(id), bindString("item " + id), bindInteger(0)))
+                                      .collect(toList()));
+        });
+        batches = range(0, batchSize)
+                .mapToObj(id -> batch(bindString("updated item " + id), bindInteger(id), bindInteger(id)))
+                .collect(toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void batch_update() {
+        database.dataStore().execute(connection -> connection.update(UPDATE, batches));
+    }
+}
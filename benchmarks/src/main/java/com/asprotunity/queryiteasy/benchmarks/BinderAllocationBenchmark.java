@@ -0,0 +1,111 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import com.asprotunity.queryiteasy.connection.Batch;
+import com.asprotunity.queryiteasy.connection.BatchBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.asprotunity.queryiteasy.connection.Batch.batch;
+import static com.asprotunity.queryiteasy.connection.BatchBuilder.ColumnType.*;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.*;
+
+/**
+ * Measures building, and building and executing, a batch update of 1000 rows of 10 columns with the boxed binders,
+ * e.g., {@code bindLong(Long)}, with the primitive ones, e.g., {@code bindLong(long)}, and with a reused
+ * {@link BatchBuilder}. Run it with {@code -prof gc}
+ * to compare the allocation rate: {@code gc.alloc.rate.norm} is the number of bytes allocated per batch update.
+ * HSQLDB boxes the values it is given by {@code setLong} and {@code setDouble}, so the difference only shows when
+ * building the batches with it; drivers writing primitives straight into their buffers keep it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinderAllocationBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final String UPDATE = "UPDATE item SET l1 = ?, l2 = ?, l3 = ?, l4 = ?, " +
+                                         "d1 = ?, d2 = ?, d3 = ?, d4 = ?, d5 = ? WHERE id = ?";
+
+    @Param({"boxed", "primitive", "columnar"})
+    public String binders;
+
+    private HSQLInMemoryDatabase database;
+    private BatchBuilder columnar;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new HSQLInMemoryDatabase("binder_allocation_benchmark", 16);
+        database.dataStore().execute(connection -> {
+            connection.update("CREATE TABLE item (id INTEGER PRIMARY KEY, l1 BIGINT, l2 BIGINT, l3 BIGINT, " +
+                              "l4 BIGINT, d1 DOUBLE, d2 DOUBLE, d3 DOUBLE, d4 DOUBLE, d5 DOUBLE)");
+            for (int id = 0; id < ROWS; ++id) {
+                connection.update("INSERT INTO item (id) VALUES (?)", bindInteger(id));
+            }
+        });
+        columnar = BatchBuilder.columns(LONG, LONG, LONG, LONG, DOUBLE, DOUBLE, DOUBLE, DOUBLE, DOUBLE, INT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Object build_batches() {
+        return binders.equals("columnar") ? fillColumnar() : batches();
+    }
+
+    @Benchmark
+    public int[] batch_update() {
+        if (binders.equals("columnar")) {
+            BatchBuilder rows = fillColumnar();
+            return database.dataStore().executeWithResult(connection -> connection.update(UPDATE, rows, ROWS));
+        }
+        List<Batch> batches = batches();
+        return database.dataStore().executeWithResult(connection -> connection.update(UPDATE, batches, ROWS));
+    }
+
+    private BatchBuilder fillColumnar() {
+        columnar.clear();
+        for (int id = 0; id < ROWS; ++id) {
+            long value = (long) id * 1000;
+            double fraction = id / 7.0;
+            columnar.setLong(1, value).setLong(2, value + 1).setLong(3, value + 2).setLong(4, value + 3)
+                    .setDouble(5, fraction).setDouble(6, fraction + 1).setDouble(7, fraction + 2)
+                    .setDouble(8, fraction + 3).setDouble(9, fraction + 4).setInt(10, id).addRow();
+        }
+        return columnar;
+    }
+
+    private List<Batch> batches() {
+        boolean primitive = binders.equals("primitive");
+        List<Batch> batches = new ArrayList<>(ROWS);
+        for (int id = 0; id < ROWS; ++id) {
+            batches.add(primitive ? primitiveRow(id) : boxedRow(id));
+        }
+        return batches;
+    }
+
+    private static Batch boxedRow(int id) {
+        long value = (long) id * 1000;
+        double fraction = id / 7.0;
+        return batch(bindLong((Long) value), bindLong((Long) (value + 1)), bindLong((Long) (value + 2)),
+                     bindLong((Long) (value + 3)), bindDouble((Double) fraction), bindDouble((Double) (fraction + 1)),
+                     bindDouble((Double) (fraction + 2)), bindDouble((Double) (fraction + 3)),
+                     bindDouble((Double) (fraction + 4)), bindInteger(id));
+    }
+
+    private static Batch primitiveRow(int id) {
+        long value = (long) id * 1000;
+        double fraction = id / 7.0;
+        return batch(bindLong(value), bindLong(value + 1), bindLong(value + 2), bindLong(value + 3),
+                     bindDouble(fraction), bindDouble(fraction + 1), bindDouble(fraction + 2),
+                     bindDouble(fraction + 3), bindDouble(fraction + 4), bindInt(id));
+    }
+}
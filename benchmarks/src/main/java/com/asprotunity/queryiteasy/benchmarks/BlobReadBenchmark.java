@@ -0,0 +1,75 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import com.asprotunity.queryiteasy.exception.RuntimeIOException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindBlob;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindInteger;
+import static com.asprotunity.queryiteasy.connection.ResultSetReaders.fromBlob;
+
+/**
+ * Measures reading blobs of different sizes through {@code ResultSetReaders.fromBlob}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlobReadBenchmark {
+
+    private static final int ROWS = 10;
+
+    @Param({"1024", "1048576"})
+    public int blobSize;
+
+    private HSQLInMemoryDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new HSQLInMemoryDatabase("blob_read_benchmark", 0);
+        byte[] content = new byte[blobSize];
+        new Random(42).nextBytes(content);
+        database.dataStore().execute(connection -> {
+            connection.update("CREATE TABLE document (id INTEGER PRIMARY KEY, content BLOB)");
+            for (int id = 0; id < ROWS; ++id) {
+                connection.update("INSERT INTO document (id, content) VALUES (?, ?)",
+                                  bindInteger(id), bindBlob(() -> new ByteArrayInputStream(content)));
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void read_blobs(Blackhole blackhole) {
+        database.dataStore().execute(
+                connection -> connection.select(rs -> fromBlob(rs, 1, BlobReadBenchmark::drain),
+                                                "SELECT content FROM document")
+                        .forEach(blackhole::consume));
+    }
+
+    private static long drain(InputStream inputStream) {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        try {
+            for (int read = inputStream.read(buffer); read != -1; read = inputStream.read(buffer)) {
+                total += read;
+            }
+        } catch (IOException exception) {
+            throw new RuntimeIOException(exception);
+        }
+        return total;
+    }
+}
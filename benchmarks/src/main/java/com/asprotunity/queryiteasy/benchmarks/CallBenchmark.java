@@ -0,0 +1,60 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import com.asprotunity.queryiteasy.connection.IntegerInputOutputParameter;
+import com.asprotunity.queryiteasy.connection.StringOutputParameter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindString;
+
+/**
+ * Measures {@code Connection.call} of a stored procedure with input, output and input-output parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallBenchmark {
+
+    @Param({"0", "16"})
+    public int statementCacheSize;
+
+    private HSQLInMemoryDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new HSQLInMemoryDatabase("call_benchmark", statementCacheSize);
+        database.dataStore().execute(connection -> {
+            connection.update("CREATE TABLE song (title VARCHAR(20) NOT NULL, band VARCHAR(100) NOT NULL, year INTEGER)");
+            connection.update("INSERT INTO song (title, band, year) VALUES ('Hey Jude', 'Beatles', 1968)");
+            connection.update("CREATE PROCEDURE swap_year(in ptitle VARCHAR(20), out pband VARCHAR(100), " +
+                              "                           inout pyear INTEGER)\n" +
+                              "MODIFIES SQL DATA\n" +
+                              "BEGIN ATOMIC \n" +
+                              "   DECLARE temp_year INTEGER;\n" +
+                              "   SET temp_year = pyear;\n" +
+                              "   SELECT band, year INTO pband, pyear FROM song WHERE title = ptitle;\n" +
+                              "   UPDATE song SET year = temp_year WHERE title = ptitle;\n" +
+                              " END");
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void call_with_output_parameters(Blackhole blackhole) {
+        StringOutputParameter band = new StringOutputParameter();
+        IntegerInputOutputParameter year = new IntegerInputOutputParameter(1969);
+        database.dataStore().execute(
+                connection -> connection.call("{call swap_year(?, ?, ?)}", bindString("Hey Jude"), band, year));
+        blackhole.consume(band.value());
+        blackhole.consume(year.value());
+    }
+}
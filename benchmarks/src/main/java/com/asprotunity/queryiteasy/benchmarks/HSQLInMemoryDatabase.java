@@ -0,0 +1,42 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import com.asprotunity.queryiteasy.datastore.ConnectionPool;
+import com.asprotunity.queryiteasy.datastore.DataStore;
+import org.hsqldb.jdbc.JDBCDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Creates the in-process HSQLDB databases used by the benchmarks, so that the results measure the library and the
+ * JDBC driver rather than the network.
+ */
+final class HSQLInMemoryDatabase implements AutoCloseable {
+
+    private final ConnectionPool connectionPool;
+    private final DataStore dataStore;
+
+    HSQLInMemoryDatabase(String name, int statementCacheSize) {
+        this.connectionPool = new ConnectionPool(dataSource(name), 1, 4, Duration.ofMinutes(10),
+                                                 Duration.ofSeconds(10), statementCacheSize);
+        this.dataStore = DataStore.pooled(connectionPool);
+    }
+
+    static DataSource dataSource(String name) {
+        JDBCDataSource result = new JDBCDataSource();
+        result.setUrl("jdbc:hsqldb:mem:" + name);
+        result.setUser("sa");
+        result.setPassword("");
+        return result;
+    }
+
+    DataStore dataStore() {
+        return dataStore;
+    }
+
+    @Override
+    public void close() {
+        dataStore.execute(connection -> connection.update("DROP SCHEMA PUBLIC CASCADE"));
+        connectionPool.close();
+    }
+}
@@ -0,0 +1,52 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import com.asprotunity.queryiteasy.datastore.DataStore;
+import com.asprotunity.queryiteasy.metrics.QueryMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindInteger;
+import static com.asprotunity.queryiteasy.connection.ResultSetReaders.asInteger;
+
+/**
+ * Measures the cost of statement metrics on a single row select by primary key, the cheapest statement there is,
+ * with metrics turned off and on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    @Param({"off", "on"})
+    public String metrics;
+
+    private HSQLInMemoryDatabase database;
+    private DataStore dataStore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new HSQLInMemoryDatabase("metrics_benchmark", 16);
+        database.dataStore().execute(connection -> {
+            connection.update("CREATE TABLE item (id INTEGER PRIMARY KEY)");
+            connection.update("INSERT INTO item (id) VALUES (1)");
+        });
+        dataStore = metrics.equals("on") ? database.dataStore().withMetrics(new QueryMetrics()) : database.dataStore();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Integer select_by_primary_key() {
+        return dataStore.executeWithResult(
+                connection -> connection.select(rs -> asInteger(rs, 1), "SELECT id FROM item WHERE id = ?",
+                                                bindInteger(1))
+                        .findFirst().get());
+    }
+}
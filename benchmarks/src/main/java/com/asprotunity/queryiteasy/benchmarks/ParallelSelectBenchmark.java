@@ -0,0 +1,75 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.asprotunity.queryiteasy.connection.Batch.batch;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.*;
+import static com.asprotunity.queryiteasy.connection.ResultSetReaders.*;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Compares {@code Connection.select} with {@code Connection.parallelSelect} when decoding each row is expensive.
+ * Only the decoding runs in parallel, so the speed-up grows with {@code decodingRounds} and the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelSelectBenchmark {
+
+    private static final String SELECT_ALL = "SELECT payload FROM document";
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"0", "100", "1000"})
+    public int decodingRounds;
+
+    private HSQLInMemoryDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new HSQLInMemoryDatabase("parallel_select_benchmark", 16);
+        database.dataStore().execute(connection -> {
+            connection.update("CREATE TABLE document (id INTEGER PRIMARY KEY, payload VARCHAR(100))");
+            connection.update("INSERT INTO document (id, payload) VALUES (?, ?)",
+                              range(0, rows).mapToObj(id -> batch(bindInteger(id), bindString("Document " + id))),
+                              1000);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        database.dataStore().execute(
+                connection -> connection.select(rs -> asString(rs, 1), SELECT_ALL)
+                        .map(this::decode)
+                        .forEach(blackhole::consume));
+    }
+
+    @Benchmark
+    public void parallel(Blackhole blackhole) {
+        database.dataStore().execute(
+                connection -> connection.parallelSelect(rs -> asString(rs, 1), SELECT_ALL)
+                        .map(this::decode)
+                        .forEach(blackhole::consume));
+    }
+
+    private long decode(String payload) {
+        long hash = payload.hashCode();
+        for (int round = 0; round < decodingRounds; ++round) {
+            hash = hash * 6364136223846793005L + 1442695040888963407L;
+            hash ^= hash >>> 29;
+        }
+        return hash;
+    }
+}
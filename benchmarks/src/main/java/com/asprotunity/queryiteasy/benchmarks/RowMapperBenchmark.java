@@ -0,0 +1,142 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import com.asprotunity.queryiteasy.connection.Batch;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.beans.ConstructorProperties;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.asprotunity.queryiteasy.connection.Batch.batch;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.*;
+import static com.asprotunity.queryiteasy.connection.ResultSetReaders.*;
+import static com.asprotunity.queryiteasy.connection.RowMappers.mapTo;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Compares hand-written row mappers with the ones generated by {@code RowMappers.mapTo}, for a class built with its
+ * constructor and for a bean built with setters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final String SELECT_ALL = "SELECT id, title, band, year, rating FROM song WHERE id < ?";
+
+    private static final Function<ResultSet, Song> HAND_WRITTEN_CONSTRUCTOR_MAPPER =
+            rs -> new Song(asInteger(rs, 1), asString(rs, 2), asString(rs, 3), asInteger(rs, 4), asDouble(rs, 5));
+    private static final Function<ResultSet, SongBean> HAND_WRITTEN_BEAN_MAPPER = rs -> {
+        SongBean song = new SongBean();
+        song.setId(asInteger(rs, 1));
+        song.setTitle(asString(rs, 2));
+        song.setBand(asString(rs, 3));
+        song.setYear(asInteger(rs, 4));
+        song.setRating(asDouble(rs, 5));
+        return song;
+    };
+    private static final Function<ResultSet, Song> GENERATED_CONSTRUCTOR_MAPPER = mapTo(Song.class);
+    private static final Function<ResultSet, SongBean> GENERATED_BEAN_MAPPER = mapTo(SongBean.class);
+
+    @Param({"1", "100", "10000"})
+    public int rows;
+
+    private HSQLInMemoryDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new HSQLInMemoryDatabase("row_mapper_benchmark", 16);
+        List<Batch> songs = range(0, rows)
+                .mapToObj(id -> batch(bindInteger(id), bindString("Title " + id), bindString("Band " + (id % 100)),
+                                      bindInteger(1950 + id % 70), bindDouble(id / 10.0)))
+                .collect(toList());
+        database.dataStore().execute(connection -> {
+            connection.update("CREATE TABLE song (id INTEGER PRIMARY KEY, title VARCHAR(100), band VARCHAR(100), " +
+                              "year INTEGER, rating DOUBLE)");
+            connection.update("INSERT INTO song (id, title, band, year, rating) VALUES (?, ?, ?, ?, ?)", songs);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void hand_written_constructor(Blackhole blackhole) {
+        select(HAND_WRITTEN_CONSTRUCTOR_MAPPER, blackhole);
+    }
+
+    @Benchmark
+    public void generated_constructor(Blackhole blackhole) {
+        select(GENERATED_CONSTRUCTOR_MAPPER, blackhole);
+    }
+
+    @Benchmark
+    public void hand_written_bean(Blackhole blackhole) {
+        select(HAND_WRITTEN_BEAN_MAPPER, blackhole);
+    }
+
+    @Benchmark
+    public void generated_bean(Blackhole blackhole) {
+        select(GENERATED_BEAN_MAPPER, blackhole);
+    }
+
+    private <RowType> void select(Function<ResultSet, RowType> rowMapper, Blackhole blackhole) {
+        database.dataStore().execute(
+                connection -> connection.select(rowMapper, SELECT_ALL, bindInteger(rows))
+                        .forEach(blackhole::consume));
+    }
+
+    public static final class Song {
+        final Integer id;
+        final String title;
+        final String band;
+        final Integer year;
+        final Double rating;
+
+        @ConstructorProperties({"id", "title", "band", "year", "rating"})
+        public Song(Integer id, String title, String band, Integer year, Double rating) {
+            this.id = id;
+            this.title = title;
+            this.band = band;
+            this.year = year;
+            this.rating = rating;
+        }
+    }
+
+    public static final class SongBean {
+        private Integer id;
+        private String title;
+        private String band;
+        private Integer year;
+        private Double rating;
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+
+        public void setBand(String band) {
+            this.band = band;
+        }
+
+        public void setYear(Integer year) {
+            this.year = year;
+        }
+
+        public void setRating(Double rating) {
+            this.rating = rating;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import com.asprotunity.queryiteasy.connection.Batch;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.asprotunity.queryiteasy.connection.Batch.batch;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.*;
+import static com.asprotunity.queryiteasy.connection.ResultSetReaders.*;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Measures {@code Connection.select} with row mappers of increasing cost: a single column read by index, boxed and
+ * as an {@code IntStream}, a whole row read by index, and a whole row read by label.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectBenchmark {
+
+    private static final String SELECT_ALL = "SELECT id, title, band, year, rating FROM song WHERE id < ?";
+
+    @Param({"1", "100", "10000"})
+    public int rows;
+
+    @Param({"0", "16"})
+    public int statementCacheSize;
+
+    private HSQLInMemoryDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new HSQLInMemoryDatabase("select_benchmark", statementCacheSize);
+        List<Batch> songs = range(0, rows)
+                .mapToObj(id -> batch(bindInteger(id), bindString("Title " + id), bindString("Band " + (id % 100)),
+                                      bindInteger(1950 + id % 70), bindDouble(id / 10.0)))
+                .collect(toList());
+        database.dataStore().execute(connection -> {
+            connection.update("CREATE TABLE song (id INTEGER PRIMARY KEY, title VARCHAR(100), band VARCHAR(100), " +
+                              "year INTEGER, rating DOUBLE)");
+            connection.update("INSERT INTO song (id, title, band, year, rating) VALUES (?, ?, ?, ?, ?)", songs);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void single_column_by_index(Blackhole blackhole) {
+        database.dataStore().execute(
+                connection -> connection.select(rs -> asInteger(rs, 1), SELECT_ALL, bindInteger(rows))
+                        .forEach(blackhole::consume));
+    }
+
+    @Benchmark
+    public void single_column_as_int_stream(Blackhole blackhole) {
+        database.dataStore().execute(
+                connection -> connection.selectInts(rs -> asInteger(rs, 1, 0), SELECT_ALL, bindInteger(rows))
+                        .forEach(blackhole::consume));
+    }
+
+    @Benchmark
+    public void whole_row_by_index(Blackhole blackhole) {
+        database.dataStore().execute(
+                connection -> connection.select(rs -> new Song(asInteger(rs, 1), asString(rs, 2), asString(rs, 3),
+                                                               asInteger(rs, 4), asDouble(rs, 5)),
+                                                SELECT_ALL, bindInteger(rows))
+                        .forEach(blackhole::consume));
+    }
+
+    @Benchmark
+    public void whole_row_by_label(Blackhole blackhole) {
+        database.dataStore().execute(
+                connection -> connection.select(rs -> new Song(asInteger(rs, "id"), asString(rs, "title"),
+                                                               asString(rs, "band"), asInteger(rs, "year"),
+                                                               asDouble(rs, "rating")),
+                                                SELECT_ALL, bindInteger(rows))
+                        .forEach(blackhole::consume));
+    }
+
+    static final class Song {
+        final Integer id;
+        final String title;
+        final String band;
+        final Integer year;
+        final Double rating;
+
+        Song(Integer id, String title, String band, Integer year, Double rating) {
+            this.id = id;
+            this.title = title;
+            this.band = band;
+            this.year = year;
+            this.rating = rating;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.asprotunity.queryiteasy.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.asprotunity.queryiteasy.connection.Batch.batch;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindInteger;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindString;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Measures a single {@code Connection.update} per transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateBenchmark {
+
+    private static final int TABLE_SIZE = 1000;
+    private static final String UPDATE = "UPDATE item SET description = ?, quantity = ? WHERE id = ?";
+
+    @Param({"0", "16"})
+    public int statementCacheSize;
+
+    private HSQLInMemoryDatabase database;
+    private int nextId = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new HSQLInMemoryDatabase("update_benchmark", statementCacheSize);
+        database.dataStore().execute(connection -> {
+            connection.update("CREATE TABLE item (id INTEGER PRIMARY KEY, description VARCHAR(100), quantity INTEGER)");
+            connection.update("INSERT INTO item (id, description, quantity) VALUES (?, ?, ?)",
+                              range(0, TABLE_SIZE)
+                                      .mapToObj(id -> batch(bindInteger(id), bindString("item " + id), bindInteger(0)))
+                                      .collect(toList()));
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void single_update() {
+        int id = nextId++ % TABLE_SIZE;
+        database.dataStore().execute(
+                connection -> connection.update(UPDATE, bindString("updated item " + id), bindInteger(id),
+                                                bindInteger(id)));
+    }
+}
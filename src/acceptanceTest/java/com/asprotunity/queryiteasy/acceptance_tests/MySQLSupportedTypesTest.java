@@ -139,6 +139,11 @@ public class MySQLSupportedTypesTest {
         tests.stores_and_reads_integers();
     }
 
+    @Test
+    public void stores_and_reads_rows_with_multi_row_inserts() throws SQLException {
+        tests.stores_and_reads_rows_with_multi_row_inserts();
+    }
+
     @Test
     public void stores_and_reads_strings() throws SQLException {
         tests.stores_and_reads_strings();
@@ -1,32 +1,63 @@
 package com.asprotunity.queryiteasy.acceptance_tests;
 
+import com.asprotunity.queryiteasy.connection.Batch;
+import com.asprotunity.queryiteasy.connection.BatchBuilder;
 import com.asprotunity.queryiteasy.connection.BlobInputOutputParameter;
 import com.asprotunity.queryiteasy.connection.BlobOutputParameter;
+import com.asprotunity.queryiteasy.connection.ColumnarResult;
 import com.asprotunity.queryiteasy.connection.LongVarBinaryInputOutputParameter;
 import com.asprotunity.queryiteasy.connection.LongVarBinaryOutputParameter;
+import com.asprotunity.queryiteasy.connection.OffHeapResult;
+import com.asprotunity.queryiteasy.connection.StatementContext;
+import com.asprotunity.queryiteasy.connection.StatementListener;
+import com.asprotunity.queryiteasy.datastore.ConnectionPool;
 import com.asprotunity.queryiteasy.datastore.DataStore;
+import com.asprotunity.queryiteasy.datastore.QueryCache;
+import com.asprotunity.queryiteasy.datastore.UpdateSubscriber;
+import com.asprotunity.queryiteasy.flow.Flow;
+import com.asprotunity.queryiteasy.metrics.QueryMetrics;
+import com.asprotunity.queryiteasy.metrics.SlowQuery;
+import com.asprotunity.queryiteasy.metrics.SlowQueryLog;
+import com.asprotunity.queryiteasy.metrics.StatementMetrics;
 import com.asprotunity.queryiteasy.io.StringIO;
 import org.junit.After;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import javax.sql.DataSource;
+import java.beans.ConstructorProperties;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.Charset;
 import java.sql.Date;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static com.asprotunity.queryiteasy.acceptance_tests.HSQLInMemoryConfigurationAndSchemaDrop.dropHSQLPublicSchema;
 import static com.asprotunity.queryiteasy.connection.Batch.batch;
 import static com.asprotunity.queryiteasy.connection.InputParameterBinders.*;
+import static com.asprotunity.queryiteasy.connection.QueryOptions.queryOptions;
 import static com.asprotunity.queryiteasy.connection.ResultSetReaders.*;
+import static com.asprotunity.queryiteasy.connection.RowMappers.mapTo;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toList;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
@@ -121,6 +152,575 @@ public class QueriesTest {
         }
     }
 
+    @Test
+    public void does_batch_updates_in_chunks() {
+        int[] updateCounts = dataStore.executeWithResult(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER NOT NULL)");
+            return connection.update("INSERT INTO testtable (intvalue) VALUES (?)",
+                                     asList(batch(bindInteger(10)), batch(bindInteger(11)), batch(bindInteger(12)),
+                                            batch(bindInteger(13)), batch(bindInteger(14))),
+                                     2);
+        });
+
+        List<Integer> found = dataStore.executeWithResult(
+                connection -> connection.select(rs -> asInteger(rs, 1), "SELECT intvalue FROM testtable ORDER BY intvalue ASC")
+                        .collect(toList()));
+
+        assertThat(updateCounts, is(new int[]{1, 1, 1, 1, 1}));
+        assertThat(found, is(asList(10, 11, 12, 13, 14)));
+    }
+
+    @Test
+    public void does_batch_updates_from_a_stream_reading_the_next_chunk_while_executing_the_current_one() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            int[] updateCounts = dataStore.executeWithResult(connection -> {
+                connection.update("CREATE TABLE testtable (intvalue INTEGER NOT NULL)");
+                return connection.update("INSERT INTO testtable (intvalue) VALUES (?)",
+                                         IntStream.range(0, 1000).mapToObj(value -> batch(bindInteger(value))),
+                                         64, executor);
+            });
+
+            List<Integer> found = dataStore.executeWithResult(
+                    connection -> connection.select(rs -> asInteger(rs, 1), "SELECT intvalue FROM testtable ORDER BY intvalue ASC")
+                            .collect(toList()));
+
+            assertThat(updateCounts.length, is(1000));
+            assertThat(found, is(IntStream.range(0, 1000).boxed().collect(toList())));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void selects_with_query_options() {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER NOT NULL)");
+            connection.update("INSERT INTO testtable (intvalue) VALUES (?)",
+                              IntStream.range(0, 10).mapToObj(value -> batch(bindInteger(value))), 10);
+        });
+
+        List<Integer> found = dataStore.executeWithResult(
+                connection -> connection.select(rs -> asInteger(rs, 1),
+                                                queryOptions().withFetchSize(2).withMaxRows(5)
+                                                              .withQueryTimeout(Duration.ofSeconds(10)),
+                                                "SELECT intvalue FROM testtable ORDER BY intvalue ASC")
+                        .collect(toList()));
+
+        assertThat(found, is(asList(0, 1, 2, 3, 4)));
+    }
+
+    @Test
+    public void parallel_select_returns_all_rows_in_order() {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER NOT NULL)");
+            connection.update("INSERT INTO testtable (intvalue) VALUES (?)",
+                              IntStream.range(0, 5000).mapToObj(value -> batch(bindInteger(value))), 500);
+        });
+
+        List<Integer> found = dataStore.executeWithResult(
+                connection -> connection.parallelSelect(rs -> asInteger(rs, 1),
+                                                        "SELECT intvalue FROM testtable ORDER BY intvalue ASC")
+                        .map(value -> value * 2)
+                        .collect(toList()));
+
+        assertThat(found, is(IntStream.range(0, 5000).map(value -> value * 2).boxed().collect(toList())));
+    }
+
+    @Test
+    public void selects_with_prefetching() {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER NOT NULL)");
+            connection.update("INSERT INTO testtable (intvalue) VALUES (?)",
+                              IntStream.range(0, 1000).mapToObj(value -> batch(bindInteger(value))), 100);
+        });
+
+        List<Integer> found = dataStore.executeWithResult(
+                connection -> connection.select(rs -> asInteger(rs, 1), queryOptions().withPrefetch(16),
+                                                "SELECT intvalue FROM testtable ORDER BY intvalue ASC")
+                        .collect(toList()));
+        Integer first = dataStore.executeWithResult(
+                connection -> connection.select(rs -> asInteger(rs, 1), queryOptions().withPrefetch(16),
+                                                "SELECT intvalue FROM testtable ORDER BY intvalue ASC")
+                        .findFirst().get());
+
+        assertThat(found, is(IntStream.range(0, 1000).boxed().collect(toList())));
+        assertThat(first, is(0));
+    }
+
+    @Test
+    public void selects_primitive_streams() {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER, bigintvalue BIGINT, doublevalue DOUBLE)");
+            connection.update("INSERT INTO testtable (intvalue, bigintvalue, doublevalue) VALUES (?, ?, ?)",
+                              asList(batch(bindInteger(1), bindLong(10L), bindDouble(0.5)),
+                                     batch(bindInteger(null), bindLong(null), bindDouble(null)),
+                                     batch(bindInteger(3), bindLong(30L), bindDouble(1.5))));
+        });
+
+        int[] ints = dataStore.executeWithResult(
+                connection -> connection.selectInts(rs -> asInteger(rs, "intvalue", -1),
+                                                    "SELECT intvalue FROM testtable ORDER BY bigintvalue ASC")
+                        .toArray());
+        long longsSum = dataStore.executeWithResult(
+                connection -> connection.selectLongs(rs -> asLong(rs, 1, 0L), "SELECT bigintvalue FROM testtable")
+                        .sum());
+        double doublesSum = dataStore.executeWithResult(
+                connection -> connection.selectDoubles(rs -> asDouble(rs, 1, 0.0), "SELECT doublevalue FROM testtable")
+                        .sum());
+
+        assertThat(ints, is(new int[]{-1, 1, 3}));
+        assertThat(longsSum, is(40L));
+        assertThat(doublesSum, is(2.0));
+    }
+
+    @Test
+    public void selects_columnar_results_usable_after_the_transaction() {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER, bigintvalue BIGINT, doublevalue DOUBLE, " +
+                              "name VARCHAR(20))");
+            connection.update("INSERT INTO testtable (intvalue, bigintvalue, doublevalue, name) VALUES (?, ?, ?, ?)",
+                              asList(batch(bindInteger(1), bindLong(10L), bindDouble(0.5), bindString("a")),
+                                     batch(bindInteger(null), bindLong(null), bindDouble(null), bindString(null)),
+                                     batch(bindInteger(3), bindLong(30L), bindDouble(1.5), bindString("a"))));
+        });
+
+        ColumnarResult result = dataStore.executeWithResult(
+                connection -> connection.selectColumnar("SELECT * FROM testtable ORDER BY bigintvalue ASC"));
+
+        assertThat(result.rowCount(), is(3));
+        assertThat(result.isNull(1, 0), is(true));
+        assertThat(result.ints(1).sum(), is(4));
+        assertThat(result.longs(2).sum(), is(40L));
+        assertThat(result.doubles(3).sum(), is(2.0));
+        assertThat(result.strings(result.columnIndex("name")).collect(toList()), is(asList(null, "a", "a")));
+    }
+
+    @Test
+    public void selects_columnar_decimals_without_losing_precision() {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (id NUMERIC(19, 0), amount DECIMAL(10, 2))");
+            connection.update("INSERT INTO testtable (id, amount) VALUES (9007199254740993, 0.10)");
+        });
+
+        ColumnarResult result = dataStore.executeWithResult(connection -> connection.selectColumnar(
+                "SELECT id, amount, CAST(id AS NUMERIC(18, 0)) FROM testtable"));
+
+        assertThat(result.getString(1, 0), is("9007199254740993"));
+        assertThat(result.getString(2, 0), is("0.10"));
+        assertThat(result.getLong(3, 0), is(9007199254740993L));
+    }
+
+    @Test
+    public void selects_off_heap_results_usable_after_the_transaction() {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER, name VARCHAR(20))");
+            connection.update("INSERT INTO testtable (intvalue, name) VALUES (?, ?)",
+                              asList(batch(bindInteger(1), bindString("first")),
+                                     batch(bindInteger(null), bindString(null))));
+        });
+
+        OffHeapResult result = dataStore.executeWithResult(
+                connection -> connection.selectOffHeap("SELECT * FROM testtable ORDER BY intvalue NULLS LAST"));
+
+        OffHeapResult.Cursor row = result.cursor();
+        assertThat(row.next(), is(true));
+        assertThat(row.getInt(1), is(1));
+        assertThat(row.getString(2), is("first"));
+        assertThat(row.next(), is(true));
+        assertThat(row.isNull(1), is(true));
+        assertThat(row.getString(2), is(nullValue()));
+        assertThat(row.next(), is(false));
+    }
+
+    @Test
+    public void publishes_selected_rows_as_they_are_requested() throws Exception {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER)");
+            connection.update("INSERT INTO testtable (intvalue) VALUES (?)",
+                              IntStream.range(0, 10).mapToObj(i -> batch(bindInteger(i))).collect(toList()));
+        });
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        dataStore.selectPublisher(rs -> asInteger(rs, 1), "SELECT intvalue FROM testtable WHERE intvalue < ? " +
+                                                          "ORDER BY intvalue", bindInteger(7))
+                 .subscribe(new Flow.Subscriber<Integer>() {
+                     private Flow.Subscription subscription;
+
+                     @Override
+                     public void onSubscribe(Flow.Subscription subscription) {
+                         this.subscription = subscription;
+                         subscription.request(3);
+                     }
+
+                     @Override
+                     public void onNext(Integer row) {
+                         received.add(row);
+                         if (received.size() % 3 == 0) {
+                             subscription.request(3);
+                         }
+                     }
+
+                     @Override
+                     public void onError(Throwable throwable) {
+                         done.completeExceptionally(throwable);
+                     }
+
+                     @Override
+                     public void onComplete() {
+                         done.complete(null);
+                     }
+                 });
+
+        done.get(10, TimeUnit.SECONDS);
+        assertThat(received, is(asList(0, 1, 2, 3, 4, 5, 6)));
+    }
+
+    @Test
+    public void releases_the_transaction_when_the_subscriber_cancels() throws Exception {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER)");
+            connection.update("INSERT INTO testtable (intvalue) VALUES (?)",
+                              asList(batch(bindInteger(1)), batch(bindInteger(2))));
+        });
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        try (ConnectionPool pool = new ConnectionPool(dataSource, 0, 1, Duration.ofMinutes(1), Duration.ofSeconds(5))) {
+            DataStore pooledStore = DataStore.pooled(pool);
+
+            pooledStore.selectPublisher(rs -> asInteger(rs, 1), "SELECT intvalue FROM testtable ORDER BY intvalue")
+                       .subscribe(new Flow.Subscriber<Integer>() {
+                           private Flow.Subscription subscription;
+
+                           @Override
+                           public void onSubscribe(Flow.Subscription subscription) {
+                               this.subscription = subscription;
+                               subscription.request(1);
+                           }
+
+                           @Override
+                           public void onNext(Integer row) {
+                               subscription.cancel();
+                               first.complete(row);
+                           }
+
+                           @Override
+                           public void onError(Throwable throwable) {
+                               first.completeExceptionally(throwable);
+                           }
+
+                           @Override
+                           public void onComplete() {
+                           }
+                       });
+
+            assertThat(first.get(10, TimeUnit.SECONDS), is(1));
+            long count = pooledStore.executeWithResult(
+                    connection -> connection.select(rs -> asLong(rs, 1), "SELECT COUNT(*) FROM testtable")
+                                            .findFirst().get());
+            assertThat(count, is(2L));
+        }
+    }
+
+    @Test
+    public void copies_published_rows_into_another_table_in_chunks() throws Exception {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE source (intvalue INTEGER)");
+            connection.update("CREATE TABLE target (intvalue INTEGER)");
+            connection.update("INSERT INTO source (intvalue) VALUES (?)",
+                              IntStream.range(0, 25).mapToObj(i -> batch(bindInteger(i))).collect(toList()));
+        });
+        UpdateSubscriber<Integer> subscriber =
+                dataStore.updateSubscriber("INSERT INTO target (intvalue) VALUES (?)",
+                                           (Integer value) -> batch(bindInteger(value)), 10);
+
+        dataStore.selectPublisher(rs -> asInteger(rs, 1), "SELECT intvalue FROM source").subscribe(subscriber);
+
+        assertThat(subscriber.written().get(10, TimeUnit.SECONDS), is(25L));
+        List<Integer> copied = dataStore.executeWithResult(
+                connection -> connection.select(rs -> asInteger(rs, 1), "SELECT intvalue FROM target ORDER BY intvalue")
+                                        .collect(toList()));
+        assertThat(copied, is(IntStream.range(0, 25).boxed().collect(toList())));
+    }
+
+    @Test
+    public void caches_selected_rows_until_their_table_is_updated() {
+        DataStore cachingDataStore = dataStore.withQueryCache(new QueryCache(100, Duration.ofMinutes(1)));
+        cachingDataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER, name VARCHAR(20))");
+            connection.update("INSERT INTO testtable (intvalue, name) VALUES (?, ?)",
+                              asList(batch(bindInteger(1), bindString("first")),
+                                     batch(bindInteger(2), bindString("second"))));
+        });
+        Function<ResultSet, String> name = rs -> asString(rs, 1);
+        String sql = "SELECT name FROM testtable WHERE intvalue = ?";
+
+        List<String> first = cachingDataStore.selectCached(name, sql, bindInteger(1));
+        dataStore.execute(connection -> connection.update("UPDATE testtable SET name = 'changed'"));
+        List<String> cached = cachingDataStore.selectCached(name, sql, bindInteger(1));
+        cachingDataStore.execute(connection -> connection.update("UPDATE testtable SET name = 'updated'"));
+        List<String> updated = cachingDataStore.selectCached(name, sql, bindInteger(1));
+
+        assertThat(first, is(asList("first")));
+        assertThat(cached, is(asList("first")));
+        assertThat(updated, is(asList("updated")));
+    }
+
+    @Test
+    public void records_the_metrics_of_each_statement() {
+        QueryMetrics metrics = new QueryMetrics();
+        DataStore measuredDataStore = dataStore.withMetrics(metrics);
+        measuredDataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER)");
+            connection.update("INSERT INTO testtable (intvalue) VALUES (?)",
+                              asList(batch(bindInteger(1)), batch(bindInteger(2))));
+        });
+
+        for (int value = 1; value <= 2; ++value) {
+            int bound = value;
+            measuredDataStore.execute(connection -> connection.select(
+                    rs -> asInteger(rs, 1), "SELECT intvalue FROM testtable WHERE intvalue >= " + bound).count());
+        }
+
+        StatementMetrics insert = metrics.forSql("INSERT INTO testtable (intvalue) VALUES (?)");
+        StatementMetrics select = metrics.forSql("SELECT intvalue FROM testtable WHERE intvalue >= 0");
+        assertThat(insert.executionCount(), is(1L));
+        assertThat(insert.rowsUpdated(), is(2L));
+        assertThat(select.executionCount(), is(2L));
+        assertThat(select.rowsReturned(), is(3L));
+        assertThat(select.latency().count(), is(2L));
+    }
+
+    @Test
+    public void tells_the_statement_listener_about_each_phase_of_a_transaction() {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER)");
+            connection.update("INSERT INTO testtable (intvalue) VALUES (?)",
+                              asList(batch(bindInteger(1)), batch(bindInteger(2))));
+        });
+        List<String> phases = new ArrayList<>();
+        StatementListener listener = new StatementListener() {
+            @Override
+            public void acquired(StatementContext context) {
+                phases.add("acquired");
+            }
+
+            @Override
+            public void executed(StatementContext context) {
+                phases.add("executed " + context.sql() + " " + context.parameterCount());
+            }
+
+            @Override
+            public void fetched(StatementContext context) {
+                phases.add("fetched");
+            }
+
+            @Override
+            public void closed(StatementContext context) {
+                phases.add("closed");
+            }
+
+            @Override
+            public void committed(StatementContext context) {
+                phases.add("committed");
+            }
+        };
+
+        long count = dataStore.withStatementListener(listener).executeWithResult(connection -> {
+            try (Stream<Integer> rows = connection.select(rs -> asInteger(rs, 1),
+                                                          "SELECT intvalue FROM testtable WHERE intvalue > ?",
+                                                          bindInteger(0))) {
+                return rows.count();
+            }
+        });
+
+        assertThat(count, is(2L));
+        assertThat(phases, is(asList("acquired", "executed SELECT intvalue FROM testtable WHERE intvalue > ? 1",
+                                     "fetched", "fetched", "fetched", "closed", "committed")));
+    }
+
+    @Test
+    public void logs_the_statements_slower_than_the_threshold_with_their_bound_values() {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(Duration.ZERO, 10, 100);
+        DataStore loggedDataStore = dataStore.withSlowQueryLog(slowQueryLog);
+        loggedDataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (intvalue INTEGER, stringvalue VARCHAR(10))");
+            connection.update("INSERT INTO testtable (intvalue, stringvalue) VALUES (?, ?)",
+                              asList(batch(bindInteger(1), bindString("a")), batch(bindInteger(2), bindString("b"))));
+        });
+
+        long count = loggedDataStore.executeWithResult(connection -> {
+            try (Stream<Integer> rows = connection.select(rs -> asInteger(rs, 1),
+                                                          "SELECT intvalue FROM testtable WHERE stringvalue <> ?",
+                                                          bindString("c"))) {
+                return rows.count();
+            }
+        });
+
+        assertThat(count, is(2L));
+        List<SlowQuery> entries = slowQueryLog.entries();
+        assertThat(entries.size(), is(3));
+        assertThat(entries.get(1).parameters(), is("[2, 'b']"));
+        assertThat(entries.get(1).rowCount(), is(2L));
+        assertThat(entries.get(2).sql(), is("SELECT intvalue FROM testtable WHERE stringvalue <> ?"));
+        assertThat(entries.get(2).parameters(), is("['c']"));
+        assertThat(entries.get(2).rowCount(), is(2L));
+        assertThat(entries.get(2).transactionId() > entries.get(1).transactionId(), is(true));
+    }
+
+    @Test
+    public void returns_the_keys_generated_by_single_and_batch_inserts() {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE parent (id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 100) " +
+                              "PRIMARY KEY, name VARCHAR(20))");
+            connection.update("CREATE TABLE child (parent_id BIGINT, name VARCHAR(20))");
+        });
+
+        List<Long> firstKeys = dataStore.executeWithResult(connection -> connection.updateReturningKeys(
+                rs -> asLong(rs, 1), new String[0], "INSERT INTO parent (name) VALUES (?)", bindString("first"))
+                .collect(toList()));
+        long[] parentIds = dataStore.executeWithResult(connection -> {
+            long[] ids = connection.updateReturningLongKeys(
+                    rs -> asLong(rs, 1, 0), new String[]{"ID"}, "INSERT INTO parent (name) VALUES (?)",
+                    asList(batch(bindString("second")), batch(bindString("third"))));
+            connection.update("INSERT INTO child (parent_id, name) VALUES (?, ?)",
+                              asList(batch(bindLong(ids[0]), bindString("child of second")),
+                                     batch(bindLong(ids[1]), bindString("child of third"))));
+            return ids;
+        });
+
+        assertThat(firstKeys, is(asList(100L)));
+        assertThat(parentIds, is(new long[]{101L, 102L}));
+        List<String> children = dataStore.executeWithResult(connection -> connection.select(
+                rs -> asString(rs, 1) + " " + asString(rs, 2),
+                "SELECT parent.name, child.name FROM parent JOIN child ON parent.id = child.parent_id " +
+                "ORDER BY parent.id").collect(toList()));
+        assertThat(children, is(asList("second child of second", "third child of third")));
+    }
+
+    @Test
+    public void inserts_batches_as_multi_row_inserts_when_enabled() {
+        dataStore.execute(connection -> connection.update("CREATE TABLE testtable (id INTEGER, name VARCHAR(20))"));
+        QueryMetrics metrics = new QueryMetrics();
+        List<Batch> batches = IntStream.rangeClosed(1, 25)
+                                       .mapToObj(id -> batch(bindInt(id), bindString("name " + id)))
+                                       .collect(toList());
+        String sql = "INSERT INTO testtable (id, name) VALUES (?, ?)";
+
+        dataStore.withMultiRowInserts(20).withMetrics(metrics).execute(connection -> connection.update(sql, batches));
+
+        assertThat(metrics.forSql(sql).rowsUpdated(), is(25L));
+        List<String> rows = dataStore.executeWithResult(connection -> connection.select(
+                rs -> asInteger(rs, 1) + " " + asString(rs, 2),
+                "SELECT id, name FROM testtable ORDER BY id").collect(toList()));
+        assertThat(rows.size(), is(25));
+        assertThat(rows.get(0), is("1 name 1"));
+        assertThat(rows.get(20), is("21 name 21"));
+        assertThat(rows.get(24), is("25 name 25"));
+    }
+
+    @Test
+    public void inserts_the_rows_of_a_columnar_batch_builder_and_reuses_it() {
+        dataStore.execute(connection -> connection.update(
+                "CREATE TABLE testtable (id INTEGER, total BIGINT, ratio DOUBLE, name VARCHAR(20))"));
+        BatchBuilder batches = BatchBuilder.columns(BatchBuilder.ColumnType.INT, BatchBuilder.ColumnType.LONG,
+                                                    BatchBuilder.ColumnType.DOUBLE, BatchBuilder.ColumnType.STRING);
+        for (int id = 1; id <= 100; ++id) {
+            batches.setInt(1, id).setLong(2, id * 1000L).setDouble(3, id / 4.0).setString(4, "name " + id).addRow();
+        }
+
+        int[] updateCounts = dataStore.executeWithResult(connection -> connection.update(
+                "INSERT INTO testtable (id, total, ratio, name) VALUES (?, ?, ?, ?)", batches, 30));
+        batches.clear();
+        batches.setInt(1, 101).setNull(2).setNull(3).setString(4, null).addRow();
+        dataStore.execute(connection -> connection.update(
+                "INSERT INTO testtable (id, total, ratio, name) VALUES (?, ?, ?, ?)", batches, 30));
+
+        assertThat(updateCounts.length, is(100));
+        List<String> rows = dataStore.executeWithResult(connection -> connection.select(
+                rs -> asInteger(rs, 1) + " " + asLong(rs, 2) + " " + asDouble(rs, 3) + " " + asString(rs, 4),
+                "SELECT id, total, ratio, name FROM testtable WHERE id IN (2, 101) ORDER BY id").collect(toList()));
+        assertThat(rows, is(asList("2 2000 0.5 name 2", "101 null null null")));
+    }
+
+    @Test
+    public void selects_into_beans_and_constructor_classes_with_generated_mappers() {
+        dataStore.execute(connection -> {
+            connection.update("CREATE TABLE testtable (id INTEGER NOT NULL, first_name VARCHAR(20))");
+            connection.update("INSERT INTO testtable (id, first_name) VALUES (?, ?)",
+                              asList(batch(bindInteger(1), bindString("first")),
+                                     batch(bindInteger(2), bindString(null))));
+        });
+
+        List<NameBean> beans = dataStore.executeWithResult(
+                connection -> connection.select(mapTo(NameBean.class), "SELECT * FROM testtable ORDER BY id")
+                        .collect(toList()));
+        List<Name> names = dataStore.executeWithResult(
+                connection -> connection.select(mapTo(Name.class), "SELECT * FROM testtable ORDER BY id")
+                        .collect(toList()));
+
+        assertThat(beans.size(), is(2));
+        assertThat(beans.get(0).id, is(1));
+        assertThat(beans.get(0).firstName, is("first"));
+        assertThat(beans.get(1).id, is(2));
+        assertThat(beans.get(1).firstName, is(nullValue()));
+        assertThat(names.size(), is(2));
+        assertThat(names.get(0).id, is(1));
+        assertThat(names.get(0).firstName, is("first"));
+    }
+
+    @Test
+    public void pooled_data_store_reuses_connections_and_statements_across_transactions() {
+        try (ConnectionPool pool = new ConnectionPool(dataSource, 1, 2, Duration.ofMinutes(1), Duration.ofSeconds(5), 5)) {
+            DataStore pooledDataStore = DataStore.pooled(pool);
+            pooledDataStore.execute(
+                    connection -> connection.update("CREATE TABLE testtable (intvalue INTEGER NOT NULL)"));
+            for (int value = 0; value < 10; ++value) {
+                int valueToInsert = value;
+                pooledDataStore.execute(
+                        connection -> connection.update("INSERT INTO testtable (intvalue) VALUES (?)",
+                                                        bindInteger(valueToInsert)));
+            }
+
+            List<Integer> found = pooledDataStore.executeWithResult(
+                    connection -> connection.select(rs -> asInteger(rs, 1),
+                                                    "SELECT intvalue FROM testtable ORDER BY intvalue ASC")
+                            .collect(toList()));
+
+            assertThat(found.size(), is(10));
+            assertThat(found.get(9), is(9));
+            assertThat(pool.size(), is(1));
+        }
+    }
+
+    @Test
+    public void pooled_data_store_does_not_leak_the_rows_of_a_failed_batch_into_the_next_transaction() {
+        try (ConnectionPool pool = new ConnectionPool(dataSource, 1, 1, Duration.ofMinutes(1), Duration.ofSeconds(5), 10)) {
+            DataStore pooledDataStore = DataStore.pooled(pool);
+            pooledDataStore.execute(
+                    connection -> connection.update("CREATE TABLE testtable (intvalue INTEGER NOT NULL)"));
+            String sql = "INSERT INTO testtable (intvalue) VALUES (?)";
+            Iterator<Batch> failingAfterTwoRows = Stream.<Supplier<Batch>>of(
+                    () -> batch(bindInteger(1)),
+                    () -> batch(bindInteger(2)),
+                    () -> {
+                        throw new IllegalStateException("cannot read row 3");
+                    }).map(Supplier::get).iterator();
+
+            try {
+                pooledDataStore.execute(connection -> connection.update(sql, failingAfterTwoRows, 10));
+                fail("IllegalStateException expected");
+            } catch (IllegalStateException exception) {
+                pooledDataStore.execute(connection -> connection.update(sql, bindInteger(100)));
+            }
+
+            List<Integer> found = pooledDataStore.executeWithResult(
+                    connection -> connection.select(rs -> asInteger(rs, 1), "SELECT intvalue FROM testtable")
+                            .collect(toList()));
+            assertThat(found, is(asList(100)));
+        }
+    }
+
     @Test
     public void selects_with_no_bind_values() throws SQLException {
 
@@ -270,5 +870,27 @@ public class QueriesTest {
         assertThat(result, is(expected));
     }
 
+    public static class NameBean {
+        private int id;
+        private String firstName;
+
+        public void setId(int id) {
+            this.id = id;
+        }
 
+        public void setFirstName(String firstName) {
+            this.firstName = firstName;
+        }
+    }
+
+    public static class Name {
+        private final int id;
+        private final String firstName;
+
+        @ConstructorProperties({"id", "firstName"})
+        public Name(int id, String firstName) {
+            this.id = id;
+            this.firstName = firstName;
+        }
+    }
 }
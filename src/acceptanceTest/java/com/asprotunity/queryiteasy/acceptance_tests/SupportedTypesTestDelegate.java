@@ -1,6 +1,7 @@
 package com.asprotunity.queryiteasy.acceptance_tests;
 
 
+import com.asprotunity.queryiteasy.connection.Batch;
 import com.asprotunity.queryiteasy.connection.InputParameter;
 import com.asprotunity.queryiteasy.connection.ResultSetReaders;
 import com.asprotunity.queryiteasy.datastore.DataStore;
@@ -14,7 +15,9 @@ import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
+import static com.asprotunity.queryiteasy.connection.Batch.batch;
 import static com.asprotunity.queryiteasy.connection.InputParameterBinders.*;
 import static com.asprotunity.queryiteasy.connection.ResultSetReaders.fromBlob;
 import static com.asprotunity.queryiteasy.connection.ResultSetReaders.fromClob;
@@ -168,6 +171,29 @@ public class SupportedTypesTestDelegate {
     }
 
 
+    public void stores_and_reads_rows_with_multi_row_inserts() throws SQLException {
+        dataStore.execute(connection -> connection.update(
+                "CREATE TABLE testtable (first INTEGER NULL, second VARCHAR(20) NULL)"));
+        List<Batch> batches = IntStream.rangeClosed(1, 7)
+                                       .mapToObj(value -> batch(bindInteger(value == 4 ? null : value),
+                                                                bindString("value " + value)))
+                                       .collect(toList());
+
+        dataStore.withMultiRowInserts(6).execute(
+                connection -> connection.update("INSERT INTO testtable (first, second) VALUES (?, ?)", batches));
+
+        List<Tuple2<Integer, String>> foundValues = dataStore.executeWithResult(
+                connection -> connection.select(rs -> new Tuple2<>(ResultSetReaders.asInteger(rs, 1),
+                                                                   ResultSetReaders.asString(rs, 2)),
+                                                "SELECT first, second FROM testtable ORDER BY second")
+                                        .collect(toList()));
+        assertThat(foundValues.size(), is(7));
+        assertThat(foundValues.get(0)._1, is(1));
+        assertThat(foundValues.get(3)._1, is(nullValue()));
+        assertThat(foundValues.get(6)._2, is("value 7"));
+    }
+
+
     public void stores_and_reads_strings() throws SQLException {
         String value = "this is the text";
         List<Tuple2<String, String>> foundValues =
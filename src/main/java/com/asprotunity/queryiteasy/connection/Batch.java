@@ -1,7 +1,9 @@
 package com.asprotunity.queryiteasy.connection;
 
 import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.scope.Scope;
 
+import java.sql.PreparedStatement;
 import java.util.function.BiConsumer;
 import java.util.stream.IntStream;
 
@@ -20,11 +22,33 @@ public class Batch {
         InvalidArgumentException.throwIfNull(parameters, "parameters");
 
         for (int position = 0; position < parameters.length; ++position) {
-            InvalidArgumentException.throwIfNull(parameters[position], "parameters[" + (position + 2) + "]");
+            if (parameters[position] == null) {
+                throw new InvalidArgumentException("parameters[" + (position + 2) + "] cannot be null.");
+            }
         }
         return new Batch(firstParameter, parameters);
     }
 
+    public int parameterCount() {
+        return parameters.length;
+    }
+
+    /**
+     * Binds the parameters of this batch to {@code statement}, from position 1, without allocating.
+     */
+    public void bindTo(PreparedStatement statement, Scope queryScope) {
+        bindTo(statement, 1, queryScope);
+    }
+
+    /**
+     * Binds the parameters of this batch to {@code statement}, from {@code firstPosition}, without allocating.
+     */
+    public void bindTo(PreparedStatement statement, int firstPosition, Scope queryScope) {
+        for (int index = 0; index < parameters.length; ++index) {
+            PrimitiveParameter.bind(parameters[index], statement, firstPosition + index, queryScope);
+        }
+    }
+
     public void forEachParameter(BiConsumer<InputParameter, Integer> function) {
         IntStream.range(0, parameters.length).forEach(i -> function.accept(parameters[i], i));
     }
@@ -0,0 +1,266 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Collects the rows of a batch update column by column, for bulk inserts of millions of rows, see
+ * {@link Connection#update(String, BatchBuilder, int)}. The columns are declared once; each row is filled with the
+ * setters and added with {@link #addRow()}. Numbers are kept in primitive arrays that grow as needed and are bound
+ * straight onto the statement when it is executed, so no object is allocated per value or per row. The builder can be
+ * reused for the next load after {@link #clear()}, keeping its arrays.
+ * <p>
+ * Positions start at 1, like the positional parameters of the SQL. This class is not thread safe.
+ */
+public final class BatchBuilder {
+
+    /**
+     * The type of a column, which decides the setter to use for it and the SQL type of its nulls.
+     */
+    public enum ColumnType {
+        INT(Types.INTEGER),
+        LONG(Types.BIGINT),
+        DOUBLE(Types.DOUBLE),
+        STRING(Types.VARCHAR),
+        BIG_DECIMAL(Types.DECIMAL),
+        TIMESTAMP(Types.TIMESTAMP);
+
+        private final int sqlType;
+
+        ColumnType(int sqlType) {
+            this.sqlType = sqlType;
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ColumnType[] types;
+    private final int[][] ints;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final Object[][] objects;
+    private final boolean[][] nulls;
+    private final boolean[] setInRow;
+    private int capacity = INITIAL_CAPACITY;
+    private int rowCount = 0;
+
+    private BatchBuilder(ColumnType[] types) {
+        this.types = types.clone();
+        this.ints = new int[types.length][];
+        this.longs = new long[types.length][];
+        this.doubles = new double[types.length][];
+        this.objects = new Object[types.length][];
+        this.nulls = new boolean[types.length][];
+        this.setInRow = new boolean[types.length];
+        for (int column = 0; column < types.length; ++column) {
+            switch (types[column]) {
+                case INT:
+                    ints[column] = new int[capacity];
+                    break;
+                case LONG:
+                    longs[column] = new long[capacity];
+                    break;
+                case DOUBLE:
+                    doubles[column] = new double[capacity];
+                    break;
+                default:
+                    objects[column] = new Object[capacity];
+            }
+            nulls[column] = new boolean[capacity];
+        }
+    }
+
+    /**
+     * @param firstType The type of the column bound to the first positional parameter.
+     * @param types The types of the other columns, in order.
+     * @return A new builder without rows.
+     * @throws InvalidArgumentException if any of the arguments is null, or any of {@code types} is.
+     */
+    public static BatchBuilder columns(ColumnType firstType, ColumnType... types) {
+        InvalidArgumentException.throwIfNull(firstType, "firstType");
+        InvalidArgumentException.throwIfNull(types, "types");
+        ColumnType[] allTypes = new ColumnType[types.length + 1];
+        allTypes[0] = firstType;
+        for (int index = 0; index < types.length; ++index) {
+            InvalidArgumentException.throwIfNull(types[index], "types[" + (index + 2) + "]");
+            allTypes[index + 1] = types[index];
+        }
+        return new BatchBuilder(allTypes);
+    }
+
+    public BatchBuilder setInt(int position, int value) {
+        ints[column(position, ColumnType.INT)][rowCount] = value;
+        return set(position, false);
+    }
+
+    public BatchBuilder setLong(int position, long value) {
+        longs[column(position, ColumnType.LONG)][rowCount] = value;
+        return set(position, false);
+    }
+
+    public BatchBuilder setDouble(int position, double value) {
+        doubles[column(position, ColumnType.DOUBLE)][rowCount] = value;
+        return set(position, false);
+    }
+
+    /**
+     * @param value The string to store. It can be null.
+     */
+    public BatchBuilder setString(int position, String value) {
+        objects[column(position, ColumnType.STRING)][rowCount] = value;
+        return set(position, value == null);
+    }
+
+    /**
+     * @param value The decimal to store. It can be null.
+     */
+    public BatchBuilder setBigDecimal(int position, BigDecimal value) {
+        objects[column(position, ColumnType.BIG_DECIMAL)][rowCount] = value;
+        return set(position, value == null);
+    }
+
+    /**
+     * @param value The timestamp to store. It can be null.
+     */
+    public BatchBuilder setTimestamp(int position, Timestamp value) {
+        objects[column(position, ColumnType.TIMESTAMP)][rowCount] = value;
+        return set(position, value == null);
+    }
+
+    /**
+     * Sets the column at {@code position} of the current row to {@code NULL}, whatever its type.
+     */
+    public BatchBuilder setNull(int position) {
+        int column = column(position);
+        if (objects[column] != null) {
+            objects[column][rowCount] = null;
+        }
+        return set(position, true);
+    }
+
+    /**
+     * Adds the current row, whose columns must all have been set, and starts a new one.
+     *
+     * @throws InvalidArgumentException if a column of the current row hasn't been set.
+     */
+    public BatchBuilder addRow() {
+        for (int column = 0; column < types.length; ++column) {
+            if (!setInRow[column]) {
+                throw new InvalidArgumentException("Column " + (column + 1) + " of row " + (rowCount + 1) +
+                                                   " has not been set.");
+            }
+        }
+        Arrays.fill(setInRow, false);
+        ++rowCount;
+        if (rowCount == capacity) {
+            grow();
+        }
+        return this;
+    }
+
+    /**
+     * Removes all the rows, keeping the arrays allocated so far for the next ones.
+     */
+    public BatchBuilder clear() {
+        for (Object[] column : objects) {
+            if (column != null) {
+                Arrays.fill(column, 0, rowCount, null);
+            }
+        }
+        Arrays.fill(setInRow, false);
+        rowCount = 0;
+        return this;
+    }
+
+    /**
+     * @return The number of rows added.
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The number of columns, i.e., of parameters bound for each row.
+     */
+    public int columnCount() {
+        return types.length;
+    }
+
+    /**
+     * Binds the values of the row at {@code row}, starting from 0, to {@code statement}, from position 1.
+     */
+    public void bindRow(int row, PreparedStatement statement) throws SQLException {
+        if (row < 0 || row >= rowCount) {
+            throw new InvalidArgumentException("row must be between 0 and " + (rowCount - 1) + ".");
+        }
+        for (int column = 0; column < types.length; ++column) {
+            int position = column + 1;
+            if (nulls[column][row]) {
+                statement.setNull(position, types[column].sqlType);
+                continue;
+            }
+            switch (types[column]) {
+                case INT:
+                    statement.setInt(position, ints[column][row]);
+                    break;
+                case LONG:
+                    statement.setLong(position, longs[column][row]);
+                    break;
+                case DOUBLE:
+                    statement.setDouble(position, doubles[column][row]);
+                    break;
+                case STRING:
+                    statement.setString(position, (String) objects[column][row]);
+                    break;
+                case BIG_DECIMAL:
+                    statement.setBigDecimal(position, (BigDecimal) objects[column][row]);
+                    break;
+                default:
+                    statement.setTimestamp(position, (Timestamp) objects[column][row]);
+            }
+        }
+    }
+
+    private int column(int position, ColumnType type) {
+        int column = column(position);
+        if (types[column] != type) {
+            throw new InvalidArgumentException("Column " + position + " is " + types[column] + ", not " + type + ".");
+        }
+        return column;
+    }
+
+    private int column(int position) {
+        if (position < 1 || position > types.length) {
+            throw new InvalidArgumentException("position must be between 1 and " + types.length + ".");
+        }
+        return position - 1;
+    }
+
+    private BatchBuilder set(int position, boolean isNull) {
+        nulls[position - 1][rowCount] = isNull;
+        setInRow[position - 1] = true;
+        return this;
+    }
+
+    private void grow() {
+        capacity *= 2;
+        for (int column = 0; column < types.length; ++column) {
+            if (ints[column] != null) {
+                ints[column] = Arrays.copyOf(ints[column], capacity);
+            } else if (longs[column] != null) {
+                longs[column] = Arrays.copyOf(longs[column], capacity);
+            } else if (doubles[column] != null) {
+                doubles[column] = Arrays.copyOf(doubles[column], capacity);
+            } else {
+                objects[column] = Arrays.copyOf(objects[column], capacity);
+            }
+            nulls[column] = Arrays.copyOf(nulls[column], capacity);
+        }
+    }
+}
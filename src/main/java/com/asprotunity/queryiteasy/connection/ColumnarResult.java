@@ -0,0 +1,438 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static com.asprotunity.queryiteasy.connection.ResultSetReaders.asString;
+
+/**
+ * The rows of a query stored by column: integer columns in {@code int[]}, {@code BIGINT} columns in {@code long[]},
+ * floating point columns in {@code double[]}, and all the others as strings, encoded as {@code int[]} indexes into a
+ * dictionary of their distinct values. SQL {@code NULL}s are tracked by a bitmap per column, allocated only if the
+ * column contains any.
+ * <p>
+ * {@code DECIMAL} and {@code NUMERIC} columns are never converted to {@code double}, which would lose precision: those
+ * with no fractional digits and at most 18 digits in all are stored as {@code long}s, the others as strings, exactly
+ * as the driver formats them.
+ * <p>
+ * Instances are immutable and don't refer to the result set they were read from, so they can be used after the
+ * transaction has ended. As in JDBC, columns are numbered from 1; rows are numbered from 0.
+ */
+public final class ColumnarResult {
+
+    public enum ColumnType {
+        INT, LONG, DOUBLE, STRING;
+
+        /**
+         * The longest decimal precision that always fits a {@code long}.
+         */
+        private static final int MAX_LONG_PRECISION = 18;
+
+        static ColumnType forColumn(ResultSetMetaData metaData, int column) throws SQLException {
+            switch (metaData.getColumnType(column)) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                    return INT;
+                case Types.BIGINT:
+                    return LONG;
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return DOUBLE;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    int precision = metaData.getPrecision(column);
+                    return metaData.getScale(column) == 0 && precision > 0 && precision <= MAX_LONG_PRECISION ?
+                           LONG : STRING;
+                default:
+                    return STRING;
+            }
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int rowCount;
+    private final Column[] columns;
+
+    private ColumnarResult(int rowCount, Column[] columns) {
+        this.rowCount = rowCount;
+        this.columns = columns;
+    }
+
+    /**
+     * Reads all the remaining rows of {@code resultSet}, without closing it.
+     *
+     * @param resultSet The {@link java.sql.ResultSet} wrapping the results of a query.
+     * @return The rows read, stored by column.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    public static ColumnarResult read(ResultSet resultSet) {
+        return RuntimeSQLException.executeWithResult(() -> {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            Column[] columns = new Column[metaData.getColumnCount()];
+            for (int index = 0; index < columns.length; ++index) {
+                columns[index] = newColumn(metaData.getColumnLabel(index + 1),
+                                           ColumnType.forColumn(metaData, index + 1));
+            }
+            int rowCount = 0;
+            while (resultSet.next()) {
+                for (int index = 0; index < columns.length; ++index) {
+                    columns[index].read(resultSet, index + 1, rowCount);
+                }
+                ++rowCount;
+            }
+            for (Column column : columns) {
+                column.trim(rowCount);
+            }
+            return new ColumnarResult(rowCount, columns);
+        });
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int columnCount() {
+        return columns.length;
+    }
+
+    public String columnLabel(int column) {
+        return column(column).label;
+    }
+
+    public ColumnType columnType(int column) {
+        return column(column).type;
+    }
+
+    /**
+     * @param label The label of a column, ignoring case.
+     * @return The number of the first column with the given label.
+     * @throws InvalidArgumentException if there is no such column.
+     */
+    public int columnIndex(String label) {
+        InvalidArgumentException.throwIfNull(label, "label");
+        for (int index = 0; index < columns.length; ++index) {
+            if (columns[index].label.equalsIgnoreCase(label)) {
+                return index + 1;
+            }
+        }
+        throw new InvalidArgumentException("No column labelled " + label + ".");
+    }
+
+    public boolean isNull(int column, int row) {
+        return column(column).isNull(checkRow(row));
+    }
+
+    /**
+     * @return The value at {@code row} of an {@link ColumnType#INT} column, or zero if it is SQL {@code NULL}.
+     * @throws InvalidArgumentException if the column or row don't exist, or the column has another type.
+     */
+    public int getInt(int column, int row) {
+        return intValues(column)[checkRow(row)];
+    }
+
+    /**
+     * @return The value at {@code row} of an {@link ColumnType#INT} or {@link ColumnType#LONG} column, or zero if it
+     * is SQL {@code NULL}.
+     * @throws InvalidArgumentException if the column or row don't exist, or the column has another type.
+     */
+    public long getLong(int column, int row) {
+        Column values = column(column);
+        checkRow(row);
+        if (values instanceof IntColumn) {
+            return ((IntColumn) values).values[row];
+        }
+        return longValues(column)[row];
+    }
+
+    /**
+     * @return The value at {@code row} of a numeric column, or zero if it is SQL {@code NULL}.
+     * @throws InvalidArgumentException if the column or row don't exist, or the column has type
+     * {@link ColumnType#STRING}.
+     */
+    public double getDouble(int column, int row) {
+        Column values = column(column);
+        checkRow(row);
+        if (values instanceof IntColumn) {
+            return ((IntColumn) values).values[row];
+        }
+        if (values instanceof LongColumn) {
+            return ((LongColumn) values).values[row];
+        }
+        return doubleValues(column)[row];
+    }
+
+    /**
+     * @return The value at {@code row} of a {@link ColumnType#STRING} column, or null if it is SQL {@code NULL}.
+     * @throws InvalidArgumentException if the column or row don't exist, or the column has another type.
+     */
+    public String getString(int column, int row) {
+        StringColumn values = stringColumn(column);
+        checkRow(row);
+        return values.isNull(row) ? null : values.dictionary[values.codes[row]];
+    }
+
+    /**
+     * @return The values of a numeric column, in row order, with zero for SQL {@code NULL}s.
+     * @throws InvalidArgumentException if the column doesn't exist or has type {@link ColumnType#STRING}.
+     */
+    public DoubleStream doubles(int column) {
+        Column values = column(column);
+        if (values instanceof IntColumn) {
+            return Arrays.stream(((IntColumn) values).values).asDoubleStream();
+        }
+        if (values instanceof LongColumn) {
+            return Arrays.stream(((LongColumn) values).values).asDoubleStream();
+        }
+        return Arrays.stream(doubleValues(column));
+    }
+
+    /**
+     * @return The values of an {@link ColumnType#INT} or {@link ColumnType#LONG} column, in row order, with zero for
+     * SQL {@code NULL}s.
+     * @throws InvalidArgumentException if the column doesn't exist or has another type.
+     */
+    public LongStream longs(int column) {
+        Column values = column(column);
+        if (values instanceof IntColumn) {
+            return Arrays.stream(((IntColumn) values).values).asLongStream();
+        }
+        return Arrays.stream(longValues(column));
+    }
+
+    /**
+     * @return The values of an {@link ColumnType#INT} column, in row order, with zero for SQL {@code NULL}s.
+     * @throws InvalidArgumentException if the column doesn't exist or has another type.
+     */
+    public IntStream ints(int column) {
+        return Arrays.stream(intValues(column));
+    }
+
+    /**
+     * @return The values of a {@link ColumnType#STRING} column, in row order, with null for SQL {@code NULL}s.
+     * @throws InvalidArgumentException if the column doesn't exist or has another type.
+     */
+    public Stream<String> strings(int column) {
+        stringColumn(column);
+        return IntStream.range(0, rowCount).mapToObj(row -> getString(column, row));
+    }
+
+    private Column column(int column) {
+        InvalidArgumentException.throwIf(column < 1 || column > columns.length,
+                                         "Invalid column: " + column + ".");
+        return columns[column - 1];
+    }
+
+    private int checkRow(int row) {
+        InvalidArgumentException.throwIf(row < 0 || row >= rowCount, "Invalid row: " + row + ".");
+        return row;
+    }
+
+    private int[] intValues(int column) {
+        return ((IntColumn) checkType(column, ColumnType.INT)).values;
+    }
+
+    private long[] longValues(int column) {
+        return ((LongColumn) checkType(column, ColumnType.LONG)).values;
+    }
+
+    private double[] doubleValues(int column) {
+        return ((DoubleColumn) checkType(column, ColumnType.DOUBLE)).values;
+    }
+
+    private StringColumn stringColumn(int column) {
+        return (StringColumn) checkType(column, ColumnType.STRING);
+    }
+
+    private Column checkType(int column, ColumnType type) {
+        Column result = column(column);
+        InvalidArgumentException.throwIf(result.type != type,
+                                         "Column " + column + " has type " + result.type + ", not " + type + ".");
+        return result;
+    }
+
+    private static Column newColumn(String label, ColumnType type) {
+        switch (type) {
+            case INT:
+                return new IntColumn(label);
+            case LONG:
+                return new LongColumn(label);
+            case DOUBLE:
+                return new DoubleColumn(label);
+            default:
+                return new StringColumn(label);
+        }
+    }
+
+    private static int grownCapacity(int capacity) {
+        InvalidArgumentException.throwIf(capacity == Integer.MAX_VALUE, "Too many rows.");
+        return (int) Math.min(capacity * 2L, Integer.MAX_VALUE);
+    }
+
+    private abstract static class Column {
+        final String label;
+        final ColumnType type;
+        long[] nulls;
+
+        Column(String label, ColumnType type) {
+            this.label = label;
+            this.type = type;
+        }
+
+        abstract void read(ResultSet resultSet, int column, int row) throws SQLException;
+
+        abstract void trim(int rowCount);
+
+        void setNull(int row) {
+            int word = row >>> 6;
+            if (nulls == null) {
+                nulls = new long[Math.max(word + 1, INITIAL_CAPACITY)];
+            } else if (word >= nulls.length) {
+                nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length * 2));
+            }
+            nulls[word] |= 1L << row;
+        }
+
+        boolean isNull(int row) {
+            int word = row >>> 6;
+            return nulls != null && word < nulls.length && (nulls[word] & (1L << row)) != 0;
+        }
+
+        void trimNulls(int rowCount) {
+            int words = (rowCount + 63) >>> 6;
+            if (nulls != null && nulls.length > words) {
+                nulls = Arrays.copyOf(nulls, words);
+            }
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        int[] values = new int[INITIAL_CAPACITY];
+
+        IntColumn(String label) {
+            super(label, ColumnType.INT);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int column, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grownCapacity(values.length));
+            }
+            values[row] = resultSet.getInt(column);
+            if (resultSet.wasNull()) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void trim(int rowCount) {
+            values = Arrays.copyOf(values, rowCount);
+            trimNulls(rowCount);
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        long[] values = new long[INITIAL_CAPACITY];
+
+        LongColumn(String label) {
+            super(label, ColumnType.LONG);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int column, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grownCapacity(values.length));
+            }
+            values[row] = resultSet.getLong(column);
+            if (resultSet.wasNull()) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void trim(int rowCount) {
+            values = Arrays.copyOf(values, rowCount);
+            trimNulls(rowCount);
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        double[] values = new double[INITIAL_CAPACITY];
+
+        DoubleColumn(String label) {
+            super(label, ColumnType.DOUBLE);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int column, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grownCapacity(values.length));
+            }
+            values[row] = resultSet.getDouble(column);
+            if (resultSet.wasNull()) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void trim(int rowCount) {
+            values = Arrays.copyOf(values, rowCount);
+            trimNulls(rowCount);
+        }
+    }
+
+    private static final class StringColumn extends Column {
+        int[] codes = new int[INITIAL_CAPACITY];
+        String[] dictionary;
+        private Map<String, Integer> dictionaryCodes = new HashMap<>();
+        private List<String> values = new ArrayList<>();
+
+        StringColumn(String label) {
+            super(label, ColumnType.STRING);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int column, int row) throws SQLException {
+            if (row == codes.length) {
+                codes = Arrays.copyOf(codes, grownCapacity(codes.length));
+            }
+            String value = asString(resultSet, column);
+            if (value == null) {
+                setNull(row);
+                return;
+            }
+            Integer code = dictionaryCodes.get(value);
+            if (code == null) {
+                code = values.size();
+                dictionaryCodes.put(value, code);
+                values.add(value);
+            }
+            codes[row] = code;
+        }
+
+        @Override
+        void trim(int rowCount) {
+            codes = Arrays.copyOf(codes, rowCount);
+            dictionary = values.toArray(new String[0]);
+            dictionaryCodes = null;
+            values = null;
+            trimNulls(rowCount);
+        }
+    }
+}
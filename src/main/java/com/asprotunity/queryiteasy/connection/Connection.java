@@ -4,8 +4,16 @@ import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
 import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
 
 import java.sql.ResultSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 public interface Connection {
@@ -31,6 +39,133 @@ public interface Connection {
      */
     void update(String sql, List<Batch> batches);
 
+    /**
+     * Executes the given batch updates, sending them to the database {@code chunkSize} at a time. The resources held
+     * by the parameters of each chunk, e.g., blob streams, are released as soon as the chunk has been executed,
+     * so memory use doesn't grow with the number of batches.
+     * @param sql The SQL code to execute. It must have positional parameters (denoted by question marks) to be bound
+     *            with values for each batch.
+     * @param batches Batches of values to bind to the positional parameters in the {@code sql} parameter.
+     * @param chunkSize The maximum number of batches sent to the database with each call to
+     *                  {@link java.sql.PreparedStatement#executeBatch()}.
+     * @return The update counts of all the batches, in the same order as {@code batches}.
+     * @throws InvalidArgumentException if any of the arguments is null or empty, if {@code chunkSize < 1},
+     *                                  or any parameter provided in the batches is null.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    int[] update(String sql, List<Batch> batches, int chunkSize);
+
+    /**
+     * Executes the batch updates provided by {@code batches}, consuming the iterator lazily and sending the batches
+     * to the database {@code chunkSize} at a time, so they never need to be all in memory at once.
+     * The resources held by the parameters of each chunk are released as soon as the chunk has been executed.
+     * @param sql The SQL code to execute. It must have positional parameters (denoted by question marks) to be bound
+     *            with values for each batch.
+     * @param batches Batches of values to bind to the positional parameters in the {@code sql} parameter.
+     *                It can be empty, in which case nothing is executed.
+     * @param chunkSize The maximum number of batches sent to the database with each call to
+     *                  {@link java.sql.PreparedStatement#executeBatch()}.
+     * @return The update counts of all the batches, in the order they have been provided by {@code batches}.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty,
+     *                                  if {@code chunkSize < 1}, or any parameter provided in the batches is null.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    int[] update(String sql, Iterator<Batch> batches, int chunkSize);
+
+    /**
+     * Like {@link #update(String, Iterator, int)}, but while a chunk is being executed by the database the next one
+     * is read from {@code batches} using {@code executor}, so producing the batches and executing them overlap.
+     * The iterator is never used by more than one thread at a time, and it is not used any more after this
+     * method returns.
+     * @param sql The SQL code to execute. It must have positional parameters (denoted by question marks) to be bound
+     *            with values for each batch.
+     * @param batches Batches of values to bind to the positional parameters in the {@code sql} parameter.
+     *                It can be empty, in which case nothing is executed.
+     * @param chunkSize The maximum number of batches sent to the database with each call to
+     *                  {@link java.sql.PreparedStatement#executeBatch()}.
+     * @param executor Used to read the chunks from {@code batches}.
+     * @return The update counts of all the batches, in the order they have been provided by {@code batches}.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty,
+     *                                  if {@code chunkSize < 1}, or any parameter provided in the batches is null.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    int[] update(String sql, Iterator<Batch> batches, int chunkSize, Executor executor);
+
+    /**
+     * Executes a batch update with the rows of {@code batches}, binding their values straight from its arrays, in
+     * chunks of {@code chunkSize} rows. The builder is not cleared by this call.
+     * @param sql The SQL code to execute. It must have as many positional parameters (denoted by question marks) as
+     *            {@code batches} has columns.
+     * @param batches The rows to bind to the positional parameters in the {@code sql} parameter. It can be empty, in
+     *                which case nothing is executed.
+     * @param chunkSize The maximum number of rows sent to the database with each call to
+     *                  {@link java.sql.PreparedStatement#executeBatch()}.
+     * @return The update counts of all the rows, in the order they have been added to {@code batches}.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty, or if
+     *                                  {@code chunkSize < 1}.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    int[] update(String sql, BatchBuilder batches, int chunkSize);
+
+    /**
+     * Same as {@link #update(String, Iterator, int)}, taking the batches from a {@link Stream}.
+     * The stream is not closed by this call.
+     */
+    default int[] update(String sql, Stream<Batch> batches, int chunkSize) {
+        InvalidArgumentException.throwIfNull(batches, "batches");
+        return update(sql, batches.iterator(), chunkSize);
+    }
+
+    /**
+     * Same as {@link #update(String, Iterator, int, Executor)}, taking the batches from a {@link Stream}.
+     * The stream is not closed by this call.
+     */
+    default int[] update(String sql, Stream<Batch> batches, int chunkSize, Executor executor) {
+        InvalidArgumentException.throwIfNull(batches, "batches");
+        return update(sql, batches.iterator(), chunkSize, executor);
+    }
+
+    /**
+     * Executes the given update, e.g., an insert, and returns the keys generated by the database for the rows it
+     * has changed, saving a select to find them.
+     * @param keyMapper Maps the result set of the generated keys into a caller provided type, e.g.,
+     *                  {@code rs -> ResultSetReaders.asLong(rs, 1)}.
+     * @param keyColumns The names of the columns whose generated values are returned. When empty, the driver
+     *                   decides which columns to return, as with {@link java.sql.Statement#RETURN_GENERATED_KEYS}.
+     * @param sql The SQL code to execute. It may contain positional parameters (denoted by question marks).
+     * @param parameters The values to bind to the positional parameters in the {@code sql} parameter.
+     * @param <KeyType> A type provided by the caller.
+     * @return The results of {@code keyMapper} applied to each generated key. The keys are read before returning,
+     *         so the stream doesn't need to be consumed inside the transaction.
+     * @throws InvalidArgumentException if any of the arguments is null, or if {@code sql} is empty,
+     *                                  or any key column or parameter provided is null.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    <KeyType> Stream<KeyType> updateReturningKeys(Function<ResultSet, KeyType> keyMapper, String[] keyColumns,
+                                                  String sql, InputParameter... parameters);
+
+    /**
+     * Like {@link #updateReturningKeys(Function, String[], String, InputParameter...)}, executing the given batch
+     * update and returning the keys generated for all the batches, in order.
+     */
+    <KeyType> Stream<KeyType> updateReturningKeys(Function<ResultSet, KeyType> keyMapper, String[] keyColumns,
+                                                  String sql, List<Batch> batches);
+
+    /**
+     * Like {@link #updateReturningKeys(Function, String[], String, InputParameter...)}, returning the keys as a
+     * primitive array, e.g., with {@code rs -> ResultSetReaders.asLong(rs, 1, 0)}, without boxing them.
+     */
+    long[] updateReturningLongKeys(ToLongFunction<ResultSet> keyMapper, String[] keyColumns, String sql,
+                                   InputParameter... parameters);
+
+    /**
+     * Like {@link #updateReturningKeys(Function, String[], String, List)}, returning the keys as a primitive array,
+     * without boxing them. Bulk inserts into parent and child tables can then run as two batches: one for the
+     * parents, returning their ids, and one for the children, referencing them.
+     */
+    long[] updateReturningLongKeys(ToLongFunction<ResultSet> keyMapper, String[] keyColumns, String sql,
+                                   List<Batch> batches);
+
     /**
      * Executes the given SQL query.
      * @param rowMapper Maps a result set into a caller provided type.
@@ -47,6 +182,189 @@ public interface Connection {
     <MappedRowType> Stream<MappedRowType> select(Function<ResultSet, MappedRowType> rowMapper, String sql,
                                                  InputParameter... parameters);
 
+    /**
+     * Like {@link #select(Function, String, InputParameter...)}, applying {@code options} to the statement before
+     * executing the query, e.g., to set a fetch size so that the driver streams the rows instead of loading them all
+     * in memory.
+     * @param rowMapper Maps a result set into a caller provided type.
+     * @param options The execution options of the query, see {@link QueryOptions#queryOptions()}.
+     * @param sql The SQL code to execute. It may contain positional parameters (denoted by question marks).
+     * @param parameters The values to bind to the positional parameters in the {@code sql} parameter.
+     * @param <MappedRowType> A type provided by the caller.
+     * @return A lazy {@link java.util.stream.Stream} containing the results of {@code rowMapper} applied to each result
+     *        in the {@link java.sql.ResultSet} returned by the underlying JDBC query.
+     *        The stream must be consumed inside the transaction in which the select has been called.
+     * @throws InvalidArgumentException if any of the arguments is null, or if {@code sql} is empty,
+     *                                  or any parameter provided is null.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    <MappedRowType> Stream<MappedRowType> select(Function<ResultSet, MappedRowType> rowMapper, QueryOptions options,
+                                                 String sql, InputParameter... parameters);
+
+    /**
+     * Like {@link #select(Function, String, InputParameter...)}, but maps each row to {@code int} without
+     * boxing it, e.g., {@code connection.selectInts(rs -> asInteger(rs, 1, 0), "SELECT id FROM foo")}.
+     * @return A lazy {@link java.util.stream.IntStream} containing the results of {@code rowMapper} applied to each
+     *        result in the {@link java.sql.ResultSet} returned by the underlying JDBC query.
+     *        The stream must be consumed inside the transaction in which the select has been called.
+     * @see ResultSetReaders#asInteger(ResultSet, int, int)
+     */
+    default IntStream selectInts(ToIntFunction<ResultSet> rowMapper, String sql, InputParameter... parameters) {
+        return selectInts(rowMapper, QueryOptions.queryOptions(), sql, parameters);
+    }
+
+    /**
+     * Same as {@link #selectInts(ToIntFunction, String, InputParameter...)}, applying {@code options} to the
+     * statement before executing the query.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty,
+     *                                  if any parameter provided is null, or if {@code options} enable
+     *                                  prefetching, which is not supported.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    IntStream selectInts(ToIntFunction<ResultSet> rowMapper, QueryOptions options, String sql,
+                         InputParameter... parameters);
+
+    /**
+     * Like {@link #select(Function, String, InputParameter...)}, but maps each row to {@code long} without
+     * boxing it, e.g., {@code connection.selectLongs(rs -> asLong(rs, 1, 0), "SELECT id FROM foo")}.
+     * @return A lazy {@link java.util.stream.LongStream} containing the results of {@code rowMapper} applied to each
+     *        result in the {@link java.sql.ResultSet} returned by the underlying JDBC query.
+     *        The stream must be consumed inside the transaction in which the select has been called.
+     * @see ResultSetReaders#asLong(ResultSet, int, long)
+     */
+    default LongStream selectLongs(ToLongFunction<ResultSet> rowMapper, String sql, InputParameter... parameters) {
+        return selectLongs(rowMapper, QueryOptions.queryOptions(), sql, parameters);
+    }
+
+    /**
+     * Same as {@link #selectLongs(ToLongFunction, String, InputParameter...)}, applying {@code options} to the
+     * statement before executing the query.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty,
+     *                                  if any parameter provided is null, or if {@code options} enable
+     *                                  prefetching, which is not supported.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    LongStream selectLongs(ToLongFunction<ResultSet> rowMapper, QueryOptions options, String sql,
+                           InputParameter... parameters);
+
+    /**
+     * Like {@link #select(Function, String, InputParameter...)}, but maps each row to {@code double} without
+     * boxing it, e.g., {@code connection.selectDoubles(rs -> asDouble(rs, 1, 0), "SELECT price FROM foo")}.
+     * @return A lazy {@link java.util.stream.DoubleStream} containing the results of {@code rowMapper} applied to each
+     *        result in the {@link java.sql.ResultSet} returned by the underlying JDBC query.
+     *        The stream must be consumed inside the transaction in which the select has been called.
+     * @see ResultSetReaders#asDouble(ResultSet, int, double)
+     */
+    default DoubleStream selectDoubles(ToDoubleFunction<ResultSet> rowMapper, String sql,
+                                       InputParameter... parameters) {
+        return selectDoubles(rowMapper, QueryOptions.queryOptions(), sql, parameters);
+    }
+
+    /**
+     * Same as {@link #selectDoubles(ToDoubleFunction, String, InputParameter...)}, applying {@code options} to the
+     * statement before executing the query.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty,
+     *                                  if any parameter provided is null, or if {@code options} enable
+     *                                  prefetching, which is not supported.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    DoubleStream selectDoubles(ToDoubleFunction<ResultSet> rowMapper, QueryOptions options, String sql,
+                               InputParameter... parameters);
+
+    /**
+     * Executes the given query and reads all its rows into a {@link ColumnarResult}, which stores each column in a
+     * primitive array, or in a dictionary-encoded array for strings. This takes much less memory than a list of
+     * objects per row, and the result can be used after the transaction has ended, e.g.,
+     * {@code connection.selectColumnar("SELECT id, price FROM foo").doubles(2).sum()}.
+     * @param sql The SQL query to execute. It may contain positional parameters (denoted by question marks).
+     * @param parameters The values to bind to the positional parameters in the {@code sql} parameter.
+     * @return The rows returned by the query, stored by column.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty,
+     *                                  or any parameter provided is null.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    default ColumnarResult selectColumnar(String sql, InputParameter... parameters) {
+        return selectColumnar(QueryOptions.queryOptions(), sql, parameters);
+    }
+
+    /**
+     * Same as {@link #selectColumnar(String, InputParameter...)}, applying {@code options} to the statement before
+     * executing the query.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty,
+     *                                  if any parameter provided is null, or if {@code options} enable
+     *                                  prefetching, which is not supported.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    ColumnarResult selectColumnar(QueryOptions options, String sql, InputParameter... parameters);
+
+    /**
+     * Executes the given query and encodes all its rows into an {@link OffHeapResult}, stored in direct buffers of
+     * {@link OffHeapResult#DEFAULT_CHUNK_SIZE} bytes outside the garbage collected heap. The result can be read with
+     * a cursor after the transaction has ended, also by other threads, e.g.,
+     * <pre>
+     * {@code
+     *   OffHeapResult result = dataStore.executeWithResult(connection -> connection.selectOffHeap("SELECT * FROM foo"));
+     *   OffHeapResult.Cursor row = result.cursor();
+     *   while (row.next()) {
+     *       process(row.getInt(1), row.getString(2));
+     *   }
+     * }
+     * </pre>
+     * @param sql The SQL query to execute. It may contain positional parameters (denoted by question marks).
+     * @param parameters The values to bind to the positional parameters in the {@code sql} parameter.
+     * @return The rows returned by the query.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty,
+     *                                  or any parameter provided is null.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    default OffHeapResult selectOffHeap(String sql, InputParameter... parameters) {
+        return selectOffHeap(QueryOptions.queryOptions(), OffHeapResult.DEFAULT_CHUNK_SIZE, Long.MAX_VALUE, sql,
+                             parameters);
+    }
+
+    /**
+     * Same as {@link #selectOffHeap(String, InputParameter...)}, applying {@code options} to the statement before
+     * executing the query, and allocating buffers of {@code chunkSize} bytes up to {@code maxSize} bytes in total.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty,
+     *                                  if any parameter provided is null, if {@code chunkSize} or {@code maxSize}
+     *                                  are less than 1, or if {@code options} enable prefetching, which is not
+     *                                  supported.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call, or if the rows need
+     *                             more than {@code maxSize} bytes.
+     */
+    OffHeapResult selectOffHeap(QueryOptions options, int chunkSize, long maxSize, String sql,
+                                InputParameter... parameters);
+
+    /**
+     * Like {@link #select(Function, String, InputParameter...)}, but returns a parallel stream. The result set is
+     * still read by one thread at a time, which also applies {@code rowMapper}; chunks of mapped rows are then handed
+     * to the common {@link java.util.concurrent.ForkJoinPool}, where the rest of the stream pipeline runs. So
+     * {@code rowMapper} should only copy the values out of the row, leaving any expensive decoding to the following
+     * stages, e.g.,
+     * <pre>
+     * {@code
+     *   connection.parallelSelect(rs -> asString(rs, 1), "SELECT document FROM documents")
+     *             .map(Document::parse)
+     *             .collect(toList());
+     * }
+     * </pre>
+     * The stream must be consumed inside the transaction in which the select has been called.
+     */
+    default <MappedRowType> Stream<MappedRowType> parallelSelect(Function<ResultSet, MappedRowType> rowMapper,
+                                                                 String sql, InputParameter... parameters) {
+        return select(rowMapper, sql, parameters).parallel();
+    }
+
+    /**
+     * Same as {@link #parallelSelect(Function, String, InputParameter...)}, applying {@code options} to the
+     * statement before executing the query.
+     */
+    default <MappedRowType> Stream<MappedRowType> parallelSelect(Function<ResultSet, MappedRowType> rowMapper,
+                                                                 QueryOptions options, String sql,
+                                                                 InputParameter... parameters) {
+        return select(rowMapper, options, sql, parameters).parallel();
+    }
+
     /**
      * Executes the given stored function or procedure call. It support the JDBC escape syntax {@code "{call proc_name(?, ?)}"}.
      * It supports also the {@code "{? = call proc_name(?, ?)}"} form, provided the underlying JDBC driver supports it, in which case,
@@ -78,4 +396,23 @@ public interface Connection {
      */
     <MappedRowType> Stream<MappedRowType> call(Function<ResultSet, MappedRowType> rowMapper, String sql,
                                                Parameter... parameters);
+
+    /**
+     * Like {@link #call(Function, String, Parameter...)}, applying {@code options} to the statement before
+     * executing the call.
+     * @param rowMapper Maps a result set into a caller provided type.
+     * @param options The execution options of the call, see {@link QueryOptions#queryOptions()}.
+     * @param sql The SQL code to execute. It may contain positional parameters (denoted by question marks).
+     * @param parameters The values to bind to the positional parameters in the {@code sql} parameter.
+     * @param <MappedRowType> A type provided by the caller.
+     * @return A lazy {@link java.util.stream.Stream} containing the results of {@code rowMapper} applied to each result
+     *        in the {@link java.sql.ResultSet} returned by the underlying JDBC query.
+     *        The stream must be consumed inside the transaction in which the call has been made.
+     * @throws InvalidArgumentException if any of the arguments is null or if {@code sql} is empty,
+     *                                  or if any input-output or output parameters are used more than once,
+     *                                  or any parameter provided is null.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    <MappedRowType> Stream<MappedRowType> call(Function<ResultSet, MappedRowType> rowMapper, QueryOptions options,
+                                               String sql, Parameter... parameters);
 }
@@ -0,0 +1,56 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import com.asprotunity.queryiteasy.scope.Scope;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * An input parameter that keeps its value, so that it can describe it. The setters are non-capturing lambdas, so a
+ * binder allocates only this instance, like the capturing lambda it replaces.
+ */
+final class DescribedInputParameter<ValueType> implements InputParameter {
+
+    private static final int MAX_DESCRIBED_LENGTH = 64;
+
+    @FunctionalInterface
+    interface Setter<ValueType> {
+        void set(PreparedStatement statement, int position, ValueType value) throws SQLException;
+    }
+
+    private final ValueType value;
+    private final Setter<ValueType> setter;
+
+    DescribedInputParameter(ValueType value, Setter<ValueType> setter) {
+        this.value = value;
+        this.setter = setter;
+    }
+
+    @Override
+    public void bind(PreparedStatement statement, int position, Scope queryScope) {
+        try {
+            setter.set(statement, position, value);
+        } catch (SQLException exception) {
+            throw new RuntimeSQLException(exception);
+        }
+    }
+
+    @Override
+    public String describe() {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof byte[]) {
+            return "<" + ((byte[]) value).length + " bytes>";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        String text = value.toString();
+        if (text.length() > MAX_DESCRIBED_LENGTH) {
+            text = text.substring(0, MAX_DESCRIBED_LENGTH) + "...";
+        }
+        return "'" + text.replace("'", "''") + "'";
+    }
+}
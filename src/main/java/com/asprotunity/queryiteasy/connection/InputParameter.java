@@ -44,6 +44,17 @@ public interface InputParameter extends Parameter {
      */
     void bind(PreparedStatement statement, int position, Scope queryScope);
 
+    /**
+     * Renders the value bound, e.g., for a slow query log. The binders of {@link InputParameterBinders} render it as
+     * a SQL literal, e.g., {@code 42} or {@code 'abc'}, and streams as their type; other parameters as {@code ?}.
+     * It is only called when a statement is logged, not when it is executed.
+     *
+     * @return A short description of the value bound.
+     */
+    default String describe() {
+        return "?";
+    }
+
     /**
      * Do not reimplement this method. The default is necessary to make the InputParameter
      * work correctly and keep the interface "functional".
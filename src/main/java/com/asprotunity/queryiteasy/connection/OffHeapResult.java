@@ -0,0 +1,358 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.connection.ColumnarResult.ColumnType;
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rows of a query encoded in a compact binary format inside direct {@link ByteBuffer}s, outside the heap scanned
+ * by the garbage collector. The buffers are allocated in chunks, and a row never spans two chunks.
+ * <p>
+ * Each row is stored as its length in bytes, a bitmap of its SQL {@code NULL} columns, a fixed size slot per column
+ * (4 bytes for {@link ColumnType#INT}, 8 for the others) and then the UTF-8 bytes of its strings, whose slots hold
+ * their offset in the row and their length. Column types are decided as in {@link ColumnarResult}, so decimals are
+ * stored as {@code long}s or strings, never as {@code double}s.
+ * <p>
+ * Instances are immutable and don't refer to the result set they were read from, so they can be used after the
+ * transaction has ended, by several threads at once, each with its own {@link #cursor()}. The off-heap memory is
+ * released when the instance is garbage collected. As in JDBC, columns are numbered from 1.
+ */
+public final class OffHeapResult {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final int ROW_LENGTH_SIZE = 4;
+
+    private final String[] labels;
+    private final ColumnType[] types;
+    private final int[] slotOffsets;
+    private final ByteBuffer[] chunks;
+    private final int rowCount;
+    private final long sizeInBytes;
+
+    private OffHeapResult(String[] labels, ColumnType[] types, int[] slotOffsets, ByteBuffer[] chunks, int rowCount,
+                          long sizeInBytes) {
+        this.labels = labels;
+        this.types = types;
+        this.slotOffsets = slotOffsets;
+        this.chunks = chunks;
+        this.rowCount = rowCount;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * Reads all the remaining rows of {@code resultSet}, without closing it.
+     *
+     * @param resultSet The {@link java.sql.ResultSet} wrapping the results of a query.
+     * @param chunkSize The size in bytes of each direct buffer. Rows longer than this get a buffer of their own.
+     * @param maxSize The maximum number of bytes allocated for all the buffers.
+     * @return The rows read.
+     * @throws InvalidArgumentException if {@code chunkSize < 1} or {@code maxSize < 1}.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown during the call, or if the rows need
+     *                             more than {@code maxSize} bytes.
+     */
+    public static OffHeapResult read(ResultSet resultSet, int chunkSize, long maxSize) {
+        InvalidArgumentException.throwIf(chunkSize < 1, "chunkSize must be at least 1.");
+        InvalidArgumentException.throwIf(maxSize < 1, "maxSize must be at least 1.");
+        return RuntimeSQLException.executeWithResult(() -> new Writer(resultSet, chunkSize, maxSize).write());
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int columnCount() {
+        return labels.length;
+    }
+
+    public String columnLabel(int column) {
+        return labels[checkColumn(column)];
+    }
+
+    public ColumnType columnType(int column) {
+        return types[checkColumn(column)];
+    }
+
+    /**
+     * @param label The label of a column, ignoring case.
+     * @return The number of the first column with the given label.
+     * @throws InvalidArgumentException if there is no such column.
+     */
+    public int columnIndex(String label) {
+        InvalidArgumentException.throwIfNull(label, "label");
+        for (int index = 0; index < labels.length; ++index) {
+            if (labels[index].equalsIgnoreCase(label)) {
+                return index + 1;
+            }
+        }
+        throw new InvalidArgumentException("No column labelled " + label + ".");
+    }
+
+    /**
+     * @return The number of off-heap bytes allocated for the rows.
+     */
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @return A new cursor positioned before the first row.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    private int checkColumn(int column) {
+        InvalidArgumentException.throwIf(column < 1 || column > labels.length, "Invalid column: " + column + ".");
+        return column - 1;
+    }
+
+    private static int nullBitmapSize(int columnCount) {
+        return (columnCount + 7) >>> 3;
+    }
+
+    private static int slotSize(ColumnType type) {
+        return type == ColumnType.INT ? 4 : 8;
+    }
+
+    /**
+     * A flyweight view of one row at a time: {@link #next()} moves it to the following row without allocating.
+     * A cursor must not be shared between threads.
+     */
+    public final class Cursor {
+        private int chunk = 0;
+        private int rowStart = -1;
+        private int rowLength = 0;
+
+        private Cursor() {
+        }
+
+        /**
+         * @return true if the cursor moved to the next row, false if there are no more rows.
+         */
+        public boolean next() {
+            int nextRowStart = rowStart < 0 ? 0 : rowStart + rowLength;
+            while (chunk < chunks.length && nextRowStart >= chunks[chunk].limit()) {
+                ++chunk;
+                nextRowStart = 0;
+            }
+            if (chunk == chunks.length) {
+                rowStart = -1;
+                rowLength = 0;
+                return false;
+            }
+            rowStart = nextRowStart;
+            rowLength = chunks[chunk].getInt(rowStart);
+            return true;
+        }
+
+        public boolean isNull(int column) {
+            int index = checkColumn(column);
+            checkRow();
+            byte bits = chunks[chunk].get(rowStart + ROW_LENGTH_SIZE + (index >>> 3));
+            return (bits & (1 << (index & 7))) != 0;
+        }
+
+        /**
+         * @return The value of an {@link ColumnType#INT} column, or zero if it is SQL {@code NULL}.
+         * @throws InvalidArgumentException if the column doesn't exist, has another type, or the cursor is not on a
+         *                                  row.
+         */
+        public int getInt(int column) {
+            int slot = slot(column, ColumnType.INT);
+            return chunks[chunk].getInt(slot);
+        }
+
+        /**
+         * @return The value of an {@link ColumnType#INT} or {@link ColumnType#LONG} column, or zero if it is SQL
+         * {@code NULL}.
+         * @throws InvalidArgumentException if the column doesn't exist, has another type, or the cursor is not on a
+         *                                  row.
+         */
+        public long getLong(int column) {
+            if (columnType(column) == ColumnType.INT) {
+                return getInt(column);
+            }
+            int slot = slot(column, ColumnType.LONG);
+            return chunks[chunk].getLong(slot);
+        }
+
+        /**
+         * @return The value of a numeric column, or zero if it is SQL {@code NULL}.
+         * @throws InvalidArgumentException if the column doesn't exist, has type {@link ColumnType#STRING}, or the
+         *                                  cursor is not on a row.
+         */
+        public double getDouble(int column) {
+            ColumnType type = columnType(column);
+            if (type == ColumnType.INT || type == ColumnType.LONG) {
+                return getLong(column);
+            }
+            int slot = slot(column, ColumnType.DOUBLE);
+            return chunks[chunk].getDouble(slot);
+        }
+
+        /**
+         * @return The value of a {@link ColumnType#STRING} column, or null if it is SQL {@code NULL}.
+         * @throws InvalidArgumentException if the column doesn't exist, has another type, or the cursor is not on a
+         *                                  row.
+         */
+        public String getString(int column) {
+            int slot = slot(column, ColumnType.STRING);
+            if (isNull(column)) {
+                return null;
+            }
+            byte[] bytes = new byte[chunks[chunk].getInt(slot + 4)];
+            ByteBuffer buffer = chunks[chunk].duplicate();
+            buffer.position(rowStart + chunks[chunk].getInt(slot));
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int slot(int column, ColumnType type) {
+            int index = checkColumn(column);
+            checkRow();
+            InvalidArgumentException.throwIf(types[index] != type,
+                                             "Column " + column + " has type " + types[index] + ", not " +
+                                             type + ".");
+            return rowStart + slotOffsets[index];
+        }
+
+        private void checkRow() {
+            InvalidArgumentException.throwIf(rowStart < 0, "The cursor is not on a row.");
+        }
+    }
+
+    private static final class Writer {
+        private final ResultSet resultSet;
+        private final int chunkSize;
+        private final long maxSize;
+        private final String[] labels;
+        private final ColumnType[] types;
+        private final int[] slotOffsets;
+        private final int fixedSize;
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private ByteBuffer row;
+        private ByteBuffer chunk;
+        private long allocated = 0;
+
+        Writer(ResultSet resultSet, int chunkSize, long maxSize) throws SQLException {
+            this.resultSet = resultSet;
+            this.chunkSize = chunkSize;
+            this.maxSize = maxSize;
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            this.labels = new String[columnCount];
+            this.types = new ColumnType[columnCount];
+            this.slotOffsets = new int[columnCount];
+            int offset = ROW_LENGTH_SIZE + nullBitmapSize(columnCount);
+            for (int index = 0; index < columnCount; ++index) {
+                labels[index] = metaData.getColumnLabel(index + 1);
+                types[index] = ColumnType.forColumn(metaData, index + 1);
+                slotOffsets[index] = offset;
+                offset += slotSize(types[index]);
+            }
+            this.fixedSize = offset;
+            this.row = ByteBuffer.allocate(Math.max(fixedSize, 256)).order(ByteOrder.nativeOrder());
+        }
+
+        OffHeapResult write() throws SQLException {
+            int rowCount = 0;
+            while (resultSet.next()) {
+                encodeRow();
+                append();
+                ++rowCount;
+            }
+            for (ByteBuffer full : chunks) {
+                full.flip();
+            }
+            return new OffHeapResult(labels, types, slotOffsets, chunks.toArray(new ByteBuffer[0]), rowCount,
+                                     allocated);
+        }
+
+        /**
+         * Reads each column once, left to right, as forward-only drivers require, so the strings are appended to the
+         * row as they are read, growing it if needed.
+         */
+        private void encodeRow() throws SQLException {
+            row.clear();
+            for (int index = ROW_LENGTH_SIZE; index < fixedSize; ++index) {
+                row.put(index, (byte) 0);
+            }
+            int length = fixedSize;
+            for (int index = 0; index < types.length; ++index) {
+                int column = index + 1;
+                int slot = slotOffsets[index];
+                boolean isNull;
+                switch (types[index]) {
+                    case INT:
+                        row.putInt(slot, resultSet.getInt(column));
+                        isNull = resultSet.wasNull();
+                        break;
+                    case LONG:
+                        row.putLong(slot, resultSet.getLong(column));
+                        isNull = resultSet.wasNull();
+                        break;
+                    case DOUBLE:
+                        row.putDouble(slot, resultSet.getDouble(column));
+                        isNull = resultSet.wasNull();
+                        break;
+                    default:
+                        String value = resultSet.getString(column);
+                        isNull = value == null;
+                        row.putInt(slot, length);
+                        if (!isNull) {
+                            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                            ensureCapacity(length + bytes.length);
+                            row.putInt(slot + 4, bytes.length);
+                            row.position(length);
+                            row.put(bytes);
+                            length += bytes.length;
+                        } else {
+                            row.putInt(slot + 4, 0);
+                        }
+                }
+                if (isNull) {
+                    int bitmapByte = ROW_LENGTH_SIZE + (index >>> 3);
+                    row.put(bitmapByte, (byte) (row.get(bitmapByte) | (1 << (index & 7))));
+                }
+            }
+            row.putInt(0, length);
+            row.position(0);
+            row.limit(length);
+        }
+
+        private void ensureCapacity(int length) {
+            if (row.capacity() < length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(length, row.capacity() * 2))
+                        .order(ByteOrder.nativeOrder());
+                row.clear();
+                larger.put(row);
+                larger.clear();
+                row = larger;
+            }
+        }
+
+        private void append() throws SQLException {
+            int length = row.remaining();
+            if (chunk == null || chunk.remaining() < length) {
+                int capacity = Math.max(chunkSize, length);
+                if (allocated + capacity > maxSize) {
+                    throw new SQLException("The rows need more than the maximum of " + maxSize + " bytes.");
+                }
+                allocated += capacity;
+                chunk = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+                chunks.add(chunk);
+            }
+            chunk.put(row);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import com.asprotunity.queryiteasy.scope.Scope;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * The input parameter returned by {@link InputParameterBinders#bindInt(int)},
+ * {@link InputParameterBinders#bindLong(long)} and {@link InputParameterBinders#bindDouble(double)}. It keeps its
+ * value unboxed and is the same final class for all three types, so that binding a batch of them is a single
+ * monomorphic call the JIT can inline, see {@link #bind(InputParameter, PreparedStatement, int, Scope)}.
+ */
+public final class PrimitiveParameter implements InputParameter {
+
+    private static final int INT = 0;
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+
+    private final int type;
+    private final long bits;
+
+    private PrimitiveParameter(int type, long bits) {
+        this.type = type;
+        this.bits = bits;
+    }
+
+    static PrimitiveParameter ofInt(int value) {
+        return new PrimitiveParameter(INT, value);
+    }
+
+    static PrimitiveParameter ofLong(long value) {
+        return new PrimitiveParameter(LONG, value);
+    }
+
+    static PrimitiveParameter ofDouble(double value) {
+        return new PrimitiveParameter(DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Binds {@code parameter}, directly if it is a PrimitiveParameter, so that the call doesn't go through the
+     * {@link InputParameter} interface.
+     */
+    public static void bind(InputParameter parameter, PreparedStatement statement, int position, Scope queryScope) {
+        if (parameter instanceof PrimitiveParameter) {
+            ((PrimitiveParameter) parameter).bind(statement, position);
+        } else {
+            parameter.bind(statement, position, queryScope);
+        }
+    }
+
+    @Override
+    public void bind(PreparedStatement statement, int position, Scope queryScope) {
+        bind(statement, position);
+    }
+
+    private void bind(PreparedStatement statement, int position) {
+        try {
+            switch (type) {
+                case INT:
+                    statement.setInt(position, (int) bits);
+                    break;
+                case LONG:
+                    statement.setLong(position, bits);
+                    break;
+                default:
+                    statement.setDouble(position, Double.longBitsToDouble(bits));
+            }
+        } catch (SQLException exception) {
+            throw new RuntimeSQLException(exception);
+        }
+    }
+
+    @Override
+    public String describe() {
+        return type == DOUBLE ? Double.toString(Double.longBitsToDouble(bits)) : Long.toString(bits);
+    }
+}
@@ -0,0 +1,204 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import com.asprotunity.queryiteasy.scope.Scope;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Execution options for a query, applied to the JDBC statement before it is executed. Instances are immutable: start
+ * from {@link #queryOptions()} and derive new ones with the {@code with...} methods, e.g.,
+ * <pre>
+ * {@code
+ *   connection.select(rs -> asString(rs, 1), queryOptions().withFetchSize(500), "SELECT name FROM big_table")
+ * }
+ * </pre>
+ * Options that are not set keep the driver defaults. Some drivers, e.g., PostgreSQL, need a fetch size to stream the
+ * rows of a query instead of loading them all before the first one is returned.
+ */
+public final class QueryOptions {
+
+    private static final int NOT_SET = -1;
+    private static final QueryOptions DEFAULTS = new QueryOptions(NOT_SET, NOT_SET, NOT_SET,
+                                                                  ResultSet.TYPE_FORWARD_ONLY,
+                                                                  ResultSet.CONCUR_READ_ONLY, NOT_SET, 0);
+
+    private final int fetchSize;
+    private final int maxRows;
+    private final int queryTimeoutSeconds;
+    private final int resultSetType;
+    private final int resultSetConcurrency;
+    private final int fetchDirection;
+    private final int prefetchSize;
+
+    private QueryOptions(int fetchSize, int maxRows, int queryTimeoutSeconds, int resultSetType,
+                         int resultSetConcurrency, int fetchDirection, int prefetchSize) {
+        this.fetchSize = fetchSize;
+        this.maxRows = maxRows;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+        this.resultSetType = resultSetType;
+        this.resultSetConcurrency = resultSetConcurrency;
+        this.fetchDirection = fetchDirection;
+        this.prefetchSize = prefetchSize;
+    }
+
+    /**
+     * @return The default options: forward only, read only result sets, and driver defaults for everything else.
+     */
+    public static QueryOptions queryOptions() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @param rows The number of rows the driver should fetch from the database at a time. Zero lets the driver
+     *             decide.
+     * @return New options with the given fetch size.
+     * @throws InvalidArgumentException if {@code rows < 0}.
+     */
+    public QueryOptions withFetchSize(int rows) {
+        InvalidArgumentException.throwIf(rows < 0, "rows cannot be negative.");
+        return new QueryOptions(rows, maxRows, queryTimeoutSeconds, resultSetType, resultSetConcurrency,
+                                fetchDirection, prefetchSize);
+    }
+
+    /**
+     * @param rows The maximum number of rows returned by the query; the others are silently dropped.
+     *             Zero means no limit.
+     * @return New options with the given maximum number of rows.
+     * @throws InvalidArgumentException if {@code rows < 0}.
+     */
+    public QueryOptions withMaxRows(int rows) {
+        InvalidArgumentException.throwIf(rows < 0, "rows cannot be negative.");
+        return new QueryOptions(fetchSize, rows, queryTimeoutSeconds, resultSetType, resultSetConcurrency,
+                                fetchDirection, prefetchSize);
+    }
+
+    /**
+     * @param timeout How long the driver waits for the query to execute. JDBC timeouts are in seconds, so it is
+     *                rounded up to the next second. Zero means no limit.
+     * @return New options with the given query timeout.
+     * @throws InvalidArgumentException if {@code timeout} is null, negative, or longer than
+     *                                  {@link Integer#MAX_VALUE} seconds.
+     */
+    public QueryOptions withQueryTimeout(Duration timeout) {
+        InvalidArgumentException.throwIfNull(timeout, "timeout");
+        InvalidArgumentException.throwIf(timeout.isNegative(), "timeout cannot be negative.");
+        long seconds = timeout.getSeconds() + (timeout.getNano() > 0 ? 1 : 0);
+        InvalidArgumentException.throwIf(seconds > Integer.MAX_VALUE, "timeout is too long.");
+        return new QueryOptions(fetchSize, maxRows, (int) seconds, resultSetType, resultSetConcurrency,
+                                fetchDirection, prefetchSize);
+    }
+
+    /**
+     * @param type One of {@link ResultSet#TYPE_FORWARD_ONLY}, {@link ResultSet#TYPE_SCROLL_INSENSITIVE} or
+     *             {@link ResultSet#TYPE_SCROLL_SENSITIVE}.
+     * @return New options with the given result set type.
+     * @throws InvalidArgumentException if {@code type} is none of the above.
+     */
+    public QueryOptions withResultSetType(int type) {
+        InvalidArgumentException.throwIf(type != ResultSet.TYPE_FORWARD_ONLY &&
+                                         type != ResultSet.TYPE_SCROLL_INSENSITIVE &&
+                                         type != ResultSet.TYPE_SCROLL_SENSITIVE,
+                                         "Invalid result set type: " + type + ".");
+        return new QueryOptions(fetchSize, maxRows, queryTimeoutSeconds, type, resultSetConcurrency,
+                                fetchDirection, prefetchSize);
+    }
+
+    /**
+     * @param concurrency One of {@link ResultSet#CONCUR_READ_ONLY} or {@link ResultSet#CONCUR_UPDATABLE}.
+     * @return New options with the given result set concurrency.
+     * @throws InvalidArgumentException if {@code concurrency} is none of the above.
+     */
+    public QueryOptions withResultSetConcurrency(int concurrency) {
+        InvalidArgumentException.throwIf(concurrency != ResultSet.CONCUR_READ_ONLY &&
+                                         concurrency != ResultSet.CONCUR_UPDATABLE,
+                                         "Invalid result set concurrency: " + concurrency + ".");
+        return new QueryOptions(fetchSize, maxRows, queryTimeoutSeconds, resultSetType, concurrency,
+                                fetchDirection, prefetchSize);
+    }
+
+    /**
+     * @param direction One of {@link ResultSet#FETCH_FORWARD}, {@link ResultSet#FETCH_REVERSE} or
+     *                  {@link ResultSet#FETCH_UNKNOWN}. It is only a hint for the driver.
+     * @return New options with the given fetch direction.
+     * @throws InvalidArgumentException if {@code direction} is none of the above.
+     */
+    public QueryOptions withFetchDirection(int direction) {
+        InvalidArgumentException.throwIf(direction != ResultSet.FETCH_FORWARD &&
+                                         direction != ResultSet.FETCH_REVERSE &&
+                                         direction != ResultSet.FETCH_UNKNOWN,
+                                         "Invalid fetch direction: " + direction + ".");
+        return new QueryOptions(fetchSize, maxRows, queryTimeoutSeconds, resultSetType, resultSetConcurrency,
+                                direction, prefetchSize);
+    }
+
+    /**
+     * Makes the query read its rows ahead of the stream consumer, using a dedicated thread that keeps up to
+     * {@code rows} mapped rows in a buffer. Fetching from the database and processing the rows then overlap.
+     * The row mapper runs on the reader thread. When the stream is closed, or the transaction ends, the reader is
+     * stopped before the result set is closed. The JDBC driver must allow the connection to be used by more than one
+     * thread, as most do.
+     *
+     * @param rows The maximum number of rows read ahead of the consumer.
+     * @return New options with prefetching enabled.
+     * @throws InvalidArgumentException if {@code rows < 1}.
+     */
+    public QueryOptions withPrefetch(int rows) {
+        InvalidArgumentException.throwIf(rows < 1, "rows must be at least 1.");
+        return new QueryOptions(fetchSize, maxRows, queryTimeoutSeconds, resultSetType, resultSetConcurrency,
+                                fetchDirection, rows);
+    }
+
+    public int resultSetType() {
+        return resultSetType;
+    }
+
+    public int resultSetConcurrency() {
+        return resultSetConcurrency;
+    }
+
+    /**
+     * @return The maximum number of rows read ahead of the consumer, or zero if prefetching is disabled.
+     */
+    public int prefetchSize() {
+        return prefetchSize;
+    }
+
+    /**
+     * Applies the options that have been set to {@code statement}. The result set type and concurrency are not
+     * applied here, since JDBC needs them when the statement is prepared.
+     * The previous values are restored when {@code queryScope} is closed, so a statement that is reused afterwards
+     * doesn't keep these options.
+     *
+     * @param statement The statement about to be executed.
+     * @param queryScope The scope that is closed when the statement is not used by the query any more.
+     * @throws RuntimeSQLException if a {@link java.sql.SQLException} is thrown during the call.
+     */
+    public void applyTo(Statement statement, Scope queryScope) {
+        RuntimeSQLException.execute(() -> {
+            if (fetchSize != NOT_SET) {
+                int previous = statement.getFetchSize();
+                statement.setFetchSize(fetchSize);
+                queryScope.add(() -> statement.setFetchSize(previous));
+            }
+            if (maxRows != NOT_SET) {
+                int previous = statement.getMaxRows();
+                statement.setMaxRows(maxRows);
+                queryScope.add(() -> statement.setMaxRows(previous));
+            }
+            if (queryTimeoutSeconds != NOT_SET) {
+                int previous = statement.getQueryTimeout();
+                statement.setQueryTimeout(queryTimeoutSeconds);
+                queryScope.add(() -> statement.setQueryTimeout(previous));
+            }
+            if (fetchDirection != NOT_SET) {
+                int previous = statement.getFetchDirection();
+                statement.setFetchDirection(fetchDirection);
+                queryScope.add(() -> statement.setFetchDirection(previous));
+            }
+        });
+    }
+}
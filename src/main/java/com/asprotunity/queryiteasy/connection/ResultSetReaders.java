@@ -9,6 +9,7 @@ import java.io.Reader;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.function.Function;
@@ -380,6 +381,44 @@ public abstract class ResultSetReaders {
         return RuntimeSQLException.executeWithResult(() -> SQLResultReaders.returnValueOrNull(resultSet, columnIndex, ResultSet::getInt));
     }
 
+    /**
+     * Returns the result of {@code resultSet.getInt(columnLabel)}, or {@code nullValue} if the value is null
+     * inside the database. Unlike {@link #asInteger(ResultSet, String)}, the value is never boxed.
+     *
+     * @param resultSet The {@link java.sql.ResultSet} wrapping the results of a query.
+     * @param columnLabel The label of the column to read.
+     * @param nullValue The value to return if the value is null inside the database.
+     * @throws RuntimeSQLException if a {@link java.sql.SQLException} is thrown during the call.
+     * @return {@code resultSet.getInt(columnLabel)}, or {@code nullValue} if the value is null inside the database.
+     */
+    public static int asInteger(ResultSet resultSet, String columnLabel, int nullValue) {
+        try {
+            int result = resultSet.getInt(columnLabel);
+            return resultSet.wasNull() ? nullValue : result;
+        } catch (SQLException exception) {
+            throw new RuntimeSQLException(exception);
+        }
+    }
+
+    /**
+     * Returns the result of {@code resultSet.getInt(columnIndex)}, or {@code nullValue} if the value is null
+     * inside the database. Unlike {@link #asInteger(ResultSet, int)}, the value is never boxed.
+     *
+     * @param resultSet The {@link java.sql.ResultSet} wrapping the results of a query.
+     * @param columnIndex The index of the column to read. Starts at 1.
+     * @param nullValue The value to return if the value is null inside the database.
+     * @throws RuntimeSQLException if a {@link java.sql.SQLException} is thrown during the call.
+     * @return {@code resultSet.getInt(columnIndex)}, or {@code nullValue} if the value is null inside the database.
+     */
+    public static int asInteger(ResultSet resultSet, int columnIndex, int nullValue) {
+        try {
+            int result = resultSet.getInt(columnIndex);
+            return resultSet.wasNull() ? nullValue : result;
+        } catch (SQLException exception) {
+            throw new RuntimeSQLException(exception);
+        }
+    }
+
     /**
      * Returns the result of {@code resultSet.getLong(columnLabel)}, or {@code null} if the value is null
      * inside the database.
@@ -406,6 +445,44 @@ public abstract class ResultSetReaders {
         return RuntimeSQLException.executeWithResult(() -> SQLResultReaders.returnValueOrNull(resultSet, columnIndex, ResultSet::getLong));
     }
 
+    /**
+     * Returns the result of {@code resultSet.getLong(columnLabel)}, or {@code nullValue} if the value is null
+     * inside the database. Unlike {@link #asLong(ResultSet, String)}, the value is never boxed.
+     *
+     * @param resultSet The {@link java.sql.ResultSet} wrapping the results of a query.
+     * @param columnLabel The label of the column to read.
+     * @param nullValue The value to return if the value is null inside the database.
+     * @throws RuntimeSQLException if a {@link java.sql.SQLException} is thrown during the call.
+     * @return {@code resultSet.getLong(columnLabel)}, or {@code nullValue} if the value is null inside the database.
+     */
+    public static long asLong(ResultSet resultSet, String columnLabel, long nullValue) {
+        try {
+            long result = resultSet.getLong(columnLabel);
+            return resultSet.wasNull() ? nullValue : result;
+        } catch (SQLException exception) {
+            throw new RuntimeSQLException(exception);
+        }
+    }
+
+    /**
+     * Returns the result of {@code resultSet.getLong(columnIndex)}, or {@code nullValue} if the value is null
+     * inside the database. Unlike {@link #asLong(ResultSet, int)}, the value is never boxed.
+     *
+     * @param resultSet The {@link java.sql.ResultSet} wrapping the results of a query.
+     * @param columnIndex The index of the column to read. Starts at 1.
+     * @param nullValue The value to return if the value is null inside the database.
+     * @throws RuntimeSQLException if a {@link java.sql.SQLException} is thrown during the call.
+     * @return {@code resultSet.getLong(columnIndex)}, or {@code nullValue} if the value is null inside the database.
+     */
+    public static long asLong(ResultSet resultSet, int columnIndex, long nullValue) {
+        try {
+            long result = resultSet.getLong(columnIndex);
+            return resultSet.wasNull() ? nullValue : result;
+        } catch (SQLException exception) {
+            throw new RuntimeSQLException(exception);
+        }
+    }
+
     /**
      * Returns the result of {@code resultSet.getDouble(columnIndex)}, or {@code null} if the value is null
      * inside the database.
@@ -432,6 +509,44 @@ public abstract class ResultSetReaders {
         return RuntimeSQLException.executeWithResult(() -> SQLResultReaders.returnValueOrNull(resultSet, columnLabel, ResultSet::getDouble));
     }
 
+    /**
+     * Returns the result of {@code resultSet.getDouble(columnLabel)}, or {@code nullValue} if the value is null
+     * inside the database. Unlike {@link #asDouble(ResultSet, String)}, the value is never boxed.
+     *
+     * @param resultSet The {@link java.sql.ResultSet} wrapping the results of a query.
+     * @param columnLabel The label of the column to read.
+     * @param nullValue The value to return if the value is null inside the database.
+     * @throws RuntimeSQLException if a {@link java.sql.SQLException} is thrown during the call.
+     * @return {@code resultSet.getDouble(columnLabel)}, or {@code nullValue} if the value is null inside the database.
+     */
+    public static double asDouble(ResultSet resultSet, String columnLabel, double nullValue) {
+        try {
+            double result = resultSet.getDouble(columnLabel);
+            return resultSet.wasNull() ? nullValue : result;
+        } catch (SQLException exception) {
+            throw new RuntimeSQLException(exception);
+        }
+    }
+
+    /**
+     * Returns the result of {@code resultSet.getDouble(columnIndex)}, or {@code nullValue} if the value is null
+     * inside the database. Unlike {@link #asDouble(ResultSet, int)}, the value is never boxed.
+     *
+     * @param resultSet The {@link java.sql.ResultSet} wrapping the results of a query.
+     * @param columnIndex The index of the column to read. Starts at 1.
+     * @param nullValue The value to return if the value is null inside the database.
+     * @throws RuntimeSQLException if a {@link java.sql.SQLException} is thrown during the call.
+     * @return {@code resultSet.getDouble(columnIndex)}, or {@code nullValue} if the value is null inside the database.
+     */
+    public static double asDouble(ResultSet resultSet, int columnIndex, double nullValue) {
+        try {
+            double result = resultSet.getDouble(columnIndex);
+            return resultSet.wasNull() ? nullValue : result;
+        } catch (SQLException exception) {
+            throw new RuntimeSQLException(exception);
+        }
+    }
+
     /**
      * Returns the result of {@code resultSet.getFloat(columnLabel)}, or {@code null} if the value is null
      * inside the database.
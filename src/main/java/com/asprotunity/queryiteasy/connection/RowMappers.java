@@ -0,0 +1,40 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.connection.internal.GeneratedRowMapper;
+
+import java.sql.ResultSet;
+import java.util.function.Function;
+
+/**
+ * Row mappers that can be passed to the <code>select</code> and <code>call</code> methods of the {@link Connection}
+ * interface instead of hand-written lambdas.
+ */
+public abstract class RowMappers {
+
+    /**
+     * Returns a row mapper creating an instance of {@code rowClass} from each row. Columns are matched by label to
+     * constructor parameters or bean properties, ignoring case and underscores, e.g., column {@code FIRST_NAME}
+     * matches {@code firstName}. The class must be either
+     * <ul>
+     * <li>a record, built with its canonical constructor (on Java 16 or later);</li>
+     * <li>a bean with a public constructor with no parameters, whose public setters are called for the columns
+     * that have a matching property, while the others are ignored;</li>
+     * <li>a class with a public constructor whose parameter names are known, i.e., annotated with
+     * {@link java.beans.ConstructorProperties} or compiled with {@code -parameters}; every parameter must have a
+     * matching column.</li>
+     * </ul>
+     * SQL {@code NULL} is passed as {@code null}, or as the JDBC default, e.g., zero, for primitive types.
+     * <p>
+     * The constructor and setters are looked up once, here, and the matching columns once per query, on its first
+     * row, so the returned function should be kept and reused rather than created for each query.
+     *
+     * @param rowClass The class of the mapped rows.
+     * @param <RowType> The type of the mapped rows.
+     * @return The row mapper.
+     * @throws com.asprotunity.queryiteasy.exception.InvalidArgumentException if {@code rowClass} is null or
+     *                                                                         cannot be created as described above.
+     */
+    public static <RowType> Function<ResultSet, RowType> mapTo(Class<RowType> rowClass) {
+        return new GeneratedRowMapper<>(rowClass);
+    }
+}
@@ -0,0 +1,57 @@
+package com.asprotunity.queryiteasy.connection;
+
+/**
+ * Describes a phase of a statement or transaction to a {@link StatementListener}. To avoid allocating at each fetch,
+ * the same instance may be reused for all the phases of a statement, so it is only valid during the call to the
+ * listener.
+ */
+public interface StatementContext {
+
+    /**
+     * @return The SQL of the statement, or null for the phases of a transaction.
+     */
+    String sql();
+
+    /**
+     * @return The number of parameters bound to the statement, for batch updates those of each batch.
+     */
+    int parameterCount();
+
+    /**
+     * Renders the parameters bound to the statement with {@link InputParameter#describe()}, e.g.,
+     * {@code [42, 'abc']}, output parameters as {@code OUT}. For batch updates, these are the parameters of the last
+     * batch bound. This allocates, so call it only when needed, e.g., when logging a slow statement.
+     *
+     * @return The parameters bound so far, {@code []} if none.
+     */
+    String describeParameters();
+
+    /**
+     * @return The rows read so far by a select or call, or the rows updated by an update once executed, when the
+     * driver reports them.
+     */
+    long rowCount();
+
+    /**
+     * @return A number identifying the transaction, unique in the JVM, or zero for {@code acquired}, which happens
+     * before the transaction starts.
+     */
+    long transactionId();
+
+    /**
+     * @return The {@link System#nanoTime()} when the phase started.
+     */
+    long startNanos();
+
+    /**
+     * @return The {@link System#nanoTime()} when the phase ended.
+     */
+    long endNanos();
+
+    /**
+     * @return How long the phase took, in nanoseconds.
+     */
+    default long elapsedNanos() {
+        return endNanos() - startNanos();
+    }
+}
@@ -0,0 +1,155 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+
+/**
+ * Is told about each phase of the transactions and statements of a DataStore, see
+ * {@code DataStore.withStatementListener(StatementListener)}, e.g., to trace them.
+ * <p>
+ * Each method is called on the thread that ran the phase, right after the phase has ended, whether it succeeded or
+ * failed, with a {@link StatementContext} telling when it started and ended. Comparing the phases shows whether the
+ * time goes to waiting for connections, to the driver, or to the row mappers, which run between the fetches of a
+ * select. All the methods do nothing by default. They should be quick and not throw exceptions, since they run inside
+ * the transaction.
+ */
+public interface StatementListener {
+
+    /**
+     * A connection has been opened or borrowed from the pool for a transaction. The SQL of the context is null.
+     */
+    default void acquired(StatementContext context) {
+    }
+
+    /**
+     * A statement has been prepared, or taken from the statement cache.
+     */
+    default void prepared(StatementContext context) {
+    }
+
+    /**
+     * The parameters of a statement have been bound. For batch updates, this is called for each chunk.
+     */
+    default void bound(StatementContext context) {
+    }
+
+    /**
+     * A statement has been executed. For selects and calls returning rows, this is the time until the first results
+     * are available; for batch updates, this is called for each chunk.
+     */
+    default void executed(StatementContext context) {
+    }
+
+    /**
+     * The result set of a select or call has been moved to its next row, including past the last one.
+     */
+    default void fetched(StatementContext context) {
+    }
+
+    /**
+     * The stream returned by a select or call has been closed, releasing its result set and statement.
+     */
+    default void closed(StatementContext context) {
+    }
+
+    /**
+     * A statement has finished using the database, after its last execute for updates and calls, and after its stream
+     * has been closed for selects and calls returning rows, whether it succeeded or failed. The context spans the
+     * whole statement: it starts when the statement started being prepared, and ends when its last execute or fetch
+     * ended, so it doesn't include the time the caller kept the stream open after reading it.
+     */
+    default void completed(StatementContext context) {
+    }
+
+    /**
+     * A transaction has been committed. The SQL of the context is null.
+     */
+    default void committed(StatementContext context) {
+    }
+
+    /**
+     * A transaction that executed statements after its last commit has been rolled back. The SQL of the context is
+     * null.
+     */
+    default void rolledBack(StatementContext context) {
+    }
+
+    /**
+     * @return false if, among the phases of statements, this listener only needs {@link #completed}. The other
+     * phases of statements are then neither timed nor reported, and the fetches of selects are not timed, so that a
+     * statement costs only a few calls to {@link System#nanoTime()}. The phases of transactions are always reported.
+     * True by default.
+     */
+    default boolean listensToPhases() {
+        return true;
+    }
+
+    /**
+     * @param next The listener to call after this one.
+     * @return A listener that tells this listener, and then {@code next}, about each phase.
+     * @throws InvalidArgumentException if {@code next == null}.
+     */
+    default StatementListener andThen(StatementListener next) {
+        InvalidArgumentException.throwIfNull(next, "next");
+        StatementListener first = this;
+        return new StatementListener() {
+            @Override
+            public boolean listensToPhases() {
+                return first.listensToPhases() || next.listensToPhases();
+            }
+
+            @Override
+            public void acquired(StatementContext context) {
+                first.acquired(context);
+                next.acquired(context);
+            }
+
+            @Override
+            public void prepared(StatementContext context) {
+                first.prepared(context);
+                next.prepared(context);
+            }
+
+            @Override
+            public void bound(StatementContext context) {
+                first.bound(context);
+                next.bound(context);
+            }
+
+            @Override
+            public void executed(StatementContext context) {
+                first.executed(context);
+                next.executed(context);
+            }
+
+            @Override
+            public void fetched(StatementContext context) {
+                first.fetched(context);
+                next.fetched(context);
+            }
+
+            @Override
+            public void closed(StatementContext context) {
+                first.closed(context);
+                next.closed(context);
+            }
+
+            @Override
+            public void completed(StatementContext context) {
+                first.completed(context);
+                next.completed(context);
+            }
+
+            @Override
+            public void committed(StatementContext context) {
+                first.committed(context);
+                next.committed(context);
+            }
+
+            @Override
+            public void rolledBack(StatementContext context) {
+                first.rolledBack(context);
+                next.rolledBack(context);
+            }
+        };
+    }
+}
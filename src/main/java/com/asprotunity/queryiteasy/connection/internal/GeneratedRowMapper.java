@@ -0,0 +1,345 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+
+import java.beans.ConstructorProperties;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * Maps each row of a result set to an instance of {@code RowType}, matching column labels to the names of either
+ * the constructor parameters or the bean properties of the class, ignoring case and underscores.
+ * <p>
+ * The constructor or setters, and how each column is read, are worked out when the mapper is created; which column
+ * goes where is worked out from the metadata of each result set on its first row. After that, mapping a row costs
+ * reading the columns by index and invoking {@link MethodHandle}s, with no reflection.
+ */
+public class GeneratedRowMapper<RowType> implements Function<ResultSet, RowType> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final Map<Class<?>, ColumnReader> READERS = new HashMap<>();
+
+    static {
+        READERS.put(String.class, ResultSet::getString);
+        READERS.put(BigDecimal.class, ResultSet::getBigDecimal);
+        READERS.put(byte[].class, ResultSet::getBytes);
+        READERS.put(Date.class, ResultSet::getDate);
+        READERS.put(Time.class, ResultSet::getTime);
+        READERS.put(Timestamp.class, ResultSet::getTimestamp);
+        READERS.put(Integer.class, nullable(ResultSet::getInt));
+        READERS.put(Long.class, nullable(ResultSet::getLong));
+        READERS.put(Short.class, nullable(ResultSet::getShort));
+        READERS.put(Byte.class, nullable(ResultSet::getByte));
+        READERS.put(Double.class, nullable(ResultSet::getDouble));
+        READERS.put(Float.class, nullable(ResultSet::getFloat));
+        READERS.put(Boolean.class, nullable(ResultSet::getBoolean));
+        // Primitives get the JDBC default for NULL, e.g., zero or false.
+        READERS.put(int.class, ResultSet::getInt);
+        READERS.put(long.class, ResultSet::getLong);
+        READERS.put(short.class, ResultSet::getShort);
+        READERS.put(byte.class, ResultSet::getByte);
+        READERS.put(double.class, ResultSet::getDouble);
+        READERS.put(float.class, ResultSet::getFloat);
+        READERS.put(boolean.class, ResultSet::getBoolean);
+    }
+
+    private final Class<RowType> rowClass;
+    private final Creator creator;
+    // Result sets of queries carry their own columns, see ColumnIndexCachingResultSet#plan; these are any others.
+    private final Map<ResultSet, int[]> otherColumns = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public GeneratedRowMapper(Class<RowType> rowClass) {
+        InvalidArgumentException.throwIfNull(rowClass, "rowClass");
+        InvalidArgumentException.throwIf(rowClass.isInterface() || Modifier.isAbstract(rowClass.getModifiers()) ||
+                                         rowClass.isPrimitive() || rowClass.isArray(),
+                                         rowClass.getName() + " cannot be instantiated.");
+        this.rowClass = rowClass;
+        this.creator = creatorFor(rowClass);
+    }
+
+    @Override
+    public RowType apply(ResultSet resultSet) {
+        int[] columns = resultSet instanceof ColumnIndexCachingResultSet ?
+                        ((ColumnIndexCachingResultSet) resultSet).plan(this, this::columnsFor) :
+                        otherColumns.computeIfAbsent(resultSet, this::columnsFor);
+        try {
+            return rowClass.cast(creator.create(resultSet, columns));
+        } catch (SQLException exception) {
+            throw new RuntimeSQLException(exception);
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Throwable throwable) {
+            throw new IllegalStateException("Cannot create an instance of " + rowClass.getName() + ".", throwable);
+        }
+    }
+
+    private int[] columnsFor(ResultSet resultSet) {
+        return RuntimeSQLException.executeWithResult(() -> creator.columnsFor(resultSet));
+    }
+
+    private static Creator creatorFor(Class<?> rowClass) {
+        Creator creator = recordCreator(rowClass);
+        if (creator != null) {
+            return creator;
+        }
+        Constructor<?> noArgumentsConstructor = null;
+        Constructor<?> namedArgumentsConstructor = null;
+        for (Constructor<?> constructor : rowClass.getConstructors()) {
+            if (constructor.getParameterCount() == 0) {
+                noArgumentsConstructor = constructor;
+            } else if (parameterNames(constructor) != null &&
+                       (namedArgumentsConstructor == null ||
+                        constructor.getParameterCount() > namedArgumentsConstructor.getParameterCount())) {
+                namedArgumentsConstructor = constructor;
+            }
+        }
+        if (noArgumentsConstructor != null) {
+            return new BeanCreator(rowClass, noArgumentsConstructor);
+        }
+        InvalidArgumentException.throwIf(namedArgumentsConstructor == null,
+                                         rowClass.getName() + " must be a record, have a public constructor " +
+                                         "with no parameters, or one whose parameter names are known, i.e., " +
+                                         "annotated with @ConstructorProperties or compiled with -parameters.");
+        return new ConstructorCreator(namedArgumentsConstructor, parameterNames(namedArgumentsConstructor));
+    }
+
+    /**
+     * Records are only available from Java 16, so they are detected reflectively.
+     */
+    private static Creator recordCreator(Class<?> rowClass) {
+        try {
+            Object[] components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(rowClass);
+            if (components == null) {
+                return null;
+            }
+            String[] names = new String[components.length];
+            Class<?>[] types = new Class<?>[components.length];
+            for (int index = 0; index < components.length; ++index) {
+                Method getName = components[index].getClass().getMethod("getName");
+                Method getType = components[index].getClass().getMethod("getType");
+                names[index] = (String) getName.invoke(components[index]);
+                types[index] = (Class<?>) getType.invoke(components[index]);
+            }
+            return new ConstructorCreator(rowClass.getDeclaredConstructor(types), names);
+        } catch (NoSuchMethodException beforeJava16) {
+            return null;
+        } catch (ReflectiveOperationException exception) {
+            throw new InvalidArgumentException("Cannot read the components of record " + rowClass.getName() +
+                                               ": " + exception + ".");
+        }
+    }
+
+    private static String[] parameterNames(Constructor<?> constructor) {
+        ConstructorProperties properties = constructor.getAnnotation(ConstructorProperties.class);
+        if (properties != null && properties.value().length == constructor.getParameterCount()) {
+            return properties.value();
+        }
+        Parameter[] parameters = constructor.getParameters();
+        String[] result = new String[parameters.length];
+        for (int index = 0; index < parameters.length; ++index) {
+            if (!parameters[index].isNamePresent()) {
+                return null;
+            }
+            result[index] = parameters[index].getName();
+        }
+        return result;
+    }
+
+    private static String normalise(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static ColumnReader readerFor(Class<?> type) {
+        ColumnReader reader = READERS.get(type);
+        return reader != null ? reader : (resultSet, column) -> resultSet.getObject(column, type);
+    }
+
+    private static ColumnReader nullable(ColumnReader reader) {
+        return (resultSet, column) -> {
+            Object value = reader.read(resultSet, column);
+            return resultSet.wasNull() ? null : value;
+        };
+    }
+
+    private static MethodHandle unreflect(Constructor<?> constructor) {
+        try {
+            constructor.setAccessible(true);
+            return LOOKUP.unreflectConstructor(constructor);
+        } catch (IllegalAccessException | RuntimeException exception) {
+            throw new InvalidArgumentException("Cannot access " + constructor + ": " + exception + ".");
+        }
+    }
+
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet resultSet, int column) throws SQLException;
+    }
+
+    private interface Creator {
+        int[] columnsFor(ResultSet resultSet) throws SQLException;
+
+        Object create(ResultSet resultSet, int[] columns) throws Throwable;
+    }
+
+    /**
+     * Calls a constructor, passing the columns matching its parameters. {@code columns[i]} is the column of the
+     * i-th parameter.
+     */
+    private static final class ConstructorCreator implements Creator {
+        private final MethodHandle constructor;
+        private final String[] parameterNames;
+        private final ColumnReader[] readers;
+
+        ConstructorCreator(Constructor<?> constructor, String[] parameterNames) {
+            this.constructor = unreflect(constructor)
+                    .asSpreader(Object[].class, parameterNames.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            this.parameterNames = parameterNames;
+            Class<?>[] types = constructor.getParameterTypes();
+            this.readers = new ColumnReader[types.length];
+            for (int index = 0; index < types.length; ++index) {
+                readers[index] = readerFor(types[index]);
+            }
+        }
+
+        @Override
+        public int[] columnsFor(ResultSet resultSet) throws SQLException {
+            Map<String, Integer> columnIndexes = columnIndexes(resultSet.getMetaData());
+            int[] result = new int[parameterNames.length];
+            for (int index = 0; index < parameterNames.length; ++index) {
+                Integer column = columnIndexes.get(normalise(parameterNames[index]));
+                InvalidArgumentException.throwIf(column == null, "No column found for constructor parameter " +
+                                                                 parameterNames[index] + ".");
+                result[index] = column;
+            }
+            return result;
+        }
+
+        @Override
+        public Object create(ResultSet resultSet, int[] columns) throws Throwable {
+            Object[] arguments = new Object[columns.length];
+            for (int index = 0; index < columns.length; ++index) {
+                arguments[index] = readers[index].read(resultSet, columns[index]);
+            }
+            return constructor.invokeExact(arguments);
+        }
+
+        private static Map<String, Integer> columnIndexes(ResultSetMetaData metaData) throws SQLException {
+            Map<String, Integer> result = new HashMap<>();
+            for (int column = metaData.getColumnCount(); column > 0; --column) {
+                result.put(normalise(metaData.getColumnLabel(column)), column);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Calls the constructor with no parameters, and then the setters matching the columns. {@code columns} holds
+     * pairs of column index and setter index; columns without a setter are skipped.
+     */
+    /**
+     * Sets the bean properties matching the columns. A property with overloaded setters, e.g., {@code setId(int)} and
+     * {@code setId(String)}, is set by the overload taking the Java class of the column's SQL type, whatever order
+     * reflection lists them in; if none takes it, the mapper cannot choose and the query fails.
+     */
+    private static final class BeanCreator implements Creator {
+        private final MethodHandle constructor;
+        private final Map<String, List<Integer>> setterIndexes = new HashMap<>();
+        private final List<Class<?>> setterTypes = new ArrayList<>();
+        private final MethodHandle[] setters;
+        private final ColumnReader[] readers;
+
+        BeanCreator(Class<?> beanClass, Constructor<?> constructor) {
+            this.constructor = unreflect(constructor).asType(MethodType.methodType(Object.class));
+            List<MethodHandle> setters = new ArrayList<>();
+            List<ColumnReader> readers = new ArrayList<>();
+            for (Method method : beanClass.getMethods()) {
+                if (method.getName().length() > 3 && method.getName().startsWith("set") &&
+                    method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers()) &&
+                    !method.isBridge()) {
+                    String property = normalise(method.getName().substring(3));
+                    setterIndexes.computeIfAbsent(property, ignored -> new ArrayList<>()).add(setters.size());
+                    setterTypes.add(method.getParameterTypes()[0]);
+                    setters.add(setterHandle(method));
+                    readers.add(readerFor(method.getParameterTypes()[0]));
+                }
+            }
+            this.setters = setters.toArray(new MethodHandle[0]);
+            this.readers = readers.toArray(new ColumnReader[0]);
+        }
+
+        @Override
+        public int[] columnsFor(ResultSet resultSet) throws SQLException {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            int[] result = new int[columnCount * 2];
+            int size = 0;
+            for (int column = 1; column <= columnCount; ++column) {
+                List<Integer> overloads = setterIndexes.get(normalise(metaData.getColumnLabel(column)));
+                if (overloads != null) {
+                    result[size++] = column;
+                    result[size++] = overloads.size() == 1 ? overloads.get(0) :
+                                     overloadFor(overloads, metaData, column);
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }
+
+        private int overloadFor(List<Integer> overloads, ResultSetMetaData metaData, int column)
+                throws SQLException {
+            String columnClass = metaData.getColumnClassName(column);
+            for (int setter : overloads) {
+                Class<?> boxed = MethodType.methodType(setterTypes.get(setter)).wrap().returnType();
+                if (boxed.getName().equals(columnClass)) {
+                    return setter;
+                }
+            }
+            throw new InvalidArgumentException("Cannot choose the setter of column " +
+                                               metaData.getColumnLabel(column) + ": none of its overloads takes " +
+                                               columnClass + ".");
+        }
+
+        @Override
+        public Object create(ResultSet resultSet, int[] columns) throws Throwable {
+            Object bean = constructor.invokeExact();
+            for (int index = 0; index < columns.length; index += 2) {
+                int setter = columns[index + 1];
+                Object value = readers[setter].read(resultSet, columns[index]);
+                setters[setter].invokeExact(bean, value);
+            }
+            return bean;
+        }
+
+        private static MethodHandle setterHandle(Method setter) {
+            try {
+                setter.setAccessible(true);
+                return LOOKUP.unreflect(setter)
+                             .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (IllegalAccessException | RuntimeException exception) {
+                throw new InvalidArgumentException("Cannot access " + setter + ": " + exception + ".");
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import com.asprotunity.queryiteasy.connection.StatementListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Tells the statement listener about each fetch, or, if it doesn't listen to phases, only about the last one.
+ */
+final class ListeningResultSet extends ColumnIndexCachingResultSet {
+
+    private final StatementEvents events;
+
+    ListeningResultSet(ResultSet resultSet, StatementEvents events) {
+        super(resultSet);
+        this.events = events;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        boolean hasRow;
+        if (events.timesPhases()) {
+            hasRow = StatementEvents.timeDatabaseWork(events, StatementListener::fetched, super::next);
+        } else {
+            hasRow = super.next();
+            events.fetchedUntimed(hasRow);
+        }
+        events.rowCount(rowCount());
+        return hasRow;
+    }
+}
@@ -0,0 +1,50 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A simple {@code INSERT INTO ... VALUES (?, ..., ?)}, rewritten into {@code INSERT INTO ... VALUES (?, ?), (?, ?)}
+ * to insert several rows with one statement.
+ */
+final class MultiRowInsert {
+
+    private static final Pattern SIMPLE_INSERT = Pattern.compile(
+            "\\s*(INSERT\\s+INTO\\s+[^?'\";]+?\\s+VALUES)\\s*(\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))\\s*;?\\s*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final String prefix;
+    private final String row;
+    private final int parametersPerRow;
+
+    private MultiRowInsert(String prefix, String row) {
+        this.prefix = prefix;
+        this.row = row;
+        this.parametersPerRow = (int) row.chars().filter(character -> character == '?').count();
+    }
+
+    /**
+     * @return The insert, or null if {@code sql} isn't a single-row insert of positional parameters only, e.g., if
+     * it has literals, expressions or a trailing clause.
+     */
+    static MultiRowInsert parse(String sql) {
+        Matcher matcher = SIMPLE_INSERT.matcher(sql);
+        return matcher.matches() ? new MultiRowInsert(matcher.group(1), matcher.group(2)) : null;
+    }
+
+    int parametersPerRow() {
+        return parametersPerRow;
+    }
+
+    /**
+     * @return The SQL inserting {@code rowCount} rows.
+     */
+    String sql(int rowCount) {
+        StringBuilder sql = new StringBuilder(prefix.length() + (row.length() + 2) * rowCount);
+        sql.append(prefix).append(' ').append(row);
+        for (int index = 1; index < rowCount; ++index) {
+            sql.append(", ").append(row);
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+/**
+ * Reads the rows of another spliterator ahead of the consumer, using a dedicated thread that keeps up to
+ * {@code bufferSize} rows in a bounded buffer. When the buffer is full the reader waits for the consumer to catch up.
+ * <p>
+ * {@link #cancel()} stops the reader and waits for it to finish, so it must be called before closing the resources
+ * used by the source spliterator, e.g., the result set.
+ */
+public class PrefetchingSpliterator<RowType> implements Spliterator<RowType> {
+
+    private static final Object NULL_ROW = new Object();
+    private static final Object END = new Object();
+
+    private final Spliterator<RowType> source;
+    private final ArrayBlockingQueue<Object> buffer;
+    private final CountDownLatch readerFinished = new CountDownLatch(1);
+    private final List<Object> drained = new ArrayList<>();
+    private volatile boolean cancelled = false;
+    private volatile Throwable readerFailure;
+    private boolean ended = false;
+
+    public PrefetchingSpliterator(Spliterator<RowType> source, int bufferSize) {
+        this.source = source;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        Thread reader = new Thread(this::readAhead, "queryiteasy-prefetch");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super RowType> action) {
+        if (ended) {
+            return false;
+        }
+        Object row = take();
+        if (row == END) {
+            end();
+            return false;
+        }
+        action.accept(unwrap(row));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super RowType> action) {
+        while (!ended) {
+            drained.add(take());
+            buffer.drainTo(drained);
+            for (Object row : drained) {
+                if (row == END) {
+                    drained.clear();
+                    end();
+                    return;
+                }
+                action.accept(unwrap(row));
+            }
+            drained.clear();
+        }
+    }
+
+    @Override
+    public Spliterator<RowType> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED;
+    }
+
+    /**
+     * Stops the reader thread, discarding the rows read so far, and waits for it to finish. Afterwards the
+     * spliterator behaves as if there were no more rows.
+     */
+    public void cancel() {
+        cancelled = true;
+        buffer.clear();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                readerFinished.await();
+                break;
+            } catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        buffer.clear();
+        buffer.offer(END);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readAhead() {
+        try {
+            while (!cancelled && source.tryAdvance(this::put)) {
+                // Each row is put in the buffer by the action.
+            }
+        } catch (Throwable failure) {
+            readerFailure = failure;
+        } finally {
+            try {
+                if (!cancelled) {
+                    buffer.put(END);
+                }
+            } catch (InterruptedException ignored) {
+                // Only cancel() can unblock the consumer at this point.
+            } finally {
+                readerFinished.countDown();
+            }
+        }
+    }
+
+    private void put(RowType row) {
+        if (cancelled) {
+            return;
+        }
+        try {
+            buffer.put(row == null ? NULL_ROW : row);
+        } catch (InterruptedException exception) {
+            throw new RuntimeSQLException(new SQLException("Interrupted while prefetching rows.", exception));
+        }
+    }
+
+    private Object take() {
+        try {
+            return buffer.take();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeSQLException(new SQLException("Interrupted while waiting for prefetched rows.",
+                                                           exception));
+        }
+    }
+
+    private void end() {
+        ended = true;
+        Throwable failure = readerFailure;
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private RowType unwrap(Object row) {
+        return row == NULL_ROW ? null : (RowType) row;
+    }
+}
@@ -3,31 +3,59 @@ package com.asprotunity.queryiteasy.connection.internal;
 import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
 
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
-public class ResultSetSpliterator implements Spliterator<ResultSet> {
+/**
+ * Maps the rows of a result set as they are traversed.
+ * <p>
+ * A result set can only be read sequentially, so {@link #trySplit()} maps a chunk of rows into an array and hands
+ * that over, letting a parallel stream process the chunk on other threads while this spliterator keeps reading.
+ * Chunks grow by {@link #CHUNK_SIZE_INCREMENT} rows at each split, up to {@link #MAX_CHUNK_SIZE}, so small results
+ * are split early and large ones don't hold too many rows in memory.
+ */
+public class ResultSetSpliterator<MappedRowType> implements Spliterator<MappedRowType> {
 
-    private ResultSet resultSet;
+    static final int CHUNK_SIZE_INCREMENT = 1 << 10;
+    static final int MAX_CHUNK_SIZE = 1 << 16;
 
-    public ResultSetSpliterator(ResultSet resultSet) {
+    private final ResultSet resultSet;
+    private final Function<ResultSet, MappedRowType> rowMapper;
+    private boolean hasMoreRows = true;
+    private int chunkSize = 0;
+
+    public ResultSetSpliterator(ResultSet resultSet, Function<ResultSet, MappedRowType> rowMapper) {
         this.resultSet = resultSet;
+        this.rowMapper = rowMapper;
     }
 
     @Override
-    public boolean tryAdvance(Consumer<? super ResultSet> action) {
-        return RuntimeSQLException.executeWithResult(() -> {
-            if (resultSet.next()) {
-                action.accept(resultSet);
-                return true;
-            }
+    public boolean tryAdvance(Consumer<? super MappedRowType> action) {
+        if (!nextRow()) {
             return false;
-        });
+        }
+        action.accept(rowMapper.apply(resultSet));
+        return true;
     }
 
     @Override
-    public Spliterator<ResultSet> trySplit() {
-        return null;
+    public Spliterator<MappedRowType> trySplit() {
+        chunkSize = nextChunkSize(chunkSize);
+        Object[] chunk = new Object[chunkSize];
+        int rows = 0;
+        while (rows < chunk.length && nextRow()) {
+            chunk[rows++] = rowMapper.apply(resultSet);
+        }
+        return rows == 0 ? null : Spliterators.spliterator(chunk, 0, rows, ORDERED);
     }
 
     @Override
@@ -37,6 +65,181 @@ public class ResultSetSpliterator implements Spliterator<ResultSet> {
 
     @Override
     public int characteristics() {
-        return IMMUTABLE | NONNULL | DISTINCT;
+        return ORDERED;
+    }
+
+    private boolean nextRow() {
+        if (hasMoreRows) {
+            hasMoreRows = next(resultSet);
+        }
+        return hasMoreRows;
+    }
+
+    private static int nextChunkSize(int chunkSize) {
+        return Math.min(chunkSize + CHUNK_SIZE_INCREMENT, MAX_CHUNK_SIZE);
+    }
+
+    private static boolean next(ResultSet resultSet) {
+        try {
+            return resultSet.next();
+        } catch (SQLException exception) {
+            throw new RuntimeSQLException(exception);
+        }
+    }
+
+    /**
+     * Same as {@link ResultSetSpliterator}, mapping each row to an {@code int} without boxing it.
+     */
+    public static class OfInt implements Spliterator.OfInt {
+        private final ResultSet resultSet;
+        private final ToIntFunction<ResultSet> rowMapper;
+        private boolean hasMoreRows = true;
+        private int chunkSize = 0;
+
+        public OfInt(ResultSet resultSet, ToIntFunction<ResultSet> rowMapper) {
+            this.resultSet = resultSet;
+            this.rowMapper = rowMapper;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (!nextRow()) {
+                return false;
+            }
+            action.accept(rowMapper.applyAsInt(resultSet));
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            chunkSize = nextChunkSize(chunkSize);
+            int[] chunk = new int[chunkSize];
+            int rows = 0;
+            while (rows < chunk.length && nextRow()) {
+                chunk[rows++] = rowMapper.applyAsInt(resultSet);
+            }
+            return rows == 0 ? null : Spliterators.spliterator(chunk, 0, rows, ORDERED);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+
+        private boolean nextRow() {
+            if (hasMoreRows) {
+                hasMoreRows = next(resultSet);
+            }
+            return hasMoreRows;
+        }
+    }
+
+    /**
+     * Same as {@link ResultSetSpliterator}, mapping each row to a {@code long} without boxing it.
+     */
+    public static class OfLong implements Spliterator.OfLong {
+        private final ResultSet resultSet;
+        private final ToLongFunction<ResultSet> rowMapper;
+        private boolean hasMoreRows = true;
+        private int chunkSize = 0;
+
+        public OfLong(ResultSet resultSet, ToLongFunction<ResultSet> rowMapper) {
+            this.resultSet = resultSet;
+            this.rowMapper = rowMapper;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (!nextRow()) {
+                return false;
+            }
+            action.accept(rowMapper.applyAsLong(resultSet));
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            chunkSize = nextChunkSize(chunkSize);
+            long[] chunk = new long[chunkSize];
+            int rows = 0;
+            while (rows < chunk.length && nextRow()) {
+                chunk[rows++] = rowMapper.applyAsLong(resultSet);
+            }
+            return rows == 0 ? null : Spliterators.spliterator(chunk, 0, rows, ORDERED);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+
+        private boolean nextRow() {
+            if (hasMoreRows) {
+                hasMoreRows = next(resultSet);
+            }
+            return hasMoreRows;
+        }
+    }
+
+    /**
+     * Same as {@link ResultSetSpliterator}, mapping each row to a {@code double} without boxing it.
+     */
+    public static class OfDouble implements Spliterator.OfDouble {
+        private final ResultSet resultSet;
+        private final ToDoubleFunction<ResultSet> rowMapper;
+        private boolean hasMoreRows = true;
+        private int chunkSize = 0;
+
+        public OfDouble(ResultSet resultSet, ToDoubleFunction<ResultSet> rowMapper) {
+            this.resultSet = resultSet;
+            this.rowMapper = rowMapper;
+        }
+
+        @Override
+        public boolean tryAdvance(DoubleConsumer action) {
+            if (!nextRow()) {
+                return false;
+            }
+            action.accept(rowMapper.applyAsDouble(resultSet));
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfDouble trySplit() {
+            chunkSize = nextChunkSize(chunkSize);
+            double[] chunk = new double[chunkSize];
+            int rows = 0;
+            while (rows < chunk.length && nextRow()) {
+                chunk[rows++] = rowMapper.applyAsDouble(resultSet);
+            }
+            return rows == 0 ? null : Spliterators.spliterator(chunk, 0, rows, ORDERED);
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+
+        private boolean nextRow() {
+            if (hasMoreRows) {
+                hasMoreRows = next(resultSet);
+            }
+            return hasMoreRows;
+        }
     }
 }
@@ -0,0 +1,197 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.scope.DefaultAutoCloseableScope;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * Keeps up to {@code maxSize} prepared and callable statements of a JDBC connection, keyed by SQL text, statement
+ * kind and result set type and concurrency, and evicts (closing them) the least recently used ones when full.
+ * <p>
+ * A statement obtained from the cache is checked out until it is given back with {@link #release(PreparedStatement)},
+ * so two open streams on the same SQL never share a statement. With {@code maxSize == 0} nothing is cached and
+ * released statements are closed straight away.
+ */
+public class StatementCache implements AutoCloseable {
+
+    private final java.sql.Connection connection;
+    private final int maxSize;
+    private final LinkedHashMap<Key, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+    private final IdentityHashMap<PreparedStatement, Key> checkedOut = new IdentityHashMap<>();
+
+    /**
+     * @param connection The JDBC connection used to prepare the statements.
+     * @param maxSize The maximum number of idle statements kept open. Zero disables caching.
+     * @throws InvalidArgumentException if {@code connection == null} or {@code maxSize < 0}.
+     */
+    public StatementCache(java.sql.Connection connection, int maxSize) {
+        InvalidArgumentException.throwIfNull(connection, "connection");
+        InvalidArgumentException.throwIf(maxSize < 0, "maxSize cannot be negative.");
+        this.connection = connection;
+        this.maxSize = maxSize;
+    }
+
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        Key key = new Key(Kind.PREPARED, sql, resultSetType, resultSetConcurrency, null);
+        PreparedStatement statement = statements.remove(key);
+        if (statement == null) {
+            statement = key.hasDefaultResultSetOptions() ?
+                        connection.prepareStatement(sql) :
+                        connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        }
+        checkedOut.put(statement, key);
+        return statement;
+    }
+
+    /**
+     * Returns a statement whose generated keys can be read after executing it: the values of {@code keyColumns},
+     * or, when it is empty, those chosen by the driver, see {@link Statement#RETURN_GENERATED_KEYS}.
+     */
+    public PreparedStatement prepareStatementReturningKeys(String sql, String[] keyColumns) throws SQLException {
+        Key key = new Key(Kind.RETURNING_KEYS, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY,
+                          keyColumns.clone());
+        PreparedStatement statement = statements.remove(key);
+        if (statement == null) {
+            statement = keyColumns.length == 0 ?
+                        connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) :
+                        connection.prepareStatement(sql, keyColumns);
+        }
+        checkedOut.put(statement, key);
+        return statement;
+    }
+
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        return prepareCall(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        Key key = new Key(Kind.CALLABLE, sql, resultSetType, resultSetConcurrency, null);
+        CallableStatement statement = (CallableStatement) statements.remove(key);
+        if (statement == null) {
+            statement = key.hasDefaultResultSetOptions() ?
+                        connection.prepareCall(sql) :
+                        connection.prepareCall(sql, resultSetType, resultSetConcurrency);
+        }
+        checkedOut.put(statement, key);
+        return statement;
+    }
+
+    /**
+     * Gives back a statement obtained from this cache. The statement is closed if caching is disabled, or if an
+     * identical statement has been released in the meantime; otherwise its parameters and any batch left queued by a
+     * failed batch update are cleared, so that the next user doesn't execute them, and it is kept for reuse, evicting
+     * the least recently used statements if the cache is full.
+     *
+     * @param statement The statement to give back.
+     * @throws SQLException if closing or clearing the statement fails. A statement that can't be cleared is closed.
+     */
+    public void release(PreparedStatement statement) throws SQLException {
+        Key key = checkedOut.remove(statement);
+        if (key == null || maxSize == 0 || statements.containsKey(key)) {
+            statement.close();
+            return;
+        }
+        try {
+            statement.clearParameters();
+            statement.clearBatch();
+        } catch (SQLException exception) {
+            statement.close();
+            throw exception;
+        }
+        statements.put(key, statement);
+        evictEldestWhileFull();
+    }
+
+    /**
+     * Gives back a statement obtained from this cache that must not be reused, closing it, e.g., one that a failed
+     * batch update may have left in batch mode.
+     *
+     * @param statement The statement to close.
+     * @throws SQLException if closing the statement fails.
+     */
+    public void discard(PreparedStatement statement) throws SQLException {
+        checkedOut.remove(statement);
+        statement.close();
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes all the idle statements in the cache.
+     */
+    @Override
+    public void close() {
+        try (DefaultAutoCloseableScope scope = new DefaultAutoCloseableScope()) {
+            statements.values().forEach(statement -> scope.add(statement::close));
+            statements.clear();
+        }
+    }
+
+    private void evictEldestWhileFull() throws SQLException {
+        Iterator<PreparedStatement> eldest = statements.values().iterator();
+        while (statements.size() > maxSize) {
+            PreparedStatement statement = eldest.next();
+            eldest.remove();
+            statement.close();
+        }
+    }
+
+    private enum Kind {PREPARED, RETURNING_KEYS, CALLABLE}
+
+    private static final class Key {
+        private final Kind kind;
+        private final String sql;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+        private final String[] keyColumns;
+
+        Key(Kind kind, String sql, int resultSetType, int resultSetConcurrency, String[] keyColumns) {
+            this.kind = kind;
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.keyColumns = keyColumns;
+        }
+
+        boolean hasDefaultResultSetOptions() {
+            return resultSetType == ResultSet.TYPE_FORWARD_ONLY && resultSetConcurrency == ResultSet.CONCUR_READ_ONLY;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return kind == key.kind && resultSetType == key.resultSetType &&
+                   resultSetConcurrency == key.resultSetConcurrency && sql.equals(key.sql) &&
+                   Arrays.equals(keyColumns, key.keyColumns);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hash(kind, sql, resultSetType, resultSetConcurrency) + Arrays.hashCode(keyColumns);
+        }
+    }
+}
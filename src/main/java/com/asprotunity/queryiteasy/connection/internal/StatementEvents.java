@@ -0,0 +1,230 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import com.asprotunity.queryiteasy.connection.Batch;
+import com.asprotunity.queryiteasy.connection.InputParameter;
+import com.asprotunity.queryiteasy.connection.Parameter;
+import com.asprotunity.queryiteasy.connection.StatementContext;
+import com.asprotunity.queryiteasy.connection.StatementListener;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+
+import java.sql.SQLException;
+import java.util.StringJoiner;
+import java.util.function.BiConsumer;
+
+/**
+ * Times the phases of a statement, or of a transaction, and tells a {@link StatementListener} about them. It is the
+ * context passed to the listener, reused for all the phases, and by the next statement of the transaction once
+ * completed.
+ * <p>
+ * If the listener doesn't {@link StatementListener#listensToPhases() listen to phases}, only the start of the first
+ * phase and the end of the last execute or fetch are timed, for {@code completed}.
+ */
+public final class StatementEvents implements StatementContext {
+
+    private final StatementListener listener;
+    private final long transactionId;
+    private final boolean timesPhases;
+    private String sql;
+    private Parameter[] parameters;
+    private Batch batch;
+    private int columnCount = 0;
+    private long rowCount = 0;
+    private long startNanos;
+    private long endNanos;
+    private long firstStartNanos = 0;
+    private long lastWorkEndNanos = 0;
+    private boolean completed = false;
+
+    /**
+     * @param parameters The parameters of the statement, null for batch updates and the phases of a transaction,
+     *                   whose parameters are only known when they are bound.
+     */
+    public StatementEvents(StatementListener listener, long transactionId, String sql, Parameter[] parameters) {
+        this.listener = listener;
+        this.transactionId = transactionId;
+        // The phases of a transaction are always reported.
+        this.timesPhases = sql == null || listener.listensToPhases();
+        this.sql = sql;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return true if this has completed and tells {@code listener} about statements, so it can be
+     * {@link #reset(String, Parameter[]) reset} for the next statement instead of allocating another.
+     */
+    boolean isReusableBy(StatementListener listener) {
+        return completed && sql != null && this.listener == listener;
+    }
+
+    void reset(String sql, Parameter[] parameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+        batch = null;
+        columnCount = 0;
+        rowCount = 0;
+        startNanos = 0;
+        endNanos = 0;
+        firstStartNanos = 0;
+        lastWorkEndNanos = 0;
+        completed = false;
+    }
+
+    boolean timesPhases() {
+        return timesPhases;
+    }
+
+    /**
+     * Runs {@code work} and then calls {@code phase} on the listener, also if {@code work} throws.
+     *
+     * @param events The events of the statement, or null if there is no listener, in which case only {@code work}
+     *               runs.
+     */
+    public static <ResultType> ResultType time(StatementEvents events,
+                                               BiConsumer<StatementListener, StatementContext> phase,
+                                               RuntimeSQLException.ThrowingSupplier<ResultType> work)
+            throws SQLException {
+        return time(events, phase, work, false);
+    }
+
+    /**
+     * Like {@link #time(StatementEvents, BiConsumer, RuntimeSQLException.ThrowingSupplier)}, for the phases that
+     * keep the database busy, executes and fetches, whose last end is the end of the completed statement.
+     */
+    static <ResultType> ResultType timeDatabaseWork(StatementEvents events,
+                                                    BiConsumer<StatementListener, StatementContext> phase,
+                                                    RuntimeSQLException.ThrowingSupplier<ResultType> work)
+            throws SQLException {
+        return time(events, phase, work, true);
+    }
+
+    private static <ResultType> ResultType time(StatementEvents events,
+                                                BiConsumer<StatementListener, StatementContext> phase,
+                                                RuntimeSQLException.ThrowingSupplier<ResultType> work,
+                                                boolean databaseWork) throws SQLException {
+        if (events == null) {
+            return work.executeWithResult();
+        }
+        if (!events.timesPhases) {
+            return timeForCompletion(events, work, databaseWork);
+        }
+        events.startNanos = System.nanoTime();
+        if (events.firstStartNanos == 0) {
+            events.firstStartNanos = events.startNanos;
+        }
+        try {
+            return work.executeWithResult();
+        } finally {
+            events.endNanos = System.nanoTime();
+            if (databaseWork) {
+                events.lastWorkEndNanos = events.endNanos;
+            }
+            phase.accept(events.listener, events);
+        }
+    }
+
+    private static <ResultType> ResultType timeForCompletion(StatementEvents events,
+                                                             RuntimeSQLException.ThrowingSupplier<ResultType> work,
+                                                             boolean databaseWork) throws SQLException {
+        if (events.firstStartNanos == 0) {
+            events.firstStartNanos = System.nanoTime();
+        }
+        try {
+            return work.executeWithResult();
+        } finally {
+            if (databaseWork) {
+                events.lastWorkEndNanos = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Records a fetch without timing it: the end of the last fetch is known only once the rows are exhausted, until
+     * then the statement ends when it completes.
+     */
+    void fetchedUntimed(boolean hasRow) {
+        lastWorkEndNanos = hasRow ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Tells the listener that the statement has completed, spanning from the start of its first phase to the end of
+     * its last execute or fetch. Only the first call has any effect.
+     *
+     * @param events The events of the statement, or null if there is no listener.
+     */
+    static void complete(StatementEvents events) {
+        if (events == null || events.completed || events.firstStartNanos == 0) {
+            return;
+        }
+        events.completed = true;
+        events.startNanos = events.firstStartNanos;
+        events.endNanos = events.lastWorkEndNanos == 0 ? System.nanoTime() : events.lastWorkEndNanos;
+        events.listener.completed(events);
+    }
+
+    void batch(Batch batch) {
+        this.batch = batch;
+        this.parameters = null;
+    }
+
+    void columnCount(int columnCount) {
+        this.columnCount = columnCount;
+    }
+
+    void rowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    void addRows(int[] updateCounts) {
+        for (int count : updateCounts) {
+            if (count > 0) {
+                rowCount += count;
+            }
+        }
+    }
+
+    @Override
+    public String sql() {
+        return sql;
+    }
+
+    @Override
+    public int parameterCount() {
+        if (batch != null) {
+            return batch.parameterCount();
+        }
+        return parameters != null ? parameters.length : columnCount;
+    }
+
+    @Override
+    public String describeParameters() {
+        StringJoiner description = new StringJoiner(", ", "[", "]");
+        if (batch != null) {
+            batch.forEachParameter((parameter, position) -> description.add(parameter.describe()));
+        } else if (parameters != null) {
+            for (Parameter parameter : parameters) {
+                description.add(parameter instanceof InputParameter ? ((InputParameter) parameter).describe() : "OUT");
+            }
+        }
+        return description.toString();
+    }
+
+    @Override
+    public long rowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public long transactionId() {
+        return transactionId;
+    }
+
+    @Override
+    public long startNanos() {
+        return startNanos;
+    }
+
+    @Override
+    public long endNanos() {
+        return endNanos;
+    }
+}
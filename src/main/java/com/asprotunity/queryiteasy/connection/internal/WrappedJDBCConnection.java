@@ -1,11 +1,19 @@
 package com.asprotunity.queryiteasy.connection.internal;
 
 import com.asprotunity.queryiteasy.connection.Batch;
+import com.asprotunity.queryiteasy.connection.BatchBuilder;
+import com.asprotunity.queryiteasy.connection.ColumnarResult;
 import com.asprotunity.queryiteasy.connection.Connection;
 import com.asprotunity.queryiteasy.connection.InputParameter;
+import com.asprotunity.queryiteasy.connection.OffHeapResult;
 import com.asprotunity.queryiteasy.connection.Parameter;
+import com.asprotunity.queryiteasy.connection.PrimitiveParameter;
+import com.asprotunity.queryiteasy.connection.QueryOptions;
+import com.asprotunity.queryiteasy.connection.StatementListener;
 import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
 import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import com.asprotunity.queryiteasy.metrics.QueryMetrics;
+import com.asprotunity.queryiteasy.metrics.StatementMetrics;
 import com.asprotunity.queryiteasy.scope.AutoCloseableScope;
 import com.asprotunity.queryiteasy.scope.DefaultAutoCloseableScope;
 import com.asprotunity.queryiteasy.scope.Scope;
@@ -14,59 +22,200 @@ import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.function.BiConsumer;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.BaseStream;
+import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import static com.asprotunity.queryiteasy.connection.internal.StatementEvents.complete;
+import static com.asprotunity.queryiteasy.connection.internal.StatementEvents.time;
+import static com.asprotunity.queryiteasy.connection.internal.StatementEvents.timeDatabaseWork;
+
 public class WrappedJDBCConnection implements Connection, AutoCloseable {
+    private static final AtomicLong TRANSACTION_IDS = new AtomicLong();
+
+    private final long transactionId = TRANSACTION_IDS.incrementAndGet();
     private final java.sql.Connection connection;
     private final AutoCloseableScope connectionScope;
+    private final StatementCache statementCache;
+    private final RuntimeSQLException.ThrowingCodeBlock releaseConnection;
+    private Consumer<String> updateListener = sql -> {
+    };
+    private Runnable commitListener = () -> {
+    };
+    private QueryMetrics metrics;
+    private StatementListener statementListener;
+    // Reused by the next statement once completed, so that a listener doesn't cost an allocation per statement.
+    private StatementEvents lastStatementEvents;
+    private int maxInsertParameters = 0;
+    private boolean statementsSinceCommit = false;
 
     public WrappedJDBCConnection(java.sql.Connection connection) {
-        this(connection, new DefaultAutoCloseableScope());
+        this(connection, 0);
+    }
+
+    /**
+     * Creates a connection that keeps up to {@code statementCacheSize} prepared and callable statements open for
+     * reuse until it is closed. Statements are keyed by SQL text, and the least recently used are evicted first.
+     *
+     * @param connection The JDBC connection to wrap.
+     * @param statementCacheSize The maximum number of statements to keep open. Zero disables the cache.
+     * @throws InvalidArgumentException if {@code statementCacheSize < 0}.
+     */
+    public WrappedJDBCConnection(java.sql.Connection connection, int statementCacheSize) {
+        this(connection, new DefaultAutoCloseableScope(), statementCacheSize);
+    }
+
+    /**
+     * Creates a connection that borrows {@code connection} and {@code statementCache} instead of owning them:
+     * {@link #close()} rolls back any uncommitted work and then calls {@code releaseConnection}, which decides what
+     * to do with both, e.g., giving them back to a pool.
+     *
+     * @param connection The JDBC connection to wrap.
+     * @param statementCache The statement cache of {@code connection}. It is not closed by {@link #close()}.
+     * @param releaseConnection Called by {@link #close()}, even if the rollback fails.
+     */
+    public WrappedJDBCConnection(java.sql.Connection connection, StatementCache statementCache,
+                                 RuntimeSQLException.ThrowingCodeBlock releaseConnection) {
+        this(connection, new DefaultAutoCloseableScope(), statementCache, releaseConnection);
     }
 
     /**
      * This is for testing purposes only
      */
     WrappedJDBCConnection(java.sql.Connection connection, AutoCloseableScope connectionScope) {
+        this(connection, connectionScope, 0);
+    }
+
+    /**
+     * This is for testing purposes only
+     */
+    WrappedJDBCConnection(java.sql.Connection connection, AutoCloseableScope connectionScope, int statementCacheSize) {
+        this(connection, connectionScope, new StatementCache(connection, statementCacheSize));
+    }
+
+    private WrappedJDBCConnection(java.sql.Connection connection, AutoCloseableScope connectionScope,
+                                  StatementCache statementCache) {
+        this(connection, connectionScope, statementCache, () -> {
+            statementCache.close();
+            connection.close();
+        });
+    }
+
+    private WrappedJDBCConnection(java.sql.Connection connection, AutoCloseableScope connectionScope,
+                                  StatementCache statementCache,
+                                  RuntimeSQLException.ThrowingCodeBlock releaseConnection) {
         this.connection = connection;
         this.connectionScope = connectionScope;
+        this.statementCache = statementCache;
+        this.releaseConnection = releaseConnection;
         RuntimeSQLException.execute(() -> this.connection.setAutoCommit(false));
     }
 
     private static void addBatch(Batch batch, PreparedStatement preparedStatement, Scope scope) throws SQLException {
-        batch.forEachParameter(bindTo(preparedStatement, scope));
+        batch.bindTo(preparedStatement, scope);
         preparedStatement.addBatch();
     }
 
     private static void bindParameters(InputParameter[] parameters, PreparedStatement preparedStatement, Scope scope) {
-        IntStream.range(0, parameters.length).forEach(i -> parameters[i].bind(preparedStatement, i + 1, scope));
+        for (int index = 0; index < parameters.length; ++index) {
+            PrimitiveParameter.bind(parameters[index], preparedStatement, index + 1, scope);
+        }
     }
 
     private static void bindCallableParameters(Parameter[] parameters, CallableStatement callableStatement, Scope scope) {
         IntStream.range(0, parameters.length).forEach(i -> parameters[i].bind(callableStatement, i + 1, scope));
     }
 
-    private static BiConsumer<InputParameter, Integer> bindTo(PreparedStatement preparedStatement, Scope scope) {
-        return (parameter, position) ->
-                parameter.bind(preparedStatement, position + 1, scope);
+    public void commit() {
+        RuntimeSQLException.execute(() -> time(transactionEvents(), StatementListener::committed, () -> {
+            connection.commit();
+            return null;
+        }));
+        statementsSinceCommit = false;
+        commitListener.run();
     }
 
-    public void commit() {
-        RuntimeSQLException.execute(connection::commit);
+    /**
+     * Sets the listener called with the SQL of each update and call executed from now on, before executing it,
+     * replacing the previous one.
+     */
+    public void onUpdate(Consumer<String> updateListener) {
+        InvalidArgumentException.throwIfNull(updateListener, "updateListener");
+        this.updateListener = updateListener;
+    }
+
+    /**
+     * Records the execution count, errors, latency and rows of each statement executed from now on in
+     * {@code metrics}, replacing the previous metrics. Without metrics, nothing is measured.
+     */
+    public void recordMetricsIn(QueryMetrics metrics) {
+        InvalidArgumentException.throwIfNull(metrics, "metrics");
+        this.metrics = metrics;
+    }
+
+    /**
+     * Tells {@code statementListener} about the phases of the statements executed from now on, and of the commits
+     * and rollbacks of the transaction, replacing the previous listener. Without a listener, nothing is timed.
+     */
+    public void setStatementListener(StatementListener statementListener) {
+        InvalidArgumentException.throwIfNull(statementListener, "statementListener");
+        this.statementListener = statementListener;
+    }
+
+    /**
+     * Makes {@link #update(String, List)} rewrite each simple {@code INSERT INTO ... VALUES (?, ..., ?)} executed
+     * from now on into inserts of as many rows as fit in {@code maxParameters} parameters, replacing the previous
+     * limit. Drivers running {@code executeBatch} as one round trip per batch then need one per chunk of rows. Zero
+     * turns the rewriting off.
+     *
+     * @throws InvalidArgumentException if {@code maxParameters < 0}.
+     */
+    public void rewriteBatchInserts(int maxParameters) {
+        InvalidArgumentException.throwIf(maxParameters < 0, "maxParameters cannot be negative.");
+        this.maxInsertParameters = maxParameters;
+    }
+
+    /**
+     * Sets the listener called after each successful commit, replacing the previous one.
+     */
+    public void onCommit(Runnable commitListener) {
+        InvalidArgumentException.throwIfNull(commitListener, "commitListener");
+        this.commitListener = commitListener;
     }
 
     @Override
     public void close() {
         RuntimeSQLException.execute(() -> {
-            connection.rollback();
-            connectionScope.close();
-            connection.close();
+            try {
+                time(statementsSinceCommit ? transactionEvents() : null, StatementListener::rolledBack, () -> {
+                    connection.rollback();
+                    return null;
+                });
+                connectionScope.close();
+            } finally {
+                releaseConnection.execute();
+            }
         });
     }
 
@@ -76,11 +225,28 @@ public class WrappedJDBCConnection implements Connection, AutoCloseable {
         InvalidArgumentException.throwIf(sql.isEmpty(), "sql cannot be empty.");
         InvalidArgumentException.throwIfNull(parameters, "parameters");
         checkNoNullParameters(parameters);
+        updateListener.accept(sql);
+        StatementEvents events = startStatement(sql, parameters);
         RuntimeSQLException.execute(() -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql);
-                 DefaultAutoCloseableScope scope = new DefaultAutoCloseableScope()) {
-                bindParameters(parameters, statement, scope);
-                statement.execute();
+            PreparedStatement statement = time(events, StatementListener::prepared,
+                                               () -> statementCache.prepareStatement(sql));
+            try (DefaultAutoCloseableScope scope = new DefaultAutoCloseableScope()) {
+                timeBinding(events, () -> bindParameters(parameters, statement, scope));
+                StatementMetrics statementMetrics = metricsFor(sql);
+                measure(statementMetrics,
+                        () -> timeDatabaseWork(events, StatementListener::executed, statement::execute));
+                if (statementMetrics != null || events != null) {
+                    int updateCount = statement.getUpdateCount();
+                    if (statementMetrics != null) {
+                        statementMetrics.addRowsUpdated(updateCount);
+                    }
+                    if (events != null) {
+                        events.rowCount(Math.max(updateCount, 0));
+                    }
+                }
+            } finally {
+                statementCache.release(statement);
+                complete(events);
             }
         });
     }
@@ -91,40 +257,180 @@ public class WrappedJDBCConnection implements Connection, AutoCloseable {
         InvalidArgumentException.throwIf(sql.isEmpty(), "sql cannot be empty.");
         InvalidArgumentException.throwIfNull(batches, "batches");
         InvalidArgumentException.throwIf(batches.isEmpty(), "batches cannot be empty.");
-        RuntimeSQLException.execute(() -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql);
-                 DefaultAutoCloseableScope queryScope = new DefaultAutoCloseableScope()) {
-                for (Batch batch : batches) {
-                    addBatch(batch, statement, queryScope);
-                }
-                statement.executeBatch();
-            }
-        });
+        MultiRowInsert insert = maxInsertParameters > 0 && batches.size() > 1 ? MultiRowInsert.parse(sql) : null;
+        if (insert != null && insert.parametersPerRow() <= maxInsertParameters) {
+            executeMultiRowInserts(sql, insert, batches);
+        } else {
+            executeBatches(sql, batches.iterator(), batches.size(), batches.size());
+        }
     }
 
     @Override
-    public <MappedRowType> Stream<MappedRowType> select(Function<ResultSet, MappedRowType> rowMapper, String sql,
-                                                        InputParameter... parameters) {
-        InvalidArgumentException.throwIfNull(rowMapper, "rowMapper");
+    public int[] update(String sql, List<Batch> batches, int chunkSize) {
         InvalidArgumentException.throwIfNull(sql, "sql");
         InvalidArgumentException.throwIf(sql.isEmpty(), "sql cannot be empty.");
-        InvalidArgumentException.throwIfNull(parameters, "parameters");
-        checkNoNullParameters(parameters);
+        InvalidArgumentException.throwIfNull(batches, "batches");
+        InvalidArgumentException.throwIf(batches.isEmpty(), "batches cannot be empty.");
+        InvalidArgumentException.throwIf(chunkSize < 1, "chunkSize must be at least 1.");
+        return executeBatches(sql, batches.iterator(), chunkSize, batches.size());
+    }
+
+    @Override
+    public int[] update(String sql, Iterator<Batch> batches, int chunkSize) {
+        checkBatchUpdateArguments(sql, batches, chunkSize);
+        return executeBatches(sql, batches, chunkSize, chunkSize);
+    }
+
+    @Override
+    public int[] update(String sql, Iterator<Batch> batches, int chunkSize, Executor executor) {
+        checkBatchUpdateArguments(sql, batches, chunkSize);
+        InvalidArgumentException.throwIfNull(executor, "executor");
+        return executeBatchesOverlapped(sql, batches, chunkSize, executor);
+    }
+
+    @Override
+    public int[] update(String sql, BatchBuilder batches, int chunkSize) {
+        InvalidArgumentException.throwIfNull(sql, "sql");
+        InvalidArgumentException.throwIf(sql.isEmpty(), "sql cannot be empty.");
+        InvalidArgumentException.throwIfNull(batches, "batches");
+        InvalidArgumentException.throwIf(chunkSize < 1, "chunkSize must be at least 1.");
+        if (batches.rowCount() == 0) {
+            return new int[0];
+        }
+        updateListener.accept(sql);
+        StatementEvents events = startStatement(sql, null);
+        if (events != null) {
+            events.columnCount(batches.columnCount());
+        }
         return RuntimeSQLException.executeWithResult(() -> {
-            DefaultAutoCloseableScope resultSetAndStatementScope = connectionScope.add(new DefaultAutoCloseableScope(),
-                                                                                       DefaultAutoCloseableScope::close);
-            try (DefaultAutoCloseableScope executeQueryScope = new DefaultAutoCloseableScope()) {
-                PreparedStatement statement = resultSetAndStatementScope.add(connection.prepareStatement(sql),
-                                                                             PreparedStatement::close);
-                bindParameters(parameters, statement, executeQueryScope);
-                return executeQuery(rowMapper, resultSetAndStatementScope, statement);
-            } catch (Exception ex) {
-                resultSetAndStatementScope.close();
-                throw ex;
+            PreparedStatement statement = time(events, StatementListener::prepared,
+                                               () -> statementCache.prepareStatement(sql));
+            try {
+                return releaseAfterBatches(statement, () -> measureBatches(metricsFor(sql), () -> {
+                    UpdateCounts updateCounts = new UpdateCounts(batches.rowCount());
+                    for (int firstRow = 0; firstRow < batches.rowCount(); firstRow += chunkSize) {
+                        int lastRow = Math.min(firstRow + chunkSize, batches.rowCount());
+                        updateCounts.append(executeChunk(statement, batches, firstRow, lastRow, events));
+                    }
+                    return updateCounts.toArray();
+                }));
+            } finally {
+                complete(events);
             }
         });
     }
 
+    @Override
+    public <KeyType> Stream<KeyType> updateReturningKeys(Function<ResultSet, KeyType> keyMapper, String[] keyColumns,
+                                                         String sql, InputParameter... parameters) {
+        InvalidArgumentException.throwIfNull(keyMapper, "keyMapper");
+        checkReturningKeysArguments(keyColumns, sql);
+        InvalidArgumentException.throwIfNull(parameters, "parameters");
+        checkNoNullParameters(parameters);
+        List<KeyType> keys = new ArrayList<>();
+        executeReturningKeys(keyColumns, sql, parameters, null, rs -> keys.add(keyMapper.apply(rs)));
+        return keys.stream();
+    }
+
+    @Override
+    public <KeyType> Stream<KeyType> updateReturningKeys(Function<ResultSet, KeyType> keyMapper, String[] keyColumns,
+                                                         String sql, List<Batch> batches) {
+        InvalidArgumentException.throwIfNull(keyMapper, "keyMapper");
+        checkReturningKeysArguments(keyColumns, sql);
+        InvalidArgumentException.throwIfNull(batches, "batches");
+        InvalidArgumentException.throwIf(batches.isEmpty(), "batches cannot be empty.");
+        List<KeyType> keys = new ArrayList<>(batches.size());
+        executeReturningKeys(keyColumns, sql, null, batches, rs -> keys.add(keyMapper.apply(rs)));
+        return keys.stream();
+    }
+
+    @Override
+    public long[] updateReturningLongKeys(ToLongFunction<ResultSet> keyMapper, String[] keyColumns, String sql,
+                                          InputParameter... parameters) {
+        InvalidArgumentException.throwIfNull(keyMapper, "keyMapper");
+        checkReturningKeysArguments(keyColumns, sql);
+        InvalidArgumentException.throwIfNull(parameters, "parameters");
+        checkNoNullParameters(parameters);
+        LongStream.Builder keys = LongStream.builder();
+        executeReturningKeys(keyColumns, sql, parameters, null, rs -> keys.add(keyMapper.applyAsLong(rs)));
+        return keys.build().toArray();
+    }
+
+    @Override
+    public long[] updateReturningLongKeys(ToLongFunction<ResultSet> keyMapper, String[] keyColumns, String sql,
+                                          List<Batch> batches) {
+        InvalidArgumentException.throwIfNull(keyMapper, "keyMapper");
+        checkReturningKeysArguments(keyColumns, sql);
+        InvalidArgumentException.throwIfNull(batches, "batches");
+        InvalidArgumentException.throwIf(batches.isEmpty(), "batches cannot be empty.");
+        LongStream.Builder keys = LongStream.builder();
+        executeReturningKeys(keyColumns, sql, null, batches, rs -> keys.add(keyMapper.applyAsLong(rs)));
+        return keys.build().toArray();
+    }
+
+    @Override
+    public <MappedRowType> Stream<MappedRowType> select(Function<ResultSet, MappedRowType> rowMapper, String sql,
+                                                        InputParameter... parameters) {
+        return select(rowMapper, QueryOptions.queryOptions(), sql, parameters);
+    }
+
+    @Override
+    public <MappedRowType> Stream<MappedRowType> select(Function<ResultSet, MappedRowType> rowMapper,
+                                                        QueryOptions options, String sql,
+                                                        InputParameter... parameters) {
+        InvalidArgumentException.throwIfNull(rowMapper, "rowMapper");
+        return select(options, sql, parameters, (resultSet, resultSetAndStatementScope) ->
+                stream(rowMapper, options, resultSet, resultSetAndStatementScope));
+    }
+
+    @Override
+    public IntStream selectInts(ToIntFunction<ResultSet> rowMapper, QueryOptions options, String sql,
+                                InputParameter... parameters) {
+        InvalidArgumentException.throwIfNull(rowMapper, "rowMapper");
+        checkNoPrefetch(options);
+        return select(options, sql, parameters, (resultSet, resultSetAndStatementScope) ->
+                StreamSupport.intStream(new ResultSetSpliterator.OfInt(resultSet, rowMapper), false));
+    }
+
+    @Override
+    public LongStream selectLongs(ToLongFunction<ResultSet> rowMapper, QueryOptions options, String sql,
+                                  InputParameter... parameters) {
+        InvalidArgumentException.throwIfNull(rowMapper, "rowMapper");
+        checkNoPrefetch(options);
+        return select(options, sql, parameters, (resultSet, resultSetAndStatementScope) ->
+                StreamSupport.longStream(new ResultSetSpliterator.OfLong(resultSet, rowMapper), false));
+    }
+
+    @Override
+    public DoubleStream selectDoubles(ToDoubleFunction<ResultSet> rowMapper, QueryOptions options, String sql,
+                                      InputParameter... parameters) {
+        InvalidArgumentException.throwIfNull(rowMapper, "rowMapper");
+        checkNoPrefetch(options);
+        return select(options, sql, parameters, (resultSet, resultSetAndStatementScope) ->
+                StreamSupport.doubleStream(new ResultSetSpliterator.OfDouble(resultSet, rowMapper), false));
+    }
+
+    @Override
+    public ColumnarResult selectColumnar(QueryOptions options, String sql, InputParameter... parameters) {
+        checkNoPrefetch(options);
+        try (Stream<ColumnarResult> result = select(options, sql, parameters,
+                                                    (resultSet, scope) -> Stream.of(ColumnarResult.read(resultSet)))) {
+            return result.findFirst().get();
+        }
+    }
+
+    @Override
+    public OffHeapResult selectOffHeap(QueryOptions options, int chunkSize, long maxSize, String sql,
+                                       InputParameter... parameters) {
+        checkNoPrefetch(options);
+        InvalidArgumentException.throwIf(chunkSize < 1, "chunkSize must be at least 1.");
+        InvalidArgumentException.throwIf(maxSize < 1, "maxSize must be at least 1.");
+        try (Stream<OffHeapResult> result = select(options, sql, parameters, (resultSet, scope) ->
+                Stream.of(OffHeapResult.read(resultSet, chunkSize, maxSize)))) {
+            return result.findFirst().get();
+        }
+    }
+
     @Override
     public void call(String sql, Parameter... parameters) {
         InvalidArgumentException.throwIfNull(sql, "sql");
@@ -132,11 +438,18 @@ public class WrappedJDBCConnection implements Connection, AutoCloseable {
         InvalidArgumentException.throwIfNull(parameters, "parameters");
         checkNoNullParameters(parameters);
         checkNoDuplicateOutputParameters(parameters);
+        updateListener.accept(sql);
+        StatementEvents events = startStatement(sql, parameters);
         RuntimeSQLException.execute(() -> {
-            try (CallableStatement statement = connection.prepareCall(sql);
-                 DefaultAutoCloseableScope queryScope = new DefaultAutoCloseableScope()) {
-                bindCallableParameters(parameters, statement, queryScope);
-                statement.execute();
+            CallableStatement statement = time(events, StatementListener::prepared,
+                                               () -> statementCache.prepareCall(sql));
+            try (DefaultAutoCloseableScope queryScope = new DefaultAutoCloseableScope()) {
+                timeBinding(events, () -> bindCallableParameters(parameters, statement, queryScope));
+                measure(metricsFor(sql),
+                        () -> timeDatabaseWork(events, StatementListener::executed, statement::execute));
+            } finally {
+                statementCache.release(statement);
+                complete(events);
             }
         });
     }
@@ -144,29 +457,100 @@ public class WrappedJDBCConnection implements Connection, AutoCloseable {
     @Override
     public <MappedRowType> Stream<MappedRowType> call(Function<ResultSet, MappedRowType> rowMapper, String sql,
                                                       Parameter... parameters) {
+        return call(rowMapper, QueryOptions.queryOptions(), sql, parameters);
+    }
+
+    @Override
+    public <MappedRowType> Stream<MappedRowType> call(Function<ResultSet, MappedRowType> rowMapper,
+                                                      QueryOptions options, String sql, Parameter... parameters) {
         InvalidArgumentException.throwIfNull(rowMapper, "rowMapper");
+        InvalidArgumentException.throwIfNull(options, "options");
         InvalidArgumentException.throwIfNull(sql, "sql");
         InvalidArgumentException.throwIf(sql.isEmpty(), "sql cannot be empty.");
         InvalidArgumentException.throwIfNull(parameters, "parameters");
         checkNoNullParameters(parameters);
         checkNoDuplicateOutputParameters(parameters);
+        updateListener.accept(sql);
+        StatementEvents events = startStatement(sql, parameters);
         return RuntimeSQLException.executeWithResult(() -> {
             DefaultAutoCloseableScope resultSetAndStatementScope =
                     connectionScope.add(new DefaultAutoCloseableScope(), DefaultAutoCloseableScope::close);
             try (DefaultAutoCloseableScope executeQueryScope = new DefaultAutoCloseableScope()) {
-                CallableStatement statement = resultSetAndStatementScope.add(connection.prepareCall(sql), CallableStatement::close);
-                bindCallableParameters(parameters, statement, executeQueryScope);
-                return executeQuery(rowMapper, resultSetAndStatementScope, statement);
+                CallableStatement statement = resultSetAndStatementScope.add(
+                        time(events, StatementListener::prepared,
+                             () -> statementCache.prepareCall(sql, options.resultSetType(),
+                                                              options.resultSetConcurrency())),
+                        statementCache::release);
+                options.applyTo(statement, resultSetAndStatementScope);
+                timeBinding(events, () -> bindCallableParameters(parameters, statement, executeQueryScope));
+                return executeQuery(sql, events, statement, resultSetAndStatementScope, (resultSet, scope) ->
+                        stream(rowMapper, options, resultSet, scope));
             } catch (Exception ex) {
                 resultSetAndStatementScope.close();
+                complete(events);
                 throw ex;
             }
         });
     }
 
+    private <StreamType extends BaseStream<?, StreamType>> StreamType select(
+            QueryOptions options, String sql, InputParameter[] parameters,
+            BiFunction<ResultSet, Scope, StreamType> streamFactory) {
+        InvalidArgumentException.throwIfNull(options, "options");
+        InvalidArgumentException.throwIfNull(sql, "sql");
+        InvalidArgumentException.throwIf(sql.isEmpty(), "sql cannot be empty.");
+        InvalidArgumentException.throwIfNull(parameters, "parameters");
+        checkNoNullParameters(parameters);
+        StatementEvents events = startStatement(sql, parameters);
+        return RuntimeSQLException.executeWithResult(() -> {
+            DefaultAutoCloseableScope resultSetAndStatementScope = connectionScope.add(new DefaultAutoCloseableScope(),
+                                                                                       DefaultAutoCloseableScope::close);
+            try (DefaultAutoCloseableScope executeQueryScope = new DefaultAutoCloseableScope()) {
+                PreparedStatement statement = resultSetAndStatementScope.add(
+                        time(events, StatementListener::prepared,
+                             () -> statementCache.prepareStatement(sql, options.resultSetType(),
+                                                                   options.resultSetConcurrency())),
+                        statementCache::release);
+                options.applyTo(statement, resultSetAndStatementScope);
+                timeBinding(events, () -> bindParameters(parameters, statement, executeQueryScope));
+                return executeQuery(sql, events, statement, resultSetAndStatementScope, streamFactory);
+            } catch (Exception ex) {
+                resultSetAndStatementScope.close();
+                complete(events);
+                throw ex;
+            }
+        });
+    }
+
+    private void checkNoPrefetch(QueryOptions options) {
+        InvalidArgumentException.throwIfNull(options, "options");
+        InvalidArgumentException.throwIf(options.prefetchSize() > 0,
+                                         "Prefetching is not supported by this kind of select.");
+    }
+
+    private void checkBatchUpdateArguments(String sql, Iterator<Batch> batches, int chunkSize) {
+        InvalidArgumentException.throwIfNull(sql, "sql");
+        InvalidArgumentException.throwIf(sql.isEmpty(), "sql cannot be empty.");
+        InvalidArgumentException.throwIfNull(batches, "batches");
+        InvalidArgumentException.throwIf(chunkSize < 1, "chunkSize must be at least 1.");
+    }
+
+    private void checkReturningKeysArguments(String[] keyColumns, String sql) {
+        InvalidArgumentException.throwIfNull(keyColumns, "keyColumns");
+        for (int index = 0; index < keyColumns.length; ++index) {
+            if (keyColumns[index] == null) {
+                throw new InvalidArgumentException("keyColumns[" + (index + 1) + "] cannot be null.");
+            }
+        }
+        InvalidArgumentException.throwIfNull(sql, "sql");
+        InvalidArgumentException.throwIf(sql.isEmpty(), "sql cannot be empty.");
+    }
+
     private void checkNoNullParameters(Parameter[] parameters) {
         for (int index = 0; index < parameters.length; ++index) {
-            InvalidArgumentException.throwIfNull(parameters[index], "parameters[" + (index + 1) + "]");
+            if (parameters[index] == null) {
+                throw new InvalidArgumentException("parameters[" + (index + 1) + "] cannot be null.");
+            }
         }
     }
 
@@ -182,15 +566,376 @@ public class WrappedJDBCConnection implements Connection, AutoCloseable {
         }
     }
 
+    /**
+     * Executes {@code sql} once with {@code parameters}, or as a batch with {@code batches}, and passes the result set
+     * of the generated keys, positioned on each row in turn, to {@code keyReader}.
+     */
+    private void executeReturningKeys(String[] keyColumns, String sql, InputParameter[] parameters,
+                                      List<Batch> batches, Consumer<ResultSet> keyReader) {
+        updateListener.accept(sql);
+        StatementEvents events = startStatement(sql, parameters);
+        RuntimeSQLException.execute(() -> {
+            PreparedStatement statement = time(events, StatementListener::prepared,
+                                               () -> statementCache.prepareStatementReturningKeys(sql, keyColumns));
+            try {
+                releaseAfterBatches(statement, () -> {
+                    try (DefaultAutoCloseableScope scope = new DefaultAutoCloseableScope()) {
+                        StatementMetrics statementMetrics = metricsFor(sql);
+                        if (batches == null) {
+                            timeBinding(events, () -> bindParameters(parameters, statement, scope));
+                            int updateCount = measure(statementMetrics, () -> timeDatabaseWork(
+                                    events, StatementListener::executed, statement::executeUpdate));
+                            if (statementMetrics != null) {
+                                statementMetrics.addRowsUpdated(updateCount);
+                            }
+                            if (events != null) {
+                                events.rowCount(Math.max(updateCount, 0));
+                            }
+                        } else {
+                            time(events, StatementListener::bound, () -> {
+                                for (Batch batch : batches) {
+                                    if (events != null) {
+                                        events.batch(batch);
+                                    }
+                                    addBatch(batch, statement, scope);
+                                }
+                                return null;
+                            });
+                            int[] updateCounts = measureBatches(statementMetrics, () -> timeDatabaseWork(
+                                    events, StatementListener::executed, statement::executeBatch));
+                            if (events != null) {
+                                events.addRows(updateCounts);
+                            }
+                        }
+                        try (ResultSet keys = statement.getGeneratedKeys()) {
+                            while (timeDatabaseWork(events, StatementListener::fetched, keys::next)) {
+                                keyReader.accept(keys);
+                            }
+                        }
+                    }
+                    return null;
+                });
+            } finally {
+                complete(events);
+            }
+        });
+    }
+
+    private int[] executeBatches(String sql, Iterator<Batch> batches, int chunkSize, int expectedBatchCount) {
+        updateListener.accept(sql);
+        StatementEvents events = startStatement(sql, null);
+        return RuntimeSQLException.executeWithResult(() -> {
+            PreparedStatement statement = time(events, StatementListener::prepared,
+                                               () -> statementCache.prepareStatement(sql));
+            try {
+                return releaseAfterBatches(statement, () -> measureBatches(metricsFor(sql), () -> {
+                    UpdateCounts updateCounts = new UpdateCounts(expectedBatchCount);
+                    while (batches.hasNext()) {
+                        updateCounts.append(executeChunk(statement, batches, chunkSize, events));
+                    }
+                    return updateCounts.toArray();
+                }));
+            } finally {
+                complete(events);
+            }
+        });
+    }
+
+    private int[] executeBatchesOverlapped(String sql, Iterator<Batch> batches, int chunkSize, Executor executor) {
+        updateListener.accept(sql);
+        StatementEvents events = startStatement(sql, null);
+        return RuntimeSQLException.executeWithResult(() -> {
+            PreparedStatement statement = time(events, StatementListener::prepared,
+                                               () -> statementCache.prepareStatement(sql));
+            AtomicReference<CompletableFuture<List<Batch>>> nextChunk =
+                    new AtomicReference<>(CompletableFuture.completedFuture(Collections.emptyList()));
+            try {
+                return releaseAfterBatches(statement, () -> {
+                    try {
+                        return measureBatches(metricsFor(sql), () -> {
+                            UpdateCounts updateCounts = new UpdateCounts(chunkSize);
+                            nextChunk.set(readChunkAsync(batches, chunkSize, executor));
+                            for (List<Batch> chunk = joinChunk(nextChunk.get()); !chunk.isEmpty();
+                                 chunk = joinChunk(nextChunk.get())) {
+                                nextChunk.set(readChunkAsync(batches, chunkSize, executor));
+                                updateCounts.append(executeChunk(statement, chunk.iterator(), chunk.size(), events));
+                            }
+                            return updateCounts.toArray();
+                        });
+                    } finally {
+                        // Don't return while the executor may still be reading from the caller's iterator.
+                        nextChunk.get().handle((chunk, exception) -> chunk).join();
+                    }
+                });
+            } finally {
+                complete(events);
+            }
+        });
+    }
+
+    private void executeMultiRowInserts(String sql, MultiRowInsert insert, List<Batch> batches) {
+        int parametersPerRow = insert.parametersPerRow();
+        int index = 0;
+        for (Batch batch : batches) {
+            ++index;
+            if (batch.parameterCount() != parametersPerRow) {
+                throw new InvalidArgumentException("batches[" + index + "] has " + batch.parameterCount() +
+                                                   " parameters, but the insert has " + parametersPerRow + ".");
+            }
+        }
+        int rowsPerChunk = Math.min(maxInsertParameters / parametersPerRow, batches.size());
+        int remainder = batches.size() % rowsPerChunk;
+        updateListener.accept(sql);
+        StatementEvents events = startStatement(sql, null);
+        RuntimeSQLException.execute(() -> {
+            try {
+                StatementMetrics statementMetrics = metricsFor(sql);
+                int rowsInserted = measure(statementMetrics, () -> {
+                    Iterator<Batch> rows = batches.iterator();
+                    // One statement for all the full chunks, and one for the rows left over, if any.
+                    int inserted = executeMultiRowChunks(insert.sql(rowsPerChunk), rows, batches.size() / rowsPerChunk,
+                                                         rowsPerChunk, parametersPerRow, events);
+                    if (remainder > 0) {
+                        inserted += executeMultiRowChunks(insert.sql(remainder), rows, 1, remainder,
+                                                          parametersPerRow, events);
+                    }
+                    return inserted;
+                });
+                if (statementMetrics != null) {
+                    statementMetrics.addRowsUpdated(rowsInserted);
+                }
+            } finally {
+                complete(events);
+            }
+        });
+    }
+
+    private int executeMultiRowChunks(String chunkSql, Iterator<Batch> batches, int chunkCount, int rowsPerChunk,
+                                      int parametersPerRow, StatementEvents events) throws SQLException {
+        PreparedStatement statement = time(events, StatementListener::prepared,
+                                           () -> statementCache.prepareStatement(chunkSql));
+        try {
+            int inserted = 0;
+            for (int chunk = 0; chunk < chunkCount; ++chunk) {
+                try (DefaultAutoCloseableScope chunkScope = new DefaultAutoCloseableScope()) {
+                    time(events, StatementListener::bound, () -> {
+                        for (int row = 0; row < rowsPerChunk; ++row) {
+                            Batch batch = batches.next();
+                            if (events != null) {
+                                events.batch(batch);
+                            }
+                            batch.bindTo(statement, row * parametersPerRow + 1, chunkScope);
+                        }
+                        return null;
+                    });
+                    int updateCount = timeDatabaseWork(events, StatementListener::executed, statement::executeUpdate);
+                    if (events != null) {
+                        events.rowCount(events.rowCount() + Math.max(updateCount, 0));
+                    }
+                    inserted += Math.max(updateCount, 0);
+                }
+            }
+            return inserted;
+        } finally {
+            statementCache.release(statement);
+        }
+    }
+
+    /**
+     * Runs {@code batchUpdate}, which adds batches to {@code statement}, and then gives the statement back to the
+     * cache, or closes it if the update fails: it may still be in batch mode, which some drivers, e.g., HSQLDB, don't
+     * leave on {@link PreparedStatement#clearBatch()}, and the next user would execute the queued batches or fail.
+     */
+    private <ResultType> ResultType releaseAfterBatches(PreparedStatement statement,
+                                                        RuntimeSQLException.ThrowingSupplier<ResultType> batchUpdate)
+            throws SQLException {
+        boolean succeeded = false;
+        try {
+            ResultType result = batchUpdate.executeWithResult();
+            succeeded = true;
+            return result;
+        } finally {
+            if (succeeded) {
+                statementCache.release(statement);
+            } else {
+                statementCache.discard(statement);
+            }
+        }
+    }
+
+    private static CompletableFuture<List<Batch>> readChunkAsync(Iterator<Batch> batches, int chunkSize,
+                                                                 Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Batch> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && batches.hasNext()) {
+                chunk.add(batches.next());
+            }
+            return chunk;
+        }, executor);
+    }
 
-    private <MapperRowType> Stream<MapperRowType> executeQuery(Function<ResultSet, MapperRowType> rowMapper,
-                                                               DefaultAutoCloseableScope resultSetAndStatementScope,
-                                                               PreparedStatement statement) throws SQLException {
-        ResultSet resultSet = resultSetAndStatementScope.add(statement.executeQuery(), ResultSet::close);
-        return StreamSupport.stream(new ResultSetSpliterator(resultSet),
-                                    false)
-                .onClose(resultSetAndStatementScope::close)
-                .map(rowMapper);
+    private static List<Batch> joinChunk(CompletableFuture<List<Batch>> chunk) {
+        try {
+            return chunk.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+
+    private static int[] executeChunk(PreparedStatement statement, Iterator<Batch> batches, int chunkSize,
+                                      StatementEvents events) throws SQLException {
+        try (DefaultAutoCloseableScope chunkScope = new DefaultAutoCloseableScope()) {
+            time(events, StatementListener::bound, () -> {
+                for (int added = 0; added < chunkSize && batches.hasNext(); ++added) {
+                    Batch batch = batches.next();
+                    if (events != null) {
+                        events.batch(batch);
+                    }
+                    addBatch(batch, statement, chunkScope);
+                }
+                return null;
+            });
+            int[] updateCounts = timeDatabaseWork(events, StatementListener::executed, statement::executeBatch);
+            if (events != null) {
+                events.addRows(updateCounts);
+            }
+            return updateCounts;
+        }
+    }
+
+    private static int[] executeChunk(PreparedStatement statement, BatchBuilder batches, int firstRow, int lastRow,
+                                      StatementEvents events) throws SQLException {
+        time(events, StatementListener::bound, () -> {
+            for (int row = firstRow; row < lastRow; ++row) {
+                batches.bindRow(row, statement);
+                statement.addBatch();
+            }
+            return null;
+        });
+        int[] updateCounts = timeDatabaseWork(events, StatementListener::executed, statement::executeBatch);
+        if (events != null) {
+            events.addRows(updateCounts);
+        }
+        return updateCounts;
+    }
+
+    private static final class UpdateCounts {
+        private int[] counts;
+        private int size = 0;
+
+        UpdateCounts(int expectedSize) {
+            counts = new int[expectedSize];
+        }
+
+        void append(int[] chunkCounts) {
+            if (size + chunkCounts.length > counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(counts.length * 2, size + chunkCounts.length));
+            }
+            System.arraycopy(chunkCounts, 0, counts, size, chunkCounts.length);
+            size += chunkCounts.length;
+        }
+
+        int[] toArray() {
+            return size == counts.length ? counts : Arrays.copyOf(counts, size);
+        }
+    }
+
+    private <StreamType extends BaseStream<?, StreamType>> StreamType executeQuery(
+            String sql, StatementEvents events, PreparedStatement statement,
+            DefaultAutoCloseableScope resultSetAndStatementScope,
+            BiFunction<ResultSet, Scope, StreamType> streamFactory) throws SQLException {
+        StatementMetrics statementMetrics = metricsFor(sql);
+        ResultSet resultSet = resultSetAndStatementScope.add(
+                measure(statementMetrics,
+                        () -> timeDatabaseWork(events, StatementListener::executed, statement::executeQuery)),
+                ResultSet::close);
+        ColumnIndexCachingResultSet rows = events == null ?
+                                           new ColumnIndexCachingResultSet(resultSet) :
+                                           new ListeningResultSet(resultSet, events);
+        if (statementMetrics != null) {
+            resultSetAndStatementScope.add(() -> statementMetrics.addRowsReturned(rows.rowCount()));
+        }
+        return streamFactory.apply(rows, resultSetAndStatementScope)
+                .onClose(() -> RuntimeSQLException.execute(() -> {
+                    try {
+                        time(events, StatementListener::closed, () -> {
+                            resultSetAndStatementScope.close();
+                            return null;
+                        });
+                    } finally {
+                        complete(events);
+                    }
+                }));
+    }
+
+    private StatementEvents startStatement(String sql, Parameter[] parameters) {
+        statementsSinceCommit = true;
+        if (statementListener == null) {
+            return null;
+        }
+        if (lastStatementEvents != null && lastStatementEvents.isReusableBy(statementListener)) {
+            lastStatementEvents.reset(sql, parameters);
+        } else {
+            lastStatementEvents = new StatementEvents(statementListener, transactionId, sql, parameters);
+        }
+        return lastStatementEvents;
+    }
+
+    private StatementEvents transactionEvents() {
+        return statementListener == null ? null : new StatementEvents(statementListener, transactionId, null, null);
+    }
+
+    private static void timeBinding(StatementEvents events, Runnable binding) throws SQLException {
+        time(events, StatementListener::bound, () -> {
+            binding.run();
+            return null;
+        });
+    }
+
+    private StatementMetrics metricsFor(String sql) {
+        return metrics == null ? null : metrics.forSql(sql);
+    }
+
+    private static <ResultType> ResultType measure(StatementMetrics statementMetrics,
+                                                   RuntimeSQLException.ThrowingSupplier<ResultType> execution)
+            throws SQLException {
+        if (statementMetrics == null) {
+            return execution.executeWithResult();
+        }
+        long start = System.nanoTime();
+        try {
+            ResultType result = execution.executeWithResult();
+            statementMetrics.recordExecution(System.nanoTime() - start);
+            return result;
+        } catch (SQLException | RuntimeException exception) {
+            statementMetrics.recordError();
+            throw exception;
+        }
+    }
+
+    private static int[] measureBatches(StatementMetrics statementMetrics,
+                                        RuntimeSQLException.ThrowingSupplier<int[]> execution) throws SQLException {
+        int[] counts = measure(statementMetrics, execution);
+        if (statementMetrics != null) {
+            for (int count : counts) {
+                statementMetrics.addRowsUpdated(count);
+            }
+        }
+        return counts;
+    }
+
+    private static <MappedRowType> Stream<MappedRowType> stream(Function<ResultSet, MappedRowType> rowMapper,
+                                                                QueryOptions options, ResultSet resultSet,
+                                                                Scope resultSetAndStatementScope) {
+        Spliterator<MappedRowType> rows = new ResultSetSpliterator<>(resultSet, rowMapper);
+        if (options.prefetchSize() > 0) {
+            rows = resultSetAndStatementScope.add(new PrefetchingSpliterator<>(rows, options.prefetchSize()),
+                                                  PrefetchingSpliterator::cancel);
+        }
+        return StreamSupport.stream(rows, false);
     }
 
 }
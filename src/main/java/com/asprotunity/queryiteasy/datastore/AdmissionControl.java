@@ -0,0 +1,253 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.exception.TransactionRejectedException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limits the asynchronous transactions of a {@link DataStore}, see {@link DataStore#withAdmissionControl}.
+ * <p>
+ * Up to {@code maxRunning} transactions run at the same time; the following ones wait in a queue of at most
+ * {@code maxQueued}, in submission order. A transaction submitted when the queue is full, or that waits longer than
+ * {@code maxQueueTime}, fails at once with a {@link TransactionRejectedException}, so the caller can shed load early
+ * instead of timing out late while waiting for a connection.
+ * <p>
+ * The same instance can be shared by several DataStores, to limit them together.
+ */
+public class AdmissionControl implements AutoCloseable {
+
+    private final int maxRunning;
+    private final int maxQueued;
+    private final long maxQueueTimeNanos;
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private final ThreadLocal<Boolean> startingWaiters = ThreadLocal.withInitial(() -> false);
+    private int running = 0;
+    private long admitted = 0;
+    private long rejected = 0;
+    private long timedOut = 0;
+    private long totalWaitNanos = 0;
+    private long maxWaitNanos = 0;
+
+    /**
+     * @param maxRunning The maximum number of transactions running at the same time, usually no more than the
+     *                   maximum number of connections.
+     * @param maxQueued The maximum number of transactions waiting to run. Zero rejects at once any transaction
+     *                  submitted while {@code maxRunning} are running.
+     * @param maxQueueTime How long a transaction can wait to run before being rejected.
+     * @throws InvalidArgumentException if {@code maxQueueTime} is null, or if {@code maxRunning < 1},
+     *                                  {@code maxQueued < 0} or {@code maxQueueTime} is not positive.
+     */
+    public AdmissionControl(int maxRunning, int maxQueued, Duration maxQueueTime) {
+        InvalidArgumentException.throwIfNull(maxQueueTime, "maxQueueTime");
+        InvalidArgumentException.throwIf(maxRunning < 1, "maxRunning must be at least 1.");
+        InvalidArgumentException.throwIf(maxQueued < 0, "maxQueued cannot be negative.");
+        InvalidArgumentException.throwIf(maxQueueTime.isNegative() || maxQueueTime.isZero(),
+                                         "maxQueueTime must be positive.");
+        this.maxRunning = maxRunning;
+        this.maxQueued = maxQueued;
+        this.maxQueueTimeNanos = maxQueueTime.toNanos();
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "queryiteasy-admission-control-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return The number of transactions running.
+     */
+    public synchronized int running() {
+        return running;
+    }
+
+    /**
+     * @return The number of transactions waiting to run.
+     */
+    public synchronized int queueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return The number of transactions that have been started so far.
+     */
+    public synchronized long admittedCount() {
+        return admitted;
+    }
+
+    /**
+     * @return The number of transactions rejected so far because the queue was full.
+     */
+    public synchronized long rejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * @return The number of transactions rejected so far because they waited longer than the maximum queue time.
+     */
+    public synchronized long timedOutCount() {
+        return timedOut;
+    }
+
+    /**
+     * @return The average time the admitted transactions waited in the queue, zero for those that didn't.
+     */
+    public synchronized Duration averageWaitTime() {
+        return Duration.ofNanos(admitted == 0 ? 0 : totalWaitNanos / admitted);
+    }
+
+    /**
+     * @return The longest time an admitted transaction waited in the queue.
+     */
+    public synchronized Duration maxWaitTime() {
+        return Duration.ofNanos(maxWaitNanos);
+    }
+
+    /**
+     * Stops the timer that rejects the transactions waiting for too long. Transactions already queued still run
+     * when their turn comes.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    <ResultType> CompletableFuture<ResultType> submit(Supplier<ResultType> transaction, Executor executor) {
+        CompletableFuture<ResultType> result = new CompletableFuture<>();
+        Runnable start = () -> start(transaction, executor, result);
+        synchronized (this) {
+            if (running < maxRunning) {
+                ++running;
+                ++admitted;
+            } else if (queue.size() < maxQueued) {
+                Waiter waiter = new Waiter(start, result);
+                queue.addLast(waiter);
+                waiter.timeout = scheduleTimeout(waiter);
+                result.whenComplete((value, failure) -> {
+                    if (result.isCancelled()) {
+                        cancel(waiter);
+                    }
+                });
+                return result;
+            } else {
+                ++rejected;
+                result.completeExceptionally(new TransactionRejectedException(
+                        "Too many transactions: " + running + " running and " + queue.size() + " waiting."));
+                return result;
+            }
+        }
+        start.run();
+        return result;
+    }
+
+    private <ResultType> void start(Supplier<ResultType> transaction, Executor executor,
+                                    CompletableFuture<ResultType> result) {
+        try {
+            CompletableFuture.supplyAsync(transaction, executor).whenComplete((value, failure) -> {
+                release();
+                if (failure instanceof CompletionException && failure.getCause() != null) {
+                    result.completeExceptionally(failure.getCause());
+                } else if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (RuntimeException exception) {
+            release();
+            result.completeExceptionally(exception);
+        }
+    }
+
+    private void release() {
+        synchronized (this) {
+            --running;
+        }
+        startWaiters();
+    }
+
+    /**
+     * Starts the waiters, oldest first, while there are free places. A transaction that completes on the thread
+     * starting it, e.g., with a direct executor, releases its place from inside this loop: the loop, rather than a
+     * nested call, then starts the next waiter, so the stack doesn't grow with the queue.
+     */
+    private void startWaiters() {
+        if (startingWaiters.get()) {
+            return;
+        }
+        startingWaiters.set(true);
+        try {
+            while (true) {
+                Waiter next;
+                synchronized (this) {
+                    if (running >= maxRunning || queue.isEmpty()) {
+                        return;
+                    }
+                    next = queue.pollFirst();
+                    if (next.timeout != null) {
+                        next.timeout.cancel(false);
+                    }
+                    long waitNanos = System.nanoTime() - next.queuedAt;
+                    ++running;
+                    ++admitted;
+                    totalWaitNanos += waitNanos;
+                    maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+                }
+                next.start.run();
+            }
+        } finally {
+            startingWaiters.set(false);
+        }
+    }
+
+    private void cancel(Waiter waiter) {
+        synchronized (this) {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+        }
+        if (waiter.timeout != null) {
+            waiter.timeout.cancel(false);
+        }
+    }
+
+    private ScheduledFuture<?> scheduleTimeout(Waiter waiter) {
+        if (timer.isShutdown()) {
+            return null;
+        }
+        return timer.schedule(() -> timeOut(waiter), maxQueueTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void timeOut(Waiter waiter) {
+        synchronized (this) {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+            ++timedOut;
+        }
+        waiter.result.completeExceptionally(new TransactionRejectedException(
+                "The transaction waited to run for longer than " + Duration.ofNanos(maxQueueTimeNanos) + "."));
+    }
+
+    private static final class Waiter {
+        final Runnable start;
+        final CompletableFuture<?> result;
+        final long queuedAt = System.nanoTime();
+        ScheduledFuture<?> timeout;
+
+        Waiter(Runnable start, CompletableFuture<?> result) {
+            this.start = start;
+            this.result = result;
+        }
+    }
+}
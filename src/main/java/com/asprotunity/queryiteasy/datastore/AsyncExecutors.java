@@ -0,0 +1,80 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the asynchronous methods of {@link DataStore}, which block on JDBC calls and so should not run on
+ * {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+ */
+public abstract class AsyncExecutors {
+
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = virtualThreadPerTaskExecutorFactory();
+
+    /**
+     * Returns a pool of at most {@code threads} daemon threads, which queues the tasks submitted while all are busy.
+     * Idle threads are stopped after a minute, so the pool doesn't need to be shut down.
+     *
+     * @param threads The maximum number of threads, usually the maximum number of connections, since more threads
+     *                would only wait for a connection.
+     * @return A new executor.
+     * @throws InvalidArgumentException if {@code threads < 1}.
+     */
+    public static ExecutorService boundedPool(int threads) {
+        InvalidArgumentException.throwIf(threads < 1, "threads must be at least 1.");
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                                                             new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "queryiteasy-async-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @return true if the JVM supports virtual threads, i.e., it is Java 21 or later.
+     */
+    public static boolean virtualThreadsAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Returns the executor of {@code Executors.newVirtualThreadPerTaskExecutor()}, which runs each task on a new
+     * virtual thread. It is looked up at runtime, since this library is built for Java 8.
+     *
+     * @return A new executor.
+     * @throws UnsupportedOperationException if virtual threads are not available.
+     */
+    public static ExecutorService virtualThreadPerTask() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later.");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact();
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Throwable throwable) {
+            throw new IllegalStateException("Cannot create a virtual thread per task executor.", throwable);
+        }
+    }
+
+    private static MethodHandle virtualThreadPerTaskExecutorFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                                                           MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException beforeJava21) {
+            return null;
+        }
+    }
+}
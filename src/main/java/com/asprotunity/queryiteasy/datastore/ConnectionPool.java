@@ -0,0 +1,331 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.connection.internal.StatementCache;
+import com.asprotunity.queryiteasy.connection.internal.WrappedJDBCConnection;
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of physical JDBC connections to be shared by the transactions of a {@link DataStore}, see
+ * {@link DataStore#pooled(ConnectionPool)}.
+ * <p>
+ * Borrowing and returning connections is lock-free: each thread first tries the connection it used last, then scans
+ * the pool starting from a thread-specific position, and only if none is idle it opens a new connection (up to the
+ * maximum size) or waits for one to be returned, up to the borrow timeout. Connections idle for longer than the idle
+ * timeout are closed by a background thread, as long as the pool keeps at least its minimum size.
+ * <p>
+ * Each pooled connection keeps its own statement cache, so statements prepared by a transaction can be reused by the
+ * following ones.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final long VALIDATION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    private static final long MAX_WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final DataSource dataSource;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+    private final long borrowTimeoutNanos;
+    private final int statementCacheSize;
+    private final CopyOnWriteArrayList<PooledConnection> connections = new CopyOnWriteArrayList<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final SynchronousQueue<PooledConnection> handoff = new SynchronousQueue<>(true);
+    private final ThreadLocal<PooledConnection> lastUsed = new ThreadLocal<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a pool with no statement caching, and opens its first {@code minSize} connections.
+     *
+     * @see #ConnectionPool(DataSource, int, int, Duration, Duration, int)
+     */
+    public ConnectionPool(DataSource dataSource, int minSize, int maxSize,
+                          Duration idleTimeout, Duration borrowTimeout) {
+        this(dataSource, minSize, maxSize, idleTimeout, borrowTimeout, 0);
+    }
+
+    /**
+     * Creates a pool, and opens its first {@code minSize} connections.
+     *
+     * @param dataSource The JDBC DataSource providing the physical connections.
+     * @param minSize The number of connections kept open even when idle.
+     * @param maxSize The maximum number of connections open at the same time.
+     * @param idleTimeout How long a connection can stay idle before being closed, if there are more than
+     *                    {@code minSize}.
+     * @param borrowTimeout How long a transaction waits for a connection when all {@code maxSize} are in use.
+     * @param statementCacheSize The maximum number of statements cached by each connection. Zero disables the cache.
+     * @throws InvalidArgumentException if any of the arguments is null, or if {@code minSize < 0},
+     *                                  {@code maxSize < 1}, {@code minSize > maxSize}, {@code idleTimeout} is not
+     *                                  positive, {@code borrowTimeout} is negative or {@code statementCacheSize < 0}.
+     * @throws RuntimeSQLException If a {@link java.sql.SQLException} is thrown opening the first connections.
+     */
+    public ConnectionPool(DataSource dataSource, int minSize, int maxSize,
+                          Duration idleTimeout, Duration borrowTimeout, int statementCacheSize) {
+        InvalidArgumentException.throwIfNull(dataSource, "dataSource");
+        InvalidArgumentException.throwIfNull(idleTimeout, "idleTimeout");
+        InvalidArgumentException.throwIfNull(borrowTimeout, "borrowTimeout");
+        InvalidArgumentException.throwIf(minSize < 0, "minSize cannot be negative.");
+        InvalidArgumentException.throwIf(maxSize < 1, "maxSize must be at least 1.");
+        InvalidArgumentException.throwIf(minSize > maxSize, "minSize cannot be greater than maxSize.");
+        InvalidArgumentException.throwIf(idleTimeout.isNegative() || idleTimeout.isZero(),
+                                         "idleTimeout must be positive.");
+        InvalidArgumentException.throwIf(borrowTimeout.isNegative(), "borrowTimeout cannot be negative.");
+        InvalidArgumentException.throwIf(statementCacheSize < 0, "statementCacheSize cannot be negative.");
+        this.dataSource = dataSource;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.borrowTimeoutNanos = borrowTimeout.toNanos();
+        this.statementCacheSize = statementCacheSize;
+        RuntimeSQLException.execute(this::fillToMinSize);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "queryiteasy-connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::evictIdleConnections, idleTimeoutNanos, idleTimeoutNanos,
+                                                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The maximum number of connections open at the same time.
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of connections currently open, both idle and in use.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return The number of connections currently open and not in use.
+     */
+    public int idleCount() {
+        return (int) connections.stream().filter(PooledConnection::isIdle).count();
+    }
+
+    /**
+     * Closes all the idle connections and stops the background eviction. Connections still in use are closed when
+     * their transaction ends. Any attempt to borrow a connection afterwards fails.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        for (PooledConnection connection : connections) {
+            if (connection.tryReserve()) {
+                discard(connection);
+            }
+        }
+    }
+
+    WrappedJDBCConnection openConnection() throws SQLException {
+        PooledConnection pooled = borrow();
+        try {
+            return new WrappedJDBCConnection(pooled.connection, pooled.statementCache, () -> release(pooled));
+        } catch (RuntimeException exception) {
+            discard(pooled);
+            throw exception;
+        }
+    }
+
+    PooledConnection borrow() throws SQLException {
+        long deadline = System.nanoTime() + borrowTimeoutNanos;
+        while (true) {
+            throwIfClosed();
+            PooledConnection connection = takeIdle();
+            if (connection == null) {
+                connection = createIfBelowMaxSize();
+            }
+            if (connection == null) {
+                connection = awaitRelease(deadline);
+            }
+            if (connection == null) {
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + TimeUnit.NANOSECONDS.toMillis(borrowTimeoutNanos) +
+                        "ms waiting for a connection. Pool size: " + maxSize + ".");
+            }
+            if (isUsable(connection)) {
+                lastUsed.set(connection);
+                return connection;
+            }
+            discard(connection);
+        }
+    }
+
+    void release(PooledConnection connection) throws SQLException {
+        if (closed || connection.connection.isClosed()) {
+            discard(connection);
+            return;
+        }
+        connection.lastUsedNanos = System.nanoTime();
+        connection.state.set(PooledConnection.IDLE);
+        while (waiters.get() > 0) {
+            if (!connection.isIdle() || handoff.offer(connection)) {
+                return;
+            }
+            Thread.yield();
+        }
+    }
+
+    void evictIdleConnections() {
+        long now = System.nanoTime();
+        for (PooledConnection connection : connections) {
+            if (size.get() <= minSize) {
+                break;
+            }
+            if (now - connection.lastUsedNanos > idleTimeoutNanos && connection.tryReserve()) {
+                discard(connection);
+            }
+        }
+        try {
+            fillToMinSize();
+        } catch (SQLException | RuntimeException ignored) {
+            // The database may be temporarily unreachable; borrowing will open the connections when needed.
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection connection = lastUsed.get();
+        if (connection != null && connection.tryReserve()) {
+            return connection;
+        }
+        List<PooledConnection> snapshot = connections;
+        int count = snapshot.size();
+        int start = count == 0 ? 0 : (int) (Thread.currentThread().getId() % count);
+        for (int offset = 0; offset < count; ++offset) {
+            try {
+                connection = snapshot.get((start + offset) % count);
+            } catch (IndexOutOfBoundsException removedConcurrently) {
+                break;
+            }
+            if (connection.tryReserve()) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    private PooledConnection createIfBelowMaxSize() throws SQLException {
+        for (int current = size.get(); current < maxSize; current = size.get()) {
+            if (size.compareAndSet(current, current + 1)) {
+                try {
+                    java.sql.Connection connection = dataSource.getConnection();
+                    PooledConnection result =
+                            new PooledConnection(connection, new StatementCache(connection, statementCacheSize));
+                    connections.add(result);
+                    return result;
+                } catch (SQLException | RuntimeException exception) {
+                    size.decrementAndGet();
+                    throw exception;
+                }
+            }
+        }
+        return null;
+    }
+
+    private PooledConnection awaitRelease(long deadline) throws SQLException {
+        waiters.incrementAndGet();
+        try {
+            for (long remaining = deadline - System.nanoTime(); remaining > 0;
+                 remaining = deadline - System.nanoTime()) {
+                PooledConnection connection = handoff.poll(Math.min(remaining, MAX_WAIT_SLICE_NANOS),
+                                                           TimeUnit.NANOSECONDS);
+                if (connection != null && connection.tryReserve()) {
+                    return connection;
+                }
+                connection = takeIdle();
+                if (connection == null) {
+                    connection = createIfBelowMaxSize();
+                }
+                if (connection != null) {
+                    return connection;
+                }
+                throwIfClosed();
+            }
+            return null;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection.", exception);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private void fillToMinSize() throws SQLException {
+        while (!closed && size.get() < minSize) {
+            PooledConnection connection = createIfBelowMaxSize();
+            if (connection == null) {
+                return;
+            }
+            release(connection);
+        }
+    }
+
+    private boolean isUsable(PooledConnection connection) throws SQLException {
+        return System.nanoTime() - connection.lastUsedNanos < VALIDATION_INTERVAL_NANOS ||
+               connection.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+    }
+
+    private void discard(PooledConnection connection) {
+        connection.state.set(PooledConnection.REMOVED);
+        if (connections.remove(connection)) {
+            size.decrementAndGet();
+        }
+        try {
+            connection.statementCache.close();
+            connection.connection.close();
+        } catch (SQLException | RuntimeException ignored) {
+            // The connection is being thrown away, most likely because it is already broken.
+        }
+    }
+
+    private void throwIfClosed() throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool is closed.");
+        }
+    }
+
+    static final class PooledConnection {
+        static final int IDLE = 0;
+        static final int IN_USE = 1;
+        static final int REMOVED = 2;
+
+        final java.sql.Connection connection;
+        final StatementCache statementCache;
+        final AtomicInteger state = new AtomicInteger(IN_USE);
+        volatile long lastUsedNanos = System.nanoTime();
+
+        PooledConnection(java.sql.Connection connection, StatementCache statementCache) {
+            this.connection = connection;
+            this.statementCache = statementCache;
+        }
+
+        boolean tryReserve() {
+            return state.compareAndSet(IDLE, IN_USE);
+        }
+
+        boolean isIdle() {
+            return state.get() == IDLE;
+        }
+    }
+}
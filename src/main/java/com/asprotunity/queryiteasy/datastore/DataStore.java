@@ -1,18 +1,42 @@
 package com.asprotunity.queryiteasy.datastore;
 
+import com.asprotunity.queryiteasy.connection.Batch;
 import com.asprotunity.queryiteasy.connection.Connection;
+import com.asprotunity.queryiteasy.connection.InputParameter;
+import com.asprotunity.queryiteasy.connection.Parameter;
+import com.asprotunity.queryiteasy.connection.StatementListener;
+import com.asprotunity.queryiteasy.connection.internal.StatementEvents;
 import com.asprotunity.queryiteasy.connection.internal.WrappedJDBCConnection;
 import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
 import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import com.asprotunity.queryiteasy.flow.Flow;
+import com.asprotunity.queryiteasy.metrics.QueryMetrics;
+import com.asprotunity.queryiteasy.metrics.SlowQueryLog;
 
 import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public class DataStore {
 
     private DataSource dataSource;
+    private int statementCacheSize;
+    private ConnectionPool connectionPool;
+    private Executor asyncExecutor;
+    private AdmissionControl admissionControl;
+    private QueryCache queryCache;
+    private QueryMetrics metrics;
+    private StatementListener statementListener;
+    private SlowQueryLog slowQueryLog;
+    private int maxInsertParameters;
 
     /**
      * Creates a DataStore instance that wraps the given JDBC DataSource.
@@ -21,8 +45,173 @@ public class DataStore {
      * @throws InvalidArgumentException if {@code dataSource == null}.
      */
     public DataStore(DataSource dataSource) {
+        this(dataSource, 0);
+    }
+
+    /**
+     * Creates a DataStore instance that wraps the given JDBC DataSource, and whose transactions reuse up to
+     * {@code statementCacheSize} prepared statements for queries executed more than once in the same transaction.
+     * Asynchronous transactions run on {@link AsyncExecutors#boundedPool(int)}, with two threads per processor.
+     *
+     * @param dataSource The JDBC DataSource to wrap.
+     * @param statementCacheSize The maximum number of statements cached by each transaction. Zero disables the cache.
+     * @throws InvalidArgumentException if {@code dataSource == null} or {@code statementCacheSize < 0}.
+     */
+    public DataStore(DataSource dataSource, int statementCacheSize) {
         InvalidArgumentException.throwIfNull(dataSource, "dataSource");
+        InvalidArgumentException.throwIf(statementCacheSize < 0, "statementCacheSize cannot be negative.");
         this.dataSource = dataSource;
+        this.statementCacheSize = statementCacheSize;
+        this.asyncExecutor = AsyncExecutors.boundedPool(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    private DataStore(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+        this.asyncExecutor = AsyncExecutors.boundedPool(connectionPool.maxSize());
+    }
+
+    private DataStore(DataStore other) {
+        this.dataSource = other.dataSource;
+        this.statementCacheSize = other.statementCacheSize;
+        this.connectionPool = other.connectionPool;
+        this.asyncExecutor = other.asyncExecutor;
+        this.admissionControl = other.admissionControl;
+        this.queryCache = other.queryCache;
+        this.metrics = other.metrics;
+        this.statementListener = other.statementListener;
+        this.slowQueryLog = other.slowQueryLog;
+        this.maxInsertParameters = other.maxInsertParameters;
+    }
+
+    /**
+     * Creates a DataStore instance whose transactions borrow their connections from {@code connectionPool}, instead of
+     * opening a new one each time. The pool is not closed by the DataStore. Asynchronous transactions run on
+     * {@link AsyncExecutors#boundedPool(int)}, with as many threads as the pool has connections.
+     *
+     * @param connectionPool The pool to borrow the connections from.
+     * @return A new DataStore instance.
+     * @throws InvalidArgumentException if {@code connectionPool == null}.
+     */
+    public static DataStore pooled(ConnectionPool connectionPool) {
+        InvalidArgumentException.throwIfNull(connectionPool, "connectionPool");
+        return new DataStore(connectionPool);
+    }
+
+    /**
+     * Returns a DataStore instance like this one, whose asynchronous transactions run on {@code asyncExecutor}, e.g.,
+     * {@link AsyncExecutors#virtualThreadPerTask()}. The executor is not shut down by the DataStore.
+     *
+     * @param asyncExecutor The executor for {@link #executeAsync(Consumer)} and
+     *                      {@link #executeWithResultAsync(Function)}.
+     * @return A new DataStore instance.
+     * @throws InvalidArgumentException if {@code asyncExecutor == null}.
+     */
+    public DataStore withAsyncExecutor(Executor asyncExecutor) {
+        InvalidArgumentException.throwIfNull(asyncExecutor, "asyncExecutor");
+        DataStore dataStore = new DataStore(this);
+        dataStore.asyncExecutor = asyncExecutor;
+        return dataStore;
+    }
+
+    /**
+     * Returns a DataStore instance like this one, whose asynchronous transactions are admitted by
+     * {@code admissionControl}: when too many are running or waiting, the futures they return fail with a
+     * {@link com.asprotunity.queryiteasy.exception.TransactionRejectedException}. Synchronous transactions are not
+     * affected. The admission control is not closed by the DataStore.
+     *
+     * @param admissionControl The admission control for {@link #executeAsync(Consumer)} and
+     *                         {@link #executeWithResultAsync(Function)}.
+     * @return A new DataStore instance.
+     * @throws InvalidArgumentException if {@code admissionControl == null}.
+     */
+    public DataStore withAdmissionControl(AdmissionControl admissionControl) {
+        InvalidArgumentException.throwIfNull(admissionControl, "admissionControl");
+        DataStore dataStore = new DataStore(this);
+        dataStore.admissionControl = admissionControl;
+        return dataStore;
+    }
+
+    /**
+     * Returns a DataStore instance like this one, whose {@link #selectCached(Function, String, InputParameter...)}
+     * reads through {@code queryCache}, and whose transactions invalidate the cached results of the tables they
+     * update when they commit.
+     *
+     * @param queryCache The cache of the selected results.
+     * @return A new DataStore instance.
+     * @throws InvalidArgumentException if {@code queryCache == null}.
+     */
+    public DataStore withQueryCache(QueryCache queryCache) {
+        InvalidArgumentException.throwIfNull(queryCache, "queryCache");
+        DataStore dataStore = new DataStore(this);
+        dataStore.queryCache = queryCache;
+        return dataStore;
+    }
+
+    /**
+     * Returns a DataStore instance like this one, whose transactions record in {@code metrics} the execution and
+     * error counts, rows returned and updated, and latency of each statement, grouped by normalised SQL. A DataStore
+     * without metrics doesn't measure anything.
+     *
+     * @param metrics The registry of the statement metrics.
+     * @return A new DataStore instance.
+     * @throws InvalidArgumentException if {@code metrics == null}.
+     */
+    public DataStore withMetrics(QueryMetrics metrics) {
+        InvalidArgumentException.throwIfNull(metrics, "metrics");
+        DataStore dataStore = new DataStore(this);
+        dataStore.metrics = metrics;
+        return dataStore;
+    }
+
+    /**
+     * Returns a DataStore instance like this one, which tells {@code statementListener} when each of its
+     * transactions acquires its connection, and when each statement is prepared, bound, executed, fetches a row and
+     * is closed, and when the transactions commit or roll back. A DataStore without a listener doesn't time anything.
+     *
+     * @param statementListener The listener to call after each phase. It is called on the thread running the
+     *                          transaction, so it should return quickly.
+     * @return A new DataStore instance.
+     * @throws InvalidArgumentException if {@code statementListener == null}.
+     */
+    public DataStore withStatementListener(StatementListener statementListener) {
+        InvalidArgumentException.throwIfNull(statementListener, "statementListener");
+        DataStore dataStore = new DataStore(this);
+        dataStore.statementListener = statementListener;
+        return dataStore;
+    }
+
+    /**
+     * Returns a DataStore instance like this one, which records in {@code slowQueryLog} the statements of its
+     * transactions that take longer than the log's threshold, with their bound values. It works alongside a
+     * {@link #withStatementListener(StatementListener) statement listener}.
+     *
+     * @param slowQueryLog The log of the slow statements.
+     * @return A new DataStore instance.
+     * @throws InvalidArgumentException if {@code slowQueryLog == null}.
+     */
+    public DataStore withSlowQueryLog(SlowQueryLog slowQueryLog) {
+        InvalidArgumentException.throwIfNull(slowQueryLog, "slowQueryLog");
+        DataStore dataStore = new DataStore(this);
+        dataStore.slowQueryLog = slowQueryLog;
+        return dataStore;
+    }
+
+    /**
+     * Returns a DataStore instance like this one, whose transactions execute the batches of a simple
+     * {@code INSERT INTO ... VALUES (?, ..., ?)}, passed to {@link Connection#update(String, List)}, as inserts of
+     * several rows each, e.g., {@code INSERT INTO ... VALUES (?, ?), (?, ?)}, with as many rows as fit in
+     * {@code maxParameters} parameters. It saves round trips with drivers that execute each batch separately. Other
+     * statements, and inserts with literals, expressions or trailing clauses, are executed as batches as usual.
+     *
+     * @param maxParameters The maximum number of parameters of each insert, e.g., the database's limit.
+     * @return A new DataStore instance.
+     * @throws InvalidArgumentException if {@code maxParameters < 1}.
+     */
+    public DataStore withMultiRowInserts(int maxParameters) {
+        InvalidArgumentException.throwIf(maxParameters < 1, "maxParameters must be at least 1.");
+        DataStore dataStore = new DataStore(this);
+        dataStore.maxInsertParameters = maxParameters;
+        return dataStore;
     }
 
     /**
@@ -36,8 +225,7 @@ public class DataStore {
     public void execute(Consumer<Connection> transaction) {
         InvalidArgumentException.throwIfNull(transaction, "transaction");
         RuntimeSQLException.execute(() -> {
-                                        try (WrappedJDBCConnection connection =
-                                                     new WrappedJDBCConnection(dataSource.getConnection())) {
+                                        try (WrappedJDBCConnection connection = openConnection()) {
                                             transaction.accept(connection);
                                             connection.commit();
                                         }
@@ -59,8 +247,7 @@ public class DataStore {
     public <ResultType> ResultType executeWithResult(Function<Connection, ResultType> transaction) {
         InvalidArgumentException.throwIfNull(transaction, "transaction");
         return RuntimeSQLException.executeWithResult(() -> {
-                                                         try (WrappedJDBCConnection connection =
-                                                                      new WrappedJDBCConnection(dataSource.getConnection())) {
+                                                         try (WrappedJDBCConnection connection = openConnection()) {
                                                              ResultType result = transaction.apply(connection);
                                                              connection.commit();
                                                              return result;
@@ -69,14 +256,171 @@ public class DataStore {
         );
     }
 
+    /**
+     * Runs a select in its own transaction and returns all its rows. If the DataStore has a {@link QueryCache}, the
+     * rows come from the cache when the same select, with the same {@code rowMapper} instance and parameter values,
+     * has been run recently and the tables it reads have not been updated since.
+     * <p>
+     * To compute the cache key, the parameters are bound once more than the select needs. Parameters binding streams,
+     * readers or LOBs, and mappers that are new instances at each call, e.g., lambdas capturing local variables,
+     * make the select always run on the database.
+     *
+     * @param rowMapper Maps a result set into a caller provided type. The rows it returns should be immutable, since
+     *                  they are shared by all the callers.
+     * @param sql The SQL code to execute. It may contain positional parameters (denoted by question marks).
+     * @param parameters The values to bind to the positional parameters in the {@code sql} parameter.
+     * @param <RowType> A type provided by the caller.
+     * @return An unmodifiable list of the results of {@code rowMapper} applied to each row of the select.
+     * @throws InvalidArgumentException if {@code rowMapper} or {@code sql} are null, or if {@code sql} is empty,
+     *                                  or any parameter provided is null.
+     * @throws RuntimeSQLException      If a {@link java.sql.SQLException} is thrown during the call.
+     */
+    public <RowType> List<RowType> selectCached(Function<ResultSet, RowType> rowMapper, String sql,
+                                                InputParameter... parameters) {
+        throwIfInvalidQuery(rowMapper, sql);
+        InvalidArgumentException.throwIfNull(parameters, "parameters");
+        Supplier<List<RowType>> select = () -> executeWithResult(
+                connection -> connection.select(rowMapper, sql, parameters).collect(Collectors.toList()));
+        if (queryCache == null) {
+            return Collections.unmodifiableList(select.get());
+        }
+        return queryCache.get(rowMapper, sql, parameters, select);
+    }
+
+    private WrappedJDBCConnection openConnection() throws SQLException {
+        StatementListener listener = statementListener();
+        StatementEvents events = listener == null ? null : new StatementEvents(listener, 0, null, null);
+        WrappedJDBCConnection connection = StatementEvents.time(
+                events, StatementListener::acquired,
+                () -> connectionPool != null ?
+                      connectionPool.openConnection() :
+                      new WrappedJDBCConnection(dataSource.getConnection(), statementCacheSize));
+        if (queryCache != null) {
+            queryCache.track(connection);
+        }
+        if (metrics != null) {
+            connection.recordMetricsIn(metrics);
+        }
+        if (listener != null) {
+            connection.setStatementListener(listener);
+        }
+        if (maxInsertParameters > 0) {
+            connection.rewriteBatchInserts(maxInsertParameters);
+        }
+        return connection;
+    }
+
+    private StatementListener statementListener() {
+        if (slowQueryLog == null) {
+            return statementListener;
+        }
+        return statementListener == null ? slowQueryLog : statementListener.andThen(slowQueryLog);
+    }
+
     public <ResultType> CompletableFuture<ResultType> executeWithResultAsync(Function<Connection, ResultType> transaction) {
-        return CompletableFuture.supplyAsync(() -> executeWithResult(transaction));
+        return supplyAsync(() -> executeWithResult(transaction));
     }
 
     public CompletableFuture<Void> executeAsync(Consumer<Connection> transaction) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supplyAsync(() -> {
             execute(transaction);
             return null;
         });
     }
+
+    /**
+     * Returns a publisher of the rows of a select. Each subscriber runs the select in its own transaction, on the
+     * executor of the asynchronous transactions, starting when it first requests rows: the number it requests, up to
+     * 1000, is used as the fetch size, and rows are read from the result set only as they are requested. The
+     * statement, result set and transaction are released when the last row has been sent, the subscriber cancels,
+     * or the select fails, in which case the failure is sent to the subscriber.
+     *
+     * @param rowMapper Maps a result set into a caller provided type.
+     * @param sql The SQL code to execute. It may contain positional parameters (denoted by question marks).
+     * @param parameters The values to bind to the positional parameters in the {@code sql} parameter.
+     * @param <RowType> A type provided by the caller.
+     * @return A publisher of the results of {@code rowMapper} applied to each row of the select.
+     * @throws InvalidArgumentException if {@code rowMapper} or {@code sql} are null, or if {@code sql} is empty.
+     */
+    public <RowType> Flow.Publisher<RowType> selectPublisher(Function<ResultSet, RowType> rowMapper, String sql,
+                                                             InputParameter... parameters) {
+        throwIfInvalidQuery(rowMapper, sql);
+        return new QueryPublisher<>(this::openConnection,
+                                    (connection, options) -> connection.select(rowMapper, options, sql, parameters),
+                                    asyncExecutor);
+    }
+
+    /**
+     * Like {@link #selectPublisher(Function, String, InputParameter...)}, for the rows returned by a stored procedure
+     * call, see {@link Connection#call(Function, String, Parameter...)}.
+     *
+     * @param rowMapper Maps a result set into a caller provided type.
+     * @param sql The SQL code to execute. It may contain positional parameters (denoted by question marks).
+     * @param parameters The values to bind to the positional parameters in the {@code sql} parameter.
+     * @param <RowType> A type provided by the caller.
+     * @return A publisher of the results of {@code rowMapper} applied to each row returned by the call.
+     * @throws InvalidArgumentException if {@code rowMapper} or {@code sql} are null, or if {@code sql} is empty.
+     */
+    public <RowType> Flow.Publisher<RowType> callPublisher(Function<ResultSet, RowType> rowMapper, String sql,
+                                                           Parameter... parameters) {
+        throwIfInvalidQuery(rowMapper, sql);
+        return new QueryPublisher<>(this::openConnection,
+                                    (connection, options) -> connection.call(rowMapper, options, sql, parameters),
+                                    asyncExecutor);
+    }
+
+    /**
+     * Returns a subscriber that writes the items it receives with {@code sql}, binding the batch returned by
+     * {@code toBatch} for each item. It requests the items {@code chunkSize} at a time, writes and commits each chunk
+     * in its own transaction, and requests more only after the commit has succeeded, see {@link UpdateSubscriber}.
+     *
+     * @param sql The SQL code to execute. It must have positional parameters (denoted by question marks) to be bound
+     *            with values for each item.
+     * @param toBatch Maps each item into the values to bind.
+     * @param chunkSize The number of items requested and written at a time.
+     * @param <ItemType> The type of the items written.
+     * @return A new subscriber, to be subscribed to a single publisher.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty or if
+     *                                  {@code chunkSize < 1}.
+     */
+    public <ItemType> UpdateSubscriber<ItemType> updateSubscriber(String sql, Function<? super ItemType, Batch> toBatch,
+                                                                  int chunkSize) {
+        return updateSubscriber(sql, toBatch, chunkSize, UpdateSubscriber.Commit.EACH_CHUNK);
+    }
+
+    /**
+     * Like {@link #updateSubscriber(String, Function, int)}, committing the chunks as specified by {@code commit}.
+     *
+     * @param sql The SQL code to execute. It must have positional parameters (denoted by question marks) to be bound
+     *            with values for each item.
+     * @param toBatch Maps each item into the values to bind.
+     * @param chunkSize The number of items requested and written at a time.
+     * @param commit Whether to commit each chunk or all of them at the end.
+     * @param <ItemType> The type of the items written.
+     * @return A new subscriber, to be subscribed to a single publisher.
+     * @throws InvalidArgumentException if any of the arguments is null, if {@code sql} is empty or if
+     *                                  {@code chunkSize < 1}.
+     */
+    public <ItemType> UpdateSubscriber<ItemType> updateSubscriber(String sql, Function<? super ItemType, Batch> toBatch,
+                                                                  int chunkSize, UpdateSubscriber.Commit commit) {
+        InvalidArgumentException.throwIfNull(sql, "sql");
+        InvalidArgumentException.throwIf(sql.isEmpty(), "sql cannot be empty.");
+        InvalidArgumentException.throwIfNull(toBatch, "toBatch");
+        InvalidArgumentException.throwIf(chunkSize < 1, "chunkSize must be at least 1.");
+        InvalidArgumentException.throwIfNull(commit, "commit");
+        return new UpdateSubscriber<>(this::openConnection, sql, toBatch, chunkSize, commit);
+    }
+
+    private static void throwIfInvalidQuery(Function<ResultSet, ?> rowMapper, String sql) {
+        InvalidArgumentException.throwIfNull(rowMapper, "rowMapper");
+        InvalidArgumentException.throwIfNull(sql, "sql");
+        InvalidArgumentException.throwIf(sql.isEmpty(), "sql cannot be empty.");
+    }
+
+    private <ResultType> CompletableFuture<ResultType> supplyAsync(Supplier<ResultType> transaction) {
+        if (admissionControl != null) {
+            return admissionControl.submit(transaction, asyncExecutor);
+        }
+        return CompletableFuture.supplyAsync(transaction, asyncExecutor);
+    }
 }
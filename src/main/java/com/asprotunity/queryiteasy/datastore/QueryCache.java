@@ -0,0 +1,369 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.connection.InputParameter;
+import com.asprotunity.queryiteasy.connection.internal.WrappedJDBCConnection;
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.scope.DefaultAutoCloseableScope;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches the results of {@link DataStore#selectCached(Function, String, InputParameter...)}, see
+ * {@link DataStore#withQueryCache(QueryCache)}.
+ * <p>
+ * Results are keyed by row mapper, SQL text and the values bound by the parameters, and kept as unmodifiable lists,
+ * safe to share between threads as long as the mapped rows are immutable. A result is dropped when it is older than
+ * {@code timeToLive}, when the transaction of an update or call on one of the tables named in its SQL commits, and,
+ * least recently used first, when the total number of cached rows exceeds {@code maxRows}.
+ * <p>
+ * Tables are found by name in the SQL text, ignoring schemas and case. An update or call whose table cannot be found
+ * for sure, e.g., a stored procedure call or a multi-table update, invalidates the whole cache. Tables written by the
+ * database itself are not seen, though: the results of tables changed by {@code ON DELETE} or {@code ON UPDATE}
+ * cascades or by triggers, and the results of selects from views, stay stale until they expire, unless those tables
+ * or views are passed to {@link #invalidate(String)}, e.g., by a listener of the DataStore updating them. The same
+ * goes for changes made by other applications, since only transactions run by the DataStore are seen.
+ * <p>
+ * The same instance can be shared by several DataStores on the same database.
+ */
+public class QueryCache {
+
+    private static final Pattern READ_TABLE = Pattern.compile(
+            "(?:\\bFROM|\\bJOIN|,)\\s*([\\w$#\"`\\[\\].]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WRITTEN_TABLE = Pattern.compile(
+            "^\\s*(INSERT\\s+INTO|REPLACE\\s+INTO|MERGE\\s+INTO|UPDATE|DELETE\\s+FROM|TRUNCATE(?:\\s+TABLE)?|" +
+            "DROP\\s+TABLE(?:\\s+IF\\s+EXISTS)?|ALTER\\s+TABLE(?:\\s+IF\\s+EXISTS)?)\\s+(?:ONLY\\s+)?" +
+            "([\\w$#\"`\\[\\].]+)(.*)", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern UPDATE_SET = Pattern.compile(
+            "^\\s*\\*?\\s*(?:(?:AS\\s+)?[\\w$#\"`]+\\s+)?SET\\b.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Set<String> NOT_TABLES = new HashSet<>(Arrays.asList(
+            "ONLY", "TABLE", "FROM", "INTO", "SET", "WHERE", "IF", "IGNORE", "LOW_PRIORITY", "QUICK", "DELAYED",
+            "HIGH_PRIORITY"));
+
+    private final long maxRows;
+    private final long timeToLiveNanos;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long rows = 0;
+    private long generation = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    /**
+     * @param maxRows The maximum number of rows cached, across all results. A result with more rows is not cached.
+     * @param timeToLive How long a result is used after it has been read from the database.
+     * @throws InvalidArgumentException if {@code timeToLive} is null, or if {@code maxRows < 1} or
+     *                                  {@code timeToLive} is not positive.
+     */
+    public QueryCache(long maxRows, Duration timeToLive) {
+        InvalidArgumentException.throwIfNull(timeToLive, "timeToLive");
+        InvalidArgumentException.throwIf(maxRows < 1, "maxRows must be at least 1.");
+        InvalidArgumentException.throwIf(timeToLive.isNegative() || timeToLive.isZero(),
+                                         "timeToLive must be positive.");
+        this.maxRows = maxRows;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    /**
+     * @return The number of results cached.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of rows cached, across all results.
+     */
+    public synchronized long rowCount() {
+        return rows;
+    }
+
+    /**
+     * @return The number of selects answered from the cache so far.
+     */
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    /**
+     * @return The number of selects that had to be run on the database so far.
+     */
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    /**
+     * @return The number of results dropped so far because they expired or to make room for others.
+     */
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return The number of results dropped so far because one of their tables has been updated.
+     */
+    public synchronized long invalidationCount() {
+        return invalidations;
+    }
+
+    /**
+     * Drops all the cached results.
+     */
+    public synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+        rows = 0;
+        ++generation;
+    }
+
+    /**
+     * Drops the cached results of the selects reading {@code table}, as if a transaction updating it had committed.
+     * This is how to invalidate the tables written by the database itself, e.g., by cascades or triggers, or views.
+     *
+     * @param table The name of a table or view, with or without its schema, ignoring case.
+     * @throws InvalidArgumentException if {@code table} is null.
+     */
+    public synchronized void invalidate(String table) {
+        InvalidArgumentException.throwIfNull(table, "table");
+        invalidateTables(Collections.singleton(normalise(table)));
+    }
+
+    <RowType> List<RowType> get(Object rowMapper, String sql, InputParameter[] parameters,
+                                Supplier<List<RowType>> select) {
+        List<Object> values = boundValues(parameters);
+        if (values == null) {
+            synchronized (this) {
+                ++misses;
+            }
+            return Collections.unmodifiableList(select.get());
+        }
+        Key key = new Key(rowMapper, sql, values);
+        long selectGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.readAt < timeToLiveNanos) {
+                ++hits;
+                @SuppressWarnings("unchecked")
+                List<RowType> result = (List<RowType>) entry.rows;
+                return result;
+            }
+            if (entry != null) {
+                remove(key);
+                ++evictions;
+            }
+            ++misses;
+            selectGeneration = generation;
+        }
+        List<RowType> result = Collections.unmodifiableList(new ArrayList<>(select.get()));
+        synchronized (this) {
+            // An update committed while the select was running may not be in the result.
+            if (selectGeneration == generation && result.size() <= maxRows) {
+                put(key, new Entry(result, tablesReadBy(sql)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Makes {@code connection} invalidate the results of the tables it updates, when it commits.
+     */
+    void track(WrappedJDBCConnection connection) {
+        List<String> updates = new ArrayList<>();
+        connection.onUpdate(updates::add);
+        connection.onCommit(() -> {
+            invalidateWrittenBy(updates);
+            updates.clear();
+        });
+    }
+
+    synchronized void invalidateWrittenBy(List<String> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        Set<String> tables = new HashSet<>();
+        for (String sql : updates) {
+            String table = tableWrittenBy(sql);
+            if (table == null) {
+                clear();
+                return;
+            }
+            tables.add(table);
+        }
+        invalidateTables(tables);
+    }
+
+    private void invalidateTables(Set<String> tables) {
+        ++generation;
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (!Collections.disjoint(entry.tables, tables)) {
+                iterator.remove();
+                rows -= entry.rows.size();
+                ++invalidations;
+            }
+        }
+    }
+
+    static Set<String> tablesReadBy(String sql) {
+        Set<String> tables = new HashSet<>();
+        Matcher matcher = READ_TABLE.matcher(sql);
+        while (matcher.find()) {
+            tables.add(normalise(matcher.group(1)));
+        }
+        return tables;
+    }
+
+    /**
+     * @return The table written by {@code sql}, or null if it can't be told for sure, e.g., for a call, a
+     * multi-table update or delete, or a modifier the pattern doesn't know.
+     */
+    static String tableWrittenBy(String sql) {
+        Matcher matcher = WRITTEN_TABLE.matcher(sql);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String table = normalise(matcher.group(2));
+        String rest = matcher.group(3);
+        if (table.isEmpty() || NOT_TABLES.contains(table) || rest.trim().startsWith(",")) {
+            return null;
+        }
+        if (matcher.group(1).equalsIgnoreCase("UPDATE") && !UPDATE_SET.matcher(rest).matches()) {
+            return null;
+        }
+        return table;
+    }
+
+    private static String normalise(String name) {
+        String unquoted = name.replaceAll("[\"`\\[\\]]", "");
+        return unquoted.substring(unquoted.lastIndexOf('.') + 1).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Binds {@code parameters} to a statement that records the values, or returns null if any of them is null, or
+     * binds a stream, a LOB or anything else that cannot be compared.
+     */
+    private static List<Object> boundValues(InputParameter[] parameters) {
+        List<Object> values = new ArrayList<>();
+        boolean[] comparable = {true};
+        PreparedStatement recorder = (PreparedStatement) Proxy.newProxyInstance(
+                QueryCache.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, arguments) -> {
+                    if (method.getName().startsWith("set") && arguments != null && arguments.length >= 2 &&
+                        arguments[0] instanceof Integer) {
+                        List<Object> setter = new ArrayList<>(Arrays.asList(arguments));
+                        setter.add(0, method.getName());
+                        comparable[0] &= setter.stream().noneMatch(QueryCache::isUncomparable);
+                        values.add(setter);
+                    } else {
+                        comparable[0] = false;
+                    }
+                    return defaultValue(method.getReturnType());
+                });
+        try (DefaultAutoCloseableScope scope = new DefaultAutoCloseableScope()) {
+            for (int position = 0; position < parameters.length && comparable[0]; ++position) {
+                if (parameters[position] == null) {
+                    return null;
+                }
+                parameters[position].bind(recorder, position + 1, scope);
+            }
+        }
+        return comparable[0] ? values : null;
+    }
+
+    private static boolean isUncomparable(Object value) {
+        return value instanceof InputStream || value instanceof Reader || value instanceof java.sql.Blob ||
+               value instanceof java.sql.Clob || value instanceof java.sql.Array || value instanceof byte[];
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == void.class || !type.isPrimitive()) {
+            return null;
+        }
+        return type == long.class ? 0L : type == double.class ? 0.0 : type == float.class ? 0.0f : 0;
+    }
+
+    private void put(Key key, Entry entry) {
+        remove(key);
+        entries.put(key, entry);
+        rows += entry.rows.size();
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (rows > maxRows) {
+            Entry evicted = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            rows -= evicted.rows.size();
+            ++evictions;
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            rows -= removed.rows.size();
+        }
+    }
+
+    private static final class Entry {
+        final List<?> rows;
+        final Set<String> tables;
+        final long readAt = System.nanoTime();
+
+        Entry(List<?> rows, Set<String> tables) {
+            this.rows = rows;
+            this.tables = tables;
+        }
+    }
+
+    private static final class Key {
+        private final Object rowMapper;
+        private final String sql;
+        private final List<Object> values;
+        private final int hashCode;
+
+        Key(Object rowMapper, String sql, List<Object> values) {
+            this.rowMapper = rowMapper;
+            this.sql = sql;
+            this.values = values;
+            this.hashCode = Objects.hash(rowMapper, sql, values);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return rowMapper.equals(key.rowMapper) && sql.equals(key.sql) && values.equals(key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
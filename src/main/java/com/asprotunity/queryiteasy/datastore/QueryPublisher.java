@@ -0,0 +1,188 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.connection.Connection;
+import com.asprotunity.queryiteasy.connection.QueryOptions;
+import com.asprotunity.queryiteasy.connection.internal.WrappedJDBCConnection;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import com.asprotunity.queryiteasy.flow.Flow;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Publishes the rows of a query, running it in its own transaction for each subscriber. The transaction starts when
+ * the subscriber first requests rows, and the size of that request, up to {@link #MAX_FETCH_SIZE}, becomes the fetch
+ * size of the query. Rows are then read from the result set only as they are requested. The statement, result set
+ * and transaction are released as soon as the last row has been sent, the subscriber cancels, or anything fails.
+ * <p>
+ * All the work for a subscriber, including calling it, happens on {@code executor}, one task at a time, starting
+ * with {@link Flow.Subscriber#onSubscribe}, so that no other signal reaches the subscriber until that has returned,
+ * even if it requests rows from it.
+ */
+class QueryPublisher<RowType> implements Flow.Publisher<RowType> {
+
+    static final int MAX_FETCH_SIZE = 1000;
+
+    private final RuntimeSQLException.ThrowingSupplier<WrappedJDBCConnection> connectionFactory;
+    private final BiFunction<Connection, QueryOptions, Stream<RowType>> query;
+    private final Executor executor;
+
+    QueryPublisher(RuntimeSQLException.ThrowingSupplier<WrappedJDBCConnection> connectionFactory,
+                   BiFunction<Connection, QueryOptions, Stream<RowType>> query, Executor executor) {
+        this.connectionFactory = connectionFactory;
+        this.query = query;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super RowType> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        new QuerySubscription(subscriber).schedule();
+    }
+
+    private final class QuerySubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super RowType> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingWork = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile IllegalArgumentException invalidRequest;
+        // Only accessed by the task draining the rows, one at a time.
+        private WrappedJDBCConnection connection;
+        private Stream<RowType> rows;
+        private Iterator<RowType> iterator;
+        private boolean subscribed = false;
+        private boolean terminated = false;
+
+        QuerySubscription(Flow.Subscriber<? super RowType> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The number of rows requested must be positive: " +
+                                                             n + ".");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE :
+                                                                current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (pendingWork.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!terminated) {
+                    try {
+                        if (!subscribed) {
+                            subscribed = true;
+                            subscriber.onSubscribe(this);
+                        }
+                        sendRows();
+                    } catch (Throwable failure) {
+                        fail(failure);
+                    }
+                }
+                missed = pendingWork.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void sendRows() {
+            if (cancelled) {
+                terminated = true;
+                release(false);
+                return;
+            }
+            if (invalidRequest != null) {
+                fail(invalidRequest);
+                return;
+            }
+            long requested = demand.get();
+            if (requested == 0) {
+                return;
+            }
+            if (iterator == null) {
+                open((int) Math.min(requested, MAX_FETCH_SIZE));
+            }
+            long sent = 0;
+            while (sent < requested && !cancelled && invalidRequest == null) {
+                if (!iterator.hasNext()) {
+                    complete();
+                    return;
+                }
+                subscriber.onNext(iterator.next());
+                ++sent;
+            }
+            if (requested != Long.MAX_VALUE) {
+                demand.addAndGet(-sent);
+            }
+            if (!cancelled && invalidRequest == null && !iterator.hasNext()) {
+                complete();
+            }
+        }
+
+        private void open(int fetchSize) {
+            connection = RuntimeSQLException.executeWithResult(connectionFactory);
+            rows = query.apply(connection, QueryOptions.queryOptions().withFetchSize(fetchSize));
+            iterator = rows.iterator();
+        }
+
+        private void complete() {
+            release(true);
+            terminated = true;
+            subscriber.onComplete();
+        }
+
+        private void fail(Throwable failure) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            try {
+                release(false);
+            } catch (Throwable releaseFailure) {
+                failure.addSuppressed(releaseFailure);
+            }
+            subscriber.onError(failure);
+        }
+
+        private void release(boolean commit) {
+            WrappedJDBCConnection toRelease = connection;
+            Stream<RowType> toClose = rows;
+            connection = null;
+            rows = null;
+            iterator = null;
+            if (toRelease == null) {
+                return;
+            }
+            try {
+                // The rows are null if the query failed after the connection has been opened.
+                if (toClose != null) {
+                    toClose.close();
+                }
+                if (commit) {
+                    toRelease.commit();
+                }
+            } finally {
+                toRelease.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.connection.Batch;
+import com.asprotunity.queryiteasy.connection.internal.WrappedJDBCConnection;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import com.asprotunity.queryiteasy.flow.Flow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Writes the items it receives with an update, see {@link DataStore#updateSubscriber(String, Function, int, Commit)}.
+ * <p>
+ * It requests {@code chunkSize} items at a time, and writes them with a single
+ * {@link com.asprotunity.queryiteasy.connection.Connection#update(String, List)} when they have all arrived, or when
+ * the publisher completes. More items are requested only after the chunk has been written (and committed, with
+ * {@link Commit#EACH_CHUNK}), so the publisher is slowed down to the pace of the database, and at most
+ * {@code chunkSize} items are held in memory. The writes run on the thread calling {@link #onNext(Object)} or
+ * {@link #onComplete()}.
+ * <p>
+ * If the publisher fails, or an item cannot be written, the current transaction is rolled back, the subscription
+ * cancelled, and {@link #written()} completes exceptionally.
+ *
+ * @param <ItemType> The type of the items written.
+ */
+public class UpdateSubscriber<ItemType> implements Flow.Subscriber<ItemType> {
+
+    /**
+     * When the written items are committed.
+     */
+    public enum Commit {
+        /**
+         * Each chunk is written and committed in its own transaction, so the items written before a failure stay
+         * committed.
+         */
+        EACH_CHUNK,
+        /**
+         * All the chunks are written in a single transaction, committed when the publisher completes.
+         */
+        AT_END
+    }
+
+    private final RuntimeSQLException.ThrowingSupplier<WrappedJDBCConnection> connectionFactory;
+    private final String sql;
+    private final Function<? super ItemType, Batch> toBatch;
+    private final int chunkSize;
+    private final Commit commit;
+    private final CompletableFuture<Long> written = new CompletableFuture<>();
+    private List<Batch> chunk;
+    private Flow.Subscription subscription;
+    private WrappedJDBCConnection connection;
+    private long writtenCount = 0;
+    private long uncommittedCount = 0;
+    private boolean done = false;
+
+    UpdateSubscriber(RuntimeSQLException.ThrowingSupplier<WrappedJDBCConnection> connectionFactory, String sql,
+                     Function<? super ItemType, Batch> toBatch, int chunkSize, Commit commit) {
+        this.connectionFactory = connectionFactory;
+        this.sql = sql;
+        this.toBatch = toBatch;
+        this.chunkSize = chunkSize;
+        this.commit = commit;
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    /**
+     * @return A future completed with the number of items written and committed when the publisher completes, or
+     * exceptionally when it fails or the items cannot be written.
+     */
+    public CompletableFuture<Long> written() {
+        return written;
+    }
+
+    @Override
+    public synchronized void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription, "subscription");
+        if (this.subscription != null || done) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(chunkSize);
+    }
+
+    @Override
+    public synchronized void onNext(ItemType item) {
+        Objects.requireNonNull(item, "item");
+        if (done) {
+            return;
+        }
+        try {
+            chunk.add(toBatch.apply(item));
+            if (chunk.size() == chunkSize) {
+                writeChunk();
+                subscription.request(chunkSize);
+            }
+        } catch (RuntimeException exception) {
+            subscription.cancel();
+            fail(exception);
+        }
+    }
+
+    @Override
+    public synchronized void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable, "throwable");
+        if (!done) {
+            fail(throwable);
+        }
+    }
+
+    @Override
+    public synchronized void onComplete() {
+        if (done) {
+            return;
+        }
+        try {
+            writeChunk();
+            if (connection != null) {
+                commitAndRelease();
+            }
+            done = true;
+            written.complete(writtenCount);
+        } catch (RuntimeException exception) {
+            fail(exception);
+        }
+    }
+
+    private void writeChunk() {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        if (connection == null) {
+            connection = RuntimeSQLException.executeWithResult(connectionFactory);
+        }
+        connection.update(sql, chunk);
+        uncommittedCount += chunk.size();
+        chunk = new ArrayList<>(chunkSize);
+        if (commit == Commit.EACH_CHUNK) {
+            commitAndRelease();
+        }
+    }
+
+    private void commitAndRelease() {
+        connection.commit();
+        writtenCount += uncommittedCount;
+        uncommittedCount = 0;
+        release();
+    }
+
+    private void fail(Throwable failure) {
+        done = true;
+        chunk = null;
+        try {
+            release();
+        } catch (RuntimeException releaseFailure) {
+            failure.addSuppressed(releaseFailure);
+        }
+        written.completeExceptionally(failure);
+    }
+
+    private void release() {
+        WrappedJDBCConnection toRelease = connection;
+        connection = null;
+        if (toRelease != null) {
+            toRelease.close();
+        }
+    }
+}
@@ -12,6 +12,9 @@ public class InvalidArgumentException extends RuntimeException {
     }
 
     public static void throwIfNull(Object object, String parameterName) {
-        throwIf(object == null, parameterName + " cannot be null.");
+        // Builds the message only when throwing: this runs for every parameter of every batch.
+        if (object == null) {
+            throw new InvalidArgumentException(parameterName + " cannot be null.");
+        }
     }
 }
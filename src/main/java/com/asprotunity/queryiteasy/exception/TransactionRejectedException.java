@@ -0,0 +1,11 @@
+package com.asprotunity.queryiteasy.exception;
+
+/**
+ * Thrown when an asynchronous transaction is not run because too many are already running or waiting, or because it
+ * waited to start for longer than allowed. See {@code AdmissionControl}.
+ */
+public class TransactionRejectedException extends RuntimeException {
+    public TransactionRejectedException(String message) {
+        super(message);
+    }
+}
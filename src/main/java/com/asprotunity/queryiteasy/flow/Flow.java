@@ -0,0 +1,60 @@
+package com.asprotunity.queryiteasy.flow;
+
+/**
+ * The Reactive Streams interfaces, with the same methods and semantics as {@code java.util.concurrent.Flow} and
+ * {@code org.reactivestreams}. They are defined here because this library is built for Java 8, which doesn't have
+ * them, and has no dependencies. Adapting to either is a matter of forwarding each method, e.g.,
+ * <pre>
+ * {@code
+ *   java.util.concurrent.Flow.Publisher<Song> publisher =
+ *           subscriber -> songs.subscribe(new Flow.Subscriber<Song>() { ... forward each method ... });
+ * }
+ * </pre>
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    /**
+     * A source of items, sent to each subscriber only as they request them.
+     */
+    @FunctionalInterface
+    public interface Publisher<ItemType> {
+        /**
+         * Adds {@code subscriber}, calling its {@link Subscriber#onSubscribe(Subscription)} first.
+         *
+         * @throws NullPointerException if {@code subscriber} is null.
+         */
+        void subscribe(Subscriber<? super ItemType> subscriber);
+    }
+
+    /**
+     * Receives the items of a {@link Publisher}. Its methods are called one at a time, never concurrently.
+     */
+    public interface Subscriber<ItemType> {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(ItemType item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * Links a {@link Publisher} to one of its {@link Subscriber}s.
+     */
+    public interface Subscription {
+        /**
+         * Requests {@code n} more items. A non positive {@code n} makes the publisher signal an
+         * {@link IllegalArgumentException} to the subscriber.
+         */
+        void request(long n);
+
+        /**
+         * Asks the publisher to stop sending items and release its resources.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,123 @@
+package com.asprotunity.queryiteasy.metrics;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts latencies in logarithmic buckets: each power of two is split into eight buckets, so a percentile is reported
+ * within 12.5% of the actual value, whatever the scale, with a fixed footprint of 488 counters. Recording a latency
+ * is lock free and doesn't allocate.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param nanos The latency to record, in nanoseconds. Negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    /**
+     * @return The latencies recorded so far. Latencies recorded while it is taken may or may not be included.
+     */
+    public Snapshot snapshot() {
+        long[] snapshotCounts = new long[BUCKETS];
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+            snapshotCounts[bucket] = counts.get(bucket);
+            count += snapshotCounts[bucket];
+        }
+        return new Snapshot(snapshotCounts, count, totalNanos.sum(), maxNanos.get());
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * The latencies recorded by a {@link LatencyHistogram} up to a point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * @return The number of latencies recorded.
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return The average latency, zero if none has been recorded.
+         */
+        public Duration mean() {
+            return Duration.ofNanos(count == 0 ? 0 : totalNanos / count);
+        }
+
+        /**
+         * @return The highest latency recorded, zero if none has been recorded.
+         */
+        public Duration max() {
+            return Duration.ofNanos(maxNanos);
+        }
+
+        /**
+         * @param percentile The percentage of latencies that must be lower or equal to the one returned, e.g., 99.
+         * @return The latency below which {@code percentile} percent of the latencies fall, rounded up to the top of
+         * its bucket and never more than {@link #max()}; zero if none has been recorded.
+         * @throws InvalidArgumentException if {@code percentile} is not between 0 and 100.
+         */
+        public Duration percentile(double percentile) {
+            InvalidArgumentException.throwIf(!(percentile >= 0 && percentile <= 100),
+                                             "percentile must be between 0 and 100.");
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length && count > 0; ++bucket) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    return Duration.ofNanos(Math.min(highestValueIn(bucket), maxNanos));
+                }
+            }
+            return Duration.ofNanos(count == 0 ? 0 : maxNanos);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.asprotunity.queryiteasy.metrics;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the {@link StatementMetrics} of the statements executed by a DataStore, see
+ * {@code DataStore.withMetrics(QueryMetrics)}, grouped by normalised SQL: runs of white space become a single space,
+ * and string and numeric literals become question marks, so statements differing only in their literal values are
+ * counted together.
+ * <p>
+ * The same instance can be shared by several DataStores, to count their statements together.
+ */
+public class QueryMetrics {
+
+    private static final int MAX_CACHED_SQL = 10_000;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("(?<![\\w$.])[-+]?\\d+(?:\\.\\d+)?(?![\\w$])");
+    private static final Pattern WHITE_SPACE = Pattern.compile("\\s+");
+
+    private final ConcurrentHashMap<String, StatementMetrics> byNormalisedSql = new ConcurrentHashMap<>();
+    // Most SQL is a constant in the caller's code, so this saves normalising it at each execution.
+    private final ConcurrentHashMap<String, StatementMetrics> bySql = new ConcurrentHashMap<>();
+
+    /**
+     * @param sql The SQL of a statement, as executed.
+     * @return The metrics of the statements with the same normalised SQL as {@code sql}, created if needed.
+     * @throws InvalidArgumentException if {@code sql == null}.
+     */
+    public StatementMetrics forSql(String sql) {
+        InvalidArgumentException.throwIfNull(sql, "sql");
+        StatementMetrics metrics = bySql.get(sql);
+        if (metrics != null) {
+            return metrics;
+        }
+        metrics = byNormalisedSql.computeIfAbsent(normalise(sql), StatementMetrics::new);
+        if (bySql.size() < MAX_CACHED_SQL) {
+            bySql.put(sql, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * @return The metrics of all the statements executed so far.
+     */
+    public Collection<StatementMetrics> statements() {
+        return Collections.unmodifiableCollection(byNormalisedSql.values());
+    }
+
+    /**
+     * Forgets all the metrics collected so far.
+     */
+    public void clear() {
+        bySql.clear();
+        byNormalisedSql.clear();
+    }
+
+    static String normalise(String sql) {
+        String withoutStrings = STRING_LITERAL.matcher(sql).replaceAll("?");
+        String withoutNumbers = NUMERIC_LITERAL.matcher(withoutStrings).replaceAll("?");
+        return WHITE_SPACE.matcher(withoutNumbers).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,81 @@
+package com.asprotunity.queryiteasy.metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A statement recorded by a {@link SlowQueryLog}.
+ */
+public final class SlowQuery {
+    private final Instant loggedAt;
+    private final Duration duration;
+    private final String sql;
+    private final String parameters;
+    private final long rowCount;
+    private final long transactionId;
+    private final String threadName;
+
+    SlowQuery(Instant loggedAt, Duration duration, String sql, String parameters, long rowCount, long transactionId,
+              String threadName) {
+        this.loggedAt = loggedAt;
+        this.duration = duration;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.rowCount = rowCount;
+        this.transactionId = transactionId;
+        this.threadName = threadName;
+    }
+
+    /**
+     * @return When the statement completed.
+     */
+    public Instant loggedAt() {
+        return loggedAt;
+    }
+
+    /**
+     * @return The time from the start of the prepare to the end of the last execute or fetch.
+     */
+    public Duration duration() {
+        return duration;
+    }
+
+    public String sql() {
+        return sql;
+    }
+
+    /**
+     * @return The values bound, e.g., {@code [42, 'abc']}, see
+     * {@link com.asprotunity.queryiteasy.connection.InputParameter#describe()}.
+     */
+    public String parameters() {
+        return parameters;
+    }
+
+    /**
+     * @return The rows read by a select or call, or updated by an update.
+     */
+    public long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The number identifying the transaction that ran the statement, unique in the JVM.
+     */
+    public long transactionId() {
+        return transactionId;
+    }
+
+    /**
+     * @return The name of the thread that ran the statement.
+     */
+    public String threadName() {
+        return threadName;
+    }
+
+    @Override
+    public String toString() {
+        return loggedAt + " " + duration.toMillis() + " ms, " + rowCount + " rows, transaction " + transactionId +
+               " on " + threadName + ": " + sql + " " + parameters;
+    }
+}
@@ -0,0 +1,150 @@
+package com.asprotunity.queryiteasy.metrics;
+
+import com.asprotunity.queryiteasy.connection.StatementContext;
+import com.asprotunity.queryiteasy.connection.StatementListener;
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the statements of a DataStore that take longer than a threshold, see
+ * {@code DataStore.withSlowQueryLog(SlowQueryLog)}, measured from the start of their prepare to the end of their last
+ * execute or fetch, with their SQL, bound values, row count and transaction.
+ * <p>
+ * The last {@code capacity} slow statements are kept in a ring buffer, written without locks, and about
+ * {@code maxPerSecond} are recorded in each second, so that a database stall doesn't turn into a flood of records;
+ * the others are only counted. A statement under the threshold is only compared with it, without allocating.
+ * <p>
+ * Since only the {@code completed} phase is needed, statements are not timed phase by phase: a statement costs a few
+ * calls to {@link System#nanoTime()}, and its connection reuses the same {@link StatementContext} for each statement
+ * once the previous one has completed. The end of a select is the end of its last fetch if all its rows were read,
+ * else the time its stream was closed.
+ * <p>
+ * Bound values are recorded as rendered by {@link com.asprotunity.queryiteasy.connection.InputParameter#describe()},
+ * so keep the log away from statements binding secrets.
+ */
+public final class SlowQueryLog implements StatementListener {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long thresholdNanos;
+    private final int maxPerSecond;
+    private final AtomicReferenceArray<SlowQuery> entries;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong sampledSecond = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong sampledInSecond = new AtomicLong();
+    private final LongAdder slowCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+
+    /**
+     * @param threshold The statements taking longer than this are slow.
+     * @param capacity The number of slow statements kept; older ones are overwritten.
+     * @param maxPerSecond The maximum number of slow statements recorded each second.
+     * @throws InvalidArgumentException if {@code threshold} is null or negative, or if {@code capacity < 1} or
+     *                                  {@code maxPerSecond < 1}.
+     */
+    public SlowQueryLog(Duration threshold, int capacity, int maxPerSecond) {
+        InvalidArgumentException.throwIfNull(threshold, "threshold");
+        InvalidArgumentException.throwIf(threshold.isNegative(), "threshold cannot be negative.");
+        InvalidArgumentException.throwIf(capacity < 1, "capacity must be at least 1.");
+        InvalidArgumentException.throwIf(maxPerSecond < 1, "maxPerSecond must be at least 1.");
+        this.thresholdNanos = threshold.toNanos();
+        this.maxPerSecond = maxPerSecond;
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public boolean listensToPhases() {
+        return false;
+    }
+
+    @Override
+    public void completed(StatementContext context) {
+        if (context.elapsedNanos() <= thresholdNanos) {
+            return;
+        }
+        slowCount.increment();
+        if (!sample(context.endNanos())) {
+            droppedCount.increment();
+            return;
+        }
+        SlowQuery slowQuery = new SlowQuery(Instant.now(), Duration.ofNanos(context.elapsedNanos()), context.sql(),
+                                            context.describeParameters(), context.rowCount(),
+                                            context.transactionId(), Thread.currentThread().getName());
+        long index = written.getAndIncrement();
+        entries.set((int) (index % entries.length()), slowQuery);
+    }
+
+    /**
+     * @return The slow statements kept, oldest first. Statements recorded while this runs may or may not be included.
+     */
+    public List<SlowQuery> entries() {
+        long end = written.get();
+        long start = Math.max(0, end - entries.length());
+        List<SlowQuery> result = new ArrayList<>((int) (end - start));
+        for (long index = start; index < end; ++index) {
+            SlowQuery slowQuery = entries.get((int) (index % entries.length()));
+            if (slowQuery != null) {
+                result.add(slowQuery);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the slow statements kept, oldest first, one per line.
+     *
+     * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+     */
+    public void dump(Appendable output) {
+        InvalidArgumentException.throwIfNull(output, "output");
+        try {
+            for (SlowQuery slowQuery : entries()) {
+                output.append(slowQuery.toString()).append(System.lineSeparator());
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * @return The number of slow statements so far, recorded or not.
+     */
+    public long slowCount() {
+        return slowCount.sum();
+    }
+
+    /**
+     * @return The number of slow statements not recorded so far, because too many were recorded in the same second.
+     */
+    public long droppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Forgets the slow statements kept so far. The counts are not reset.
+     */
+    public void clear() {
+        for (int index = 0; index < entries.length(); ++index) {
+            entries.set(index, null);
+        }
+    }
+
+    private boolean sample(long nowNanos) {
+        long second = Math.floorDiv(nowNanos, NANOS_PER_SECOND);
+        long current = sampledSecond.get();
+        if (second > current && sampledSecond.compareAndSet(current, second)) {
+            sampledInSecond.set(0);
+        }
+        return sampledInSecond.incrementAndGet() <= maxPerSecond;
+    }
+}
@@ -0,0 +1,86 @@
+package com.asprotunity.queryiteasy.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of the statements sharing the same normalised SQL, see {@link QueryMetrics}. The counters are striped,
+ * so threads recording at the same time don't contend on them.
+ */
+public final class StatementMetrics {
+
+    private final String sql;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rowsReturned = new LongAdder();
+    private final LongAdder rowsUpdated = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    StatementMetrics(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * @return The normalised SQL of the statements.
+     */
+    public String sql() {
+        return sql;
+    }
+
+    /**
+     * @return The number of successful executions.
+     */
+    public long executionCount() {
+        return executions.sum();
+    }
+
+    /**
+     * @return The number of executions that failed.
+     */
+    public long errorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * @return The number of rows read from the result sets of the statements.
+     */
+    public long rowsReturned() {
+        return rowsReturned.sum();
+    }
+
+    /**
+     * @return The number of rows updated, as reported by the driver.
+     */
+    public long rowsUpdated() {
+        return rowsUpdated.sum();
+    }
+
+    /**
+     * @return The latencies of the successful executions: for updates and calls the time to execute them, for
+     * selects the time until the first results are available, i.e., not including reading the rows.
+     */
+    public LatencyHistogram.Snapshot latency() {
+        return latency.snapshot();
+    }
+
+    public void recordExecution(long nanos) {
+        executions.increment();
+        latency.record(nanos);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public void addRowsReturned(long rows) {
+        rowsReturned.add(rows);
+    }
+
+    /**
+     * @param rows The number of rows updated. Negative values, used by JDBC when the count is unknown, are ignored.
+     */
+    public void addRowsUpdated(long rows) {
+        if (rows > 0) {
+            rowsUpdated.add(rows);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import static com.asprotunity.queryiteasy.connection.BatchBuilder.ColumnType.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class BatchBuilderTest {
+
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    @Test
+    public void binds_each_row_with_the_setter_of_its_column_type() throws SQLException {
+        Timestamp timestamp = new Timestamp(0);
+        BatchBuilder builder = BatchBuilder.columns(INT, LONG, DOUBLE, STRING, BIG_DECIMAL, TIMESTAMP);
+
+        builder.setInt(1, 1).setLong(2, 2L).setDouble(3, 3.5).setString(4, "four")
+               .setBigDecimal(5, BigDecimal.TEN).setTimestamp(6, timestamp).addRow();
+        builder.bindRow(0, statement);
+
+        InOrder order = inOrder(statement);
+        order.verify(statement).setInt(1, 1);
+        order.verify(statement).setLong(2, 2L);
+        order.verify(statement).setDouble(3, 3.5);
+        order.verify(statement).setString(4, "four");
+        order.verify(statement).setBigDecimal(5, BigDecimal.TEN);
+        order.verify(statement).setTimestamp(6, timestamp);
+        verifyNoMoreInteractions(statement);
+    }
+
+    @Test
+    public void binds_nulls_with_the_sql_type_of_their_column() throws SQLException {
+        BatchBuilder builder = BatchBuilder.columns(INT, STRING);
+
+        builder.setNull(1).setString(2, null).addRow();
+        builder.bindRow(0, statement);
+
+        verify(statement).setNull(1, Types.INTEGER);
+        verify(statement).setNull(2, Types.VARCHAR);
+        verifyNoMoreInteractions(statement);
+    }
+
+    @Test
+    public void grows_to_hold_as_many_rows_as_added() throws SQLException {
+        BatchBuilder builder = BatchBuilder.columns(LONG, STRING);
+
+        for (int row = 0; row < 1000; ++row) {
+            builder.setLong(1, row).setString(2, "row " + row).addRow();
+        }
+        builder.bindRow(999, statement);
+
+        assertThat(builder.rowCount(), is(1000));
+        verify(statement).setLong(1, 999L);
+        verify(statement).setString(2, "row 999");
+    }
+
+    @Test
+    public void forgets_the_rows_when_cleared() {
+        BatchBuilder builder = BatchBuilder.columns(INT);
+        builder.setInt(1, 1).addRow();
+
+        builder.clear();
+
+        assertThat(builder.rowCount(), is(0));
+        assertThat(builder.columnCount(), is(1));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_a_column_of_the_row_has_not_been_set() {
+        BatchBuilder.columns(INT, INT).setInt(1, 1).addRow();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_the_setter_does_not_match_the_column_type() {
+        BatchBuilder.columns(INT).setLong(1, 1L);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_position_is_out_of_range() {
+        BatchBuilder.columns(INT).setInt(2, 1);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_binding_a_row_not_added() throws SQLException {
+        BatchBuilder builder = BatchBuilder.columns(INT);
+        builder.setInt(1, 1);
+
+        builder.bindRow(0, statement);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_a_column_type_is_null() {
+        BatchBuilder.columns(INT, (BatchBuilder.ColumnType) null);
+    }
+}
@@ -0,0 +1,143 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ColumnarResultTest {
+
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private final ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+
+    @Before
+    public void setUp() throws SQLException {
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(4);
+        when(metaData.getColumnLabel(1)).thenReturn("ID");
+        when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+        when(metaData.getColumnLabel(2)).thenReturn("TOTAL");
+        when(metaData.getColumnType(2)).thenReturn(Types.BIGINT);
+        when(metaData.getColumnLabel(3)).thenReturn("PRICE");
+        when(metaData.getColumnType(3)).thenReturn(Types.DOUBLE);
+        when(metaData.getColumnLabel(4)).thenReturn("NAME");
+        when(metaData.getColumnType(4)).thenReturn(Types.VARCHAR);
+    }
+
+    @Test
+    public void reads_columns_into_typed_arrays() throws SQLException {
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getInt(1)).thenReturn(1, 2);
+        when(resultSet.getLong(2)).thenReturn(10L, 20L);
+        when(resultSet.getDouble(3)).thenReturn(0.5, 1.5);
+        when(resultSet.getString(4)).thenReturn("first", "second");
+
+        ColumnarResult result = ColumnarResult.read(resultSet);
+
+        assertThat(result.rowCount(), is(2));
+        assertThat(result.columnCount(), is(4));
+        assertThat(result.columnType(1), is(ColumnarResult.ColumnType.INT));
+        assertThat(result.columnType(2), is(ColumnarResult.ColumnType.LONG));
+        assertThat(result.columnType(3), is(ColumnarResult.ColumnType.DOUBLE));
+        assertThat(result.columnType(4), is(ColumnarResult.ColumnType.STRING));
+        assertThat(result.ints(1).toArray(), is(new int[]{1, 2}));
+        assertThat(result.getLong(2, 1), is(20L));
+        assertThat(result.doubles(3).sum(), is(2.0));
+        assertThat(result.strings(4).collect(toList()), contains("first", "second"));
+    }
+
+    @Test
+    public void tracks_nulls_and_encodes_repeated_strings_once() throws SQLException {
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getInt(1)).thenReturn(1, 0, 3);
+        when(resultSet.wasNull()).thenReturn(false, false, false, true, false, false, false, false, false);
+        String repeated = new String("same");
+        when(resultSet.getString(4)).thenReturn("same", null, repeated);
+
+        ColumnarResult result = ColumnarResult.read(resultSet);
+
+        assertThat(result.isNull(1, 0), is(false));
+        assertThat(result.isNull(1, 1), is(true));
+        assertThat(result.getInt(1, 1), is(0));
+        assertThat(result.isNull(4, 1), is(true));
+        assertThat(result.getString(4, 1), is(nullValue()));
+        assertThat(result.getString(4, 0) == result.getString(4, 2), is(true));
+    }
+
+    @Test
+    public void reads_many_rows_growing_the_arrays() throws SQLException {
+        int rows = 1000;
+        when(metaData.getColumnCount()).thenReturn(1);
+        int[] rowsRead = {0};
+        when(resultSet.next()).thenAnswer(invocation -> rowsRead[0]++ < rows);
+        when(resultSet.getInt(1)).thenReturn(1);
+        when(resultSet.wasNull()).thenReturn(true);
+
+        ColumnarResult result = ColumnarResult.read(resultSet);
+
+        assertThat(result.rowCount(), is(rows));
+        assertThat(result.isNull(1, rows - 1), is(true));
+    }
+
+    @Test
+    public void stores_decimals_without_losing_precision() throws SQLException {
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnType(1)).thenReturn(Types.NUMERIC);
+        when(metaData.getPrecision(1)).thenReturn(19);
+        when(metaData.getColumnType(2)).thenReturn(Types.NUMERIC);
+        when(metaData.getPrecision(2)).thenReturn(18);
+        when(metaData.getColumnType(3)).thenReturn(Types.DECIMAL);
+        when(metaData.getPrecision(3)).thenReturn(10);
+        when(metaData.getScale(3)).thenReturn(2);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString(1)).thenReturn("9007199254740993");
+        when(resultSet.getLong(2)).thenReturn(9007199254740993L);
+        when(resultSet.getString(3)).thenReturn("0.10");
+
+        ColumnarResult result = ColumnarResult.read(resultSet);
+
+        assertThat(result.columnType(1), is(ColumnarResult.ColumnType.STRING));
+        assertThat(result.getString(1, 0), is("9007199254740993"));
+        assertThat(result.columnType(2), is(ColumnarResult.ColumnType.LONG));
+        assertThat(result.getLong(2, 0), is(9007199254740993L));
+        assertThat(result.columnType(3), is(ColumnarResult.ColumnType.STRING));
+        assertThat(result.getString(3, 0), is("0.10"));
+        verify(resultSet, never()).getDouble(anyInt());
+    }
+
+    @Test
+    public void finds_columns_by_label_ignoring_case() throws SQLException {
+        ColumnarResult result = ColumnarResult.read(resultSet);
+
+        assertThat(result.columnIndex("price"), is(3));
+        assertThat(result.columnLabel(3), is("PRICE"));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_reading_column_as_another_type() throws SQLException {
+        when(resultSet.next()).thenReturn(true, false);
+
+        ColumnarResult.read(resultSet).getInt(4, 0);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_row_does_not_exist() throws SQLException {
+        ColumnarResult.read(resultSet).getInt(1, 0);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_label_does_not_exist() throws SQLException {
+        ColumnarResult.read(resultSet).columnIndex("missing");
+    }
+}
@@ -69,11 +69,19 @@ public class InputParameterBindersTest {
 
     @Test
     public void binds_valid_longs() throws Exception {
-        long value = 10;
+        Long value = 10L;
         InputParameterBinders.bindLong(value).bind(preparedStatement, position, scope);
         verify(preparedStatement, times(1)).setObject(position, value, Types.BIGINT);
     }
 
+    @Test
+    public void binds_primitive_longs_with_set_long_instead_of_set_object() throws Exception {
+        long value = 10;
+        InputParameterBinders.bindLong(value).bind(preparedStatement, position, scope);
+        verify(preparedStatement, times(1)).setLong(position, value);
+        verify(preparedStatement, never()).setObject(anyInt(), any(), anyInt());
+    }
+
     @Test
     public void binds_null_longs() throws Exception {
         InputParameterBinders.bindLong(null).bind(preparedStatement, position, scope);
@@ -82,11 +90,45 @@ public class InputParameterBindersTest {
 
     @Test
     public void binds_valid_doubles() throws Exception {
-        double value = 10;
+        Double value = 10.0;
         InputParameterBinders.bindDouble(value).bind(preparedStatement, position, scope);
         verify(preparedStatement, times(1)).setObject(position, value, Types.DOUBLE);
     }
 
+    @Test
+    public void binds_primitive_doubles_with_set_double_instead_of_set_object() throws Exception {
+        double value = 10;
+        InputParameterBinders.bindDouble(value).bind(preparedStatement, position, scope);
+        verify(preparedStatement, times(1)).setDouble(position, value);
+        verify(preparedStatement, never()).setObject(anyInt(), any(), anyInt());
+    }
+
+    @Test
+    public void binds_primitive_ints_longs_and_doubles_without_boxing() throws Exception {
+        InputParameterBinders.bindInt(10).bind(preparedStatement, 1, scope);
+        InputParameterBinders.bindLong(20L).bind(preparedStatement, 2, scope);
+        InputParameterBinders.bindDouble(0.5).bind(preparedStatement, 3, scope);
+
+        verify(preparedStatement, times(1)).setInt(1, 10);
+        verify(preparedStatement, times(1)).setLong(2, 20L);
+        verify(preparedStatement, times(1)).setDouble(3, 0.5);
+    }
+
+    @Test
+    public void binds_primitive_parameters_directly_through_the_monomorphic_path() throws Exception {
+        PrimitiveParameter.bind(InputParameterBinders.bindLong(Long.MIN_VALUE), preparedStatement, 1, scope);
+        PrimitiveParameter.bind(InputParameterBinders.bindString("a"), preparedStatement, 2, scope);
+
+        verify(preparedStatement, times(1)).setLong(1, Long.MIN_VALUE);
+        verify(preparedStatement, times(1)).setString(2, "a");
+    }
+
+    @Test
+    public void describes_primitive_values() {
+        assertThat(InputParameterBinders.bindInt(-3).describe(), is("-3"));
+        assertThat(InputParameterBinders.bindDouble(1.5).describe(), is("1.5"));
+    }
+
     @Test
     public void binds_null_doubles() throws Exception {
         InputParameterBinders.bindDouble(null).bind(preparedStatement, position, scope);
@@ -209,4 +251,26 @@ public class InputParameterBindersTest {
         scope.close();
         verify(blobReader, times(1)).close();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void describes_the_values_bound_as_sql_literals() {
+        assertThat(InputParameterBinders.bindInteger(42).describe(), is("42"));
+        assertThat(InputParameterBinders.bindBoolean(true).describe(), is("true"));
+        assertThat(InputParameterBinders.bindString("it's").describe(), is("'it''s'"));
+        assertThat(InputParameterBinders.bindDouble(null).describe(), is("NULL"));
+        assertThat(InputParameterBinders.bindByteArray(new byte[3]).describe(), is("<3 bytes>"));
+        assertThat(InputParameterBinders.bindBlob(() -> null).describe(), is("<blob>"));
+    }
+
+    @Test
+    public void truncates_long_descriptions() {
+        StringBuilder value = new StringBuilder();
+        for (int index = 0; index < 100; ++index) {
+            value.append('a');
+        }
+
+        String description = InputParameterBinders.bindString(value.toString()).describe();
+
+        assertThat(description.length(), is(64 + "''...".length()));
+    }
+}
@@ -0,0 +1,170 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class OffHeapResultTest {
+
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private final ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+
+    @Before
+    public void setUp() throws SQLException {
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(4);
+        when(metaData.getColumnLabel(1)).thenReturn("ID");
+        when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+        when(metaData.getColumnLabel(2)).thenReturn("TOTAL");
+        when(metaData.getColumnType(2)).thenReturn(Types.BIGINT);
+        when(metaData.getColumnLabel(3)).thenReturn("PRICE");
+        when(metaData.getColumnType(3)).thenReturn(Types.DOUBLE);
+        when(metaData.getColumnLabel(4)).thenReturn("NAME");
+        when(metaData.getColumnType(4)).thenReturn(Types.VARCHAR);
+    }
+
+    @Test
+    public void encodes_rows_and_reads_them_back_with_a_cursor() throws SQLException {
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getInt(1)).thenReturn(1, 0);
+        when(resultSet.getLong(2)).thenReturn(10L, 20L);
+        when(resultSet.getDouble(3)).thenReturn(0.5, 1.5);
+        when(resultSet.getString(4)).thenReturn("caf\u00e9", (String) null);
+        when(resultSet.wasNull()).thenReturn(false, false, false, true, false, false);
+
+        OffHeapResult result = OffHeapResult.read(resultSet, OffHeapResult.DEFAULT_CHUNK_SIZE, Long.MAX_VALUE);
+        OffHeapResult.Cursor row = result.cursor();
+
+        assertThat(result.rowCount(), is(2));
+        assertThat(result.columnIndex("name"), is(4));
+        assertThat(row.next(), is(true));
+        assertThat(row.getInt(1), is(1));
+        assertThat(row.getLong(2), is(10L));
+        assertThat(row.getDouble(3), is(0.5));
+        assertThat(row.getString(4), is("caf\u00e9"));
+        assertThat(row.isNull(1), is(false));
+        assertThat(row.next(), is(true));
+        assertThat(row.isNull(1), is(true));
+        assertThat(row.getLong(1), is(0L));
+        assertThat(row.getDouble(3), is(1.5));
+        assertThat(row.isNull(4), is(true));
+        assertThat(row.getString(4), is(nullValue()));
+        assertThat(row.next(), is(false));
+    }
+
+    @Test
+    public void starts_a_new_chunk_when_a_row_does_not_fit() throws SQLException {
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getInt(1)).thenReturn(1, 2, 3);
+
+        OffHeapResult result = OffHeapResult.read(resultSet, 18, Long.MAX_VALUE);
+        OffHeapResult.Cursor row = result.cursor();
+
+        assertThat(result.sizeInBytes(), is(36L));
+        for (int expected = 1; expected <= 3; ++expected) {
+            assertThat(row.next(), is(true));
+            assertThat(row.getInt(1), is(expected));
+        }
+        assertThat(row.next(), is(false));
+    }
+
+    @Test
+    public void gives_rows_longer_than_the_chunk_size_a_chunk_of_their_own() throws SQLException {
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnType(1)).thenReturn(Types.VARCHAR);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString(1)).thenReturn("a string longer than the chunk");
+
+        OffHeapResult.Cursor row = OffHeapResult.read(resultSet, 8, Long.MAX_VALUE).cursor();
+
+        assertThat(row.next(), is(true));
+        assertThat(row.getString(1), is("a string longer than the chunk"));
+    }
+
+    @Test
+    public void reads_each_column_once_in_order_growing_the_row_for_long_strings() throws SQLException {
+        String longString = String.join("", Collections.nCopies(300, "x"));
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnType(1)).thenReturn(Types.VARCHAR);
+        when(metaData.getColumnType(2)).thenReturn(Types.INTEGER);
+        when(metaData.getColumnType(3)).thenReturn(Types.VARCHAR);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString(1)).thenReturn(longString);
+        when(resultSet.getInt(2)).thenReturn(7);
+        when(resultSet.getString(3)).thenReturn("last");
+
+        OffHeapResult.Cursor row = OffHeapResult.read(resultSet, 8, Long.MAX_VALUE).cursor();
+
+        InOrder inOrder = inOrder(resultSet);
+        inOrder.verify(resultSet).getString(1);
+        inOrder.verify(resultSet).getInt(2);
+        inOrder.verify(resultSet).getString(3);
+        verify(resultSet, times(1)).getString(1);
+        assertThat(row.next(), is(true));
+        assertThat(row.getString(1), is(longString));
+        assertThat(row.getInt(2), is(7));
+        assertThat(row.getString(3), is("last"));
+    }
+
+    @Test
+    public void stores_decimals_without_losing_precision() throws SQLException {
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnType(1)).thenReturn(Types.NUMERIC);
+        when(metaData.getPrecision(1)).thenReturn(18);
+        when(metaData.getColumnType(2)).thenReturn(Types.DECIMAL);
+        when(metaData.getPrecision(2)).thenReturn(10);
+        when(metaData.getScale(2)).thenReturn(2);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(1)).thenReturn(9007199254740993L);
+        when(resultSet.getString(2)).thenReturn("0.10");
+
+        OffHeapResult result = OffHeapResult.read(resultSet, OffHeapResult.DEFAULT_CHUNK_SIZE, Long.MAX_VALUE);
+        OffHeapResult.Cursor row = result.cursor();
+
+        assertThat(result.columnType(1), is(ColumnarResult.ColumnType.LONG));
+        assertThat(result.columnType(2), is(ColumnarResult.ColumnType.STRING));
+        assertThat(row.next(), is(true));
+        assertThat(row.getLong(1), is(9007199254740993L));
+        assertThat(row.getString(2), is("0.10"));
+    }
+
+    @Test(expected = RuntimeSQLException.class)
+    public void throws_exception_when_rows_need_more_than_max_size() throws SQLException {
+        when(resultSet.next()).thenReturn(true, true, false);
+
+        OffHeapResult.read(resultSet, 64, 64);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_reading_column_as_another_type() throws SQLException {
+        when(resultSet.next()).thenReturn(true, false);
+        OffHeapResult.Cursor row = OffHeapResult.read(resultSet, 64, Long.MAX_VALUE).cursor();
+        row.next();
+
+        row.getInt(4);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_cursor_is_not_on_a_row() throws SQLException {
+        OffHeapResult.read(resultSet, 64, Long.MAX_VALUE).cursor().getInt(1);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_chunk_size_is_not_positive() {
+        OffHeapResult.read(resultSet, 0, Long.MAX_VALUE);
+    }
+}
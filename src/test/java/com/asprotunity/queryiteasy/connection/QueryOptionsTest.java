@@ -0,0 +1,119 @@
+package com.asprotunity.queryiteasy.connection;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.scope.DefaultAutoCloseableScope;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+
+import static com.asprotunity.queryiteasy.connection.QueryOptions.queryOptions;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class QueryOptionsTest {
+
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    @Test
+    public void defaults_to_forward_only_read_only_result_sets() {
+        assertThat(queryOptions().resultSetType(), is(ResultSet.TYPE_FORWARD_ONLY));
+        assertThat(queryOptions().resultSetConcurrency(), is(ResultSet.CONCUR_READ_ONLY));
+    }
+
+    @Test
+    public void default_options_leave_the_statement_untouched() {
+        try (DefaultAutoCloseableScope scope = new DefaultAutoCloseableScope()) {
+            queryOptions().applyTo(statement, scope);
+        }
+
+        verifyZeroInteractions(statement);
+    }
+
+    @Test
+    public void applies_the_options_that_have_been_set_and_restores_previous_values_when_scope_closed()
+            throws Exception {
+        when(statement.getFetchSize()).thenReturn(10);
+        when(statement.getMaxRows()).thenReturn(0);
+        when(statement.getQueryTimeout()).thenReturn(0);
+        when(statement.getFetchDirection()).thenReturn(ResultSet.FETCH_FORWARD);
+        QueryOptions options = queryOptions().withFetchSize(500)
+                                             .withMaxRows(1000)
+                                             .withQueryTimeout(Duration.ofMillis(1500))
+                                             .withFetchDirection(ResultSet.FETCH_REVERSE);
+
+        DefaultAutoCloseableScope scope = new DefaultAutoCloseableScope();
+        options.applyTo(statement, scope);
+
+        verify(statement, times(1)).setFetchSize(500);
+        verify(statement, times(1)).setMaxRows(1000);
+        verify(statement, times(1)).setQueryTimeout(2);
+        verify(statement, times(1)).setFetchDirection(ResultSet.FETCH_REVERSE);
+
+        scope.close();
+
+        verify(statement, times(1)).setFetchSize(10);
+        verify(statement, times(1)).setMaxRows(0);
+        verify(statement, times(1)).setQueryTimeout(0);
+        verify(statement, times(1)).setFetchDirection(ResultSet.FETCH_FORWARD);
+    }
+
+    @Test
+    public void with_methods_return_new_instances() {
+        QueryOptions options = queryOptions().withResultSetType(ResultSet.TYPE_SCROLL_INSENSITIVE)
+                                             .withResultSetConcurrency(ResultSet.CONCUR_UPDATABLE);
+
+        assertThat(options.resultSetType(), is(ResultSet.TYPE_SCROLL_INSENSITIVE));
+        assertThat(options.resultSetConcurrency(), is(ResultSet.CONCUR_UPDATABLE));
+        assertThat(queryOptions().resultSetType(), is(ResultSet.TYPE_FORWARD_ONLY));
+        assertThat(queryOptions().resultSetConcurrency(), is(ResultSet.CONCUR_READ_ONLY));
+    }
+
+    @Test
+    public void prefetch_is_disabled_by_default() {
+        assertThat(queryOptions().prefetchSize(), is(0));
+        assertThat(queryOptions().withPrefetch(100).prefetchSize(), is(100));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_prefetch_size_is_not_positive() {
+        queryOptions().withPrefetch(0);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_fetch_size_is_negative() {
+        queryOptions().withFetchSize(-1);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_max_rows_is_negative() {
+        queryOptions().withMaxRows(-1);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_query_timeout_is_null() {
+        queryOptions().withQueryTimeout(null);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_query_timeout_is_negative() {
+        queryOptions().withQueryTimeout(Duration.ofSeconds(-1));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_result_set_type_is_invalid() {
+        queryOptions().withResultSetType(ResultSet.CONCUR_READ_ONLY);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_result_set_concurrency_is_invalid() {
+        queryOptions().withResultSetConcurrency(ResultSet.TYPE_FORWARD_ONLY);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_fetch_direction_is_invalid() {
+        queryOptions().withFetchDirection(ResultSet.TYPE_FORWARD_ONLY);
+    }
+}
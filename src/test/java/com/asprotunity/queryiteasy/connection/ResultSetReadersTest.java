@@ -1,6 +1,7 @@
 package com.asprotunity.queryiteasy.connection;
 
 import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
 import org.junit.Test;
 import org.mockito.InOrder;
 
@@ -455,6 +456,67 @@ public class ResultSetReadersTest {
         verify(resultSet, times(1)).getLong(columnIndex);
     }
 
+    @Test
+    public void primitive_asInteger_reads_valid_ints() throws SQLException {
+        when(resultSet.getInt(columnLabel)).thenReturn(10);
+        when(resultSet.getInt(columnIndex)).thenReturn(11);
+        when(resultSet.wasNull()).thenReturn(false);
+
+        assertThat(asInteger(resultSet, columnLabel, -1), is(10));
+        assertThat(asInteger(resultSet, columnIndex, -1), is(11));
+    }
+
+    @Test
+    public void primitive_asInteger_returns_null_value_for_null_ints() throws SQLException {
+        when(resultSet.wasNull()).thenReturn(true);
+
+        assertThat(asInteger(resultSet, columnLabel, -1), is(-1));
+        assertThat(asInteger(resultSet, columnIndex, -2), is(-2));
+    }
+
+    @Test
+    public void primitive_asLong_reads_valid_longs() throws SQLException {
+        when(resultSet.getLong(columnLabel)).thenReturn(10L);
+        when(resultSet.getLong(columnIndex)).thenReturn(11L);
+        when(resultSet.wasNull()).thenReturn(false);
+
+        assertThat(asLong(resultSet, columnLabel, -1L), is(10L));
+        assertThat(asLong(resultSet, columnIndex, -1L), is(11L));
+    }
+
+    @Test
+    public void primitive_asLong_returns_null_value_for_null_longs() throws SQLException {
+        when(resultSet.wasNull()).thenReturn(true);
+
+        assertThat(asLong(resultSet, columnLabel, -1L), is(-1L));
+        assertThat(asLong(resultSet, columnIndex, -2L), is(-2L));
+    }
+
+    @Test
+    public void primitive_asDouble_reads_valid_doubles() throws SQLException {
+        when(resultSet.getDouble(columnLabel)).thenReturn(1.5);
+        when(resultSet.getDouble(columnIndex)).thenReturn(2.5);
+        when(resultSet.wasNull()).thenReturn(false);
+
+        assertThat(asDouble(resultSet, columnLabel, Double.NaN), is(1.5));
+        assertThat(asDouble(resultSet, columnIndex, Double.NaN), is(2.5));
+    }
+
+    @Test
+    public void primitive_asDouble_returns_null_value_for_null_doubles() throws SQLException {
+        when(resultSet.wasNull()).thenReturn(true);
+
+        assertThat(asDouble(resultSet, columnLabel, Double.NaN), is(Double.NaN));
+        assertThat(asDouble(resultSet, columnIndex, 0.0), is(0.0));
+    }
+
+    @Test(expected = RuntimeSQLException.class)
+    public void primitive_readers_wrap_sql_exceptions() throws SQLException {
+        when(resultSet.getLong(columnIndex)).thenThrow(new SQLException());
+
+        asLong(resultSet, columnIndex, 0L);
+    }
+
     @Test
     public void asDouble_reads_valid_doubles() throws SQLException {
         when(resultSet.wasNull()).thenReturn(false);
@@ -0,0 +1,101 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class ColumnIndexCachingResultSetTest {
+
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private final ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+    private final ColumnIndexCachingResultSet cachingResultSet = new ColumnIndexCachingResultSet(resultSet);
+
+    @Before
+    public void setUp() throws SQLException {
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnLabel(1)).thenReturn("ID");
+        when(metaData.getColumnLabel(2)).thenReturn("NAME");
+        when(metaData.getColumnLabel(3)).thenReturn("ID");
+    }
+
+    @Test
+    public void reads_columns_by_index_resolving_labels_with_metadata_only_once() throws SQLException {
+        when(resultSet.getString(2)).thenReturn("first", "second");
+
+        assertThat(cachingResultSet.getString("NAME"), is("first"));
+        assertThat(cachingResultSet.getString("NAME"), is("second"));
+
+        verify(resultSet, times(1)).getMetaData();
+        verify(resultSet, never()).getString("NAME");
+        verify(resultSet, never()).findColumn(anyString());
+    }
+
+    @Test
+    public void resolves_duplicate_labels_to_the_first_column() throws SQLException {
+        assertThat(cachingResultSet.findColumn("ID"), is(1));
+    }
+
+    @Test
+    public void resolves_labels_not_in_metadata_with_the_driver_only_once() throws SQLException {
+        when(resultSet.findColumn("name")).thenReturn(2);
+        when(resultSet.getInt(2)).thenReturn(10);
+
+        cachingResultSet.getInt("name");
+        cachingResultSet.getInt("name");
+
+        verify(resultSet, times(1)).findColumn("name");
+        verify(resultSet, times(2)).getInt(2);
+    }
+
+    @Test
+    public void propagates_exceptions_for_unknown_labels() throws SQLException {
+        SQLException unknownColumn = new SQLException("Column not found");
+        when(resultSet.findColumn("unknown")).thenThrow(unknownColumn);
+
+        try {
+            cachingResultSet.getString("unknown");
+            fail("SQLException expected");
+        } catch (SQLException exception) {
+            assertThat(exception, is(sameInstance(unknownColumn)));
+        }
+    }
+
+    @Test
+    public void resolves_labels_with_the_driver_when_there_is_no_metadata() throws SQLException {
+        when(resultSet.getMetaData()).thenReturn(null);
+        when(resultSet.findColumn("NAME")).thenReturn(2);
+
+        assertThat(cachingResultSet.findColumn("NAME"), is(2));
+    }
+
+    @Test
+    public void delegates_calls_by_index_and_navigation() throws SQLException {
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(5L);
+        when(resultSet.wasNull()).thenReturn(false);
+
+        assertThat(cachingResultSet.next(), is(true));
+        assertThat(cachingResultSet.getLong(1), is(5L));
+        assertThat(cachingResultSet.wasNull(), is(false));
+        cachingResultSet.close();
+
+        verify(resultSet, times(1)).close();
+        verify(resultSet, never()).getMetaData();
+    }
+
+    @Test
+    public void unwraps_to_the_wrapped_result_set() throws SQLException {
+        assertThat(cachingResultSet.isWrapperFor(ResultSet.class), is(true));
+        assertThat(cachingResultSet.unwrap(ResultSet.class), is(sameInstance(resultSet)));
+    }
+}
@@ -0,0 +1,222 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.beans.ConstructorProperties;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class GeneratedRowMapperTest {
+
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private final ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+
+    @Before
+    public void setUp() throws SQLException {
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnLabel(1)).thenReturn("ID");
+        when(metaData.getColumnLabel(2)).thenReturn("FIRST_NAME");
+        when(metaData.getColumnLabel(3)).thenReturn("UNMAPPED");
+    }
+
+    @Test
+    public void maps_columns_to_bean_setters_ignoring_case_underscores_and_unmatched_columns() throws SQLException {
+        when(resultSet.getLong(1)).thenReturn(10L);
+        when(resultSet.getString(2)).thenReturn("name");
+
+        Bean bean = new GeneratedRowMapper<>(Bean.class).apply(resultSet);
+
+        assertThat(bean.id, is(10L));
+        assertThat(bean.firstName, is("name"));
+        verify(resultSet, never()).getObject(3);
+    }
+
+    @Test
+    public void maps_columns_to_constructor_parameters() throws SQLException {
+        when(resultSet.getInt(1)).thenReturn(10);
+        when(resultSet.getString(2)).thenReturn("name");
+
+        Immutable row = new GeneratedRowMapper<>(Immutable.class).apply(resultSet);
+
+        assertThat(row.id, is(10));
+        assertThat(row.firstName, is("name"));
+    }
+
+    @Test
+    public void maps_sql_null_to_null_for_boxed_types() throws SQLException {
+        when(resultSet.getInt(1)).thenReturn(0);
+        when(resultSet.wasNull()).thenReturn(true);
+
+        Immutable row = new GeneratedRowMapper<>(Immutable.class).apply(resultSet);
+
+        assertThat(row.id, is(nullValue()));
+    }
+
+    @Test
+    public void resolves_columns_from_metadata_only_once_per_result_set() throws SQLException {
+        GeneratedRowMapper<Bean> mapper = new GeneratedRowMapper<>(Bean.class);
+        ResultSet otherResultSet = mock(ResultSet.class);
+        when(otherResultSet.getMetaData()).thenReturn(metaData);
+
+        mapper.apply(resultSet);
+        mapper.apply(resultSet);
+        mapper.apply(otherResultSet);
+
+        verify(resultSet, times(1)).getMetaData();
+        verify(otherResultSet, times(1)).getMetaData();
+        verify(resultSet, times(2)).getLong(1);
+    }
+
+    @Test
+    public void resolves_columns_only_once_per_result_set_when_result_sets_are_interleaved() throws SQLException {
+        GeneratedRowMapper<Bean> mapper = new GeneratedRowMapper<>(Bean.class);
+        ResultSet otherResultSet = mock(ResultSet.class);
+        when(otherResultSet.getMetaData()).thenReturn(metaData);
+
+        for (int row = 0; row < 3; ++row) {
+            mapper.apply(resultSet);
+            mapper.apply(otherResultSet);
+        }
+
+        verify(resultSet, times(1)).getMetaData();
+        verify(otherResultSet, times(1)).getMetaData();
+    }
+
+    @Test
+    public void resolves_columns_only_once_per_query_result_set_when_result_sets_are_interleaved()
+            throws SQLException {
+        GeneratedRowMapper<Bean> mapper = new GeneratedRowMapper<>(Bean.class);
+        ResultSet otherResultSet = mock(ResultSet.class);
+        when(otherResultSet.getMetaData()).thenReturn(metaData);
+        ColumnIndexCachingResultSet rows = new ColumnIndexCachingResultSet(resultSet);
+        ColumnIndexCachingResultSet otherRows = new ColumnIndexCachingResultSet(otherResultSet);
+
+        for (int row = 0; row < 3; ++row) {
+            mapper.apply(rows);
+            mapper.apply(otherRows);
+        }
+
+        verify(resultSet, times(1)).getMetaData();
+        verify(otherResultSet, times(1)).getMetaData();
+        verify(resultSet, times(3)).getLong(1);
+    }
+
+    @Test
+    public void chooses_the_overloaded_setter_taking_the_class_of_the_column() throws SQLException {
+        GeneratedRowMapper<Overloaded> mapper = new GeneratedRowMapper<>(Overloaded.class);
+        ResultSet otherResultSet = mock(ResultSet.class);
+        ResultSetMetaData otherMetaData = mock(ResultSetMetaData.class);
+        when(otherResultSet.getMetaData()).thenReturn(otherMetaData);
+        when(otherMetaData.getColumnCount()).thenReturn(1);
+        when(otherMetaData.getColumnLabel(1)).thenReturn("ID");
+        when(otherMetaData.getColumnClassName(1)).thenReturn(String.class.getName());
+        when(metaData.getColumnClassName(1)).thenReturn(Integer.class.getName());
+        when(resultSet.getInt(1)).thenReturn(10);
+        when(otherResultSet.getString(1)).thenReturn("ten");
+
+        assertThat(mapper.apply(resultSet).id, is("int 10"));
+        assertThat(mapper.apply(otherResultSet).id, is("String ten"));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_no_overloaded_setter_takes_the_class_of_the_column() throws SQLException {
+        when(metaData.getColumnClassName(1)).thenReturn(BigDecimal.class.getName());
+
+        new GeneratedRowMapper<>(Overloaded.class).apply(resultSet);
+    }
+
+    @Test
+    public void ignores_the_bridge_methods_of_generic_setters() throws SQLException {
+        when(resultSet.getLong(1)).thenReturn(10L);
+
+        assertThat(new GeneratedRowMapper<>(LongBean.class).apply(resultSet).id, is(10L));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_a_constructor_parameter_has_no_column() throws SQLException {
+        when(metaData.getColumnLabel(2)).thenReturn("LAST_NAME");
+
+        new GeneratedRowMapper<>(Immutable.class).apply(resultSet);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_class_is_null() {
+        new GeneratedRowMapper<>(null);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_class_has_no_usable_constructor() {
+        new GeneratedRowMapper<>(Unnamed.class);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_class_is_abstract() {
+        new GeneratedRowMapper<>(Runnable.class);
+    }
+
+    public static class Bean {
+        private long id;
+        private String firstName;
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public void setFirstName(String firstName) {
+            this.firstName = firstName;
+        }
+    }
+
+    public static class Overloaded {
+        private String id;
+
+        public void setId(int id) {
+            this.id = "int " + id;
+        }
+
+        public void setId(String id) {
+            this.id = "String " + id;
+        }
+    }
+
+    public static class GenericBean<IdType> {
+        IdType id;
+
+        public void setId(IdType id) {
+            this.id = id;
+        }
+    }
+
+    public static class LongBean extends GenericBean<Long> {
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    public static class Immutable {
+        private final Integer id;
+        private final String firstName;
+
+        @ConstructorProperties({"id", "firstName"})
+        public Immutable(Integer id, String firstName) {
+            this.id = id;
+            this.firstName = firstName;
+        }
+    }
+
+    public static class Unnamed {
+        public Unnamed(@SuppressWarnings("unused") String value) {
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class MultiRowInsertTest {
+
+    @Test
+    public void rewrites_a_simple_insert_into_several_rows() {
+        MultiRowInsert insert = MultiRowInsert.parse("insert into foo (a, b) values (?, ?);");
+
+        assertThat(insert.parametersPerRow(), is(2));
+        assertThat(insert.sql(1), is("insert into foo (a, b) values (?, ?)"));
+        assertThat(insert.sql(3), is("insert into foo (a, b) values (?, ?), (?, ?), (?, ?)"));
+    }
+
+    @Test
+    public void rewrites_an_insert_spanning_several_lines() {
+        MultiRowInsert insert = MultiRowInsert.parse("INSERT INTO foo\n  VALUES(?,?,?)");
+
+        assertThat(insert.sql(2), is("INSERT INTO foo\n  VALUES (?,?,?), (?,?,?)"));
+    }
+
+    @Test
+    public void does_not_rewrite_inserts_with_literals_expressions_or_trailing_clauses() {
+        assertThat(MultiRowInsert.parse("INSERT INTO foo VALUES (?, 1)"), is(nullValue()));
+        assertThat(MultiRowInsert.parse("INSERT INTO foo VALUES (?, ? + 1)"), is(nullValue()));
+        assertThat(MultiRowInsert.parse("INSERT INTO foo VALUES (?) ON CONFLICT DO NOTHING"), is(nullValue()));
+        assertThat(MultiRowInsert.parse("INSERT INTO foo SELECT a FROM bar WHERE a = ?"), is(nullValue()));
+        assertThat(MultiRowInsert.parse("INSERT INTO foo VALUES (?), (?)"), is(nullValue()));
+        assertThat(MultiRowInsert.parse("UPDATE foo SET a = ?"), is(nullValue()));
+    }
+}
@@ -0,0 +1,127 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class PrefetchingSpliteratorTest {
+
+    @Test
+    public void returns_all_source_rows_in_order_including_nulls() {
+        PrefetchingSpliterator<Integer> spliterator =
+                new PrefetchingSpliterator<>(asList(1, null, 3, 4, 5).spliterator(), 2);
+
+        List<Integer> rows = StreamSupport.stream(spliterator, false).collect(toList());
+
+        assertThat(rows, is(asList(1, null, 3, 4, 5)));
+    }
+
+    @Test
+    public void try_advance_returns_rows_one_at_a_time() {
+        PrefetchingSpliterator<Integer> spliterator = new PrefetchingSpliterator<>(asList(1, 2).spliterator(), 1);
+        List<Integer> rows = new ArrayList<>();
+
+        assertThat(spliterator.tryAdvance(rows::add), is(true));
+        assertThat(spliterator.tryAdvance(rows::add), is(true));
+        assertThat(spliterator.tryAdvance(rows::add), is(false));
+        assertThat(spliterator.tryAdvance(rows::add), is(false));
+        assertThat(rows, is(asList(1, 2)));
+    }
+
+    @Test
+    public void stops_reading_ahead_when_buffer_is_full() throws InterruptedException {
+        AtomicInteger rowsRead = new AtomicInteger();
+        PrefetchingSpliterator<Integer> spliterator =
+                new PrefetchingSpliterator<>(countingSource(rowsRead), 4);
+        try {
+            waitUntil(() -> rowsRead.get() == 5);
+            TimeUnit.MILLISECONDS.sleep(50);
+
+            // Four rows in the buffer, and one waiting to be put.
+            assertThat(rowsRead.get(), is(5));
+
+            spliterator.tryAdvance(row -> {});
+            waitUntil(() -> rowsRead.get() == 6);
+        } finally {
+            spliterator.cancel();
+        }
+    }
+
+    @Test
+    public void cancel_stops_the_reader_and_ends_the_rows() {
+        AtomicInteger rowsRead = new AtomicInteger();
+        PrefetchingSpliterator<Integer> spliterator =
+                new PrefetchingSpliterator<>(countingSource(rowsRead), 4);
+
+        spliterator.cancel();
+        int rowsReadWhenCancelled = rowsRead.get();
+
+        assertThat(spliterator.tryAdvance(row -> {}), is(false));
+        assertThat(rowsRead.get(), is(rowsReadWhenCancelled));
+    }
+
+    @Test
+    public void rethrows_exceptions_thrown_by_the_source_after_the_rows_read_before() {
+        IllegalStateException readError = new IllegalStateException();
+        Stream<Integer> source = Stream.of(1, 2, 3).map(value -> {
+            if (value == 3) {
+                throw readError;
+            }
+            return value;
+        });
+        PrefetchingSpliterator<Integer> spliterator = new PrefetchingSpliterator<>(source.spliterator(), 10);
+        List<Integer> rows = new ArrayList<>();
+
+        try {
+            spliterator.forEachRemaining(rows::add);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException exception) {
+            assertThat(exception, is(readError));
+            assertThat(rows, is(asList(1, 2)));
+        }
+    }
+
+    @Test
+    public void cannot_be_split() {
+        PrefetchingSpliterator<Integer> spliterator = new PrefetchingSpliterator<>(asList(1, 2).spliterator(), 1);
+
+        assertThat(spliterator.trySplit(), is(nullValue()));
+        spliterator.cancel();
+    }
+
+    private static Spliterator<Integer> countingSource(AtomicInteger rowsRead) {
+        return new Spliterators.AbstractSpliterator<Integer>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Integer> action) {
+                action.accept(rowsRead.incrementAndGet());
+                return true;
+            }
+        };
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met in time");
+            }
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+    }
+}
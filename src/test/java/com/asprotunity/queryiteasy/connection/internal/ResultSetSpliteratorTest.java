@@ -4,8 +4,14 @@ import org.junit.Test;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
 import java.util.function.Consumer;
 
+import static com.asprotunity.queryiteasy.connection.ResultSetReaders.asInteger;
+import static com.asprotunity.queryiteasy.connection.ResultSetReaders.asLong;
+import static java.util.Arrays.asList;
 import static java.util.Spliterator.*;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
@@ -15,7 +21,7 @@ import static org.mockito.Mockito.*;
 public class ResultSetSpliteratorTest {
 
     private final ResultSet resultSet = mock(ResultSet.class);
-    private final ResultSetSpliterator spliterator = new ResultSetSpliterator(resultSet);
+    private final ResultSetSpliterator<ResultSet> spliterator = new ResultSetSpliterator<>(resultSet, rs -> rs);
 
     @Test
     @SuppressWarnings("unchecked")
@@ -27,6 +33,7 @@ public class ResultSetSpliteratorTest {
 
         assertTrue(result);
         verify(resultSet, times(1)).next();
+        verify(consumer, times(1)).accept(resultSet);
     }
 
     @Test
@@ -39,21 +46,84 @@ public class ResultSetSpliteratorTest {
 
         assertFalse(result);
         verify(resultSet, times(1)).next();
+        verifyZeroInteractions(consumer);
     }
 
     @Test
-    public void try_split_returns_null() {
+    @SuppressWarnings("unchecked")
+    public void does_not_read_result_set_again_once_exhausted() throws SQLException {
+        when(resultSet.next()).thenReturn(false);
+
+        spliterator.tryAdvance(mock(Consumer.class));
+        spliterator.tryAdvance(mock(Consumer.class));
+
+        verify(resultSet, times(1)).next();
+    }
+
+    @Test
+    public void try_split_returns_null_when_result_set_has_no_data() throws SQLException {
+        when(resultSet.next()).thenReturn(false);
+
         assertThat(spliterator.trySplit(), is(nullValue()));
     }
 
+    @Test
+    public void try_split_returns_sized_chunk_of_mapped_rows() throws SQLException {
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getInt(1)).thenReturn(1, 2, 3);
+        ResultSetSpliterator<Integer> mappingSpliterator =
+                new ResultSetSpliterator<>(resultSet, rs -> asInteger(rs, 1));
+
+        Spliterator<Integer> chunk = mappingSpliterator.trySplit();
+
+        assertThat(chunk.estimateSize(), is(3L));
+        assertThat(chunk.hasCharacteristics(SIZED | ORDERED), is(true));
+        List<Integer> rows = new ArrayList<>();
+        chunk.forEachRemaining(rows::add);
+        assertThat(rows, is(asList(1, 2, 3)));
+        assertThat(mappingSpliterator.tryAdvance(rows::add), is(false));
+    }
+
+    @Test
+    public void chunks_grow_at_each_split() throws SQLException {
+        when(resultSet.next()).thenReturn(true);
+
+        assertThat(spliterator.trySplit().estimateSize(), is((long) ResultSetSpliterator.CHUNK_SIZE_INCREMENT));
+        assertThat(spliterator.trySplit().estimateSize(), is(2L * ResultSetSpliterator.CHUNK_SIZE_INCREMENT));
+    }
+
+    @Test
+    public void primitive_spliterators_map_rows_without_boxing_and_split_into_chunks() throws SQLException {
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getLong(1)).thenReturn(1L, 2L, 3L);
+        ResultSetSpliterator.OfLong longs = new ResultSetSpliterator.OfLong(resultSet, rs -> asLong(rs, 1, 0L));
+        List<Long> rows = new ArrayList<>();
+
+        assertThat(longs.tryAdvance((long value) -> rows.add(value)), is(true));
+        Spliterator.OfLong chunk = longs.trySplit();
+        chunk.forEachRemaining((long value) -> rows.add(value));
+
+        assertThat(rows, is(asList(1L, 2L, 3L)));
+        assertThat(chunk.hasCharacteristics(SIZED | ORDERED), is(true));
+        assertThat(longs.trySplit(), is(nullValue()));
+    }
+
+    @Test
+    public void primitive_spliterators_stop_when_result_set_has_no_data() throws SQLException {
+        when(resultSet.next()).thenReturn(false);
+
+        assertThat(new ResultSetSpliterator.OfInt(resultSet, rs -> 1).tryAdvance((int value) -> fail()), is(false));
+        assertThat(new ResultSetSpliterator.OfDouble(resultSet, rs -> 1.0).tryAdvance((double value) -> fail()),
+                   is(false));
+    }
+
     @Test
     public void estimate_size_returns_long_max_value() {
         assertThat(spliterator.estimateSize(), is(Long.MAX_VALUE));
     }
 
     @Test
-    public void characteristics_are_immutable_nonnull_distinct() {
-        assertThat(spliterator.characteristics(), is(IMMUTABLE | NONNULL | DISTINCT));
+    public void characteristics_are_ordered() {
+        assertThat(spliterator.characteristics(), is(ORDERED));
     }
-
-}
\ No newline at end of file
+}
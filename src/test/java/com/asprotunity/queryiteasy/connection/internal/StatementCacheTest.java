@@ -0,0 +1,224 @@
+package com.asprotunity.queryiteasy.connection.internal;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class StatementCacheTest {
+
+    private final Connection jdbcConnection = mock(Connection.class);
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_connection_is_null() {
+        new StatementCache(null, 1);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_max_size_is_negative() {
+        new StatementCache(jdbcConnection, -1);
+    }
+
+    @Test
+    public void closes_released_statements_when_max_size_is_zero() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 0);
+        PreparedStatement statement = prepareStatement("SELECT * FROM foo");
+
+        cache.release(cache.prepareStatement("SELECT * FROM foo"));
+
+        verify(statement, times(1)).close();
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void reuses_released_statement_for_the_same_sql() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 1);
+        PreparedStatement statement = prepareStatement("SELECT * FROM foo");
+
+        cache.release(cache.prepareStatement("SELECT * FROM foo"));
+        PreparedStatement reused = cache.prepareStatement("SELECT * FROM foo");
+
+        assertThat(reused, is(sameInstance(statement)));
+        verify(jdbcConnection, times(1)).prepareStatement("SELECT * FROM foo");
+        verify(statement, times(1)).clearParameters();
+        verify(statement, never()).close();
+    }
+
+    @Test
+    public void keeps_statements_returning_keys_apart_by_key_columns() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 3);
+        String sql = "INSERT INTO foo (name) VALUES (?)";
+        PreparedStatement plain = prepareStatement(sql);
+        PreparedStatement driverKeys = mock(PreparedStatement.class);
+        PreparedStatement idKeys = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)).thenReturn(driverKeys);
+        when(jdbcConnection.prepareStatement(sql, new String[]{"id"})).thenReturn(idKeys);
+
+        cache.release(cache.prepareStatement(sql));
+        cache.release(cache.prepareStatementReturningKeys(sql, new String[0]));
+        cache.release(cache.prepareStatementReturningKeys(sql, new String[]{"id"}));
+
+        assertThat(cache.prepareStatement(sql), is(sameInstance(plain)));
+        assertThat(cache.prepareStatementReturningKeys(sql, new String[0]), is(sameInstance(driverKeys)));
+        assertThat(cache.prepareStatementReturningKeys(sql, new String[]{"id"}), is(sameInstance(idKeys)));
+        verify(jdbcConnection, times(1)).prepareStatement(sql, new String[]{"id"});
+    }
+
+    @Test
+    public void does_not_share_a_checked_out_statement() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 2);
+        when(jdbcConnection.prepareStatement("SELECT * FROM foo")).thenReturn(mock(PreparedStatement.class),
+                                                                              mock(PreparedStatement.class));
+
+        PreparedStatement first = cache.prepareStatement("SELECT * FROM foo");
+        PreparedStatement second = cache.prepareStatement("SELECT * FROM foo");
+        cache.release(first);
+        cache.release(second);
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(cache.size(), is(1));
+        verify(first, never()).close();
+        verify(second, times(1)).close();
+    }
+
+    @Test
+    public void keeps_prepared_and_callable_statements_for_the_same_sql_apart() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 2);
+        PreparedStatement prepared = prepareStatement("{call foo()}");
+        CallableStatement callable = mock(CallableStatement.class);
+        when(jdbcConnection.prepareCall("{call foo()}")).thenReturn(callable);
+
+        cache.release(cache.prepareStatement("{call foo()}"));
+        cache.release(cache.prepareCall("{call foo()}"));
+
+        assertThat(cache.prepareStatement("{call foo()}"), is(sameInstance(prepared)));
+        assertThat(cache.prepareCall("{call foo()}"), is(sameInstance(callable)));
+    }
+
+    @Test
+    public void keeps_statements_with_different_result_set_types_apart() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 2);
+        PreparedStatement forwardOnly = prepareStatement("SELECT * FROM foo");
+        PreparedStatement scrollable = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement("SELECT * FROM foo", ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                             ResultSet.CONCUR_READ_ONLY)).thenReturn(scrollable);
+
+        cache.release(cache.prepareStatement("SELECT * FROM foo"));
+        cache.release(cache.prepareStatement("SELECT * FROM foo", ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                             ResultSet.CONCUR_READ_ONLY));
+
+        assertThat(cache.prepareStatement("SELECT * FROM foo", ResultSet.TYPE_FORWARD_ONLY,
+                                          ResultSet.CONCUR_READ_ONLY), is(sameInstance(forwardOnly)));
+        assertThat(cache.prepareStatement("SELECT * FROM foo", ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                          ResultSet.CONCUR_READ_ONLY), is(sameInstance(scrollable)));
+    }
+
+    @Test
+    public void evicts_and_closes_least_recently_used_statement_when_full() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 2);
+        PreparedStatement foo = prepareStatement("SELECT * FROM foo");
+        PreparedStatement bar = prepareStatement("SELECT * FROM bar");
+        PreparedStatement baz = prepareStatement("SELECT * FROM baz");
+
+        cache.release(cache.prepareStatement("SELECT * FROM foo"));
+        cache.release(cache.prepareStatement("SELECT * FROM bar"));
+        cache.release(cache.prepareStatement("SELECT * FROM foo"));
+        cache.release(cache.prepareStatement("SELECT * FROM baz"));
+
+        assertThat(cache.size(), is(2));
+        verify(bar, times(1)).close();
+        verify(foo, never()).close();
+        verify(baz, never()).close();
+    }
+
+    @Test
+    public void closes_statement_when_clearing_parameters_fails() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 1);
+        PreparedStatement statement = prepareStatement("SELECT * FROM foo");
+        doThrow(new SQLException()).when(statement).clearParameters();
+
+        try {
+            cache.release(cache.prepareStatement("SELECT * FROM foo"));
+            fail("SQLException expected");
+        } catch (SQLException exception) {
+            verify(statement, times(1)).close();
+            assertThat(cache.size(), is(0));
+        }
+    }
+
+    @Test
+    public void clears_the_batch_left_by_a_failed_batch_update_before_reusing_the_statement() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 1);
+        PreparedStatement statement = prepareStatement("INSERT INTO foo VALUES (?)");
+        PreparedStatement checkedOut = cache.prepareStatement("INSERT INTO foo VALUES (?)");
+        checkedOut.addBatch();
+        checkedOut.addBatch();
+
+        cache.release(checkedOut);
+        PreparedStatement reused = cache.prepareStatement("INSERT INTO foo VALUES (?)");
+
+        assertThat(reused, is(sameInstance(statement)));
+        InOrder order = inOrder(statement);
+        order.verify(statement, times(2)).addBatch();
+        order.verify(statement).clearBatch();
+        verify(statement, never()).close();
+    }
+
+    @Test
+    public void closes_statement_when_clearing_the_batch_fails() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 1);
+        PreparedStatement statement = prepareStatement("INSERT INTO foo VALUES (?)");
+        doThrow(new SQLException()).when(statement).clearBatch();
+
+        try {
+            cache.release(cache.prepareStatement("INSERT INTO foo VALUES (?)"));
+            fail("SQLException expected");
+        } catch (SQLException exception) {
+            verify(statement, times(1)).close();
+            assertThat(cache.size(), is(0));
+        }
+    }
+
+    @Test
+    public void discard_closes_the_statement_instead_of_caching_it() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 1);
+        PreparedStatement statement = prepareStatement("INSERT INTO foo VALUES (?)");
+
+        cache.discard(cache.prepareStatement("INSERT INTO foo VALUES (?)"));
+
+        verify(statement, times(1)).close();
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void close_closes_all_cached_statements() throws SQLException {
+        StatementCache cache = new StatementCache(jdbcConnection, 2);
+        PreparedStatement foo = prepareStatement("SELECT * FROM foo");
+        PreparedStatement bar = prepareStatement("SELECT * FROM bar");
+        cache.release(cache.prepareStatement("SELECT * FROM foo"));
+        cache.release(cache.prepareStatement("SELECT * FROM bar"));
+
+        cache.close();
+
+        verify(foo, times(1)).close();
+        verify(bar, times(1)).close();
+        assertThat(cache.size(), is(0));
+    }
+
+    private PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement result = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement(sql)).thenReturn(result);
+        return result;
+    }
+}
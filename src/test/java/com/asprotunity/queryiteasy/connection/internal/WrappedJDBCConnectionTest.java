@@ -3,6 +3,8 @@ package com.asprotunity.queryiteasy.connection.internal;
 import com.asprotunity.queryiteasy.connection.*;
 import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
 import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import com.asprotunity.queryiteasy.metrics.QueryMetrics;
+import com.asprotunity.queryiteasy.metrics.StatementMetrics;
 import com.asprotunity.queryiteasy.scope.AutoCloseableScope;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,13 +13,23 @@ import org.mockito.InOrder;
 import java.io.InputStream;
 import java.sql.*;
 import java.sql.Connection;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static com.asprotunity.queryiteasy.connection.Batch.batch;
 import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindBlob;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindInt;
 import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindInteger;
+import static com.asprotunity.queryiteasy.connection.QueryOptions.queryOptions;
 import static com.asprotunity.queryiteasy.connection.ResultSetReaders.asInteger;
+import static com.asprotunity.queryiteasy.connection.ResultSetReaders.asLong;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -48,6 +60,237 @@ public class WrappedJDBCConnectionTest {
         verify(jdbcConnection, times(1)).commit();
     }
 
+    @Test
+    public void calls_the_listeners_with_the_sql_of_each_update_and_after_each_commit() throws Exception {
+        String sql = "INSERT INTO foo VALUES(1)";
+        prepareStatement(sql);
+        List<String> events = new ArrayList<>();
+        wrappedJDBCConnection.onUpdate(events::add);
+        wrappedJDBCConnection.onCommit(() -> events.add("commit"));
+
+        wrappedJDBCConnection.update(sql);
+        wrappedJDBCConnection.commit();
+
+        assertThat(events, is(asList(sql, "commit")));
+    }
+
+    @Test
+    public void records_the_metrics_of_updates() throws Exception {
+        String sql = "UPDATE foo SET bar = 1";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        when(preparedStatement.getUpdateCount()).thenReturn(3);
+        QueryMetrics metrics = new QueryMetrics();
+        wrappedJDBCConnection.recordMetricsIn(metrics);
+
+        wrappedJDBCConnection.update(sql);
+
+        StatementMetrics statementMetrics = metrics.forSql(sql);
+        assertThat(statementMetrics.executionCount(), is(1L));
+        assertThat(statementMetrics.rowsUpdated(), is(3L));
+        assertThat(statementMetrics.latency().count(), is(1L));
+    }
+
+    @Test
+    public void records_the_rows_returned_by_a_select_when_its_stream_is_closed() throws Exception {
+        String sql = "SELECT bar FROM foo";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        QueryMetrics metrics = new QueryMetrics();
+        wrappedJDBCConnection.recordMetricsIn(metrics);
+
+        try (Stream<Integer> rows = wrappedJDBCConnection.select(rs -> 1, sql)) {
+            assertThat(rows.count(), is(2L));
+            assertThat(metrics.forSql(sql).rowsReturned(), is(0L));
+        }
+
+        assertThat(metrics.forSql(sql).executionCount(), is(1L));
+        assertThat(metrics.forSql(sql).rowsReturned(), is(2L));
+    }
+
+    @Test
+    public void records_the_errors_of_batch_updates() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        when(preparedStatement.executeBatch()).thenThrow(new SQLException());
+        QueryMetrics metrics = new QueryMetrics();
+        wrappedJDBCConnection.recordMetricsIn(metrics);
+
+        try {
+            wrappedJDBCConnection.update(sql, singletonList(batch(bindInteger(1))));
+            fail("RuntimeSQLException expected");
+        } catch (RuntimeSQLException exception) {
+            assertThat(metrics.forSql(sql).errorCount(), is(1L));
+            assertThat(metrics.forSql(sql).executionCount(), is(0L));
+        }
+    }
+
+    @Test
+    public void tells_the_statement_listener_about_each_phase_of_a_select() throws Exception {
+        String sql = "SELECT bar FROM foo WHERE baz = ?";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        List<String> phases = new ArrayList<>();
+        wrappedJDBCConnection.setStatementListener(recordingListener(phases));
+
+        try (Stream<Integer> rows = wrappedJDBCConnection.select(rs -> 1, sql, bindInteger(1))) {
+            assertThat(rows.count(), is(1L));
+        }
+
+        assertThat(phases, is(asList("prepared " + sql + " 1", "bound " + sql + " 1", "executed " + sql + " 1",
+                                     "fetched " + sql + " 1", "fetched " + sql + " 1", "closed " + sql + " 1")));
+    }
+
+    @Test
+    public void tells_the_statement_listener_about_commits_and_rollbacks_of_executed_statements() throws Exception {
+        String sql = "INSERT INTO foo VALUES(1)";
+        prepareStatement(sql);
+        List<String> phases = new ArrayList<>();
+        wrappedJDBCConnection.setStatementListener(recordingListener(phases));
+
+        wrappedJDBCConnection.update(sql);
+        wrappedJDBCConnection.commit();
+        wrappedJDBCConnection.close();
+
+        assertThat(phases, is(asList("prepared " + sql + " 0", "bound " + sql + " 0", "executed " + sql + " 0",
+                                     "committed null 0")));
+    }
+
+    @Test
+    public void tells_the_statement_listener_about_each_chunk_of_a_batch_update() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?, ?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        when(preparedStatement.executeBatch()).thenReturn(new int[]{1});
+        List<String> phases = new ArrayList<>();
+        wrappedJDBCConnection.setStatementListener(recordingListener(phases));
+
+        wrappedJDBCConnection.update(sql, asList(batch(bindInteger(1), bindInteger(2)),
+                                                 batch(bindInteger(3), bindInteger(4))), 1);
+        wrappedJDBCConnection.close();
+
+        assertThat(phases, is(asList("prepared " + sql + " 0",
+                                     "bound " + sql + " 2", "executed " + sql + " 2",
+                                     "bound " + sql + " 2", "executed " + sql + " 2",
+                                     "rolledBack null 0")));
+    }
+
+    @Test
+    public void tells_the_statement_listener_when_a_select_completes_with_its_rows_and_parameters() throws Exception {
+        String sql = "SELECT bar FROM foo WHERE baz = ?";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        List<String> completed = new ArrayList<>();
+        wrappedJDBCConnection.setStatementListener(new StatementListener() {
+            @Override
+            public void completed(StatementContext context) {
+                assertThat(context.elapsedNanos() >= 0, is(true));
+                completed.add(context.sql() + " " + context.describeParameters() + " " + context.rowCount());
+            }
+        });
+
+        try (Stream<Integer> rows = wrappedJDBCConnection.select(rs -> 1, sql, bindInteger(5))) {
+            assertThat(rows.count(), is(2L));
+            assertThat(completed.isEmpty(), is(true));
+        }
+
+        assertThat(completed, is(singletonList(sql + " [5] 2")));
+    }
+
+    @Test
+    public void tells_the_statement_listener_when_a_failed_update_completes() throws Exception {
+        String sql = "UPDATE foo SET bar = ?";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        when(preparedStatement.execute()).thenThrow(new SQLException());
+        List<String> completed = new ArrayList<>();
+        wrappedJDBCConnection.setStatementListener(new StatementListener() {
+            @Override
+            public void completed(StatementContext context) {
+                completed.add(context.sql());
+            }
+        });
+
+        try {
+            wrappedJDBCConnection.update(sql, bindInteger(1));
+            fail("RuntimeSQLException expected");
+        } catch (RuntimeSQLException exception) {
+            assertThat(completed, is(singletonList(sql)));
+        }
+    }
+
+    @Test
+    public void tells_a_listener_not_listening_to_phases_only_when_statements_complete() throws Exception {
+        String select = "SELECT bar FROM foo";
+        String update = "UPDATE foo SET bar = ?";
+        ResultSet resultSet = mock(ResultSet.class);
+        when(prepareStatement(select).executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        prepareStatement(update);
+        List<String> phases = new ArrayList<>();
+        wrappedJDBCConnection.setStatementListener(new StatementListener() {
+            @Override
+            public boolean listensToPhases() {
+                return false;
+            }
+
+            @Override
+            public void executed(StatementContext context) {
+                phases.add("executed " + context.sql());
+            }
+
+            @Override
+            public void fetched(StatementContext context) {
+                phases.add("fetched " + context.sql());
+            }
+
+            @Override
+            public void completed(StatementContext context) {
+                assertThat(context.elapsedNanos() >= 0, is(true));
+                phases.add("completed " + context.sql() + " " + context.rowCount());
+            }
+        });
+
+        try (Stream<Integer> rows = wrappedJDBCConnection.select(rs -> 1, select)) {
+            assertThat(rows.count(), is(2L));
+        }
+        wrappedJDBCConnection.update(update, bindInteger(1));
+
+        assertThat(phases, is(asList("completed " + select + " 2", "completed " + update + " 0")));
+    }
+
+    @Test
+    public void reuses_the_context_of_a_completed_statement_for_the_next_one() throws Exception {
+        String select = "SELECT bar FROM foo";
+        String update = "UPDATE foo SET bar = ?";
+        when(prepareStatement(select).executeQuery()).thenReturn(mock(ResultSet.class));
+        prepareStatement(update);
+        List<StatementContext> contexts = new ArrayList<>();
+        wrappedJDBCConnection.setStatementListener(new StatementListener() {
+            @Override
+            public void completed(StatementContext context) {
+                contexts.add(context);
+            }
+        });
+
+        try (Stream<Integer> rows = wrappedJDBCConnection.select(rs -> 1, select)) {
+            wrappedJDBCConnection.update(update, bindInteger(1));
+        }
+        wrappedJDBCConnection.update(update, bindInteger(2));
+
+        assertThat(contexts.size(), is(3));
+        assertThat(contexts.get(1) == contexts.get(0), is(false));
+        assertThat(contexts.get(2) == contexts.get(0), is(true));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void set_statement_listener_throws_exception_when_listener_null() {
+        wrappedJDBCConnection.setStatementListener(null);
+    }
+
     @Test
     public void closes_jdbc_connection_correctly() throws Exception {
         wrappedJDBCConnection.close();
@@ -186,6 +429,168 @@ public class WrappedJDBCConnectionTest {
         }
     }
 
+    @Test
+    public void select_with_options_applies_them_before_executing_query_and_restores_them_when_stream_closed()
+            throws Exception {
+        String sql = "SELECT * FROM foo";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(preparedStatement.getFetchSize()).thenReturn(0);
+
+        Stream<Integer> result = wrappedJDBCConnection.select(rs -> asInteger(rs, 1),
+                                                              queryOptions().withFetchSize(100), sql);
+
+        InOrder order = inOrder(preparedStatement);
+        order.verify(preparedStatement, times(1)).setFetchSize(100);
+        order.verify(preparedStatement, times(1)).executeQuery();
+        result.close();
+        order.verify(preparedStatement, times(1)).setFetchSize(0);
+        order.verify(preparedStatement, times(1)).close();
+    }
+
+    @Test
+    public void select_with_options_prepares_statement_with_their_result_set_type_and_concurrency()
+            throws Exception {
+        String sql = "SELECT * FROM foo";
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement(sql, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE))
+                .thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(mock(ResultSet.class));
+
+        wrappedJDBCConnection.select(rs -> asInteger(rs, 1),
+                                     queryOptions().withResultSetType(ResultSet.TYPE_SCROLL_INSENSITIVE)
+                                                   .withResultSetConcurrency(ResultSet.CONCUR_UPDATABLE),
+                                     sql);
+
+        verify(preparedStatement, times(1)).executeQuery();
+        verify(jdbcConnection, never()).prepareStatement(sql);
+    }
+
+    @Test
+    public void select_with_prefetch_stops_reading_before_closing_result_set_when_stream_closed() throws Exception {
+        String sql = "SELECT * FROM foo";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        AtomicInteger rowsRead = new AtomicInteger();
+        when(resultSet.next()).thenAnswer(invocation -> rowsRead.incrementAndGet() > 0);
+
+        Stream<Integer> result = wrappedJDBCConnection.select(rs -> rowsRead.get(),
+                                                              queryOptions().withPrefetch(2), sql);
+        assertThat(result.findFirst().get(), is(1));
+        result.close();
+        int rowsReadWhenClosed = rowsRead.get();
+        TimeUnit.MILLISECONDS.sleep(20);
+
+        assertThat(rowsRead.get(), is(rowsReadWhenClosed));
+        verify(resultSet, times(1)).close();
+        verify(preparedStatement, times(1)).close();
+    }
+
+    @Test
+    public void select_longs_maps_rows_to_a_long_stream_and_closes_statement_when_stream_closed() throws Exception {
+        String sql = "SELECT id FROM foo";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getLong(1)).thenReturn(10L, 20L);
+
+        LongStream result = wrappedJDBCConnection.selectLongs(rs -> asLong(rs, 1, 0L), sql);
+
+        assertThat(result.sum(), is(30L));
+        result.close();
+        verify(resultSet, times(1)).close();
+        verify(preparedStatement, times(1)).close();
+    }
+
+    @Test
+    public void select_columnar_reads_all_rows_and_closes_statement() throws Exception {
+        String sql = "SELECT id FROM foo";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        ResultSet resultSet = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn("ID");
+        when(metaData.getColumnType(1)).thenReturn(Types.BIGINT);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getLong(1)).thenReturn(10L, 20L);
+
+        ColumnarResult result = wrappedJDBCConnection.selectColumnar(sql);
+
+        assertThat(result.longs(1).sum(), is(30L));
+        verify(resultSet, times(1)).close();
+        verify(preparedStatement, times(1)).close();
+    }
+
+    @Test
+    public void select_off_heap_reads_all_rows_and_closes_statement() throws Exception {
+        String sql = "SELECT id FROM foo";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        ResultSet resultSet = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnType(1)).thenReturn(Types.BIGINT);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(1)).thenReturn(10L);
+
+        OffHeapResult result = wrappedJDBCConnection.selectOffHeap(sql);
+
+        OffHeapResult.Cursor row = result.cursor();
+        assertThat(row.next(), is(true));
+        assertThat(row.getLong(1), is(10L));
+        verify(resultSet, times(1)).close();
+        verify(preparedStatement, times(1)).close();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void select_off_heap_throws_exception_when_max_size_not_positive() throws Exception {
+        wrappedJDBCConnection.selectOffHeap(queryOptions(), 1024, 0, "SELECT * FROM foo");
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void select_columnar_throws_exception_when_prefetching() throws Exception {
+        wrappedJDBCConnection.selectColumnar(queryOptions().withPrefetch(10), "SELECT * FROM foo");
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void select_ints_throws_exception_when_rowMapper_null() throws Exception {
+        wrappedJDBCConnection.selectInts(null, "SELECT * FROM foo");
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void select_doubles_throws_exception_when_prefetching() throws Exception {
+        wrappedJDBCConnection.selectDoubles(rs -> 1.0, queryOptions().withPrefetch(10), "SELECT * FROM foo");
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void select_throws_exception_when_options_null() throws Exception {
+        wrappedJDBCConnection.select(rs -> 1, null, "SELECT * FROM foo");
+    }
+
+    @Test
+    public void call_with_options_applies_them_before_executing_query() throws Exception {
+        String sql = "{call foo_func()}";
+        CallableStatement callableStatement = prepareCall(sql);
+        when(callableStatement.executeQuery()).thenReturn(mock(ResultSet.class));
+
+        wrappedJDBCConnection.call(rs -> asInteger(rs, 1), queryOptions().withMaxRows(10), sql);
+
+        InOrder order = inOrder(callableStatement);
+        order.verify(callableStatement, times(1)).setMaxRows(10);
+        order.verify(callableStatement, times(1)).executeQuery();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void call_with_results_throws_exception_when_options_null() throws Exception {
+        wrappedJDBCConnection.call(rs -> 1, null, "{call someproc()}");
+    }
+
     @Test
     public void call_with_results_closes_query_scope_but_leaves_resultset_and_statement_scope_open_after_executing_query() throws Exception {
         String sql = "{call foo_func(?)}";
@@ -420,8 +825,479 @@ public class WrappedJDBCConnectionTest {
     }
 
 
+    @Test
+    public void chunked_batch_update_executes_each_chunk_and_returns_all_update_counts() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{1, 1}, new int[]{1});
+
+        int[] updateCounts = wrappedJDBCConnection.update(sql,
+                                                          asList(batch(bindInteger(10)), batch(bindInteger(20)),
+                                                                 batch(bindInteger(30)), batch(bindInteger(40)),
+                                                                 batch(bindInteger(50))),
+                                                          2);
+
+        assertThat(updateCounts, is(new int[]{1, 1, 1, 1, 1}));
+        InOrder order = inOrder(preparedStatement);
+        order.verify(preparedStatement, calls(2)).addBatch();
+        order.verify(preparedStatement, calls(1)).executeBatch();
+        order.verify(preparedStatement, calls(2)).addBatch();
+        order.verify(preparedStatement, calls(1)).executeBatch();
+        order.verify(preparedStatement, calls(1)).addBatch();
+        order.verify(preparedStatement, calls(1)).executeBatch();
+        order.verify(preparedStatement, times(1)).close();
+    }
+
+    @Test
+    public void chunked_batch_update_closes_blob_streams_of_each_chunk_after_executing_it() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        InputStream firstBlobStream = mock(InputStream.class);
+        InputStream secondBlobStream = mock(InputStream.class);
+
+        wrappedJDBCConnection.update(sql,
+                                     asList(batch(bindBlob(() -> firstBlobStream)),
+                                            batch(bindBlob(() -> secondBlobStream))),
+                                     1);
+
+        InOrder order = inOrder(preparedStatement, firstBlobStream, secondBlobStream);
+        order.verify(preparedStatement, times(1)).executeBatch();
+        order.verify(firstBlobStream, times(1)).close();
+        order.verify(preparedStatement, times(1)).executeBatch();
+        order.verify(secondBlobStream, times(1)).close();
+        order.verify(preparedStatement, times(1)).close();
+    }
+
+    @Test
+    public void chunked_batch_update_throws_exception_when_chunk_size_less_than_one() throws Exception {
+        try {
+            wrappedJDBCConnection.update("INSERT INTO foo VALUES(?)", singletonList(batch(bindInteger(10))), 0);
+            fail("InvalidArgumentException expected");
+        } catch (InvalidArgumentException exception) {
+            assertThat(exception.getMessage(), is("chunkSize must be at least 1."));
+        }
+    }
+
+    @Test
+    public void returns_the_keys_generated_by_an_update() throws Exception {
+        String sql = "INSERT INTO foo (name) VALUES (?)";
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)).thenReturn(preparedStatement);
+        ResultSet keys = mock(ResultSet.class);
+        when(preparedStatement.getGeneratedKeys()).thenReturn(keys);
+        when(keys.next()).thenReturn(true, false);
+        when(keys.getLong(1)).thenReturn(42L);
+
+        List<Long> result = wrappedJDBCConnection.updateReturningKeys(rs -> asLong(rs, 1), new String[0], sql,
+                                                                      bindInteger(1)).collect(Collectors.toList());
+
+        assertThat(result, is(singletonList(42L)));
+        InOrder order = inOrder(preparedStatement, keys);
+        order.verify(preparedStatement).executeUpdate();
+        order.verify(keys).close();
+        order.verify(preparedStatement).close();
+    }
+
+    @Test
+    public void returns_the_keys_generated_by_a_batch_update_as_longs() throws Exception {
+        String sql = "INSERT INTO foo (name) VALUES (?)";
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement(sql, new String[]{"id"})).thenReturn(preparedStatement);
+        when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1});
+        ResultSet keys = mock(ResultSet.class);
+        when(preparedStatement.getGeneratedKeys()).thenReturn(keys);
+        when(keys.next()).thenReturn(true, true, false);
+        when(keys.getLong(1)).thenReturn(7L, 8L);
+
+        long[] result = wrappedJDBCConnection.updateReturningLongKeys(
+                rs -> asLong(rs, 1, 0L), new String[]{"id"}, sql, asList(batch(bindInteger(1)), batch(bindInteger(2))));
+
+        assertThat(result, is(new long[]{7L, 8L}));
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement).executeBatch();
+        verify(keys).close();
+    }
+
+    @Test
+    public void closes_the_cached_statement_returning_keys_when_binding_a_batch_fails() throws Exception {
+        String sql = "INSERT INTO foo (name) VALUES (?)";
+        PreparedStatement failed = mock(PreparedStatement.class);
+        PreparedStatement next = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement(sql, new String[]{"id"})).thenReturn(failed, next);
+        when(next.getGeneratedKeys()).thenReturn(mock(ResultSet.class));
+        WrappedJDBCConnection caching = new WrappedJDBCConnection(jdbcConnection, connectionScope, 10);
+        InputParameter failing = (statement, position, scope) -> {
+            throw new IllegalStateException("cannot bind");
+        };
+
+        try {
+            caching.updateReturningLongKeys(rs -> asLong(rs, 1, 0L), new String[]{"id"}, sql,
+                                            asList(batch(bindInteger(1)), batch(failing)));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException exception) {
+            caching.updateReturningLongKeys(rs -> asLong(rs, 1, 0L), new String[]{"id"}, sql,
+                                            asList(batch(bindInteger(100))));
+        }
+
+        InOrder order = inOrder(failed, next);
+        order.verify(failed).addBatch();
+        order.verify(failed).close();
+        order.verify(next).addBatch();
+        order.verify(next).executeBatch();
+        verify(failed, never()).executeBatch();
+    }
+
+    @Test
+    public void closes_the_cached_statement_returning_keys_when_executing_the_batch_fails() throws Exception {
+        String sql = "INSERT INTO foo (name) VALUES (?)";
+        PreparedStatement failed = mock(PreparedStatement.class);
+        PreparedStatement next = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)).thenReturn(failed, next);
+        when(failed.executeBatch()).thenThrow(new SQLException("cannot execute"));
+        when(next.getGeneratedKeys()).thenReturn(mock(ResultSet.class));
+        WrappedJDBCConnection caching = new WrappedJDBCConnection(jdbcConnection, connectionScope, 10);
+
+        try {
+            caching.updateReturningLongKeys(rs -> asLong(rs, 1, 0L), new String[0], sql,
+                                            asList(batch(bindInteger(1)), batch(bindInteger(2))));
+            fail("RuntimeSQLException expected");
+        } catch (RuntimeSQLException exception) {
+            caching.updateReturningLongKeys(rs -> asLong(rs, 1, 0L), new String[0], sql, bindInteger(100));
+        }
+
+        verify(failed).close();
+        verify(next).executeUpdate();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_a_key_column_is_null() {
+        wrappedJDBCConnection.updateReturningLongKeys(rs -> 0L, new String[]{null}, "INSERT INTO foo VALUES (?)",
+                                                      bindInteger(1));
+    }
+
+    @Test
+    public void rewrites_batch_inserts_into_full_chunks_of_rows_and_a_remainder() throws Exception {
+        PreparedStatement fullChunk = prepareStatement("INSERT INTO foo VALUES (?, ?), (?, ?)");
+        PreparedStatement remainder = prepareStatement("INSERT INTO foo VALUES (?, ?)");
+        when(fullChunk.executeUpdate()).thenReturn(2);
+        when(remainder.executeUpdate()).thenReturn(1);
+        QueryMetrics metrics = new QueryMetrics();
+        wrappedJDBCConnection.recordMetricsIn(metrics);
+        wrappedJDBCConnection.rewriteBatchInserts(5);
+
+        wrappedJDBCConnection.update("INSERT INTO foo VALUES (?, ?)",
+                                     asList(batch(bindInt(1), bindInt(10)), batch(bindInt(2), bindInt(20)),
+                                            batch(bindInt(3), bindInt(30)), batch(bindInt(4), bindInt(40)),
+                                            batch(bindInt(5), bindInt(50))));
+
+        InOrder order = inOrder(jdbcConnection, fullChunk, remainder);
+        order.verify(jdbcConnection).prepareStatement("INSERT INTO foo VALUES (?, ?), (?, ?)");
+        order.verify(fullChunk).setInt(1, 1);
+        order.verify(fullChunk).setInt(4, 20);
+        order.verify(fullChunk).executeUpdate();
+        order.verify(fullChunk).setInt(1, 3);
+        order.verify(fullChunk).setInt(4, 40);
+        order.verify(fullChunk).executeUpdate();
+        order.verify(fullChunk).close();
+        order.verify(jdbcConnection).prepareStatement("INSERT INTO foo VALUES (?, ?)");
+        order.verify(remainder).setInt(1, 5);
+        order.verify(remainder).setInt(2, 50);
+        order.verify(remainder).executeUpdate();
+        order.verify(remainder).close();
+        verify(fullChunk, never()).executeBatch();
+        assertThat(metrics.forSql("INSERT INTO foo VALUES (?, ?)").executionCount(), is(1L));
+        assertThat(metrics.forSql("INSERT INTO foo VALUES (?, ?)").rowsUpdated(), is(5L));
+    }
+
+    @Test
+    public void executes_batch_inserts_as_batches_when_the_insert_is_not_simple() throws Exception {
+        String sql = "INSERT INTO foo VALUES (?, 1)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        wrappedJDBCConnection.rewriteBatchInserts(100);
+
+        wrappedJDBCConnection.update(sql, asList(batch(bindInteger(1)), batch(bindInteger(2))));
+
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement).executeBatch();
+        verify(preparedStatement, never()).executeUpdate();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_rewriting_a_batch_with_the_wrong_number_of_parameters() {
+        wrappedJDBCConnection.rewriteBatchInserts(100);
+
+        wrappedJDBCConnection.update("INSERT INTO foo VALUES (?, ?)",
+                                     asList(batch(bindInteger(1), bindInteger(2)), batch(bindInteger(3))));
+    }
+
+    @Test
+    public void columnar_batch_update_binds_the_rows_of_each_chunk_and_returns_all_update_counts() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?, ?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{1});
+        BatchBuilder batches = BatchBuilder.columns(BatchBuilder.ColumnType.INT, BatchBuilder.ColumnType.LONG);
+        for (int row = 1; row <= 3; ++row) {
+            batches.setInt(1, row).setLong(2, row * 10L).addRow();
+        }
+
+        int[] updateCounts = wrappedJDBCConnection.update(sql, batches, 2);
+
+        assertThat(updateCounts, is(new int[]{1, 1, 1}));
+        InOrder order = inOrder(preparedStatement);
+        order.verify(preparedStatement).setInt(1, 1);
+        order.verify(preparedStatement).setLong(2, 10L);
+        order.verify(preparedStatement).setInt(1, 2);
+        order.verify(preparedStatement).setLong(2, 20L);
+        order.verify(preparedStatement, calls(1)).executeBatch();
+        order.verify(preparedStatement).setInt(1, 3);
+        order.verify(preparedStatement).setLong(2, 30L);
+        order.verify(preparedStatement, calls(1)).executeBatch();
+        order.verify(preparedStatement, times(1)).close();
+    }
+
+    @Test
+    public void columnar_batch_update_closes_the_cached_statement_when_binding_fails() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement failed = mock(PreparedStatement.class);
+        PreparedStatement next = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement(sql)).thenReturn(failed, next);
+        doThrow(new SQLException("cannot bind")).when(failed).setInt(1, 2);
+        WrappedJDBCConnection caching = new WrappedJDBCConnection(jdbcConnection, connectionScope, 10);
+        BatchBuilder batches = BatchBuilder.columns(BatchBuilder.ColumnType.INT);
+        batches.setInt(1, 1).addRow().setInt(1, 2).addRow();
+
+        try {
+            caching.update(sql, batches, 10);
+            fail("RuntimeSQLException expected");
+        } catch (RuntimeSQLException exception) {
+            caching.update(sql, bindInteger(100));
+        }
+
+        InOrder order = inOrder(failed, next);
+        order.verify(failed).addBatch();
+        order.verify(failed).close();
+        order.verify(next).execute();
+        verify(failed, never()).executeBatch();
+    }
+
+    @Test
+    public void columnar_batch_update_closes_the_cached_statement_when_executing_the_batch_fails() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement failed = mock(PreparedStatement.class);
+        PreparedStatement next = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement(sql)).thenReturn(failed, next);
+        when(failed.executeBatch()).thenThrow(new SQLException("cannot execute"));
+        WrappedJDBCConnection caching = new WrappedJDBCConnection(jdbcConnection, connectionScope, 10);
+        BatchBuilder batches = BatchBuilder.columns(BatchBuilder.ColumnType.INT);
+        batches.setInt(1, 1).addRow();
+
+        try {
+            caching.update(sql, batches, 10);
+            fail("RuntimeSQLException expected");
+        } catch (RuntimeSQLException exception) {
+            caching.update(sql, bindInteger(100));
+        }
+
+        verify(failed).close();
+        verify(next).execute();
+    }
+
+    @Test
+    public void columnar_batch_update_does_nothing_when_there_are_no_rows() throws Exception {
+        int[] updateCounts = wrappedJDBCConnection.update("INSERT INTO foo VALUES(?)",
+                                                          BatchBuilder.columns(BatchBuilder.ColumnType.INT), 10);
+
+        assertThat(updateCounts.length, is(0));
+        verify(jdbcConnection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    public void failed_batch_update_leaves_no_queued_rows_on_the_cached_statement() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement failed = mock(PreparedStatement.class);
+        PreparedStatement next = mock(PreparedStatement.class);
+        when(jdbcConnection.prepareStatement(sql)).thenReturn(failed, next);
+        WrappedJDBCConnection caching = new WrappedJDBCConnection(jdbcConnection, connectionScope, 10);
+        Iterator<Batch> failing = new Iterator<Batch>() {
+            private int read = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Batch next() {
+                if (++read > 2) {
+                    throw new IllegalStateException("no more rows");
+                }
+                return batch(bindInteger(read));
+            }
+        };
+
+        try {
+            caching.update(sql, failing, 10);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException exception) {
+            caching.update(sql, bindInteger(100));
+        }
+
+        InOrder order = inOrder(failed, next);
+        order.verify(failed, times(2)).addBatch();
+        order.verify(failed).close();
+        order.verify(next).execute();
+        verify(failed, never()).executeBatch();
+        verify(next, never()).executeBatch();
+    }
+
+    @Test
+    public void iterator_batch_update_reads_each_chunk_only_when_previous_has_been_executed() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        List<Integer> executedChunks = new ArrayList<>();
+        when(preparedStatement.executeBatch()).thenAnswer(invocation -> {
+            executedChunks.add(executedChunks.size());
+            return executedChunks.size() == 1 ? new int[]{1, 1} : new int[]{1};
+        });
+        List<Integer> executedBeforeRead = new ArrayList<>();
+        Iterator<Batch> batches = IntStream.range(0, 3)
+                .mapToObj(value -> {
+                    executedBeforeRead.add(executedChunks.size());
+                    return batch(bindInteger(value));
+                })
+                .iterator();
+
+        int[] updateCounts = wrappedJDBCConnection.update(sql, batches, 2);
+
+        assertThat(updateCounts, is(new int[]{1, 1, 1}));
+        assertThat(executedBeforeRead, is(asList(0, 0, 1)));
+        verify(preparedStatement, times(1)).close();
+    }
+
+    @Test
+    public void iterator_batch_update_does_nothing_when_there_are_no_batches() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+
+        int[] updateCounts = wrappedJDBCConnection.update(sql, Collections.<Batch>emptyIterator(), 2);
+
+        assertThat(updateCounts, is(new int[0]));
+        verify(preparedStatement, times(0)).executeBatch();
+    }
+
+    @Test
+    public void stream_batch_update_executes_all_batches_in_chunks() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{1, 1});
+
+        int[] updateCounts = wrappedJDBCConnection.update(sql, IntStream.range(0, 4).mapToObj(
+                value -> batch(bindInteger(value))), 2);
+
+        assertThat(updateCounts, is(new int[]{1, 1, 1, 1}));
+        verify(preparedStatement, times(2)).executeBatch();
+    }
+
+    @Test
+    public void overlapped_batch_update_reads_chunks_with_the_executor_and_returns_all_update_counts()
+            throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{1, 1}, new int[]{1});
+        Set<Thread> readingThreads = Collections.synchronizedSet(new HashSet<>());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            int[] updateCounts = wrappedJDBCConnection.update(sql, IntStream.range(0, 5).mapToObj(value -> {
+                readingThreads.add(Thread.currentThread());
+                return batch(bindInteger(value));
+            }), 2, executor);
+
+            assertThat(updateCounts, is(new int[]{1, 1, 1, 1, 1}));
+            assertThat(readingThreads.contains(Thread.currentThread()), is(false));
+            verify(preparedStatement, times(3)).executeBatch();
+            verify(preparedStatement, times(1)).close();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void overlapped_batch_update_rethrows_exceptions_thrown_reading_batches() throws Exception {
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        IllegalStateException readError = new IllegalStateException();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            wrappedJDBCConnection.update(sql, IntStream.range(0, 5).mapToObj(value -> {
+                if (value == 3) {
+                    throw readError;
+                }
+                return batch(bindInteger(value));
+            }), 2, executor);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException exception) {
+            assertThat(exception, is(readError));
+            verify(preparedStatement, times(1)).executeBatch();
+            verify(preparedStatement, times(1)).close();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void cached_update_reuses_statement_and_closes_it_when_connection_closed() throws Exception {
+        WrappedJDBCConnection cachingConnection = new WrappedJDBCConnection(jdbcConnection, connectionScope, 1);
+        String sql = "INSERT INTO foo VALUES(?)";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+
+        cachingConnection.update(sql, bindInteger(10));
+        cachingConnection.update(sql, bindInteger(20));
+
+        verify(jdbcConnection, times(1)).prepareStatement(sql);
+        verify(preparedStatement, times(2)).execute();
+        verify(preparedStatement, times(0)).close();
+
+        cachingConnection.close();
+
+        InOrder order = inOrder(jdbcConnection, connectionScope, preparedStatement);
+        order.verify(connectionScope, times(1)).close();
+        order.verify(preparedStatement, times(1)).close();
+        order.verify(jdbcConnection, times(1)).close();
+    }
+
+    @Test
+    public void cached_result_stream_closes_result_set_but_not_statement() throws Exception {
+        WrappedJDBCConnection cachingConnection = new WrappedJDBCConnection(jdbcConnection, connectionScope, 1);
+        String sql = "SELECT * FROM foo";
+        PreparedStatement preparedStatement = prepareStatement(sql);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+
+        cachingConnection.select(rs -> asInteger(rs, 1), sql).close();
+        cachingConnection.select(rs -> asInteger(rs, 1), sql).close();
+
+        verify(jdbcConnection, times(1)).prepareStatement(sql);
+        verify(resultSet, times(2)).close();
+        verify(preparedStatement, times(0)).close();
+    }
+
+    @Test
+    public void cached_call_reuses_callable_statement() throws Exception {
+        WrappedJDBCConnection cachingConnection = new WrappedJDBCConnection(jdbcConnection, connectionScope, 1);
+        String sql = "{call foo_proc(?)}";
+        CallableStatement callableStatement = prepareCall(sql);
+
+        cachingConnection.call(sql, bindInteger(10));
+        cachingConnection.call(sql, bindInteger(20));
+
+        verify(jdbcConnection, times(1)).prepareCall(sql);
+        verify(callableStatement, times(2)).execute();
+        verify(callableStatement, times(0)).close();
+    }
+
     private PreparedStatement prepareStatement(String sql) throws SQLException {
         PreparedStatement result = mock(PreparedStatement.class);
+        when(result.executeBatch()).thenReturn(new int[0]);
         when(jdbcConnection.prepareStatement(sql)).thenReturn(result);
         return result;
     }
@@ -432,4 +1308,48 @@ public class WrappedJDBCConnectionTest {
         return result;
     }
 
-}
\ No newline at end of file
+
+    private static StatementListener recordingListener(List<String> phases) {
+        return new StatementListener() {
+            @Override
+            public void prepared(StatementContext context) {
+                record("prepared", context);
+            }
+
+            @Override
+            public void bound(StatementContext context) {
+                record("bound", context);
+            }
+
+            @Override
+            public void executed(StatementContext context) {
+                record("executed", context);
+            }
+
+            @Override
+            public void fetched(StatementContext context) {
+                record("fetched", context);
+            }
+
+            @Override
+            public void closed(StatementContext context) {
+                record("closed", context);
+            }
+
+            @Override
+            public void committed(StatementContext context) {
+                record("committed", context);
+            }
+
+            @Override
+            public void rolledBack(StatementContext context) {
+                record("rolledBack", context);
+            }
+
+            private void record(String phase, StatementContext context) {
+                assertThat(context.elapsedNanos() >= 0, is(true));
+                phases.add(phase + " " + context.sql() + " " + context.parameterCount());
+            }
+        };
+    }
+}
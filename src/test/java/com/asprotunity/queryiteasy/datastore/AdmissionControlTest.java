@@ -0,0 +1,177 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.exception.TransactionRejectedException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AdmissionControlTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private AdmissionControl admissionControl;
+
+    @After
+    public void tearDown() {
+        if (admissionControl != null) {
+            admissionControl.close();
+        }
+    }
+
+    @Test
+    public void runs_up_to_max_running_transactions_and_queues_the_others() {
+        admissionControl = new AdmissionControl(1, 1, Duration.ofMinutes(1));
+
+        CompletableFuture<Integer> first = admissionControl.submit(() -> 1, tasks::add);
+        CompletableFuture<Integer> second = admissionControl.submit(() -> 2, tasks::add);
+
+        assertThat(tasks.size(), is(1));
+        assertThat(admissionControl.running(), is(1));
+        assertThat(admissionControl.queueDepth(), is(1));
+        runTask(0);
+        assertThat(first.join(), is(1));
+        assertThat(tasks.size(), is(2));
+        assertThat(admissionControl.queueDepth(), is(0));
+        runTask(1);
+        assertThat(second.join(), is(2));
+        assertThat(admissionControl.running(), is(0));
+        assertThat(admissionControl.admittedCount(), is(2L));
+    }
+
+    @Test
+    public void rejects_transactions_at_once_when_the_queue_is_full() {
+        admissionControl = new AdmissionControl(1, 1, Duration.ofMinutes(1));
+        admissionControl.submit(() -> 1, tasks::add);
+        admissionControl.submit(() -> 2, tasks::add);
+
+        CompletableFuture<Integer> rejected = admissionControl.submit(() -> 3, tasks::add);
+
+        assertFailedWithTransactionRejectedException(rejected);
+        assertThat(tasks.size(), is(1));
+        assertThat(admissionControl.rejectedCount(), is(1L));
+    }
+
+    @Test
+    public void rejects_transactions_waiting_longer_than_max_queue_time() throws Exception {
+        admissionControl = new AdmissionControl(1, 1, Duration.ofMillis(10));
+        admissionControl.submit(() -> 1, tasks::add);
+
+        CompletableFuture<Integer> waiting = admissionControl.submit(() -> 2, tasks::add);
+
+        try {
+            waiting.get(5, TimeUnit.SECONDS);
+            fail("ExecutionException expected");
+        } catch (ExecutionException exception) {
+            assertThat(exception.getCause(), instanceOf(TransactionRejectedException.class));
+        }
+        assertThat(admissionControl.queueDepth(), is(0));
+        assertThat(admissionControl.timedOutCount(), is(1L));
+        runTask(0);
+        assertThat(tasks.size(), is(1));
+        assertThat(admissionControl.running(), is(0));
+    }
+
+    @Test
+    public void records_the_time_spent_waiting_in_the_queue() throws InterruptedException {
+        admissionControl = new AdmissionControl(1, 1, Duration.ofMinutes(1));
+        admissionControl.submit(() -> 1, tasks::add);
+        admissionControl.submit(() -> 2, tasks::add);
+
+        TimeUnit.MILLISECONDS.sleep(20);
+        runTask(0);
+
+        assertThat(admissionControl.maxWaitTime().toMillis() >= 20, is(true));
+        assertThat(admissionControl.averageWaitTime().toMillis() >= 10, is(true));
+    }
+
+    @Test
+    public void passes_on_the_failure_of_the_transaction_and_releases_its_slot() {
+        admissionControl = new AdmissionControl(1, 0, Duration.ofMinutes(1));
+        IllegalStateException failure = new IllegalStateException();
+
+        CompletableFuture<Integer> result = admissionControl.submit(() -> {
+            throw failure;
+        }, tasks::add);
+        runTask(0);
+
+        try {
+            result.get();
+            fail("ExecutionException expected");
+        } catch (Exception exception) {
+            assertThat(exception.getCause() == failure, is(true));
+        }
+        assertThat(admissionControl.running(), is(0));
+    }
+
+    @Test
+    public void starts_the_waiters_of_a_direct_executor_without_growing_the_stack() {
+        admissionControl = new AdmissionControl(1, 1000, Duration.ofMinutes(1));
+        admissionControl.submit(() -> 0, tasks::add);
+        List<Integer> stackDepths = new ArrayList<>();
+        List<CompletableFuture<Integer>> waiting = new ArrayList<>();
+        for (int index = 1; index <= 1000; ++index) {
+            waiting.add(admissionControl.submit(() -> {
+                stackDepths.add(Thread.currentThread().getStackTrace().length);
+                return 1;
+            }, Runnable::run));
+        }
+
+        runTask(0);
+
+        assertThat(waiting.stream().mapToInt(CompletableFuture::join).sum(), is(1000));
+        assertThat(stackDepths.get(999), is(stackDepths.get(0)));
+        assertThat(admissionControl.running(), is(0));
+    }
+
+    @Test
+    public void removes_a_waiter_whose_future_is_cancelled() {
+        admissionControl = new AdmissionControl(1, 1, Duration.ofMinutes(1));
+        admissionControl.submit(() -> 1, tasks::add);
+        CompletableFuture<Integer> cancelled = admissionControl.submit(() -> 2, tasks::add);
+
+        cancelled.cancel(false);
+
+        assertThat(admissionControl.queueDepth(), is(0));
+        CompletableFuture<Integer> next = admissionControl.submit(() -> 3, tasks::add);
+        runTask(0);
+        assertThat(tasks.size(), is(2));
+        runTask(1);
+        assertThat(next.getNow(null), is(3));
+        assertThat(admissionControl.running(), is(0));
+        assertThat(admissionControl.admittedCount(), is(2L));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_max_running_is_not_positive() {
+        new AdmissionControl(0, 1, Duration.ofSeconds(1));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_max_queue_time_is_not_positive() {
+        new AdmissionControl(1, 1, Duration.ZERO);
+    }
+
+    private void runTask(int index) {
+        tasks.get(index).run();
+    }
+
+    private static void assertFailedWithTransactionRejectedException(CompletableFuture<?> future) {
+        assertThat(future.isCompletedExceptionally(), is(true));
+        try {
+            future.join();
+        } catch (Exception exception) {
+            assertThat(exception.getCause(), instanceOf(TransactionRejectedException.class));
+        }
+    }
+}
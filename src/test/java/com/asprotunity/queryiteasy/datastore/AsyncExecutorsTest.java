@@ -0,0 +1,79 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AsyncExecutorsTest {
+
+    @Test
+    public void bounded_pool_runs_at_most_the_given_number_of_tasks_at_once() throws InterruptedException {
+        ExecutorService executor = AsyncExecutors.boundedPool(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(4);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try {
+            for (int task = 0; task < 4; ++task) {
+                executor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    finished.countDown();
+                });
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+            release.countDown();
+
+            assertThat(finished.await(5, TimeUnit.SECONDS), is(true));
+            assertThat(maxRunning.get(), is(2));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void bounded_pool_uses_daemon_threads() throws Exception {
+        ExecutorService executor = AsyncExecutors.boundedPool(1);
+        try {
+            assertThat(executor.submit(() -> Thread.currentThread().isDaemon()).get(5, TimeUnit.SECONDS), is(true));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void bounded_pool_throws_exception_when_threads_is_not_positive() {
+        AsyncExecutors.boundedPool(0);
+    }
+
+    @Test
+    public void virtual_thread_per_task_runs_tasks_only_when_virtual_threads_are_available() throws Exception {
+        if (!AsyncExecutors.virtualThreadsAvailable()) {
+            try {
+                AsyncExecutors.virtualThreadPerTask();
+                fail("UnsupportedOperationException expected");
+            } catch (UnsupportedOperationException expected) {
+                return;
+            }
+        }
+        ExecutorService executor = AsyncExecutors.virtualThreadPerTask();
+        try {
+            assertThat(executor.submit(() -> 1).get(5, TimeUnit.SECONDS), is(1));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
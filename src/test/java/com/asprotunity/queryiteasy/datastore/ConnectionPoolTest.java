@@ -0,0 +1,174 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+    private DataSource dataSource;
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_datasource_is_null() {
+        new ConnectionPool(null, 0, 1, Duration.ofMinutes(1), Duration.ofSeconds(1));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_min_size_greater_than_max_size() {
+        new ConnectionPool(dataSource, 2, 1, Duration.ofMinutes(1), Duration.ofSeconds(1));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_idle_timeout_is_not_positive() {
+        new ConnectionPool(dataSource, 0, 1, Duration.ZERO, Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void opens_min_size_connections_when_created() throws SQLException {
+        pool = new ConnectionPool(dataSource, 2, 4, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        assertThat(pool.size(), is(2));
+        assertThat(pool.idleCount(), is(2));
+        verify(dataSource, times(2)).getConnection();
+    }
+
+    @Test
+    public void reuses_the_connection_released_by_the_same_thread() throws SQLException {
+        pool = new ConnectionPool(dataSource, 0, 4, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        ConnectionPool.PooledConnection first = pool.borrow();
+        pool.release(first);
+        ConnectionPool.PooledConnection second = pool.borrow();
+
+        assertThat(second, is(sameInstance(first)));
+        verify(dataSource, times(1)).getConnection();
+    }
+
+    @Test
+    public void opens_new_connections_while_none_idle_up_to_max_size() throws SQLException {
+        pool = new ConnectionPool(dataSource, 0, 2, Duration.ofMinutes(1), Duration.ZERO);
+
+        ConnectionPool.PooledConnection first = pool.borrow();
+        ConnectionPool.PooledConnection second = pool.borrow();
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(pool.size(), is(2));
+        assertThat(pool.idleCount(), is(0));
+    }
+
+    @Test
+    public void times_out_when_all_connections_are_in_use() throws SQLException {
+        pool = new ConnectionPool(dataSource, 0, 1, Duration.ofMinutes(1), Duration.ofMillis(10));
+        pool.borrow();
+
+        try {
+            pool.borrow();
+            fail("SQLTransientConnectionException expected");
+        } catch (SQLTransientConnectionException exception) {
+            assertThat(pool.size(), is(1));
+        }
+    }
+
+    @Test
+    public void hands_released_connection_to_waiting_thread() throws Exception {
+        pool = new ConnectionPool(dataSource, 0, 1, Duration.ofMinutes(1), Duration.ofSeconds(10));
+        ConnectionPool.PooledConnection borrowed = pool.borrow();
+
+        CompletableFuture<ConnectionPool.PooledConnection> waiting = CompletableFuture.supplyAsync(
+                () -> RuntimeSQLException.executeWithResult(pool::borrow));
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertThat(waiting.isDone(), is(false));
+        pool.release(borrowed);
+
+        assertThat(waiting.get(5, TimeUnit.SECONDS), is(sameInstance(borrowed)));
+        verify(dataSource, times(1)).getConnection();
+    }
+
+    @Test
+    public void discards_connections_closed_while_in_use() throws SQLException {
+        pool = new ConnectionPool(dataSource, 0, 1, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        ConnectionPool.PooledConnection borrowed = pool.borrow();
+        when(borrowed.connection.isClosed()).thenReturn(true);
+
+        pool.release(borrowed);
+
+        assertThat(pool.size(), is(0));
+        assertThat(pool.borrow(), is(not(sameInstance(borrowed))));
+    }
+
+    @Test
+    public void evicts_idle_connections_down_to_min_size() throws Exception {
+        pool = new ConnectionPool(dataSource, 1, 3, Duration.ofMillis(1), Duration.ofSeconds(1));
+        ConnectionPool.PooledConnection first = pool.borrow();
+        ConnectionPool.PooledConnection second = pool.borrow();
+        ConnectionPool.PooledConnection third = pool.borrow();
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        pool.evictIdleConnections();
+
+        assertThat(pool.size(), is(1));
+        assertThat(pool.idleCount(), is(1));
+    }
+
+    @Test
+    public void close_closes_idle_connections_and_rejects_borrowing() throws SQLException {
+        pool = new ConnectionPool(dataSource, 1, 1, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        ConnectionPool.PooledConnection idle = pool.borrow();
+        pool.release(idle);
+
+        pool.close();
+
+        verify(idle.connection, times(1)).close();
+        assertThat(pool.size(), is(0));
+        try {
+            pool.borrow();
+            fail("SQLException expected");
+        } catch (SQLException exception) {
+            assertThat(exception.getMessage(), is("The connection pool is closed."));
+        }
+    }
+
+    @Test
+    public void close_closes_connections_in_use_when_they_are_released() throws SQLException {
+        pool = new ConnectionPool(dataSource, 0, 1, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        ConnectionPool.PooledConnection borrowed = pool.borrow();
+
+        pool.close();
+        verify(borrowed.connection, times(0)).close();
+        pool.release(borrowed);
+
+        verify(borrowed.connection, times(1)).close();
+    }
+}
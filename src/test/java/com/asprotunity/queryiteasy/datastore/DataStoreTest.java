@@ -1,5 +1,7 @@
 package com.asprotunity.queryiteasy.datastore;
 
+import com.asprotunity.queryiteasy.connection.StatementContext;
+import com.asprotunity.queryiteasy.connection.StatementListener;
 import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,6 +10,7 @@ import org.mockito.Mockito;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -40,6 +43,11 @@ public class DataStoreTest {
         new DataStore(null);
     }
 
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_statement_cache_size_is_negative() {
+        new DataStore(Mockito.mock(DataSource.class), -1);
+    }
+
     @Test
     public void commits_rollbacks_and_closes_transaction_in_this_order() throws java.sql.SQLException {
         dataStore.execute(connection -> {
@@ -47,6 +55,35 @@ public class DataStoreTest {
         assertCommitRollbackAndCloseCalledInThisOrder();
     }
 
+    @Test
+    public void tells_the_statement_listener_when_the_connection_is_acquired_and_the_transaction_commits() {
+        List<String> phases = new ArrayList<>();
+        dataStore.withStatementListener(new StatementListener() {
+            @Override
+            public void acquired(StatementContext context) {
+                phases.add("acquired");
+            }
+
+            @Override
+            public void committed(StatementContext context) {
+                phases.add("committed");
+            }
+        }).execute(connection -> {
+        });
+
+        assertThat(phases, is(Arrays.asList("acquired", "committed")));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void with_statement_listener_throws_when_listener_is_null() {
+        dataStore.withStatementListener(null);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void with_multi_row_inserts_throws_when_max_parameters_is_not_positive() {
+        dataStore.withMultiRowInserts(0);
+    }
+
     @Test(expected = InvalidArgumentException.class)
     public void executeWithResult_throws_when_transaction_is_null() {
         dataStore.executeWithResult(null);
@@ -161,6 +198,83 @@ public class DataStoreTest {
         });
     }
 
+    @Test
+    public void runs_asynchronous_transactions_on_its_own_threads_by_default() {
+        String threadName = dataStore.executeWithResultAsync(connection -> Thread.currentThread().getName()).join();
+
+        assertThat(threadName.startsWith("queryiteasy-async-"), is(true));
+    }
+
+    @Test
+    public void runs_asynchronous_transactions_on_the_given_executor() throws SQLException {
+        List<Runnable> tasks = new ArrayList<>();
+        DataStore dataStoreWithExecutor = dataStore.withAsyncExecutor(tasks::add);
+
+        CompletableFuture<Integer> futureResult = dataStoreWithExecutor.executeWithResultAsync(connection -> 1);
+        CompletableFuture<Void> futureCompletion = dataStoreWithExecutor.executeAsync(connection -> {
+        });
+
+        assertThat(tasks.size(), is(2));
+        tasks.forEach(Runnable::run);
+        assertThat(futureResult.join(), is(1));
+        futureCompletion.join();
+        verify(jdbcConnection, times(2)).commit();
+    }
+
+    @Test
+    public void rejects_asynchronous_transactions_not_admitted_by_admission_control() throws SQLException {
+        List<Runnable> tasks = new ArrayList<>();
+        try (AdmissionControl admissionControl = new AdmissionControl(1, 0, Duration.ofMinutes(1))) {
+            DataStore limitedDataStore = dataStore.withAsyncExecutor(tasks::add)
+                                                  .withAdmissionControl(admissionControl);
+
+            CompletableFuture<Void> admitted = limitedDataStore.executeAsync(connection -> {
+            });
+            CompletableFuture<Integer> rejected = limitedDataStore.executeWithResultAsync(connection -> 1);
+
+            assertThat(rejected.isCompletedExceptionally(), is(true));
+            tasks.forEach(Runnable::run);
+            admitted.join();
+            verify(jdbcConnection, times(1)).commit();
+            assertThat(admissionControl.rejectedCount(), is(1L));
+        }
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void with_admission_control_throws_exception_when_admission_control_is_null() {
+        dataStore.withAdmissionControl(null);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void with_async_executor_throws_exception_when_executor_is_null() {
+        dataStore.withAsyncExecutor(null);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void pooled_throws_exception_when_connection_pool_is_null() {
+        DataStore.pooled(null);
+    }
+
+    @Test
+    public void pooled_transactions_reuse_the_same_connection_without_closing_it() throws SQLException {
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(jdbcConnection);
+        try (ConnectionPool pool = new ConnectionPool(dataSource, 0, 1, Duration.ofMinutes(1), Duration.ofSeconds(1))) {
+            DataStore pooledDataStore = DataStore.pooled(pool);
+
+            pooledDataStore.execute(connection -> {
+            });
+            pooledDataStore.execute(connection -> {
+            });
+
+            verify(dataSource, times(1)).getConnection();
+            verify(jdbcConnection, times(2)).commit();
+            verify(jdbcConnection, times(2)).rollback();
+            verify(jdbcConnection, times(0)).close();
+            assertThat(pool.idleCount(), is(1));
+        }
+    }
+
     private void assertCommitRollbackAndCloseCalledInThisOrder() throws SQLException {
         InOrder order = inOrder(jdbcConnection);
         order.verify(jdbcConnection, times(1)).commit();
@@ -0,0 +1,244 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.connection.InputParameter;
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindBlob;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindInteger;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindString;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class QueryCacheTest {
+
+    private static final String SQL = "SELECT name FROM songs WHERE id = ?";
+    private static final Object ROW_MAPPER = new Object();
+
+    private QueryCache cache;
+    private int selects;
+
+    @Before
+    public void setUp() {
+        cache = new QueryCache(10, Duration.ofMinutes(1));
+        selects = 0;
+    }
+
+    @Test
+    public void runs_the_select_only_the_first_time_for_the_same_sql_and_parameter_values() {
+        List<String> first = cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+        List<String> second = cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+
+        assertThat(selects, is(1));
+        assertThat(second == first, is(true));
+        assertThat(cache.hitCount(), is(1L));
+        assertThat(cache.missCount(), is(1L));
+    }
+
+    @Test
+    public void keys_the_results_by_parameter_values_sql_and_row_mapper() {
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(2)), rows("b"));
+        cache.get(ROW_MAPPER, SQL, parameters(bindString("1")), rows("c"));
+        cache.get(ROW_MAPPER, SQL + " ", parameters(bindInteger(1)), rows("d"));
+        cache.get(new Object(), SQL, parameters(bindInteger(1)), rows("e"));
+
+        assertThat(selects, is(5));
+        assertThat(cache.size(), is(5));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void returns_unmodifiable_results() {
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a")).add("b");
+    }
+
+    @Test
+    public void evicts_the_least_recently_used_results_when_there_are_too_many_rows() {
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a", "b", "c", "d"));
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(2)), rows("a", "b", "c", "d"));
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a", "b", "c", "d"));
+
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(3)), rows("a", "b", "c"));
+
+        assertThat(cache.evictionCount(), is(1L));
+        assertThat(cache.rowCount(), is(7L));
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a", "b", "c", "d"));
+        assertThat(selects, is(3));
+    }
+
+    @Test
+    public void does_not_cache_results_with_more_rows_than_the_maximum() {
+        cache = new QueryCache(1, Duration.ofMinutes(1));
+
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a", "b"));
+
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void runs_the_select_again_when_the_result_has_expired() throws InterruptedException {
+        cache = new QueryCache(10, Duration.ofMillis(1));
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+
+        TimeUnit.MILLISECONDS.sleep(5);
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+
+        assertThat(selects, is(2));
+        assertThat(cache.evictionCount(), is(1L));
+    }
+
+    @Test
+    public void invalidates_the_results_of_the_tables_updated() {
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+        cache.get(ROW_MAPPER, "SELECT name FROM albums", parameters(), rows("b"));
+
+        cache.invalidateWrittenBy(Collections.singletonList("UPDATE Songs SET name = ? WHERE id = ?"));
+
+        assertThat(cache.size(), is(1));
+        assertThat(cache.invalidationCount(), is(1L));
+        cache.get(ROW_MAPPER, "SELECT name FROM albums", parameters(), rows("b"));
+        assertThat(selects, is(2));
+    }
+
+    @Test
+    public void invalidates_everything_when_the_tables_updated_are_unknown() {
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+        cache.get(ROW_MAPPER, "SELECT name FROM albums", parameters(), rows("b"));
+
+        cache.invalidateWrittenBy(Collections.singletonList("{call update_everything()}"));
+
+        assertThat(cache.size(), is(0));
+        assertThat(cache.invalidationCount(), is(2L));
+    }
+
+    @Test
+    public void invalidates_the_results_of_a_table_explicitly() {
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+        cache.get(ROW_MAPPER, "SELECT name FROM albums", parameters(), rows("b"));
+
+        cache.invalidate("music.\"Songs\"");
+
+        assertThat(cache.size(), is(1));
+        assertThat(cache.invalidationCount(), is(1L));
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+        assertThat(selects, is(3));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_the_table_to_invalidate_is_null() {
+        cache.invalidate(null);
+    }
+
+    @Test
+    public void does_not_cache_a_result_read_while_an_update_was_committed() {
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), () -> {
+            cache.invalidateWrittenBy(Collections.singletonList("DELETE FROM songs"));
+            return Collections.singletonList("stale");
+        });
+
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void does_not_cache_results_of_selects_binding_streams() {
+        InputParameter blob = bindBlob(() -> new ByteArrayInputStream(new byte[]{1}));
+
+        cache.get(ROW_MAPPER, SQL, parameters(blob), rows("a"));
+        cache.get(ROW_MAPPER, SQL, parameters(blob), rows("a"));
+
+        assertThat(selects, is(2));
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test
+    public void finds_the_tables_read_by_a_select() {
+        assertThat(QueryCache.tablesReadBy("select s.name from music.SONGS s join \"Albums\" a on s.album = a.id, " +
+                                           "artists where a.id in (select id from charts)"),
+                   containsInAnyOrder("SONGS", "ALBUMS", "ARTISTS", "CHARTS"));
+    }
+
+    @Test
+    public void finds_the_table_written_by_an_update() {
+        assertThat(QueryCache.tableWrittenBy("insert into music.songs (name) values (?)"), is("SONGS"));
+        assertThat(QueryCache.tableWrittenBy(" UPDATE songs SET name = ?"), is("SONGS"));
+        assertThat(QueryCache.tableWrittenBy("DELETE FROM songs"), is("SONGS"));
+        assertThat(QueryCache.tableWrittenBy("MERGE INTO songs USING albums ON 1 = 1"), is("SONGS"));
+        assertThat(QueryCache.tableWrittenBy("TRUNCATE TABLE songs"), is("SONGS"));
+        assertThat(QueryCache.tableWrittenBy("{call add_song(?)}"), is(nullValue()));
+    }
+
+    @Test
+    public void finds_the_table_written_by_an_update_skipping_only_and_if_exists() {
+        assertThat(QueryCache.tableWrittenBy("UPDATE ONLY songs SET name = ?"), is("SONGS"));
+        assertThat(QueryCache.tableWrittenBy("update only songs * set name = ?"), is("SONGS"));
+        assertThat(QueryCache.tableWrittenBy("UPDATE songs s SET name = ?"), is("SONGS"));
+        assertThat(QueryCache.tableWrittenBy("DELETE FROM ONLY songs WHERE id = ?"), is("SONGS"));
+        assertThat(QueryCache.tableWrittenBy("TRUNCATE ONLY songs"), is("SONGS"));
+        assertThat(QueryCache.tableWrittenBy("DROP TABLE IF EXISTS songs"), is("SONGS"));
+    }
+
+    @Test
+    public void does_not_guess_the_table_written_when_it_is_not_certain() {
+        assertThat(QueryCache.tableWrittenBy("UPDATE songs, albums SET songs.name = albums.name"), is(nullValue()));
+        assertThat(QueryCache.tableWrittenBy("UPDATE songs JOIN albums ON 1 = 1 SET name = ?"), is(nullValue()));
+        assertThat(QueryCache.tableWrittenBy("UPDATE LOW_PRIORITY songs SET name = ?"), is(nullValue()));
+        assertThat(QueryCache.tableWrittenBy("DELETE songs, albums FROM songs JOIN albums"), is(nullValue()));
+        assertThat(QueryCache.tableWrittenBy("DELETE FROM songs, albums USING songs JOIN albums"), is(nullValue()));
+        assertThat(QueryCache.tableWrittenBy("TRUNCATE songs, albums"), is(nullValue()));
+    }
+
+    @Test
+    public void invalidates_the_results_of_a_table_updated_with_only() {
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+        cache.get(ROW_MAPPER, "SELECT name FROM albums", parameters(), rows("b"));
+
+        cache.invalidateWrittenBy(Collections.singletonList("UPDATE ONLY songs SET name = ?"));
+
+        assertThat(cache.size(), is(1));
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+        assertThat(selects, is(3));
+    }
+
+    @Test
+    public void invalidates_everything_when_the_table_updated_is_not_certain() {
+        cache.get(ROW_MAPPER, SQL, parameters(bindInteger(1)), rows("a"));
+        cache.get(ROW_MAPPER, "SELECT name FROM albums", parameters(), rows("b"));
+
+        cache.invalidateWrittenBy(Collections.singletonList("UPDATE albums JOIN songs ON 1 = 1 SET songs.name = ?"));
+
+        assertThat(cache.size(), is(0));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_max_rows_is_not_positive() {
+        new QueryCache(0, Duration.ofSeconds(1));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_time_to_live_is_not_positive() {
+        new QueryCache(1, Duration.ZERO);
+    }
+
+    private Supplier<List<String>> rows(String... rows) {
+        return () -> {
+            ++selects;
+            return Arrays.asList(rows);
+        };
+    }
+
+    private static InputParameter[] parameters(InputParameter... parameters) {
+        return parameters;
+    }
+}
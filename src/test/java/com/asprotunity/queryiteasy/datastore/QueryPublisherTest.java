@@ -0,0 +1,274 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.connection.QueryOptions;
+import com.asprotunity.queryiteasy.connection.internal.WrappedJDBCConnection;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import com.asprotunity.queryiteasy.flow.Flow;
+import com.asprotunity.queryiteasy.scope.DefaultAutoCloseableScope;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class QueryPublisherTest {
+
+    private WrappedJDBCConnection connection;
+    private int connectionsOpened;
+    private AtomicBoolean rowsClosed;
+    private AtomicReference<QueryOptions> options;
+    private RecordingSubscriber subscriber;
+
+    @Before
+    public void setUp() {
+        connection = mock(WrappedJDBCConnection.class);
+        connectionsOpened = 0;
+        rowsClosed = new AtomicBoolean(false);
+        options = new AtomicReference<>();
+        subscriber = new RecordingSubscriber();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void throws_exception_when_subscriber_is_null() {
+        publisherOf(1, 2).subscribe(null);
+    }
+
+    @Test
+    public void runs_the_query_only_when_rows_are_first_requested() {
+        publisherOf(1, 2).subscribe(subscriber);
+
+        assertThat(subscriber.subscription == null, is(false));
+        assertThat(connectionsOpened, is(0));
+        subscriber.subscription.request(1);
+        assertThat(connectionsOpened, is(1));
+    }
+
+    @Test
+    public void sends_rows_only_as_requested_using_the_first_request_as_fetch_size() throws SQLException {
+        publisherOf(1, 2, 3).subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+
+        assertThat(subscriber.rows, contains(1, 2));
+        assertThat(subscriber.completed, is(false));
+        assertThat(fetchSizeOf(options.get()), is(2));
+        subscriber.subscription.request(1);
+        assertThat(subscriber.rows, contains(1, 2, 3));
+    }
+
+    @Test
+    public void caps_the_fetch_size() throws SQLException {
+        publisherOf(1).subscribe(subscriber);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertThat(fetchSizeOf(options.get()), is(QueryPublisher.MAX_FETCH_SIZE));
+    }
+
+    @Test
+    public void completes_as_soon_as_the_last_row_is_sent_then_commits_and_releases_the_transaction()
+            throws SQLException {
+        publisherOf(1, 2).subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+
+        assertThat(subscriber.rows, contains(1, 2));
+        assertThat(subscriber.completed, is(true));
+        assertThat(rowsClosed.get(), is(true));
+        InOrder order = inOrder(connection);
+        order.verify(connection).commit();
+        order.verify(connection).close();
+    }
+
+    @Test
+    public void completes_without_rows_for_an_empty_result() {
+        publisherOf().subscribe(subscriber);
+
+        subscriber.subscription.request(5);
+
+        assertThat(subscriber.rows.isEmpty(), is(true));
+        assertThat(subscriber.completed, is(true));
+    }
+
+    @Test
+    public void releases_the_transaction_without_committing_on_cancel() throws SQLException {
+        publisherOf(1, 2, 3).subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(2);
+
+        assertThat(subscriber.rows, contains(1));
+        assertThat(subscriber.completed, is(false));
+        assertThat(subscriber.failure, is(nullValue()));
+        assertThat(rowsClosed.get(), is(true));
+        verify(connection, never()).commit();
+        verify(connection).close();
+    }
+
+    @Test
+    public void does_not_run_the_query_when_cancelled_before_requesting() {
+        publisherOf(1).subscribe(subscriber);
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+
+        assertThat(connectionsOpened, is(0));
+        assertThat(subscriber.rows.isEmpty(), is(true));
+    }
+
+    @Test
+    public void signals_an_error_and_releases_the_transaction_when_the_request_is_not_positive()
+            throws SQLException {
+        publisherOf(1, 2).subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        subscriber.subscription.request(0);
+
+        assertThat(subscriber.failure, instanceOf(IllegalArgumentException.class));
+        assertThat(subscriber.rows, contains(1));
+        verify(connection, never()).commit();
+        verify(connection).close();
+    }
+
+    @Test
+    public void signals_the_failure_of_the_query_and_releases_the_transaction() throws SQLException {
+        IllegalStateException failure = new IllegalStateException();
+        new QueryPublisher<Integer>(this::openConnection, (connection, options) -> {
+            throw failure;
+        }, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+
+        assertThat(subscriber.failure == failure, is(true));
+        verify(connection).close();
+    }
+
+    @Test
+    public void signals_the_failure_of_invalid_sql_without_suppressed_exceptions() throws SQLException {
+        RuntimeSQLException failure = new RuntimeSQLException(new SQLException("unexpected token: SELEC"));
+        new QueryPublisher<Integer>(this::openConnection, (connection, options) -> {
+            throw failure;
+        }, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+
+        assertThat(subscriber.failure == failure, is(true));
+        assertThat(failure.getSuppressed().length, is(0));
+        verify(connection).close();
+    }
+
+    @Test
+    public void handles_requests_made_while_sending_rows_without_recursion() {
+        RecordingSubscriber oneAtATime = new RecordingSubscriber() {
+            @Override
+            public void onNext(Integer item) {
+                ++depth;
+                maxDepth = Math.max(maxDepth, depth);
+                super.onNext(item);
+                subscription.request(1);
+                --depth;
+            }
+        };
+        publisherOf(1, 2, 3).subscribe(oneAtATime);
+
+        oneAtATime.subscription.request(1);
+
+        assertThat(oneAtATime.rows, contains(1, 2, 3));
+        assertThat(oneAtATime.completed, is(true));
+        assertThat(oneAtATime.maxDepth, is(1));
+    }
+
+    @Test
+    public void sends_no_rows_before_on_subscribe_returns_even_if_it_requests_them() {
+        AtomicBoolean subscribing = new AtomicBoolean(false);
+        List<Boolean> sentWhileSubscribing = new ArrayList<>();
+        RecordingSubscriber eager = new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscribing.set(true);
+                super.onSubscribe(subscription);
+                subscription.request(Long.MAX_VALUE);
+                subscribing.set(false);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                sentWhileSubscribing.add(subscribing.get());
+                super.onNext(item);
+            }
+        };
+
+        publisherOf(1, 2).subscribe(eager);
+
+        assertThat(sentWhileSubscribing, contains(false, false));
+        assertThat(eager.completed, is(true));
+    }
+
+    private QueryPublisher<Integer> publisherOf(Integer... rows) {
+        BiFunction<com.asprotunity.queryiteasy.connection.Connection, QueryOptions, Stream<Integer>> query =
+                (connection, queryOptions) -> {
+                    options.set(queryOptions);
+                    return Arrays.stream(rows).onClose(() -> rowsClosed.set(true));
+                };
+        return new QueryPublisher<>(this::openConnection, query, Runnable::run);
+    }
+
+    private static int fetchSizeOf(QueryOptions options) throws SQLException {
+        Statement statement = mock(Statement.class);
+        options.applyTo(statement, new DefaultAutoCloseableScope());
+        ArgumentCaptor<Integer> fetchSize = ArgumentCaptor.forClass(Integer.class);
+        verify(statement).setFetchSize(fetchSize.capture());
+        return fetchSize.getValue();
+    }
+
+    private WrappedJDBCConnection openConnection() {
+        ++connectionsOpened;
+        return connection;
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Integer> {
+        final List<Integer> rows = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable failure;
+        boolean completed = false;
+        int depth = 0;
+        int maxDepth = 0;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            rows.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failure = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
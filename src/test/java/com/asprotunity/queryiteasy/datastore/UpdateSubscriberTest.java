@@ -0,0 +1,180 @@
+package com.asprotunity.queryiteasy.datastore;
+
+import com.asprotunity.queryiteasy.connection.Batch;
+import com.asprotunity.queryiteasy.connection.internal.WrappedJDBCConnection;
+import com.asprotunity.queryiteasy.exception.RuntimeSQLException;
+import com.asprotunity.queryiteasy.flow.Flow;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.asprotunity.queryiteasy.connection.Batch.batch;
+import static com.asprotunity.queryiteasy.connection.InputParameterBinders.bindInteger;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class UpdateSubscriberTest {
+
+    private static final String SQL = "INSERT INTO testtable (intvalue) VALUES (?)";
+
+    private WrappedJDBCConnection connection;
+    private int connectionsOpened;
+    private RecordingSubscription subscription;
+
+    @Before
+    public void setUp() {
+        connection = mock(WrappedJDBCConnection.class);
+        connectionsOpened = 0;
+        subscription = new RecordingSubscription();
+    }
+
+    @Test
+    public void requests_the_next_chunk_only_after_the_previous_one_has_been_committed() throws SQLException {
+        UpdateSubscriber<Integer> subscriber = subscriber(2, UpdateSubscriber.Commit.EACH_CHUNK);
+
+        subscriber.onSubscribe(subscription);
+        assertThat(subscription.requests, contains(2L));
+        subscriber.onNext(1);
+        assertThat(connectionsOpened, is(0));
+        subscriber.onNext(2);
+
+        assertThat(subscription.requests, contains(2L, 2L));
+        InOrder order = inOrder(connection);
+        order.verify(connection).update(eq(SQL), anyListOf(Batch.class));
+        order.verify(connection).commit();
+        order.verify(connection).close();
+    }
+
+    @Test
+    public void writes_the_last_partial_chunk_on_complete() throws Exception {
+        UpdateSubscriber<Integer> subscriber = subscriber(2, UpdateSubscriber.Commit.EACH_CHUNK);
+        subscriber.onSubscribe(subscription);
+
+        subscriber.onNext(1);
+        subscriber.onNext(2);
+        subscriber.onNext(3);
+        subscriber.onComplete();
+
+        assertThat(subscriber.written().get(), is(3L));
+        assertThat(connectionsOpened, is(2));
+        verify(connection, times(2)).update(eq(SQL), anyListOf(Batch.class));
+        verify(connection, times(2)).commit();
+    }
+
+    @Test
+    public void writes_all_chunks_in_one_transaction_committed_on_complete() throws Exception {
+        UpdateSubscriber<Integer> subscriber = subscriber(2, UpdateSubscriber.Commit.AT_END);
+        subscriber.onSubscribe(subscription);
+
+        subscriber.onNext(1);
+        subscriber.onNext(2);
+        subscriber.onNext(3);
+        verify(connection, never()).commit();
+        subscriber.onComplete();
+
+        assertThat(subscriber.written().get(), is(3L));
+        assertThat(connectionsOpened, is(1));
+        verify(connection, times(2)).update(eq(SQL), anyListOf(Batch.class));
+        verify(connection).commit();
+        verify(connection).close();
+    }
+
+    @Test
+    public void completes_with_nothing_written_when_there_are_no_items() throws Exception {
+        UpdateSubscriber<Integer> subscriber = subscriber(2, UpdateSubscriber.Commit.AT_END);
+        subscriber.onSubscribe(subscription);
+
+        subscriber.onComplete();
+
+        assertThat(subscriber.written().get(), is(0L));
+        assertThat(connectionsOpened, is(0));
+    }
+
+    @Test
+    public void rolls_back_and_fails_when_the_publisher_fails() throws SQLException {
+        UpdateSubscriber<Integer> subscriber = subscriber(2, UpdateSubscriber.Commit.AT_END);
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(1);
+        subscriber.onNext(2);
+        IllegalStateException failure = new IllegalStateException();
+
+        subscriber.onError(failure);
+
+        assertFailedWith(subscriber.written(), failure);
+        verify(connection, never()).commit();
+        verify(connection).close();
+    }
+
+    @Test
+    public void cancels_the_subscription_and_fails_when_a_chunk_cannot_be_written() throws SQLException {
+        RuntimeSQLException failure = new RuntimeSQLException(new SQLException());
+        doThrow(failure).when(connection).update(eq(SQL), anyListOf(Batch.class));
+        UpdateSubscriber<Integer> subscriber = subscriber(1, UpdateSubscriber.Commit.EACH_CHUNK);
+        subscriber.onSubscribe(subscription);
+
+        subscriber.onNext(1);
+        subscriber.onNext(2);
+
+        assertThat(subscription.cancelled, is(true));
+        assertThat(subscription.requests, contains(1L));
+        assertFailedWith(subscriber.written(), failure);
+        verify(connection, never()).commit();
+        verify(connection).close();
+    }
+
+    @Test
+    public void cancels_a_second_subscription() {
+        UpdateSubscriber<Integer> subscriber = subscriber(2, UpdateSubscriber.Commit.EACH_CHUNK);
+        RecordingSubscription second = new RecordingSubscription();
+
+        subscriber.onSubscribe(subscription);
+        subscriber.onSubscribe(second);
+
+        assertThat(second.cancelled, is(true));
+        assertThat(second.requests.isEmpty(), is(true));
+        assertThat(subscription.cancelled, is(false));
+    }
+
+    private UpdateSubscriber<Integer> subscriber(int chunkSize, UpdateSubscriber.Commit commit) {
+        return new UpdateSubscriber<>(this::openConnection, SQL, value -> batch(bindInteger(value)), chunkSize,
+                                      commit);
+    }
+
+    private WrappedJDBCConnection openConnection() {
+        ++connectionsOpened;
+        return connection;
+    }
+
+    private static void assertFailedWith(CompletableFuture<Long> written, Throwable failure) {
+        assertThat(written.isCompletedExceptionally(), is(true));
+        try {
+            written.join();
+        } catch (Exception exception) {
+            assertThat(exception.getCause() == failure, is(true));
+        }
+    }
+
+    private static class RecordingSubscription implements Flow.Subscription {
+        final List<Long> requests = new ArrayList<>();
+        boolean cancelled = false;
+
+        @Override
+        public void request(long n) {
+            requests.add(n);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
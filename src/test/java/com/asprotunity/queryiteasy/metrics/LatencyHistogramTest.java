@@ -0,0 +1,76 @@
+package com.asprotunity.queryiteasy.metrics;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void maps_each_value_to_a_bucket_whose_range_contains_it() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertThat(value <= LatencyHistogram.highestValueIn(bucket), is(true));
+            assertThat(bucket == 0 || value > LatencyHistogram.highestValueIn(bucket - 1), is(true));
+        }
+    }
+
+    @Test
+    public void keeps_the_relative_error_of_the_buckets_within_one_eighth() {
+        for (long value = 8; value < 1_000_000; value = value * 3 + 1) {
+            long highest = LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(value));
+            assertThat((highest - value) * 8 <= value, is(true));
+        }
+    }
+
+    @Test
+    public void reports_percentiles_count_mean_and_max() {
+        for (int millis = 1; millis <= 100; ++millis) {
+            histogram.record(Duration.ofMillis(millis).toNanos());
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.count(), is(100L));
+        assertThat(snapshot.mean(), is(Duration.ofNanos(50_500_000)));
+        assertThat(snapshot.max(), is(Duration.ofMillis(100)));
+        assertWithinOneEighth(snapshot.percentile(50), Duration.ofMillis(50));
+        assertWithinOneEighth(snapshot.percentile(99), Duration.ofMillis(99));
+        assertThat(snapshot.percentile(100), is(Duration.ofMillis(100)));
+    }
+
+    @Test
+    public void reports_zero_when_nothing_has_been_recorded() {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.count(), is(0L));
+        assertThat(snapshot.mean(), is(Duration.ZERO));
+        assertThat(snapshot.percentile(99), is(Duration.ZERO));
+    }
+
+    @Test
+    public void does_not_change_a_snapshot_already_taken() {
+        histogram.record(10);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        histogram.record(20);
+
+        assertThat(snapshot.count(), is(1L));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_percentile_is_out_of_range() {
+        histogram.snapshot().percentile(101);
+    }
+
+    private static void assertWithinOneEighth(Duration actual, Duration expected) {
+        assertThat(actual.compareTo(expected) >= 0, is(true));
+        assertThat(actual.minus(expected).multipliedBy(8).compareTo(expected) <= 0, is(true));
+    }
+}
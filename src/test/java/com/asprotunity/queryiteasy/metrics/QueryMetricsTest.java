@@ -0,0 +1,63 @@
+package com.asprotunity.queryiteasy.metrics;
+
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class QueryMetricsTest {
+
+    private final QueryMetrics metrics = new QueryMetrics();
+
+    @Test
+    public void normalises_white_space_and_literals() {
+        assertThat(QueryMetrics.normalise("SELECT  name\n FROM song WHERE id = 12 AND title = 'It''s' AND t2.x > -1.5"),
+                   is("SELECT name FROM song WHERE id = ? AND title = ? AND t2.x > ?"));
+    }
+
+    @Test
+    public void groups_statements_with_the_same_normalised_sql() {
+        StatementMetrics first = metrics.forSql("SELECT name FROM song WHERE id = 1");
+        StatementMetrics second = metrics.forSql("SELECT name FROM song  WHERE id = 2");
+        StatementMetrics other = metrics.forSql("SELECT name FROM album WHERE id = 1");
+
+        assertThat(first == second, is(true));
+        assertThat(first == other, is(false));
+        assertThat(first.sql(), is("SELECT name FROM song WHERE id = ?"));
+        assertThat(metrics.statements().size(), is(2));
+    }
+
+    @Test
+    public void counts_executions_errors_and_rows() {
+        StatementMetrics statement = metrics.forSql("UPDATE song SET rating = ?");
+
+        statement.recordExecution(1000);
+        statement.recordExecution(2000);
+        statement.recordError();
+        statement.addRowsUpdated(3);
+        statement.addRowsUpdated(java.sql.Statement.SUCCESS_NO_INFO);
+        statement.addRowsReturned(5);
+
+        assertThat(statement.executionCount(), is(2L));
+        assertThat(statement.errorCount(), is(1L));
+        assertThat(statement.rowsUpdated(), is(3L));
+        assertThat(statement.rowsReturned(), is(5L));
+        assertThat(statement.latency().count(), is(2L));
+    }
+
+    @Test
+    public void forgets_everything_when_cleared() {
+        metrics.forSql("SELECT 1 FROM song").recordExecution(10);
+
+        metrics.clear();
+
+        assertThat(metrics.statements().isEmpty(), is(true));
+        assertThat(metrics.forSql("SELECT 1 FROM song").executionCount(), is(0L));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_sql_is_null() {
+        metrics.forSql(null);
+    }
+}
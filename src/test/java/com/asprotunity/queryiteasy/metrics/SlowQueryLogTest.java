@@ -0,0 +1,151 @@
+package com.asprotunity.queryiteasy.metrics;
+
+import com.asprotunity.queryiteasy.connection.StatementContext;
+import com.asprotunity.queryiteasy.connection.StatementListener;
+import com.asprotunity.queryiteasy.exception.InvalidArgumentException;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SlowQueryLogTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void records_only_the_statements_over_the_threshold() {
+        SlowQueryLog log = new SlowQueryLog(Duration.ofMillis(10), 10, 100);
+
+        log.completed(statement("SELECT 1", 0, TimeUnit.MILLISECONDS.toNanos(10)));
+        log.completed(statement("SELECT 2", 0, TimeUnit.MILLISECONDS.toNanos(11)));
+
+        List<SlowQuery> entries = log.entries();
+        assertThat(entries.size(), is(1));
+        SlowQuery slowQuery = entries.get(0);
+        assertThat(slowQuery.sql(), is("SELECT 2"));
+        assertThat(slowQuery.parameters(), is("[42]"));
+        assertThat(slowQuery.rowCount(), is(3L));
+        assertThat(slowQuery.transactionId(), is(7L));
+        assertThat(slowQuery.duration(), is(Duration.ofMillis(11)));
+        assertThat(slowQuery.threadName(), is(Thread.currentThread().getName()));
+        assertThat(log.slowCount(), is(1L));
+    }
+
+    @Test
+    public void listens_only_to_completed_statements_unless_chained_with_a_listener_of_phases() {
+        SlowQueryLog log = new SlowQueryLog(Duration.ZERO, 10, 100);
+
+        assertThat(log.listensToPhases(), is(false));
+        assertThat(log.andThen(new SlowQueryLog(Duration.ZERO, 10, 100)).listensToPhases(), is(false));
+        assertThat(new StatementListener() {
+        }.andThen(log).listensToPhases(), is(true));
+    }
+
+    @Test
+    public void keeps_only_the_latest_statements_oldest_first() {
+        SlowQueryLog log = new SlowQueryLog(Duration.ZERO, 2, 100);
+
+        log.completed(statement("SELECT 1", 0, 1));
+        log.completed(statement("SELECT 2", 0, 1));
+        log.completed(statement("SELECT 3", 0, 1));
+
+        List<SlowQuery> entries = log.entries();
+        assertThat(entries.size(), is(2));
+        assertThat(entries.get(0).sql(), is("SELECT 2"));
+        assertThat(entries.get(1).sql(), is("SELECT 3"));
+    }
+
+    @Test
+    public void records_at_most_max_per_second_and_counts_the_others() {
+        SlowQueryLog log = new SlowQueryLog(Duration.ZERO, 10, 2);
+
+        for (int index = 0; index < 3; ++index) {
+            log.completed(statement("SELECT " + index, 0, 1));
+        }
+        log.completed(statement("SELECT later", SECOND, SECOND + 1));
+
+        assertThat(log.entries().size(), is(3));
+        assertThat(log.slowCount(), is(4L));
+        assertThat(log.droppedCount(), is(1L));
+    }
+
+    @Test
+    public void dumps_one_statement_per_line() {
+        SlowQueryLog log = new SlowQueryLog(Duration.ZERO, 10, 100);
+        log.completed(statement("SELECT 1", 0, 1));
+        log.completed(statement("SELECT 2", 0, 1));
+        StringBuilder output = new StringBuilder();
+
+        log.dump(output);
+
+        String[] lines = output.toString().split(System.lineSeparator());
+        assertThat(lines.length, is(2));
+        assertThat(lines[1], containsString("transaction 7"));
+        assertThat(lines[1], containsString("SELECT 2 [42]"));
+    }
+
+    @Test
+    public void forgets_the_statements_when_cleared() {
+        SlowQueryLog log = new SlowQueryLog(Duration.ZERO, 10, 100);
+        log.completed(statement("SELECT 1", 0, 1));
+
+        log.clear();
+
+        assertThat(log.entries().isEmpty(), is(true));
+        assertThat(log.slowCount(), is(1L));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_capacity_is_not_positive() {
+        new SlowQueryLog(Duration.ZERO, 0, 1);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void throws_exception_when_threshold_is_negative() {
+        new SlowQueryLog(Duration.ofMillis(-1), 1, 1);
+    }
+
+    private static StatementContext statement(String sql, long startNanos, long endNanos) {
+        return new StatementContext() {
+            @Override
+            public String sql() {
+                return sql;
+            }
+
+            @Override
+            public int parameterCount() {
+                return 1;
+            }
+
+            @Override
+            public String describeParameters() {
+                return "[42]";
+            }
+
+            @Override
+            public long rowCount() {
+                return 3;
+            }
+
+            @Override
+            public long transactionId() {
+                return 7;
+            }
+
+            @Override
+            public long startNanos() {
+                return startNanos;
+            }
+
+            @Override
+            public long endNanos() {
+                return endNanos;
+            }
+        };
+    }
+}